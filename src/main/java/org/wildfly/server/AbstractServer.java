@@ -23,34 +23,74 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 
 import org.jboss.as.controller.client.ModelControllerClient;
 import org.jboss.as.controller.client.helpers.DelegatingModelControllerClient;
 import org.jboss.as.controller.client.helpers.Operations;
 import org.jboss.dmr.ModelNode;
+import org.jboss.logging.Logger;
 import org.wildfly.core.launcher.CommandBuilder;
+import org.wildfly.core.launcher.DomainCommandBuilder;
 import org.wildfly.core.launcher.Launcher;
 import org.wildfly.core.launcher.ProcessHelper;
+import org.wildfly.core.launcher.StandaloneCommandBuilder;
 
 /**
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
  */
-abstract class AbstractServer implements Server, Killable {
+abstract class AbstractServer implements Server, Killable, Recordable {
+    private static final Logger LOGGER = Logger.getLogger(AbstractServer.class);
+    // The time to wait for a process to exit after a shutdown before capturing diagnostics
+    private static final long STOP_GRACE_PERIOD = 10L;
+    // The time to wait for a process to exit after it's been asked to terminate or killed
+    private static final long TERMINATE_TIMEOUT = 10L;
+    // The time between checks that a server has been suspended
+    private static final long SUSPEND_POLL_INTERVAL = 100L;
+
+    private static final ModelWalker MODEL_WALKER = ModelWalker.builder().build();
 
     private final CommandBuilder commandBuilder;
+    private final String name;
     private final OutputStream stdout;
+    private final Diagnostics diagnostics;
+    // Lifecycle operations are bounded by their own timeouts so they use the client without the policy applied
     protected final ModelControllerClient client;
+    private final ModelControllerClient policyClient;
+    private final ModelControllerClient managementClient;
+    private final ResilientModelControllerClient resilientClient;
     private volatile String versionString;
     private ConsoleConsumer consoleConsumer;
-    private Process process;
+    private ConsoleTail consoleTail;
+    private volatile ConsoleIndex consoleIndex;
+    private volatile Process process;
+    private final AtomicLong starts = new AtomicLong();
+    private volatile long bootTime = -1L;
+    private volatile String launchRecordingName;
+    private volatile String recordingName;
+    private volatile boolean stopping;
+    private volatile PortAllocator.Reservation portReservation;
+    private volatile CpuAllocator.Reservation cpuReservation;
+    private final AtomicBoolean crashed = new AtomicBoolean();
 
-    protected AbstractServer(final CommandBuilder commandBuilder, final ModelControllerClient client, final OutputStream stdout) {
+    protected AbstractServer(final String name, final CommandBuilder commandBuilder, final ModelControllerClient client,
+                             final OutputStream stdout, final Diagnostics diagnostics) {
+        this.name = name;
         this.commandBuilder = commandBuilder;
         this.stdout = stdout;
-        this.client = new NonClosingModelControllerClient(client);
+        this.diagnostics = diagnostics;
+        this.client = new NonClosingModelControllerClient(ResilientModelControllerClient.unwrap(client));
+        resilientClient = (client instanceof ResilientModelControllerClient ? (ResilientModelControllerClient) client : null);
+        policyClient = (resilientClient == null ? this.client : new NonClosingModelControllerClient(client));
+        managementClient = client;
     }
 
     /**
@@ -59,71 +99,630 @@ abstract class AbstractServer implements Server, Killable {
      * @throws IOException the an error occurs creating the process
      */
     public final synchronized void start(final long timeout) throws IOException, InterruptedException {
-        final Launcher launcher = Launcher.of(commandBuilder);
+        final long startTime = System.nanoTime();
+        fireEvent(ServerLifecycleEvent.Type.STARTING);
+        final CpuAllocator.Reservation cpuReservation = this.cpuReservation;
+        final Launcher launcher = Launcher.of(cpuReservation == null ? commandBuilder : cpuReservation.wrap(commandBuilder));
         // Determine if we should consume stdout
         if (stdout == null) {
             launcher.inherit();
         } else {
             launcher.setRedirectErrorStream(true);
         }
-        final Process process = launcher.launch();
-        if (stdout != null) {
-            consoleConsumer = ConsoleConsumer.start(process.getInputStream(), stdout);
+        final PortAllocator.Reservation portReservation = this.portReservation;
+        if (portReservation != null) {
+            // Fail fast if the ports were taken while the server was stopped
+            portReservation.acquire();
         }
-        if (!waitForStart(process, timeout)) {
+        if (cpuReservation != null) {
             try {
-                process.destroy();
-                process.waitFor(5L, TimeUnit.SECONDS);
-            } catch (InterruptedException ignore) {
+                cpuReservation.acquire();
+            } catch (IOException | RuntimeException e) {
+                if (portReservation != null) {
+                    portReservation.release();
+                }
+                throw e;
             }
-            throw new IllegalStateException(String.format("Managed server was not started within [%d] s", timeout));
+        }
+        stopping = false;
+        crashed.set(false);
+        if (resilientClient != null) {
+            // Operations to a previous process which timed out should not reject operations to the new process
+            resilientClient.reset();
+        }
+        final Process process;
+        try {
+            process = launcher.launch();
+        } catch (IOException | RuntimeException e) {
+            reset();
+            throw e;
         }
         this.process = process;
+        final boolean started;
+        try {
+            if (cpuReservation != null) {
+                cpuReservation.place(process);
+            }
+            ServerRegistry.register(this);
+            fireEvent(ServerLifecycleEvent.Type.PROCESS_SPAWNED);
+            recordingName = launchRecordingName;
+            if (stdout != null) {
+                consoleTail = (diagnostics == null ? null : new ConsoleTail(diagnostics.getConsoleLines()));
+                final ConsoleIndex consoleIndex = this.consoleIndex;
+                if (consoleIndex != null) {
+                    consoleIndex.clear();
+                }
+                consoleConsumer = ConsoleConsumer.start(name, process, stdout, consoleTail, consoleIndex);
+            }
+            started = waitForStart(process, timeout);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            destroy(process);
+            reset();
+            throw e;
+        }
+        if (!started) {
+            final boolean alive = process.isAlive();
+            final Path captured = captureDiagnostics(alive ? "start-timeout" : "start-failed", process);
+            if (alive) {
+                stopping = true;
+                fireEvent(ServerLifecycleEvent.Type.STOPPING);
+            } else {
+                checkProcess();
+            }
+            destroy(process);
+            reset();
+            if (alive) {
+                fireEvent(ServerLifecycleEvent.Type.STOPPED);
+            }
+            if (captured == null) {
+                throw new IllegalStateException(String.format("Managed server was not started within [%d] s", timeout));
+            }
+            throw new IllegalStateException(String.format("Managed server was not started within [%d] s. Diagnostics were written to %s", timeout, captured));
+        }
+        bootTime = System.nanoTime() - startTime;
+        starts.incrementAndGet();
+        fireEvent(ServerLifecycleEvent.Type.STARTED);
     }
 
     /**
      * Stops the server.
      */
     public final synchronized void stop() {
-        final ConsoleConsumer consoleConsumer = this.consoleConsumer;
-        this.consoleConsumer = null;
+        final boolean started = beginStop();
         try {
             // Stop the servers
             stopServer();
         } finally {
+            final Process process = this.process;
             try {
-                ProcessHelper.destroyProcess(process);
-            } catch (InterruptedException ignore) {
-                // no-op
+                if (diagnostics != null && process != null && !process.waitFor(STOP_GRACE_PERIOD, TimeUnit.SECONDS)) {
+                    captureDiagnostics("stop-stalled", process);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                try {
+                    // Destroys the process before waiting, so it's destroyed even if the thread was interrupted
+                    ProcessHelper.destroyProcess(process);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            reset();
+            if (started) {
+                fireEvent(ServerLifecycleEvent.Type.STOPPED);
+            }
+        }
+    }
+
+    @Override
+    public final synchronized StopPhase stop(final Duration timeout) {
+        final Process process = this.process;
+        final boolean started = beginStop();
+        try {
+            if (process == null || !process.isAlive()) {
+                return StopPhase.NOT_RUNNING;
+            }
+            return escalate(process, timeout.toNanos());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+            return StopPhase.KILL;
+        } finally {
+            reset();
+            if (started) {
+                fireEvent(ServerLifecycleEvent.Type.STOPPED);
             }
-            process = null;
-            versionString = null;
-            if (consoleConsumer != null) consoleConsumer.shutdown();
         }
     }
 
     /**
      * Returns a management client to communicate with the server.
      * <p>
-     * Note that invoking the {@link ModelControllerClient#close() close()} method does not close the client.
+     * Note that invoking the {@link ModelControllerClient#close() close()} method does not close the client. If a
+     * {@link ClientPolicy} was set when the server was built, operations executed with the client are subject to it.
      * </p>
      *
      * @return the client
      */
     public ModelControllerClient getClient() {
-        return client;
+        return policyClient;
+    }
+
+    /**
+     * Returns the process for the server or {@code null} if the server has not been started.
+     *
+     * @return the process or {@code null}
+     */
+    Process getProcess() {
+        return process;
+    }
+
+    /**
+     * Indicates whether or not the process for the server is alive. Unlike {@link #isRunning()} this does not query
+     * the server.
+     *
+     * @return {@code true} if the process is alive, otherwise {@code false}
+     */
+    boolean isProcessAlive() {
+        final Process process = this.process;
+        return process != null && process.isAlive();
+    }
+
+    /**
+     * The number of times the server has been successfully started.
+     *
+     * @return the number of successful starts
+     */
+    long getStartCount() {
+        return starts.get();
+    }
+
+    /**
+     * The time, in nanoseconds, the last successful start took.
+     *
+     * @return the time the last start took or {@code -1} if the server has not been started
+     */
+    long getBootTime() {
+        return bootTime;
     }
 
     /**
      * Kills the process forcibly.
      */
     public void kill() {
+        killProcess();
+    }
+
+    /**
+     * Kills the process forcibly and waits for it to exit. The server is then reset, releasing its reservations and
+     * console, unless a stop in progress has already reset it.
+     * <p>
+     * This does not wait for a stop in progress before killing the process, so it can be used to end a stop which is
+     * stalled.
+     * </p>
+     *
+     * @return {@link StopPhase#KILL} if the process was killed, otherwise {@link StopPhase#NOT_RUNNING}
+     */
+    StopPhase killProcess() {
         final Process process = this.process;
-        if (process != null) {
-            process.destroyForcibly();
+        if (process == null) {
+            return StopPhase.NOT_RUNNING;
         }
+        final boolean started = beginStop();
+        process.destroyForcibly();
+        try {
+            if (!process.waitFor(TERMINATE_TIMEOUT, TimeUnit.SECONDS)) {
+                LOGGER.debugf("Process %s did not exit after being killed", process);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            // A stop or start in progress resets the server itself once the process has exited
+            if (this.process == process) {
+                reset();
+            }
+        }
+        if (started) {
+            fireEvent(ServerLifecycleEvent.Type.STOPPED);
+        }
+        return started ? StopPhase.KILL : StopPhase.NOT_RUNNING;
+    }
+
+    public String awaitConsole(final Pattern pattern, final Duration timeout) throws InterruptedException {
+        return getConsoleIndex().await(pattern, timeout.toNanos());
+    }
+
+    public List<String> findInConsole(final Pattern pattern) {
+        return getConsoleIndex().find(pattern);
+    }
+
+    public void walkModel(final ModelNode address, final ResourceVisitor visitor) throws IOException, InterruptedException {
+        MODEL_WALKER.walk(policyClient, address, visitor);
+    }
+
+    public ReconcileReport reconcile(final DesiredState desired) throws IOException {
+        return Reconciler.reconcile(policyClient, desired);
+    }
+
+    private ConsoleIndex getConsoleIndex() {
+        final ConsoleIndex consoleIndex = this.consoleIndex;
+        if (consoleIndex == null) {
+            throw new IllegalStateException(String.format("The console of server %s is not indexed as no standard out or console index lines were set", name));
+        }
+        return consoleIndex;
+    }
+
+    /**
+     * Sets the number of console lines held to match the patterns of {@link #awaitConsole(Pattern, Duration)} and
+     * {@link #findInConsole(Pattern)}. The console is only indexed if a standard out is set.
+     *
+     * @param lines the number of lines to hold or {@code 0} to not index the console
+     */
+    void setConsoleIndexLines(final int lines) {
+        consoleIndex = (lines == 0 || stdout == null ? null : new ConsoleIndex(lines));
+    }
+
+    public int getPortOffset() {
+        final PortAllocator.Reservation portReservation = this.portReservation;
+        return portReservation == null ? 0 : portReservation.getOffset();
+    }
+
+    /**
+     * Sets the port reservation for the server. The reservation is acquired before the server is started and
+     * released when it's stopped.
+     *
+     * @param portReservation the port reservation
+     */
+    void setPortReservation(final PortAllocator.Reservation portReservation) {
+        this.portReservation = portReservation;
     }
 
+    /**
+     * Releases the port and CPU reservations, and closes the client, of a server which was built but will not be
+     * started, e.g. because building the domain it belongs to failed.
+     */
+    void discard() {
+        final PortAllocator.Reservation portReservation = this.portReservation;
+        if (portReservation != null) {
+            portReservation.release();
+        }
+        final CpuAllocator.Reservation cpuReservation = this.cpuReservation;
+        if (cpuReservation != null) {
+            cpuReservation.release();
+        }
+        safeClose(managementClient);
+    }
+
+    public CpuPlacement getCpuPlacement() {
+        final CpuAllocator.Reservation cpuReservation = this.cpuReservation;
+        return cpuReservation == null ? null : cpuReservation.getPlacement();
+    }
+
+    /**
+     * Sets the CPU reservation for the server. The reservation is acquired before the server is started, the process
+     * is launched bound to the reserved CPUs and the reservation is released when it's stopped.
+     *
+     * @param cpuReservation the CPU reservation
+     */
+    void setCpuReservation(final CpuAllocator.Reservation cpuReservation) {
+        this.cpuReservation = cpuReservation;
+    }
+
+    /**
+     * The name identifying this server in {@linkplain ServerLifecycleEvent lifecycle events}.
+     *
+     * @return the name of the server
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Invoked the first time the management interface responds while the server is starting.
+     */
+    void managementReachable() {
+        fireEvent(ServerLifecycleEvent.Type.MANAGEMENT_REACHABLE);
+    }
+
+    /**
+     * Checks whether the process has exited without the server being stopped and, if so, fires a
+     * {@link ServerLifecycleEvent.Type#CRASHED} event once.
+     */
+    void checkProcess() {
+        final Process process = this.process;
+        if (process != null && !stopping && !process.isAlive() && crashed.compareAndSet(false, true)) {
+            fireEvent(ServerLifecycleEvent.Type.CRASHED);
+        }
+    }
+
+    private boolean beginStop() {
+        final Process process = this.process;
+        if (process == null || stopping) {
+            return false;
+        }
+        if (!process.isAlive()) {
+            // The process has already exited
+            checkProcess();
+            stopping = true;
+            return false;
+        }
+        stopping = true;
+        fireEvent(ServerLifecycleEvent.Type.STOPPING);
+        return true;
+    }
+
+    private void fireEvent(final ServerLifecycleEvent.Type type) {
+        ServerLifecycleEvents.fire(type, name, this);
+    }
+
+    @Override
+    public void startRecording(final RecordingSettings settings) throws IOException {
+        if (recordingName != null) {
+            throw new IllegalStateException("A recording is already in progress: " + recordingName);
+        }
+        final Path jcmd = requireJcmd();
+        final long[] pids = getJvmPids();
+        final List<Long> started = new ArrayList<>();
+        try {
+            for (long pid : pids) {
+                final List<String> command = new ArrayList<>();
+                command.add("JFR.start");
+                // Each JVM of a domain writes its own file
+                command.addAll(pids.length == 1 ? settings.toArguments() : settings.toArguments(pid));
+                Jcmd.execute(jcmd, pid, command.toArray(new String[command.size()]));
+                started.add(pid);
+            }
+        } catch (IOException e) {
+            // Stop the recordings already started as they can't be stopped or dumped without a recording in progress
+            for (long pid : started) {
+                try {
+                    Jcmd.execute(jcmd, pid, "JFR.stop", "name=" + settings.getName());
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+        recordingName = settings.getName();
+    }
+
+    @Override
+    public List<Path> dumpRecording(final Path file) throws IOException {
+        final String name = recordingName;
+        if (name == null) {
+            throw new IllegalStateException("No recording is in progress");
+        }
+        final Path jcmd = requireJcmd();
+        final long[] pids = getJvmPids();
+        final List<Path> result = new ArrayList<>(pids.length);
+        final Path absoluteFile = file.toAbsolutePath();
+        IOException failure = null;
+        for (long pid : pids) {
+            final Path target = (pids.length == 1 ? absoluteFile : RecordingSettings.withPid(absoluteFile, pid));
+            try {
+                Jcmd.execute(jcmd, pid, "JFR.dump", "name=" + name, "filename=" + target);
+                result.add(target);
+            } catch (IOException e) {
+                // Not every process may have the recording, e.g. when only the host controller was recorded at launch
+                failure = addSuppressed(failure, e);
+            }
+        }
+        if (result.isEmpty() && failure != null) {
+            throw failure;
+        }
+        return result;
+    }
+
+    @Override
+    public void stopRecording() throws IOException {
+        final String name = recordingName;
+        if (name == null) {
+            return;
+        }
+        final Path jcmd = requireJcmd();
+        IOException failure = null;
+        boolean stopped = false;
+        for (long pid : getJvmPids()) {
+            try {
+                Jcmd.execute(jcmd, pid, "JFR.stop", "name=" + name);
+                stopped = true;
+            } catch (IOException e) {
+                failure = addSuppressed(failure, e);
+            }
+        }
+        if (!stopped && failure != null) {
+            throw failure;
+        }
+        recordingName = null;
+    }
+
+    /**
+     * Sets the name of a recording started with the {@code -XX:StartFlightRecording} JVM option each time the server
+     * is launched.
+     *
+     * @param name the name of the recording or {@code null} if no recording is started when launched
+     */
+    void setLaunchRecordingName(final String name) {
+        launchRecordingName = name;
+    }
+
+    /**
+     * Returns the pid of the launched process followed by the pids of each of its descendants.
+     *
+     * @return the pids of the JVMs for this server
+     *
+     * @throws IllegalStateException if the server has not been started
+     */
+    long[] getJvmPids() {
+        final long pid = Processes.pid(process);
+        if (pid < 0) {
+            throw new IllegalStateException("The server process is not running or the pid could not be determined");
+        }
+        return Processes.snapshot(new byte[4096]).withDescendants(pid);
+    }
+
+    private static IOException addSuppressed(final IOException current, final IOException e) {
+        if (current == null) {
+            return e;
+        }
+        current.addSuppressed(e);
+        return current;
+    }
+
+    private Path requireJcmd() throws IOException {
+        final Path jcmd = Jcmd.find(getJavaHome());
+        if (jcmd == null) {
+            throw new IOException("Could not find the jcmd executable in " + getJavaHome());
+        }
+        return jcmd;
+    }
+
+    /**
+     * Captures the diagnostics for the process if diagnostics have been configured.
+     *
+     * @param reason  the reason for capturing the diagnostics
+     * @param process the process to capture the diagnostics for
+     *
+     * @return the directory the diagnostics were written to or {@code null} if no diagnostics were captured
+     */
+    Path captureDiagnostics(final String reason, final Process process) {
+        if (diagnostics == null) {
+            return null;
+        }
+        final Path dir = diagnostics.capture(reason, process, getJavaHome(), consoleTail);
+        if (dir != null) {
+            LOGGER.debugf("Diagnostics for %s were written to %s", reason, dir);
+        }
+        return dir;
+    }
+
+    /**
+     * Returns the Java home the server is launched with.
+     *
+     * @return the Java home
+     */
+    Path getJavaHome() {
+        if (commandBuilder instanceof StandaloneCommandBuilder) {
+            return ((StandaloneCommandBuilder) commandBuilder).getJavaHome();
+        }
+        if (commandBuilder instanceof DomainCommandBuilder) {
+            return ((DomainCommandBuilder) commandBuilder).getJavaHome();
+        }
+        return Paths.get(System.getProperty("java.home"));
+    }
+
+    private StopPhase escalate(final Process process, final long timeout) throws InterruptedException {
+        final long start = System.nanoTime();
+        final long drainDeadline = start + (timeout / 2L);
+        final long deadline = start + timeout;
+        // Suspend the server and allow in-flight requests to drain
+        try {
+            suspendServer(drainDeadline - System.nanoTime());
+            while (!isSuspended(Math.max(0L, drainDeadline - System.nanoTime()))) {
+                if (process.waitFor(SUSPEND_POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+                    return StopPhase.SUSPEND;
+                }
+                if (System.nanoTime() >= drainDeadline) {
+                    LOGGER.debug("The server was not suspended within the drain timeout");
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Failed to suspend the server", e);
+        }
+        if (!process.isAlive()) {
+            return StopPhase.SUSPEND;
+        }
+        // Gracefully shutdown the server
+        try {
+            shutdownServer(deadline - System.nanoTime());
+        } catch (IOException e) {
+            LOGGER.debug("Failed to shutdown the server", e);
+        }
+        if (process.waitFor(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+            return StopPhase.SHUTDOWN;
+        }
+        captureDiagnostics("stop-timeout", process);
+        process.destroy();
+        if (process.waitFor(TERMINATE_TIMEOUT, TimeUnit.SECONDS)) {
+            return StopPhase.TERMINATE;
+        }
+        process.destroyForcibly();
+        if (!process.waitFor(TERMINATE_TIMEOUT, TimeUnit.SECONDS)) {
+            LOGGER.debugf("Process %s did not exit after being killed", process);
+        }
+        return StopPhase.KILL;
+    }
+
+    private static void destroy(final Process process) {
+        process.destroy();
+        try {
+            process.waitFor(5L, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void reset() {
+        final ConsoleConsumer consoleConsumer = this.consoleConsumer;
+        this.consoleConsumer = null;
+        process = null;
+        ServerRegistry.unregister(this);
+        final PortAllocator.Reservation portReservation = this.portReservation;
+        if (portReservation != null) {
+            portReservation.release();
+        }
+        final CpuAllocator.Reservation cpuReservation = this.cpuReservation;
+        if (cpuReservation != null) {
+            cpuReservation.release();
+        }
+        recordingName = null;
+        versionString = null;
+        if (consoleConsumer != null) consoleConsumer.shutdown();
+        stopped();
+    }
+
+    /**
+     * Invoked after the server has been stopped and the process has been destroyed. The default implementation does
+     * nothing.
+     */
+    protected void stopped() {
+    }
+
+    /**
+     * Starts suspending the server. The server may not be fully suspended when this returns.
+     *
+     * @param timeout the maximum time, in nanoseconds, the server has to suspend
+     *
+     * @throws IOException          if an error occurs communicating with the server
+     * @throws InterruptedException if interrupted while waiting for a response
+     */
+    protected abstract void suspendServer(long timeout) throws IOException, InterruptedException;
+
+    /**
+     * Checks whether the server has been suspended.
+     *
+     * @param timeout the maximum time, in nanoseconds, to wait for a response
+     *
+     * @return {@code true} if the server is suspended, otherwise {@code false}
+     *
+     * @throws IOException          if an error occurs communicating with the server
+     * @throws InterruptedException if interrupted while waiting for a response
+     */
+    protected abstract boolean isSuspended(long timeout) throws IOException, InterruptedException;
+
+    /**
+     * Initiates a shutdown of the server. This does not wait for the process to exit.
+     *
+     * @param timeout the maximum time, in nanoseconds, the server has to shutdown gracefully
+     *
+     * @throws IOException          if an error occurs communicating with the server
+     * @throws InterruptedException if interrupted while waiting for a response
+     */
+    protected abstract void shutdownServer(long timeout) throws IOException, InterruptedException;
+
     /**
      * Stops the server before the process is destroyed. A no-op override will just destroy the process.
      */
@@ -199,63 +798,51 @@ abstract class AbstractServer implements Server, Killable {
     }
 
     /**
-     * Consumes input and writes it to the output.
+     * Consumes the console of a process and writes it to the output.
      *
      * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
      */
-    private static class ConsoleConsumer {
-        private final InputStream in;
+    private static class ConsoleConsumer implements ConsolePump.Sink {
         private final OutputStream out;
-        private final ExecutorService executorService;
+        private final ConsoleTail tail;
+        private final ConsoleIndex index;
+        private ConsolePump.Handle handle;
 
-        private ConsoleConsumer(final InputStream in, final OutputStream out) {
-            this.in = in;
+        private ConsoleConsumer(final OutputStream out, final ConsoleTail tail, final ConsoleIndex index) {
             this.out = out;
-            executorService = Executors.newSingleThreadExecutor(r -> {
-                final Thread t = new Thread(r);
-                t.setDaemon(true);
-                t.setName("WildFly-Console-Consumer");
-                return t;
-            });
+            this.tail = tail;
+            this.index = index;
         }
 
         /**
-         * Creates and starts consuming the input stream.
+         * Creates and starts consuming the console of the process.
          *
-         * @param in  the input stream to redirect to the output stream
-         * @param out the output stream to redirect to
+         * @param name    the name of the server
+         * @param process the process to consume the console of
+         * @param out     the output stream to redirect to
+         * @param tail    the tail to also write to or {@code null}
+         * @param index   the index to also write to or {@code null}
          *
          * @return the console consumer which has started
          */
-        static ConsoleConsumer start(final InputStream in, final OutputStream out) {
-            final ConsoleConsumer consumer = new ConsoleConsumer(in, out);
-            consumer.start();
+        static ConsoleConsumer start(final String name, final Process process, final OutputStream out, final ConsoleTail tail, final ConsoleIndex index) {
+            final ConsoleConsumer consumer = new ConsoleConsumer(out, tail, index);
+            consumer.handle = ConsolePump.start(name, process.getInputStream(), process, consumer);
             return consumer;
         }
 
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            out.write(b, off, len);
+            if (tail != null) tail.write(b, off, len);
+            if (index != null) index.write(b, off, len);
+        }
+
         /**
          * Shutdown the consumer.
          */
-        protected void shutdown() {
-            try {
-                executorService.shutdown();
-                executorService.awaitTermination(2L, TimeUnit.SECONDS);
-            } catch (InterruptedException e) {
-                executorService.shutdownNow();
-            }
-        }
-
-        private void start() {
-            executorService.submit(() -> {
-                byte[] buffer = new byte[2048];
-                try {
-                    int len;
-                    while ((len = in.read(buffer)) != -1) {
-                        out.write(buffer, 0, len);
-                    }
-                } catch (IOException ignore) {
-                }
-            });
+        void shutdown() {
+            handle.close();
         }
     }
 
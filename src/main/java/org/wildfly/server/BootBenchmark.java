@@ -0,0 +1,675 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.Property;
+import org.jboss.logging.Logger;
+import org.wildfly.core.launcher.DomainCommandBuilder;
+import org.wildfly.core.launcher.StandaloneCommandBuilder;
+
+/**
+ * Boots a WildFly home a number of times in each {@linkplain Mode mode} and records how long each phase of the boot
+ * took.
+ * <p>
+ * The times are taken from the {@linkplain ServerLifecycleEvent lifecycle events} of each boot, relative to the
+ * {@link ServerLifecycleEvent.Type#STARTING STARTING} event, along with the boot time the server reports in its
+ * {@code WFLYSRV0025} console message. For a domain the reported time is the longest reported by the host controller
+ * and its servers.
+ * </p>
+ * <p>
+ * The {@linkplain Result results} can be written to and read from JSON so a run can be compared with a baseline of
+ * a previous run. The benchmark can also be run from the command line with {@link #main(String[])}.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public final class BootBenchmark {
+    private static final Logger LOGGER = Logger.getLogger(BootBenchmark.class);
+    private static final Pattern REPORTED_BOOT_TIME = Pattern.compile("WFLYSRV0025: .* started in (\\d+)ms");
+    private static final double NANOS_PER_MILLI = 1_000_000d;
+    private static final long EVENT_TIMEOUT = 5L;
+    // The number of console lines searched for the reported boot time
+    private static final int CONSOLE_INDEX_LINES = 10_000;
+
+    /**
+     * The mode a server is booted in.
+     */
+    public enum Mode {
+        STANDALONE,
+        DOMAIN,
+        /**
+         * A standalone server booted with {@code --admin-only}.
+         */
+        ADMIN_ONLY,
+    }
+
+    /**
+     * A phase of the boot. Each is measured from when the server was about to be started.
+     */
+    public enum Metric {
+        /**
+         * The process was launched.
+         */
+        PROCESS_SPAWNED,
+        /**
+         * The management interface responded for the first time.
+         */
+        MANAGEMENT_REACHABLE,
+        /**
+         * The server was started.
+         */
+        STARTED,
+        /**
+         * The boot time reported by the server itself, which is measured from when the JVM was started.
+         */
+        REPORTED,
+    }
+
+    private final Path wildflyHome;
+    private final Path javaHome;
+    private final Set<Mode> modes;
+    private final int iterations;
+    private final int warmup;
+    private final Duration timeout;
+
+    private BootBenchmark(final Builder builder) {
+        wildflyHome = builder.wildflyHome;
+        javaHome = builder.javaHome;
+        modes = builder.modes;
+        iterations = builder.iterations;
+        warmup = builder.warmup;
+        timeout = builder.timeout;
+    }
+
+    /**
+     * Creates a new builder for a benchmark of the WildFly home.
+     *
+     * @param wildflyHome the WildFly home directory to boot
+     *
+     * @return the new builder
+     */
+    public static Builder builder(final Path wildflyHome) {
+        if (wildflyHome == null) {
+            throw new IllegalArgumentException("The WildFly home cannot be null");
+        }
+        return new Builder(wildflyHome);
+    }
+
+    /**
+     * Runs the benchmark. The warm up boots of each mode are run first and are not included in the results.
+     *
+     * @return the results
+     *
+     * @throws IOException          if an error occurs launching a server
+     * @throws InterruptedException if interrupted while waiting for a server
+     */
+    public Result run() throws IOException, InterruptedException {
+        final Result result = new Result(wildflyHome.toString(), iterations);
+        for (Mode mode : modes) {
+            final double[][] samples = new double[Metric.values().length][iterations];
+            for (int i = -warmup; i < iterations; i++) {
+                final double[] times = boot(mode, i);
+                LOGGER.debugf("Boot %d of %s took %s", i, mode, Arrays.toString(times));
+                if (i >= 0) {
+                    for (Metric metric : Metric.values()) {
+                        samples[metric.ordinal()][i] = times[metric.ordinal()];
+                    }
+                }
+            }
+            for (Metric metric : Metric.values()) {
+                result.add(mode, metric, samples[metric.ordinal()]);
+            }
+        }
+        return result;
+    }
+
+    private double[] boot(final Mode mode, final int iteration) throws IOException, InterruptedException {
+        final String name = "boot-benchmark-" + mode.name().toLowerCase(Locale.ROOT) + '-' + iteration;
+        final Server server;
+        final Function<Pattern, List<String>> console;
+        if (mode == Mode.DOMAIN) {
+            final DomainCommandBuilder commandBuilder;
+            if (javaHome == null) {
+                commandBuilder = DomainCommandBuilder.of(wildflyHome);
+            } else {
+                commandBuilder = DomainCommandBuilder.of(wildflyHome, javaHome)
+                        .setHostControllerJavaHome(javaHome)
+                        .setServerJavaHome(javaHome);
+            }
+            final DomainServer domainServer = Server.builder(commandBuilder).setName(name).setStandardOut(new ConsoleBuffer(256 * 1024))
+                    .setConsoleIndexLines(CONSOLE_INDEX_LINES).build();
+            server = domainServer;
+            console = domainServer::findInConsole;
+        } else {
+            final StandaloneCommandBuilder commandBuilder = StandaloneCommandBuilder.of(wildflyHome);
+            if (javaHome != null) {
+                commandBuilder.setJavaHome(javaHome);
+            }
+            if (mode == Mode.ADMIN_ONLY) {
+                commandBuilder.addServerArgument("--admin-only");
+            }
+            final StandaloneServer standaloneServer = Server.builder(commandBuilder).setName(name).setStandardOut(new ConsoleBuffer(256 * 1024))
+                    .setConsoleIndexLines(CONSOLE_INDEX_LINES).build();
+            server = standaloneServer;
+            console = standaloneServer::findInConsole;
+        }
+        final long[] timestamps = new long[ServerLifecycleEvent.Type.values().length];
+        final CountDownLatch started = new CountDownLatch(1);
+        final ServerLifecycleListener listener = event -> {
+            if (event.getServer() == server) {
+                timestamps[event.getType().ordinal()] = event.getTimestamp();
+                if (event.getType() == ServerLifecycleEvent.Type.STARTED) {
+                    started.countDown();
+                }
+            }
+        };
+        ServerLifecycleEvents.addListener(listener);
+        try {
+            server.start(timeout.getSeconds());
+            // The events are delivered asynchronously
+            if (!started.await(EVENT_TIMEOUT, TimeUnit.SECONDS)) {
+                LOGGER.debugf("The %s event was not received for %s", ServerLifecycleEvent.Type.STARTED, name);
+            }
+            final double[] times = new double[Metric.values().length];
+            final long starting = timestamps[ServerLifecycleEvent.Type.STARTING.ordinal()];
+            times[Metric.PROCESS_SPAWNED.ordinal()] = elapsed(starting, timestamps[ServerLifecycleEvent.Type.PROCESS_SPAWNED.ordinal()]);
+            times[Metric.MANAGEMENT_REACHABLE.ordinal()] = elapsed(starting, timestamps[ServerLifecycleEvent.Type.MANAGEMENT_REACHABLE.ordinal()]);
+            times[Metric.STARTED.ordinal()] = elapsed(starting, timestamps[ServerLifecycleEvent.Type.STARTED.ordinal()]);
+            times[Metric.REPORTED.ordinal()] = reportedBootTime(console.apply(REPORTED_BOOT_TIME));
+            return times;
+        } finally {
+            server.stop();
+            ServerLifecycleEvents.removeListener(listener);
+        }
+    }
+
+    private static double elapsed(final long start, final long end) {
+        return (start == 0L || end == 0L ? -1d : (end - start) / NANOS_PER_MILLI);
+    }
+
+    static double reportedBootTime(final List<String> lines) {
+        long max = -1L;
+        for (String line : lines) {
+            final Matcher matcher = REPORTED_BOOT_TIME.matcher(line);
+            if (matcher.find()) {
+                max = Math.max(max, Long.parseLong(matcher.group(1)));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Runs the benchmark from the command line. The first argument is the WildFly home directory and is followed by
+     * any of these options:
+     * <ul>
+     * <li>{@code --iterations=N} the number of boots of each mode, default 10</li>
+     * <li>{@code --warmup=N} the number of boots of each mode not measured, default 1</li>
+     * <li>{@code --modes=standalone,domain,admin-only} the modes to boot, default standalone and domain</li>
+     * <li>{@code --java-home=DIR} the Java home to boot with</li>
+     * <li>{@code --output=FILE} the file to write the JSON results to</li>
+     * <li>{@code --baseline=FILE} the JSON results of a previous run to compare with</li>
+     * <li>{@code --threshold=RATIO} how much slower, as a ratio, a percentile may be than the baseline, default 0.1</li>
+     * </ul>
+     * The process exits with {@code 1} if a regression was found and {@code 2} if the arguments are invalid.
+     *
+     * @param args the arguments
+     *
+     * @throws Exception if the benchmark fails
+     */
+    public static void main(final String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: BootBenchmark <wildfly-home> [--iterations=N] [--warmup=N] [--modes=standalone,domain,admin-only] " +
+                    "[--java-home=DIR] [--output=FILE] [--baseline=FILE] [--threshold=RATIO]");
+            System.exit(2);
+        }
+        final Builder builder = builder(Paths.get(args[0]));
+        Path output = null;
+        Path baseline = null;
+        double threshold = 0.1d;
+        for (int i = 1; i < args.length; i++) {
+            final String arg = args[i];
+            final int eq = arg.indexOf('=');
+            final String value = (eq < 0 ? "" : arg.substring(eq + 1));
+            switch (eq < 0 ? arg : arg.substring(0, eq)) {
+                case "--iterations":
+                    builder.setIterations(Integer.parseInt(value));
+                    break;
+                case "--warmup":
+                    builder.setWarmup(Integer.parseInt(value));
+                    break;
+                case "--modes":
+                    final List<Mode> modes = new ArrayList<>();
+                    for (String mode : value.split(",")) {
+                        modes.add(Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT).replace('-', '_')));
+                    }
+                    builder.setModes(modes.toArray(new Mode[modes.size()]));
+                    break;
+                case "--java-home":
+                    builder.setJavaHome(Paths.get(value));
+                    break;
+                case "--output":
+                    output = Paths.get(value);
+                    break;
+                case "--baseline":
+                    baseline = Paths.get(value);
+                    break;
+                case "--threshold":
+                    threshold = Double.parseDouble(value);
+                    break;
+                default:
+                    System.err.println("Unknown argument: " + arg);
+                    System.exit(2);
+            }
+        }
+        final Result result = builder.build().run();
+        final String json = result.toModelNode().toJSONString(false);
+        if (output == null) {
+            System.out.println(json);
+        } else {
+            result.write(output);
+        }
+        if (baseline != null) {
+            final List<Regression> regressions = result.compareTo(Result.read(baseline), threshold);
+            for (Regression regression : regressions) {
+                System.out.println(regression);
+            }
+            if (!regressions.isEmpty()) {
+                System.exit(1);
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * The results of a benchmark. The times are in milliseconds.
+     */
+    public static final class Result {
+        private static final String[] PERCENTILES = {"p50", "p90", "p99"};
+        private final String wildflyHome;
+        private final int iterations;
+        private final Map<Mode, Map<Metric, ModelNode>> statistics;
+
+        Result(final String wildflyHome, final int iterations) {
+            this.wildflyHome = wildflyHome;
+            this.iterations = iterations;
+            statistics = new EnumMap<>(Mode.class);
+        }
+
+        /**
+         * Reads the results from a JSON file written by {@link #write(Path)}.
+         *
+         * @param file the file to read
+         *
+         * @return the results
+         *
+         * @throws IOException if the file could not be read
+         */
+        public static Result read(final Path file) throws IOException {
+            final ModelNode node;
+            try {
+                node = ModelNode.fromJSONString(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid benchmark results in " + file, e);
+            }
+            final Result result = new Result(node.get("wildfly-home").asString(), node.get("iterations").asInt());
+            if (node.hasDefined("modes")) {
+                for (Property mode : node.get("modes").asPropertyList()) {
+                    final Map<Metric, ModelNode> metrics = new EnumMap<>(Metric.class);
+                    for (Property metric : mode.getValue().asPropertyList()) {
+                        metrics.put(fromName(Metric.class, metric.getName()), metric.getValue());
+                    }
+                    result.statistics.put(fromName(Mode.class, mode.getName()), metrics);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Returns the statistics of a metric. The statistics include the {@code min}, {@code max}, {@code mean},
+         * {@code p50}, {@code p90} and {@code p99} times and the {@code samples}. A sample which could not be measured,
+         * e.g. because an event was not received, is {@code -1}. It is counted in {@code missing} and excluded from the
+         * times.
+         *
+         * @param mode   the mode
+         * @param metric the metric
+         *
+         * @return the statistics or an undefined node if the mode was not run
+         */
+        public ModelNode getStatistics(final Mode mode, final Metric metric) {
+            final Map<Metric, ModelNode> metrics = statistics.get(mode);
+            final ModelNode result = (metrics == null ? null : metrics.get(metric));
+            return (result == null ? new ModelNode() : result.clone());
+        }
+
+        /**
+         * Compares these results with a baseline. A regression is found for each percentile of a metric which is
+         * slower than the baseline by more than the threshold. Only the modes and metrics in both results are
+         * compared.
+         *
+         * @param baseline  the results to compare with
+         * @param threshold how much slower, as a ratio of the baseline, a percentile may be, e.g. {@code 0.1} for 10%
+         *
+         * @return the regressions or an empty list if none were found
+         */
+        public List<Regression> compareTo(final Result baseline, final double threshold) {
+            if (threshold < 0d) {
+                throw new IllegalArgumentException("The threshold cannot be negative: " + threshold);
+            }
+            final List<Regression> regressions = new ArrayList<>();
+            for (Map.Entry<Mode, Map<Metric, ModelNode>> mode : statistics.entrySet()) {
+                final Map<Metric, ModelNode> baselineMetrics = baseline.statistics.get(mode.getKey());
+                if (baselineMetrics == null) {
+                    continue;
+                }
+                for (Map.Entry<Metric, ModelNode> metric : mode.getValue().entrySet()) {
+                    final ModelNode baselineStatistics = baselineMetrics.get(metric.getKey());
+                    if (baselineStatistics == null) {
+                        continue;
+                    }
+                    for (String percentile : PERCENTILES) {
+                        final double expected = baselineStatistics.get(percentile).asDouble(-1d);
+                        final double actual = metric.getValue().get(percentile).asDouble(-1d);
+                        // A metric which could not be measured is negative
+                        if (expected >= 0d && actual >= 0d && actual > expected * (1d + threshold)) {
+                            regressions.add(new Regression(mode.getKey(), metric.getKey(), percentile, expected, actual));
+                        }
+                    }
+                }
+            }
+            return regressions;
+        }
+
+        /**
+         * Writes the results as JSON.
+         *
+         * @param file the file to write to
+         *
+         * @throws IOException if the file could not be written
+         */
+        public void write(final Path file) throws IOException {
+            final Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Files.write(file, toModelNode().toJSONString(false).getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Returns the results as a model node in the same format as the JSON.
+         *
+         * @return the results
+         */
+        public ModelNode toModelNode() {
+            final ModelNode result = new ModelNode();
+            result.get("wildfly-home").set(wildflyHome);
+            result.get("iterations").set(iterations);
+            final ModelNode modes = result.get("modes").setEmptyObject();
+            for (Map.Entry<Mode, Map<Metric, ModelNode>> mode : statistics.entrySet()) {
+                final ModelNode metrics = modes.get(toName(mode.getKey())).setEmptyObject();
+                for (Map.Entry<Metric, ModelNode> metric : mode.getValue().entrySet()) {
+                    metrics.get(toName(metric.getKey())).set(metric.getValue());
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return toModelNode().toJSONString(true);
+        }
+
+        void add(final Mode mode, final Metric metric, final double[] samples) {
+            final double[] sorted = Arrays.stream(samples).filter(sample -> sample >= 0d).sorted().toArray();
+            final ModelNode statistics = new ModelNode();
+            statistics.get("missing").set(samples.length - sorted.length);
+            if (sorted.length > 0) {
+                double total = 0d;
+                for (double sample : sorted) {
+                    total += sample;
+                }
+                statistics.get("min").set(round(sorted[0]));
+                statistics.get("max").set(round(sorted[sorted.length - 1]));
+                statistics.get("mean").set(round(total / sorted.length));
+                statistics.get("p50").set(round(percentile(sorted, 50)));
+                statistics.get("p90").set(round(percentile(sorted, 90)));
+                statistics.get("p99").set(round(percentile(sorted, 99)));
+            }
+            final ModelNode values = statistics.get("samples").setEmptyList();
+            for (double sample : samples) {
+                values.add(round(sample));
+            }
+            this.statistics.computeIfAbsent(mode, m -> new EnumMap<>(Metric.class)).put(metric, statistics);
+        }
+
+        private static double percentile(final double[] sorted, final int percentile) {
+            // The nearest rank
+            final int rank = (int) Math.ceil(percentile / 100d * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+
+        private static double round(final double value) {
+            return Math.round(value * 1000d) / 1000d;
+        }
+
+        private static String toName(final Enum<?> e) {
+            return e.name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+
+        private static <E extends Enum<E>> E fromName(final Class<E> type, final String name) throws IOException {
+            try {
+                return Enum.valueOf(type, name.toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                throw new IOException(String.format("Unknown %s %s", type.getSimpleName(), name), e);
+            }
+        }
+    }
+
+    /**
+     * A percentile of a metric which was slower than the baseline.
+     */
+    public static final class Regression {
+        private final Mode mode;
+        private final Metric metric;
+        private final String percentile;
+        private final double baseline;
+        private final double actual;
+
+        private Regression(final Mode mode, final Metric metric, final String percentile, final double baseline, final double actual) {
+            this.mode = mode;
+            this.metric = metric;
+            this.percentile = percentile;
+            this.baseline = baseline;
+            this.actual = actual;
+        }
+
+        /**
+         * The mode of the regression.
+         *
+         * @return the mode
+         */
+        public Mode getMode() {
+            return mode;
+        }
+
+        /**
+         * The metric which regressed.
+         *
+         * @return the metric
+         */
+        public Metric getMetric() {
+            return metric;
+        }
+
+        /**
+         * The percentile which regressed, e.g. {@code p90}.
+         *
+         * @return the percentile
+         */
+        public String getPercentile() {
+            return percentile;
+        }
+
+        /**
+         * The time, in milliseconds, of the baseline.
+         *
+         * @return the baseline time
+         */
+        public double getBaseline() {
+            return baseline;
+        }
+
+        /**
+         * The time, in milliseconds, of this run.
+         *
+         * @return the time
+         */
+        public double getActual() {
+            return actual;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s %s %s regressed from %.3f ms to %.3f ms (%+.1f%%)", mode, metric, percentile,
+                    baseline, actual, (actual - baseline) / baseline * 100d);
+        }
+    }
+
+    /**
+     * A builder used to create a {@link BootBenchmark}.
+     */
+    public static class Builder {
+        private final Path wildflyHome;
+        private Path javaHome;
+        private Set<Mode> modes;
+        private int iterations;
+        private int warmup;
+        private Duration timeout;
+
+        private Builder(final Path wildflyHome) {
+            this.wildflyHome = wildflyHome;
+            modes = new LinkedHashSet<>(Arrays.asList(Mode.STANDALONE, Mode.DOMAIN));
+            iterations = 10;
+            warmup = 1;
+            timeout = Duration.ofMinutes(2L);
+        }
+
+        /**
+         * Sets the Java home the servers are booted with. By default the Java home of the command builder is used.
+         *
+         * @param javaHome the Java home or {@code null} for the default
+         *
+         * @return this builder
+         */
+        public Builder setJavaHome(final Path javaHome) {
+            this.javaHome = javaHome;
+            return this;
+        }
+
+        /**
+         * Sets the modes to boot the server in, in the order they are run. The default is standalone and domain.
+         *
+         * @param modes the modes
+         *
+         * @return this builder
+         */
+        public Builder setModes(final Mode... modes) {
+            if (modes.length == 0) {
+                throw new IllegalArgumentException("At least one mode is required");
+            }
+            this.modes = new LinkedHashSet<>(Arrays.asList(modes));
+            return this;
+        }
+
+        /**
+         * Sets the number of measured boots of each mode. The default is 10.
+         *
+         * @param iterations the number of boots
+         *
+         * @return this builder
+         */
+        public Builder setIterations(final int iterations) {
+            if (iterations <= 0) {
+                throw new IllegalArgumentException("The number of iterations must be greater than 0: " + iterations);
+            }
+            this.iterations = iterations;
+            return this;
+        }
+
+        /**
+         * Sets the number of boots of each mode run before the measured boots. The default is 1.
+         *
+         * @param warmup the number of warm up boots
+         *
+         * @return this builder
+         */
+        public Builder setWarmup(final int warmup) {
+            if (warmup < 0) {
+                throw new IllegalArgumentException("The number of warm up boots cannot be negative: " + warmup);
+            }
+            this.warmup = warmup;
+            return this;
+        }
+
+        /**
+         * Sets the maximum time to wait for each boot. The default is 2 minutes.
+         *
+         * @param timeout the timeout
+         *
+         * @return this builder
+         */
+        public Builder setTimeout(final Duration timeout) {
+            if (timeout == null || timeout.getSeconds() <= 0L) {
+                throw new IllegalArgumentException("The timeout must be at least 1 second: " + timeout);
+            }
+            this.timeout = timeout;
+            return this;
+        }
+
+        /**
+         * Creates the benchmark.
+         *
+         * @return the benchmark
+         */
+        public BootBenchmark build() {
+            return new BootBenchmark(this);
+        }
+    }
+}
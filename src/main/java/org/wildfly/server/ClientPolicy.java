@@ -0,0 +1,239 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Defines how management operations executed with the {@linkplain Server#getClient() client} of a server are bounded
+ * and retried. A policy is only applied when one is set on the builder of the server. The operations used to start
+ * and stop the server are bounded by their own timeouts and are never subject to the policy.
+ * <p>
+ * Each operation must complete within a deadline or an {@link OperationTimeoutException} is thrown. Read-only
+ * operations which fail with an I/O error, including the server refusing the connection, are retried with an
+ * exponential backoff within the deadline. Operations which may change the server are never retried. Once the
+ * {@linkplain Builder#setFailureThreshold(int) failure threshold} of consecutive operations to a server time out, further
+ * operations are rejected with a {@link CircuitOpenException} until the
+ * {@linkplain Builder#setOpenDuration(Duration) open duration} has passed. A single operation is then allowed through
+ * and if it succeeds operations are allowed again.
+ * </p>
+ * <p>
+ * Operations with a {@code timeout} parameter, e.g. {@code suspend}, are given their timeout in addition to the
+ * deadline. Operations with a negative {@code timeout} or with {@code blocking} set to {@code true}, e.g. a blocking
+ * {@code stop-servers}, wait on the server without a bound and are not given a deadline. Operations executed
+ * asynchronously are not bounded or retried.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public final class ClientPolicy {
+    private final Duration deadline;
+    private final Map<String, Duration> deadlines;
+    private final int maxRetries;
+    private final Duration retryBackoff;
+    private final int failureThreshold;
+    private final Duration openDuration;
+
+    private ClientPolicy(final Builder builder) {
+        deadline = builder.deadline;
+        deadlines = new HashMap<>(builder.deadlines);
+        maxRetries = builder.maxRetries;
+        retryBackoff = builder.retryBackoff;
+        failureThreshold = builder.failureThreshold;
+        openDuration = builder.openDuration;
+    }
+
+    /**
+     * Creates a new builder for a client policy.
+     *
+     * @return the new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the deadline for the operation.
+     *
+     * @param operationName the name of the operation
+     *
+     * @return the deadline
+     */
+    public Duration getDeadline(final String operationName) {
+        return deadlines.getOrDefault(operationName, deadline);
+    }
+
+    /**
+     * The maximum number of times a read-only operation is retried.
+     *
+     * @return the maximum number of retries
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * The time to wait before the first retry. The time is doubled for each subsequent retry.
+     *
+     * @return the time to wait before the first retry
+     */
+    public Duration getRetryBackoff() {
+        return retryBackoff;
+    }
+
+    /**
+     * The number of consecutive operations which must time out before operations are rejected.
+     *
+     * @return the failure threshold
+     */
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    /**
+     * The time operations are rejected for once the failure threshold is reached.
+     *
+     * @return the open duration
+     */
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    /**
+     * A builder used to create a {@link ClientPolicy}.
+     */
+    public static class Builder {
+        private Duration deadline;
+        private final Map<String, Duration> deadlines;
+        private int maxRetries;
+        private Duration retryBackoff;
+        private int failureThreshold;
+        private Duration openDuration;
+
+        private Builder() {
+            deadline = Duration.ofMinutes(2L);
+            deadlines = new HashMap<>();
+            maxRetries = 3;
+            retryBackoff = Duration.ofMillis(100L);
+            failureThreshold = 3;
+            openDuration = Duration.ofSeconds(30L);
+        }
+
+        /**
+         * Sets the deadline for operations without a deadline of their own. The default is 2 minutes.
+         *
+         * @param deadline the deadline
+         *
+         * @return this builder
+         */
+        public Builder setDeadline(final Duration deadline) {
+            this.deadline = checkPositive(deadline, "deadline");
+            return this;
+        }
+
+        /**
+         * Sets the deadline for operations with the name, e.g. {@code reload}.
+         *
+         * @param operationName the name of the operation
+         * @param deadline      the deadline
+         *
+         * @return this builder
+         */
+        public Builder setDeadline(final String operationName, final Duration deadline) {
+            deadlines.put(operationName, checkPositive(deadline, "deadline"));
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of times a read-only operation is retried. The default is 3.
+         *
+         * @param maxRetries the maximum number of retries, {@code 0} disables retries
+         *
+         * @return this builder
+         */
+        public Builder setMaxRetries(final int maxRetries) {
+            if (maxRetries < 0) {
+                throw new IllegalArgumentException("The maximum number of retries cannot be negative: " + maxRetries);
+            }
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * Sets the time to wait before the first retry. The time is doubled for each subsequent retry. The default
+         * is 100 milliseconds.
+         *
+         * @param retryBackoff the time to wait before the first retry
+         *
+         * @return this builder
+         */
+        public Builder setRetryBackoff(final Duration retryBackoff) {
+            this.retryBackoff = checkPositive(retryBackoff, "retry backoff");
+            return this;
+        }
+
+        /**
+         * Sets the number of consecutive operations which must time out before operations to the server are
+         * rejected. The default is 3.
+         *
+         * @param failureThreshold the failure threshold
+         *
+         * @return this builder
+         */
+        public Builder setFailureThreshold(final int failureThreshold) {
+            if (failureThreshold <= 0) {
+                throw new IllegalArgumentException("The failure threshold must be greater than 0: " + failureThreshold);
+            }
+            this.failureThreshold = failureThreshold;
+            return this;
+        }
+
+        /**
+         * Sets the time operations are rejected for once the failure threshold is reached. The default is 30
+         * seconds.
+         *
+         * @param openDuration the open duration
+         *
+         * @return this builder
+         */
+        public Builder setOpenDuration(final Duration openDuration) {
+            this.openDuration = checkPositive(openDuration, "open duration");
+            return this;
+        }
+
+        /**
+         * Creates the client policy.
+         *
+         * @return the client policy
+         */
+        public ClientPolicy build() {
+            return new ClientPolicy(this);
+        }
+
+        private static Duration checkPositive(final Duration value, final String description) {
+            if (value.isNegative() || value.isZero()) {
+                throw new IllegalArgumentException(String.format("The %s must be greater than 0: %s", description, value));
+            }
+            return value;
+        }
+    }
+}
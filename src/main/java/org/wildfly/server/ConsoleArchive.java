@@ -0,0 +1,593 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.jboss.logging.Logger;
+
+/**
+ * An output stream which archives the console output of a server to compressed files. This can be used as the
+ * {@linkplain StandaloneServerBuilder#setStandardOut(OutputStream) standard out} of a server.
+ * <p>
+ * Bytes written are collected into blocks. A block is compressed, on a background thread, once it's full or once the
+ * {@linkplain Builder#setBlockInterval(Duration) block interval} has passed since its first byte was written. Each
+ * block is written as a separate gzip member, so each archive file is a valid gzip file which can be read with
+ * standard tools. The offset and the time range of each block are written to an index file next to the archive file.
+ * This allows the output written within a time range to be {@linkplain #copyTo(Instant, Instant, OutputStream) read}
+ * without decompressing the other blocks.
+ * </p>
+ * <p>
+ * A new archive file is started once the current file reaches the {@linkplain Builder#setMaxFileSize(long) maximum
+ * size} or {@linkplain Builder#setMaxFileAge(Duration) age}. The files are named {@code <prefix>-<n>.log.gz} and the
+ * index files {@code <prefix>-<n>.idx}. Numbering continues after the files already in the directory.
+ * </p>
+ * <p>
+ * Writes only block if the background thread falls behind by more than a few blocks. If writing an archive file fails
+ * the error is logged, further output is discarded and the error is thrown from {@link #close()}.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public final class ConsoleArchive extends OutputStream {
+    private static final Logger LOGGER = Logger.getLogger(ConsoleArchive.class);
+    private static final String ARCHIVE_SUFFIX = ".log.gz";
+    private static final String INDEX_SUFFIX = ".idx";
+    // The number of sealed blocks which may wait to be compressed before writes block
+    private static final int PENDING_BLOCKS = 8;
+    // The fixed header of a gzip member with no optional fields
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final Block CLOSE = new Block(0);
+
+    private final Path directory;
+    private final String prefix;
+    private final int blockSize;
+    private final long blockInterval;
+    private final long maxFileSize;
+    private final long maxFileAge;
+    private final int level;
+    private final BlockingQueue<Block> pending;
+    private final BlockingQueue<Block> free;
+    private final Thread compressor;
+    // Guards the current block and the closed state. Blocks are only added to the pending queue while holding the lock.
+    private final ReentrantLock lock = new ReentrantLock();
+    private Block current;
+    private volatile IOException failure;
+    private boolean closed;
+
+    // Only accessed by the compressor thread
+    private int fileIndex;
+    private FileChannel file;
+    private DataOutputStream index;
+    private long fileCreated;
+
+    private ConsoleArchive(final Builder builder) throws IOException {
+        directory = builder.directory;
+        prefix = builder.prefix;
+        blockSize = builder.blockSize;
+        blockInterval = builder.blockInterval.toNanos();
+        maxFileSize = builder.maxFileSize;
+        maxFileAge = builder.maxFileAge.toNanos();
+        level = builder.level;
+        Files.createDirectories(directory);
+        final TreeMap<Integer, Path> existing = listFiles();
+        fileIndex = existing.isEmpty() ? 0 : existing.lastKey();
+        pending = new ArrayBlockingQueue<>(PENDING_BLOCKS + 1);
+        free = new ArrayBlockingQueue<>(PENDING_BLOCKS + 2);
+        compressor = new Thread(this::compress);
+        compressor.setDaemon(true);
+        compressor.setName("WildFly-Console-Archive");
+        compressor.start();
+    }
+
+    /**
+     * Creates a new builder for an archive which writes files to the directory.
+     *
+     * @param directory the directory to write the archive files to
+     *
+     * @return a new builder
+     */
+    public static Builder builder(final Path directory) {
+        return new Builder(directory);
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b, int off, int len) throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IOException("The console archive has been closed");
+            }
+            if (failure != null) {
+                // Discard the output rather than failing the console consumer
+                return;
+            }
+            while (len > 0) {
+                if (current == null) {
+                    current = free.poll();
+                    if (current == null) {
+                        current = new Block(blockSize);
+                    }
+                    current.first = System.currentTimeMillis();
+                    current.created = System.nanoTime();
+                }
+                final int count = Math.min(len, blockSize - current.length);
+                System.arraycopy(b, off, current.data, current.length, count);
+                current.length += count;
+                current.last = System.currentTimeMillis();
+                off += count;
+                len -= count;
+                if (current.length == blockSize) {
+                    seal();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hands the current block to the background thread to be compressed. This does not wait for the block to be
+     * written.
+     */
+    @Override
+    public void flush() throws IOException {
+        lock.lock();
+        try {
+            if (current != null) {
+                seal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Compresses any remaining output and closes the archive files.
+     *
+     * @throws IOException if writing an archive file failed
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            if (current != null) {
+                seal();
+            }
+            closed = true;
+            enqueue(CLOSE);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            compressor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for the console archive to be written");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Returns the archive files in the directory, oldest first.
+     *
+     * @return the archive files
+     *
+     * @throws IOException if the directory cannot be read
+     */
+    public List<Path> getFiles() throws IOException {
+        return new ArrayList<>(listFiles().values());
+    }
+
+    /**
+     * Writes the output archived within the time range, inclusive, to the output stream. Only the blocks whose time
+     * range overlaps the time range are decompressed. The output is written in whole blocks, so output written
+     * slightly before or after the time range may be included. Output which has not yet been compressed is not
+     * included.
+     *
+     * @param from the start of the time range
+     * @param to   the end of the time range
+     * @param out  the output stream to write to
+     *
+     * @return the number of bytes written
+     *
+     * @throws IOException if an error occurs reading the archive files or writing the output stream
+     */
+    public long copyTo(final Instant from, final Instant to, final OutputStream out) throws IOException {
+        final long fromMillis = from.toEpochMilli();
+        final long toMillis = to.toEpochMilli();
+        final byte[] buffer = new byte[8192];
+        long total = 0L;
+        for (Path archive : listFiles().values()) {
+            final Path indexFile = directory.resolve(baseName(archive) + INDEX_SUFFIX);
+            if (Files.notExists(indexFile)) {
+                continue;
+            }
+            try (
+                    DataInputStream in = new DataInputStream(Files.newInputStream(indexFile));
+                    FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)
+            ) {
+                while (true) {
+                    final long first;
+                    final long last;
+                    final long offset;
+                    final int length;
+                    try {
+                        first = in.readLong();
+                        last = in.readLong();
+                        offset = in.readLong();
+                        length = in.readInt();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    if (last < fromMillis) {
+                        continue;
+                    }
+                    if (first > toMillis) {
+                        break;
+                    }
+                    final ByteBuffer compressed = ByteBuffer.allocate(length);
+                    while (compressed.hasRemaining()) {
+                        if (channel.read(compressed, offset + compressed.position()) < 0) {
+                            throw new EOFException("Block at offset " + offset + " of " + archive + " is incomplete");
+                        }
+                    }
+                    try (InputStream block = new GZIPInputStream(new ByteArrayInputStream(compressed.array()))) {
+                        int len;
+                        while ((len = block.read(buffer)) != -1) {
+                            out.write(buffer, 0, len);
+                            total += len;
+                        }
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    private void seal() throws IOException {
+        final Block block = current;
+        current = null;
+        enqueue(block);
+    }
+
+    private void enqueue(final Block block) throws IOException {
+        try {
+            pending.put(block);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting to archive console output");
+        }
+    }
+
+    private void compress() {
+        final Deflater deflater = new Deflater(level, true);
+        final CRC32 crc = new CRC32();
+        final ByteBuffer out = ByteBuffer.allocate(blockSize + (blockSize >> 3) + 64);
+        try {
+            while (true) {
+                Block block = pending.poll(blockInterval, TimeUnit.NANOSECONDS);
+                if (block == null) {
+                    block = sealExpired();
+                    if (block == null) {
+                        continue;
+                    }
+                }
+                if (block == CLOSE) {
+                    break;
+                }
+                if (failure == null) {
+                    try {
+                        writeBlock(block, deflater, crc, out);
+                    } catch (IOException e) {
+                        LOGGER.errorf(e, "Failed to write console archive in %s, further output is discarded", directory);
+                        failure = e;
+                    }
+                }
+                block.length = 0;
+                free.offer(block);
+            }
+        } catch (InterruptedException ignore) {
+        } finally {
+            deflater.end();
+            try {
+                closeFile();
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+            }
+        }
+    }
+
+    /**
+     * Takes the current block if it has been held longer than the block interval. A writer may hold the lock while
+     * waiting for this thread to take a pending block, so this never waits for the lock and the block is sealed on a
+     * later poll instead.
+     */
+    private Block sealExpired() {
+        if (!lock.tryLock()) {
+            return null;
+        }
+        try {
+            final Block block = current;
+            // Blocks sealed since the poll must be written first
+            if (block != null && !closed && pending.isEmpty() && System.nanoTime() - block.created >= blockInterval) {
+                current = null;
+                return block;
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeBlock(final Block block, final Deflater deflater, final CRC32 crc, final ByteBuffer out) throws IOException {
+        if (file == null || file.size() >= maxFileSize || System.nanoTime() - fileCreated >= maxFileAge) {
+            closeFile();
+            final String baseName = prefix + '-' + (++fileIndex);
+            file = FileChannel.open(directory.resolve(baseName + ARCHIVE_SUFFIX), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            index = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(directory.resolve(baseName + INDEX_SUFFIX),
+                    StandardOpenOption.CREATE_NEW)));
+            fileCreated = System.nanoTime();
+        }
+        final long offset = file.size();
+        // Write a single gzip member for the block
+        out.clear();
+        out.put(GZIP_HEADER);
+        deflater.reset();
+        deflater.setInput(block.data, 0, block.length);
+        deflater.finish();
+        while (!deflater.finished()) {
+            if (!out.hasRemaining()) {
+                writeFully(out);
+            }
+            final int count = deflater.deflate(out.array(), out.position(), out.remaining());
+            out.position(out.position() + count);
+        }
+        crc.reset();
+        crc.update(block.data, 0, block.length);
+        if (out.remaining() < 8) {
+            writeFully(out);
+        }
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt((int) crc.getValue());
+        out.putInt(block.length);
+        out.order(ByteOrder.BIG_ENDIAN);
+        writeFully(out);
+        // Only index the block once it has been written
+        index.writeLong(block.first);
+        index.writeLong(block.last);
+        index.writeLong(offset);
+        index.writeInt((int) (file.size() - offset));
+        index.flush();
+    }
+
+    private void writeFully(final ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            file.write(out);
+        }
+        out.clear();
+    }
+
+    private void closeFile() throws IOException {
+        try {
+            if (index != null) index.close();
+        } finally {
+            index = null;
+            if (file != null) {
+                file.close();
+                file = null;
+            }
+        }
+    }
+
+    private TreeMap<Integer, Path> listFiles() throws IOException {
+        final TreeMap<Integer, Path> result = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "-*" + ARCHIVE_SUFFIX)) {
+            for (Path path : stream) {
+                final String baseName = baseName(path);
+                try {
+                    result.put(Integer.parseInt(baseName.substring(prefix.length() + 1)), path);
+                } catch (NumberFormatException ignore) {
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String baseName(final Path archive) {
+        final String fileName = archive.getFileName().toString();
+        return fileName.substring(0, fileName.length() - ARCHIVE_SUFFIX.length());
+    }
+
+    private static class Block {
+        private final byte[] data;
+        private int length;
+        private long first;
+        private long last;
+        private long created;
+
+        private Block(final int size) {
+            data = new byte[size];
+        }
+    }
+
+    /**
+     * A builder used to create a {@link ConsoleArchive}.
+     */
+    public static class Builder {
+        private final Path directory;
+        private String prefix;
+        private int blockSize;
+        private Duration blockInterval;
+        private long maxFileSize;
+        private Duration maxFileAge;
+        private int level;
+
+        private Builder(final Path directory) {
+            this.directory = directory;
+            prefix = "console";
+            blockSize = 256 * 1024;
+            blockInterval = Duration.ofSeconds(5L);
+            maxFileSize = 100L * 1024L * 1024L;
+            maxFileAge = Duration.ofHours(1L);
+            level = Deflater.DEFAULT_COMPRESSION;
+        }
+
+        /**
+         * Sets the prefix of the archive file names. The default is {@code console}.
+         *
+         * @param prefix the prefix of the file names
+         *
+         * @return this builder
+         */
+        public Builder setPrefix(final String prefix) {
+            if (prefix == null || prefix.isEmpty()) {
+                throw new IllegalArgumentException("The prefix cannot be empty");
+            }
+            this.prefix = prefix;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of uncompressed bytes in a block. Larger blocks compress better, smaller blocks
+         * allow time ranges to be read more precisely. The default is 256 KB.
+         *
+         * @param blockSize the maximum size of a block
+         *
+         * @return this builder
+         */
+        public Builder setBlockSize(final int blockSize) {
+            if (blockSize <= 0) {
+                throw new IllegalArgumentException("The block size must be greater than 0: " + blockSize);
+            }
+            this.blockSize = blockSize;
+            return this;
+        }
+
+        /**
+         * Sets the maximum time output is held before it's compressed and written. The default is 5 seconds.
+         *
+         * @param blockInterval the maximum time to hold output
+         *
+         * @return this builder
+         */
+        public Builder setBlockInterval(final Duration blockInterval) {
+            if (blockInterval.isNegative() || blockInterval.isZero()) {
+                throw new IllegalArgumentException("The block interval must be greater than 0: " + blockInterval);
+            }
+            this.blockInterval = blockInterval;
+            return this;
+        }
+
+        /**
+         * Sets the compressed size after which a new archive file is started. The default is 100 MB.
+         *
+         * @param maxFileSize the maximum size of an archive file
+         *
+         * @return this builder
+         */
+        public Builder setMaxFileSize(final long maxFileSize) {
+            if (maxFileSize <= 0L) {
+                throw new IllegalArgumentException("The maximum file size must be greater than 0: " + maxFileSize);
+            }
+            this.maxFileSize = maxFileSize;
+            return this;
+        }
+
+        /**
+         * Sets the age after which a new archive file is started. The default is 1 hour.
+         *
+         * @param maxFileAge the maximum age of an archive file
+         *
+         * @return this builder
+         */
+        public Builder setMaxFileAge(final Duration maxFileAge) {
+            if (maxFileAge.isNegative() || maxFileAge.isZero()) {
+                throw new IllegalArgumentException("The maximum file age must be greater than 0: " + maxFileAge);
+            }
+            this.maxFileAge = maxFileAge;
+            return this;
+        }
+
+        /**
+         * Sets the compression level, see {@link Deflater}. The default is {@link Deflater#DEFAULT_COMPRESSION}.
+         *
+         * @param level the compression level
+         *
+         * @return this builder
+         */
+        public Builder setCompressionLevel(final int level) {
+            if ((level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) && level != Deflater.DEFAULT_COMPRESSION) {
+                throw new IllegalArgumentException("Invalid compression level: " + level);
+            }
+            this.level = level;
+            return this;
+        }
+
+        /**
+         * Creates the archive and starts the background thread which compresses the output.
+         *
+         * @return the archive
+         *
+         * @throws IOException if the directory cannot be created or read
+         */
+        public ConsoleArchive build() throws IOException {
+            return new ConsoleArchive(this);
+        }
+    }
+}
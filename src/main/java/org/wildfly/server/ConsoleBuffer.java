@@ -0,0 +1,280 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An output stream which keeps the last bytes written in a fixed size off-heap ring buffer. This can be used as the
+ * {@linkplain StandaloneServerBuilder#setStandardOut(OutputStream) standard out} of a server to capture the console
+ * output without growing the heap.
+ * <p>
+ * The bytes are kept in a direct {@link ByteBuffer}. The start of each line is kept in a primitive {@code long[]}
+ * index, so {@linkplain #tail(int) tailing} and {@linkplain #search(String) searching} only decode the lines which
+ * are returned and {@linkplain #snapshotTo(Path) snapshots} are written directly from the buffer. Once the buffer is
+ * full the oldest bytes are overwritten. Once the index is full the oldest lines are dropped from the index.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public final class ConsoleBuffer extends OutputStream {
+    // The minimum number of lines indexed when the number of lines is not defined
+    private static final int MIN_LINES = 1024;
+    // The assumed minimum average length of a line used to size the index when the number of lines is not defined
+    private static final int AVERAGE_LINE_LENGTH = 128;
+
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private final long[] lineStarts;
+    // The total number of bytes ever written, the position of the next byte
+    private long written;
+    // The total number of lines ever started and the first line still held
+    private long lines;
+    private long firstLine;
+
+    /**
+     * Creates a new console buffer. The number of lines indexed is derived from the capacity.
+     *
+     * @param capacity the maximum number of bytes to keep
+     */
+    public ConsoleBuffer(final int capacity) {
+        this(capacity, Math.max(MIN_LINES, capacity / AVERAGE_LINE_LENGTH));
+    }
+
+    /**
+     * Creates a new console buffer.
+     *
+     * @param capacity the maximum number of bytes to keep
+     * @param maxLines the maximum number of lines to index
+     */
+    public ConsoleBuffer(final int capacity, final int maxLines) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be greater than 0: " + capacity);
+        }
+        if (maxLines <= 0) {
+            throw new IllegalArgumentException("The maximum number of lines must be greater than 0: " + maxLines);
+        }
+        this.capacity = capacity;
+        buffer = ByteBuffer.allocateDirect(capacity);
+        lineStarts = new long[maxLines];
+        // The first line starts at the first byte
+        lines = 1L;
+    }
+
+    /**
+     * The maximum number of bytes kept.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * The number of bytes currently held.
+     *
+     * @return the number of bytes
+     */
+    public synchronized int size() {
+        return (int) Math.min(written, capacity);
+    }
+
+    /**
+     * The number of lines currently held including any incomplete last line.
+     *
+     * @return the number of lines
+     */
+    public synchronized int lineCount() {
+        return (int) (lastLine() - firstLine);
+    }
+
+    @Override
+    public synchronized void write(final int b) {
+        buffer.put((int) (written % capacity), (byte) b);
+        written++;
+        if ((byte) b == '\n') {
+            startLine(written);
+        }
+        evict();
+    }
+
+    @Override
+    public synchronized void write(final byte[] b, final int off, final int len) {
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        for (int i = off; i < off + len; i++) {
+            if (b[i] == '\n') {
+                startLine(written + (i - off) + 1);
+            }
+        }
+        // Only the last bytes which fit need to be copied
+        final int skip = Math.max(0, len - capacity);
+        written += skip;
+        int offset = off + skip;
+        int remaining = len - skip;
+        while (remaining > 0) {
+            final int pos = (int) (written % capacity);
+            final int count = Math.min(remaining, capacity - pos);
+            buffer.position(pos);
+            buffer.put(b, offset, count);
+            written += count;
+            offset += count;
+            remaining -= count;
+        }
+        evict();
+    }
+
+    /**
+     * Returns the last lines held, oldest first. An incomplete last line is included.
+     *
+     * @param count the maximum number of lines to return
+     *
+     * @return the lines
+     */
+    public synchronized List<String> tail(final int count) {
+        final long last = lastLine();
+        final long start = Math.max(firstLine, last - Math.max(0, count));
+        final List<String> result = new ArrayList<>((int) (last - start));
+        for (long line = start; line < last; line++) {
+            result.add(decode(lineStart(line), lineEnd(line)));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the lines held which contain the text, oldest first. The text is matched against the bytes in the buffer
+     * and only matching lines are decoded.
+     *
+     * @param text the text to search for
+     *
+     * @return the matching lines or an empty list if none matched
+     */
+    public synchronized List<String> search(final String text) {
+        final byte[] bytes = text.getBytes(Charset.defaultCharset());
+        final long last = lastLine();
+        List<String> result = null;
+        for (long line = firstLine; line < last; line++) {
+            final long start = lineStart(line);
+            final long end = lineEnd(line);
+            if (contains(start, end, bytes)) {
+                if (result == null) {
+                    result = new ArrayList<>();
+                }
+                result.add(decode(start, end));
+            }
+        }
+        return result == null ? Collections.emptyList() : result;
+    }
+
+    /**
+     * Writes the lines currently held to the file replacing any existing content. The bytes are written directly from
+     * the buffer and writes to this buffer block until the snapshot is complete.
+     *
+     * @param file the file to write to
+     *
+     * @throws IOException if an error occurs writing the file
+     */
+    public synchronized void snapshotTo(final Path file) throws IOException {
+        final long start = (firstLine < lines ? lineStart(firstLine) : Math.max(0L, written - capacity));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final ByteBuffer view = buffer.duplicate();
+            long pos = start;
+            while (pos < written) {
+                final int slot = (int) (pos % capacity);
+                final int count = (int) Math.min(written - pos, capacity - slot);
+                view.limit(slot + count).position(slot);
+                while (view.hasRemaining()) {
+                    channel.write(view);
+                }
+                pos += count;
+            }
+        }
+    }
+
+    private void startLine(final long position) {
+        lineStarts[(int) (lines % lineStarts.length)] = position;
+        lines++;
+    }
+
+    private void evict() {
+        // Drop lines which have been overwritten in the buffer or in the index
+        final long oldest = written - capacity;
+        firstLine = Math.max(firstLine, lines - lineStarts.length);
+        while (firstLine < lines && lineStart(firstLine) < oldest) {
+            firstLine++;
+        }
+    }
+
+    private long lastLine() {
+        // An empty last line is not counted
+        if (firstLine < lines && lineStart(lines - 1) == written) {
+            return lines - 1;
+        }
+        return lines;
+    }
+
+    private long lineStart(final long line) {
+        return lineStarts[(int) (line % lineStarts.length)];
+    }
+
+    private long lineEnd(final long line) {
+        // Excludes the new line
+        return line + 1 < lines ? lineStart(line + 1) - 1 : written;
+    }
+
+    private boolean contains(final long start, final long end, final byte[] bytes) {
+        final long limit = end - bytes.length;
+        for (long pos = start; pos <= limit; pos++) {
+            int i = 0;
+            while (i < bytes.length && byteAt(pos + i) == bytes[i]) {
+                i++;
+            }
+            if (i == bytes.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String decode(final long start, long end) {
+        if (end > start && byteAt(end - 1) == '\r') {
+            end--;
+        }
+        final byte[] bytes = new byte[(int) (end - start)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = byteAt(start + i);
+        }
+        return new String(bytes, Charset.defaultCharset());
+    }
+
+    private byte byteAt(final long position) {
+        return buffer.get((int) (position % capacity));
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the recent lines written to the console of a server and matches patterns against them as they arrive.
+ * <p>
+ * Each line is indexed by the message ids, e.g. {@code WFLYSRV0025}, it contains. Patterns which start with a literal
+ * containing a message id at a word boundary, e.g. {@code \bWFLYSRV0025} or {@code ] WFLYSRV0025}, are only matched
+ * against the lines with that id. Any other pattern is only matched against lines which contain the literal prefix of
+ * the pattern. The message ids of a line are removed from the index once the line is no longer held.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class ConsoleIndex {
+    // The minimum number of letters and digits of a message id
+    private static final int MIN_ID_LETTERS = 3;
+    private static final int MIN_ID_DIGITS = 3;
+
+    private final int maxLines;
+    private final String[] lines;
+    private final Map<String, LineNumbers> messageIds = new HashMap<>();
+    private final List<Waiter> waiters = new ArrayList<>();
+    private final LineSplitter splitter = new LineSplitter(this::addLine);
+    // The total number of lines added since the index was cleared
+    private long count;
+
+    /**
+     * Creates a new index.
+     *
+     * @param maxLines the maximum number of lines held
+     */
+    ConsoleIndex(final int maxLines) {
+        if (maxLines <= 0) {
+            throw new IllegalArgumentException("The number of lines must be positive: " + maxLines);
+        }
+        this.maxLines = maxLines;
+        lines = new String[maxLines];
+    }
+
+    /**
+     * Appends the bytes to the index. Each completed line is matched against the patterns being waited for.
+     *
+     * @param b   the bytes to append
+     * @param off the offset to start at
+     * @param len the number of bytes to append
+     */
+    synchronized void write(final byte[] b, final int off, final int len) {
+        splitter.write(b, off, len);
+    }
+
+    /**
+     * Removes all lines from the index. Threads waiting for a pattern continue to wait.
+     */
+    synchronized void clear() {
+        Arrays.fill(lines, null);
+        messageIds.clear();
+        count = 0L;
+        splitter.clear();
+    }
+
+    /**
+     * Returns the lines held which match the pattern, oldest first.
+     *
+     * @param pattern the pattern to match
+     *
+     * @return the matching lines or an empty list if none matched
+     */
+    synchronized List<String> find(final Pattern pattern) {
+        return find(new LinePattern(pattern), false);
+    }
+
+    /**
+     * Waits for a line matching the pattern. If a line held already matches the first such line is returned.
+     *
+     * @param pattern      the pattern to match
+     * @param timeoutNanos the maximum time to wait in nanoseconds
+     *
+     * @return the matching line or {@code null} if no line matched before the timeout
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    String await(final Pattern pattern, final long timeoutNanos) throws InterruptedException {
+        final Waiter waiter;
+        synchronized (this) {
+            final LinePattern linePattern = new LinePattern(pattern);
+            final List<String> found = find(linePattern, true);
+            if (!found.isEmpty()) {
+                return found.get(0);
+            }
+            waiter = new Waiter(linePattern);
+            waiters.add(waiter);
+        }
+        try {
+            waiter.latch.await(timeoutNanos, TimeUnit.NANOSECONDS);
+            return waiter.line;
+        } finally {
+            synchronized (this) {
+                waiters.remove(waiter);
+            }
+        }
+    }
+
+    private List<String> find(final LinePattern pattern, final boolean first) {
+        final long oldest = Math.max(0L, count - maxLines);
+        List<String> result = null;
+        if (pattern.messageId == null) {
+            for (long number = oldest; number < count; number++) {
+                final String line = lines[(int) (number % maxLines)];
+                if (pattern.matches(line)) {
+                    if (first) {
+                        return Collections.singletonList(line);
+                    }
+                    if (result == null) {
+                        result = new ArrayList<>();
+                    }
+                    result.add(line);
+                }
+            }
+        } else {
+            final LineNumbers numbers = messageIds.get(pattern.messageId);
+            if (numbers != null) {
+                for (int i = numbers.start; i < numbers.end; i++) {
+                    final String line = lines[(int) (numbers.values[i] % maxLines)];
+                    if (pattern.matches(line)) {
+                        if (first) {
+                            return Collections.singletonList(line);
+                        }
+                        if (result == null) {
+                            result = new ArrayList<>();
+                        }
+                        result.add(line);
+                    }
+                }
+            }
+        }
+        return result == null ? Collections.emptyList() : result;
+    }
+
+    private void addLine(final String line) {
+        final long number = count++;
+        final int slot = (int) (number % maxLines);
+        final String evicted = lines[slot];
+        if (evicted != null) {
+            // The evicted line is the oldest line held, so its number is the first number of each of its ids
+            final long evictedNumber = number - maxLines;
+            messageIds(evicted, true, id -> {
+                final LineNumbers numbers = messageIds.get(id);
+                if (numbers != null && numbers.removeFirst(evictedNumber)) {
+                    messageIds.remove(id);
+                }
+            });
+        }
+        lines[slot] = line;
+        messageIds(line, true, id -> {
+            LineNumbers numbers = messageIds.get(id);
+            if (numbers == null) {
+                numbers = new LineNumbers();
+                messageIds.put(id, numbers);
+            }
+            numbers.add(number);
+        });
+        if (!waiters.isEmpty()) {
+            final Iterator<Waiter> iter = waiters.iterator();
+            while (iter.hasNext()) {
+                final Waiter waiter = iter.next();
+                if (waiter.pattern.matches(line)) {
+                    waiter.line = line;
+                    waiter.latch.countDown();
+                    iter.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the message ids in the value. A message id is a whole word of upper case letters followed by digits.
+     *
+     * @param value    the value to search
+     * @param atEnd    {@code true} if a message id may end at the end of the value, {@code false} if the value may be
+     *                 incomplete and the id must be followed by another character
+     * @param consumer the consumer invoked for each message id found
+     */
+    private static void messageIds(final String value, final boolean atEnd, final Consumer<String> consumer) {
+        final int len = value.length();
+        int i = 0;
+        while (i < len) {
+            final char c = value.charAt(i);
+            if (c >= 'A' && c <= 'Z' && (i == 0 || !Character.isLetterOrDigit(value.charAt(i - 1)))) {
+                final int start = i;
+                while (i < len && value.charAt(i) >= 'A' && value.charAt(i) <= 'Z') {
+                    i++;
+                }
+                final int digits = i;
+                while (i < len && value.charAt(i) >= '0' && value.charAt(i) <= '9') {
+                    i++;
+                }
+                if (digits - start >= MIN_ID_LETTERS && i - digits >= MIN_ID_DIGITS
+                        && (i < len ? !Character.isLetterOrDigit(value.charAt(i)) : atEnd)) {
+                    consumer.accept(value.substring(start, i));
+                }
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * A pattern compiled once with the literal prefix and message id used to filter lines before running the regular
+     * expression.
+     */
+    private static class LinePattern {
+        private final Matcher matcher;
+        private final String literal;
+        private final String messageId;
+
+        LinePattern(final Pattern pattern) {
+            matcher = pattern.matcher("");
+            literal = literalPrefix(pattern);
+            if (literal == null) {
+                messageId = null;
+            } else {
+                // An id at the start of the literal may be matched in the middle of a word, e.g. SRV0025 in
+                // WFLYSRV0025, unless the pattern is anchored at a word boundary
+                final boolean anchored = isAnchored(pattern);
+                final String[] id = new String[1];
+                messageIds(literal, false, value -> {
+                    if (id[0] == null && (anchored || !literal.startsWith(value))) id[0] = value;
+                });
+                messageId = id[0];
+            }
+        }
+
+        boolean matches(final String line) {
+            return (literal == null || line.contains(literal)) && matcher.reset(line).find();
+        }
+
+        /**
+         * Returns the literal text every match of the pattern starts with or {@code null} if the pattern does not
+         * start with literal text.
+         */
+        private static String literalPrefix(final Pattern pattern) {
+            final String regex = pattern.pattern();
+            final int flags = pattern.flags();
+            if ((flags & Pattern.LITERAL) != 0) {
+                return regex.isEmpty() ? null : regex;
+            }
+            // Alternations or flags which change how characters match do not have a single literal prefix
+            if ((flags & (Pattern.CASE_INSENSITIVE | Pattern.COMMENTS)) != 0 || regex.indexOf('|') >= 0) {
+                return null;
+            }
+            final StringBuilder result = new StringBuilder();
+            int i = regex.startsWith("^") ? 1 : (regex.startsWith("\\b") ? 2 : 0);
+            while (i < regex.length()) {
+                final char c = regex.charAt(i);
+                final int length = result.length();
+                if (c == '\\') {
+                    // Only escaped punctuation is literal
+                    if (i + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                        break;
+                    }
+                    result.append(regex.charAt(i + 1));
+                    i += 2;
+                } else if (".[]{}()*+?^$".indexOf(c) >= 0) {
+                    break;
+                } else {
+                    result.append(c);
+                    i++;
+                }
+                // A quantifier which allows zero occurrences makes the last character optional
+                if (i < regex.length() && "?*{".indexOf(regex.charAt(i)) >= 0) {
+                    result.setLength(length);
+                    break;
+                }
+            }
+            return result.length() == 0 ? null : result.toString();
+        }
+
+        /**
+         * Indicates whether every match of the pattern starts at a word boundary.
+         */
+        private static boolean isAnchored(final Pattern pattern) {
+            if ((pattern.flags() & Pattern.LITERAL) != 0) {
+                return false;
+            }
+            final String regex = pattern.pattern();
+            return regex.startsWith("^") || regex.startsWith("\\b");
+        }
+    }
+
+    private static class Waiter {
+        private final LinePattern pattern;
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private volatile String line;
+
+        private Waiter(final LinePattern pattern) {
+            this.pattern = pattern;
+        }
+    }
+
+    /**
+     * The numbers of the lines containing a message id, oldest first. The numbers held are those from {@code start}
+     * up to, but not including, {@code end}.
+     */
+    private static class LineNumbers {
+        private long[] values = new long[4];
+        private int start;
+        private int end;
+
+        void add(final long number) {
+            // A line may contain the same id more than once
+            if (end > start && values[end - 1] == number) {
+                return;
+            }
+            if (end == values.length) {
+                if (start > 0) {
+                    // Reuse the space of the numbers removed before growing
+                    System.arraycopy(values, start, values, 0, end - start);
+                    end -= start;
+                    start = 0;
+                } else {
+                    values = Arrays.copyOf(values, values.length << 1);
+                }
+            }
+            values[end++] = number;
+        }
+
+        /**
+         * Removes the number if it's the oldest number held.
+         *
+         * @return {@code true} if no numbers are left
+         */
+        boolean removeFirst(final long number) {
+            if (start < end && values[start] == number) {
+                start++;
+            }
+            return start == end;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Pumps the console output of server processes to a {@link Sink}.
+ * <p>
+ * On Java 21 or later each stream is read by its own virtual thread which blocks until bytes are written by the
+ * process and exits once the end of the stream is reached.
+ * </p>
+ * <p>
+ * On older versions the console streams of all servers are pumped by a small shared pool of platform threads. Each
+ * thread only reads the bytes {@linkplain InputStream#available() available} from each stream it owns, so a single
+ * thread never blocks on a stream and can serve many servers. When no stream had bytes available the thread waits
+ * briefly before polling again. A thread which owns no streams parks until a stream is added.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+final class ConsolePump {
+    private static final Logger LOGGER = Logger.getLogger(ConsolePump.class);
+    private static final int THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    private static final long IDLE_WAIT = TimeUnit.MILLISECONDS.toNanos(10L);
+    private static final long DRAIN_TIMEOUT = TimeUnit.SECONDS.toMillis(1L);
+    private static final int BUFFER_SIZE = 8192;
+    private static final Worker[] WORKERS = new Worker[THREADS];
+
+    private ConsolePump() {
+    }
+
+    /**
+     * Starts pumping the input stream to the sink until the end of the stream is reached or the returned handle is
+     * closed.
+     *
+     * @param name    the name of the server
+     * @param in      the console stream of the process
+     * @param process the process the stream belongs to
+     * @param sink    the sink to write the bytes to
+     *
+     * @return the handle used to stop pumping
+     */
+    static Handle start(final String name, final InputStream in, final Process process, final Sink sink) {
+        if (ConsolePumpThreads.isVirtual()) {
+            final ReaderStream stream = new ReaderStream(name, in, process, sink);
+            ConsolePumpThreads.start("WildFly-Console-Pump-" + name, stream);
+            return stream;
+        }
+        final Stream stream = new Stream(name, in, process, sink);
+        final Worker worker = selectWorker();
+        worker.streams.add(stream);
+        LockSupport.unpark(worker.thread);
+        return stream;
+    }
+
+    private static synchronized Worker selectWorker() {
+        Worker selected = null;
+        for (int i = 0; i < WORKERS.length; i++) {
+            if (WORKERS[i] == null) {
+                final Worker worker = new Worker();
+                worker.thread = ConsolePumpThreads.start("WildFly-Console-Pump-" + (i + 1), worker);
+                WORKERS[i] = worker;
+                return worker;
+            }
+            if (selected == null || WORKERS[i].streams.size() < selected.streams.size()) {
+                selected = WORKERS[i];
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Receives the bytes read from a console stream.
+     */
+    @FunctionalInterface
+    interface Sink {
+
+        /**
+         * Writes the bytes.
+         *
+         * @param b   the bytes
+         * @param off the offset to start at
+         * @param len the number of bytes
+         *
+         * @throws IOException if the bytes could not be written
+         */
+        void write(byte[] b, int off, int len) throws IOException;
+    }
+
+    /**
+     * A handle to stop pumping a stream.
+     */
+    interface Handle {
+
+        /**
+         * Writes the bytes already available to the sink and stops pumping. Once this returns no more bytes are
+         * written to the sink. This does not wait for bytes which have not yet been written by the process.
+         */
+        void close();
+    }
+
+    private static class Worker implements Runnable {
+        private final List<Stream> streams = new CopyOnWriteArrayList<>();
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private volatile Thread thread;
+
+        @Override
+        public void run() {
+            while (true) {
+                if (streams.isEmpty()) {
+                    // Unparked when a stream is added
+                    LockSupport.park(this);
+                    continue;
+                }
+                boolean read = false;
+                for (Stream stream : streams) {
+                    final int result = stream.pump(buffer, false);
+                    if (result < 0) {
+                        streams.remove(stream);
+                    } else if (result > 0) {
+                        read = true;
+                    }
+                }
+                if (!read) {
+                    LockSupport.parkNanos(this, IDLE_WAIT);
+                }
+            }
+        }
+    }
+
+    private static class Stream implements Handle {
+        private final String name;
+        private final InputStream in;
+        private final Process process;
+        private final Sink sink;
+        private boolean closed;
+
+        private Stream(final String name, final InputStream in, final Process process, final Sink sink) {
+            this.name = name;
+            this.in = in;
+            this.process = process;
+            this.sink = sink;
+        }
+
+        /**
+         * Writes the bytes available without blocking. Unless draining, or the process has exited, at most one
+         * buffer is read so other streams are not starved.
+         *
+         * @return the number of bytes written or {@code -1} if the stream should no longer be pumped
+         */
+        synchronized int pump(final byte[] buffer, final boolean drain) {
+            if (closed) {
+                return -1;
+            }
+            try {
+                // Check the process before reading so no bytes written before it exited are missed
+                final boolean alive = process.isAlive();
+                int total = 0;
+                while (in.available() > 0) {
+                    final int len = in.read(buffer, 0, Math.min(in.available(), buffer.length));
+                    if (len < 0) {
+                        closed = true;
+                        return -1;
+                    }
+                    sink.write(buffer, 0, len);
+                    total += len;
+                    if (alive && !drain) {
+                        break;
+                    }
+                }
+                if (!alive) {
+                    closed = true;
+                    return -1;
+                }
+                return total;
+            } catch (IOException e) {
+                LOGGER.debugf(e, "Stopped reading the console of %s", name);
+                closed = true;
+                return -1;
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                pump(new byte[BUFFER_SIZE], true);
+                closed = true;
+            }
+        }
+    }
+
+    private static class ReaderStream implements Handle, Runnable {
+        private final String name;
+        private final InputStream in;
+        private final Process process;
+        private final Sink sink;
+        private boolean closed;
+        private boolean finished;
+
+        private ReaderStream(final String name, final InputStream in, final Process process, final Sink sink) {
+            this.name = name;
+            this.in = in;
+            this.process = process;
+            this.sink = sink;
+        }
+
+        @Override
+        public void run() {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            try {
+                int len;
+                while ((len = in.read(buffer)) != -1) {
+                    synchronized (this) {
+                        if (closed) {
+                            return;
+                        }
+                        sink.write(buffer, 0, len);
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.debugf(e, "Stopped reading the console of %s", name);
+            } finally {
+                synchronized (this) {
+                    finished = true;
+                    notifyAll();
+                }
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            // The bytes written by a process which exited are all available, wait for the reader to write them
+            if (!process.isAlive()) {
+                final long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT;
+                long remaining = DRAIN_TIMEOUT;
+                try {
+                    while (!finished && remaining > 0L) {
+                        wait(remaining);
+                        remaining = deadline - System.currentTimeMillis();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.server;
+
+/**
+ * Creates the threads which pump the console streams.
+ * <p>
+ * The threads are daemon platform threads. On Java 21 or later virtual threads are used instead, see the
+ * {@code META-INF/versions/21} version of this class.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+final class ConsolePumpThreads {
+
+    private ConsolePumpThreads() {
+    }
+
+    /**
+     * Indicates whether the threads are virtual threads. Platform threads are shared by many streams so they must not
+     * block reading a stream.
+     *
+     * @return {@code true} if the threads are virtual threads
+     */
+    static boolean isVirtual() {
+        return false;
+    }
+
+    /**
+     * Starts a thread running the task.
+     *
+     * @param name the name of the thread
+     * @param task the task to run
+     *
+     * @return the started thread
+     */
+    static Thread start(final String name, final Runnable task) {
+        final Thread thread = new Thread(task);
+        thread.setDaemon(true);
+        thread.setName(name);
+        thread.start();
+        return thread;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps the last lines written to the console of a server.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class ConsoleTail {
+    private final int maxLines;
+    private final Deque<String> lines;
+    private final LineSplitter splitter;
+
+    ConsoleTail(final int maxLines) {
+        this.maxLines = maxLines;
+        lines = new ArrayDeque<>(Math.min(maxLines, 1024));
+        splitter = new LineSplitter(this::addLine);
+    }
+
+    /**
+     * Appends the bytes to the tail.
+     *
+     * @param b   the bytes to append
+     * @param off the offset to start at
+     * @param len the number of bytes to append
+     */
+    synchronized void write(final byte[] b, final int off, final int len) {
+        if (maxLines == 0) {
+            return;
+        }
+        splitter.write(b, off, len);
+    }
+
+    /**
+     * Returns a copy of the lines currently held including any incomplete last line.
+     *
+     * @return the lines
+     */
+    synchronized List<String> getLines() {
+        final List<String> result = new ArrayList<>(lines);
+        final String incomplete = splitter.getIncompleteLine();
+        if (incomplete != null) {
+            result.add(incomplete);
+        }
+        return result;
+    }
+
+    private void addLine(final String line) {
+        if (lines.size() == maxLines) {
+            lines.removeFirst();
+        }
+        lines.addLast(line);
+    }
+}
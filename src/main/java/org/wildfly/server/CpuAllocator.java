@@ -0,0 +1,425 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jboss.logging.Logger;
+import org.wildfly.core.launcher.CommandBuilder;
+
+/**
+ * Allocates disjoint sets of CPUs to servers so that servers started on the same host, from the same or different
+ * JVMs, do not compete for the same CPUs.
+ * <p>
+ * The CPUs are split into one slot for each of the {@linkplain Builder#setServers(int) servers}. A slot is reserved
+ * by holding a lock on a file for each of its CPUs in a directory shared by all JVMs using the same directory, in the
+ * same way as the {@link PortAllocator}. Either every CPU of a slot is locked or none are, so JVMs which split the CPUs
+ * differently never reserve the same CPU. The server is launched with {@code taskset}, which must be on the {@code PATH}, so
+ * the process and every process it launches are bound to the CPUs of the slot.
+ * </p>
+ * <p>
+ * If a {@linkplain Builder#setCgroup(Path) control group} is set, the process is also moved to a cgroup v2 child
+ * group with the CPUs of the slot and the optional memory limit after it's launched. This requires write access to
+ * the control group and is skipped if the group cannot be created.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public final class CpuAllocator {
+    private static final Logger LOGGER = Logger.getLogger(CpuAllocator.class);
+
+    private final Path directory;
+    private final int[] cpus;
+    private final int servers;
+    private final Path cgroup;
+    private final long memoryLimit;
+
+    private CpuAllocator(final Builder builder) {
+        directory = builder.directory;
+        cpus = (builder.cpus == null ? availableCpus() : builder.cpus);
+        servers = builder.servers;
+        cgroup = builder.cgroup;
+        memoryLimit = builder.memoryLimit;
+    }
+
+    /**
+     * Creates a new builder for a CPU allocator.
+     *
+     * @return the new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Reserves the first slot of CPUs not held by another server.
+     *
+     * @return the reservation
+     *
+     * @throws IOException           if an error occurs creating the lock files
+     * @throws IllegalStateException if there are no slots available
+     */
+    Reservation reserve() throws IOException {
+        final int slotSize = cpus.length / servers;
+        if (slotSize == 0) {
+            throw new IllegalStateException(String.format("The %d CPUs %s cannot be split between %d servers",
+                    cpus.length, CpuPlacement.toCpuList(cpus), servers));
+        }
+        Files.createDirectories(directory);
+        for (int slot = 0; slot < servers; slot++) {
+            final int[] slotCpus = Arrays.copyOfRange(cpus, slot * slotSize, (slot + 1) * slotSize);
+            // The CPUs are held exclusively so the group of the CPUs is not used by another JVM
+            final Reservation reservation = new Reservation(directory, slotCpus,
+                    (cgroup == null ? null : cgroup.resolve("wildfly-server-" + CpuPlacement.toCpuList(slotCpus))), memoryLimit);
+            if (reservation.tryAcquire()) {
+                LOGGER.debugf("Reserved CPUs %s", CpuPlacement.toCpuList(slotCpus));
+                return reservation;
+            }
+        }
+        throw new IllegalStateException(String.format("No CPUs are available for another server in %s", directory));
+    }
+
+    private static int[] availableCpus() {
+        // The CPUs this process is allowed to run on, which may be limited by a cpuset or taskset
+        final Path status = Paths.get("/proc/self/status");
+        if (Files.isReadable(status)) {
+            try (BufferedReader reader = Files.newBufferedReader(status, StandardCharsets.US_ASCII)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("Cpus_allowed_list:")) {
+                        return CpuPlacement.parseCpuList(line.substring(18));
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                LOGGER.debugf(e, "Failed to read %s", status);
+            }
+        }
+        final int[] cpus = new int[Runtime.getRuntime().availableProcessors()];
+        for (int i = 0; i < cpus.length; i++) {
+            cpus[i] = i;
+        }
+        return cpus;
+    }
+
+    private static String findTaskset() {
+        final String path = System.getenv("PATH");
+        if (path != null) {
+            for (String dir : path.split(File.pathSeparator)) {
+                final Path taskset = Paths.get(dir, "taskset");
+                if (Files.isExecutable(taskset)) {
+                    return taskset.toString();
+                }
+            }
+        }
+        throw new IllegalStateException("The taskset command is required to bind a server to CPUs but was not found on the PATH");
+    }
+
+    /**
+     * A reservation of a slot of CPUs.
+     */
+    static final class Reservation {
+        private final Path directory;
+        private final int[] cpus;
+        private final Path cgroup;
+        private final long memoryLimit;
+        private LockFile[] locks;
+        private volatile CpuPlacement placement;
+
+        private Reservation(final Path directory, final int[] cpus, final Path cgroup, final long memoryLimit) {
+            this.directory = directory;
+            this.cpus = cpus;
+            this.cgroup = cgroup;
+            this.memoryLimit = memoryLimit;
+            placement = new CpuPlacement(cpus, null);
+        }
+
+        /**
+         * The current placement. The control group is only included once the process has been moved to it.
+         *
+         * @return the placement
+         */
+        CpuPlacement getPlacement() {
+            return placement;
+        }
+
+        /**
+         * Wraps the command builder so the command is launched with {@code taskset} bound to the reserved CPUs.
+         *
+         * @param commandBuilder the command builder to wrap
+         *
+         * @return the wrapped command builder
+         *
+         * @throws IllegalStateException if {@code taskset} is not on the {@code PATH}
+         */
+        CommandBuilder wrap(final CommandBuilder commandBuilder) {
+            final String taskset = findTaskset();
+            final String cpuList = CpuPlacement.toCpuList(cpus);
+            return new CommandBuilder() {
+                @Override
+                public List<String> buildArguments() {
+                    return commandBuilder.buildArguments();
+                }
+
+                @Override
+                public List<String> build() {
+                    final List<String> command = commandBuilder.build();
+                    final List<String> result = new ArrayList<>(command.size() + 3);
+                    result.add(taskset);
+                    result.add("-c");
+                    result.add(cpuList);
+                    result.addAll(command);
+                    return result;
+                }
+            };
+        }
+
+        /**
+         * Moves the process to the control group, if one was configured. Failures are logged and leave the process
+         * in its current control group.
+         *
+         * @param process the process to move
+         */
+        void place(final Process process) {
+            if (cgroup == null) {
+                return;
+            }
+            final long pid = Processes.pid(process);
+            if (pid < 0L) {
+                LOGGER.debugf("Could not determine the pid of %s to move it to %s", process, cgroup);
+                return;
+            }
+            try {
+                enableControllers(cgroup.getParent());
+                Files.createDirectories(cgroup);
+                final Path cpuset = cgroup.resolve("cpuset.cpus");
+                if (Files.exists(cpuset)) {
+                    write(cpuset, CpuPlacement.toCpuList(cpus));
+                }
+                if (memoryLimit > 0L) {
+                    write(cgroup.resolve("memory.max"), Long.toString(memoryLimit));
+                }
+                write(cgroup.resolve("cgroup.procs"), Long.toString(pid));
+                placement = new CpuPlacement(cpus, cgroup);
+                LOGGER.debugf("Moved process %d to %s", pid, cgroup);
+            } catch (IOException e) {
+                LOGGER.debugf(e, "Failed to move process %d to %s", pid, cgroup);
+                try {
+                    Files.deleteIfExists(cgroup);
+                } catch (IOException ignore) {
+                }
+            }
+        }
+
+        /**
+         * Acquires the reservation if not already held.
+         *
+         * @throws IOException           if an error occurs locking the file
+         * @throws IllegalStateException if a CPU of the slot is held by another JVM
+         */
+        synchronized void acquire() throws IOException {
+            if (!tryAcquire()) {
+                throw new IllegalStateException(String.format("The CPUs %s are in use", CpuPlacement.toCpuList(cpus)));
+            }
+        }
+
+        /**
+         * Releases the reservation if held and removes the control group, which must no longer contain a process.
+         */
+        synchronized void release() {
+            if (placement.getCgroup() != null) {
+                try {
+                    Files.deleteIfExists(cgroup);
+                } catch (IOException e) {
+                    LOGGER.debugf(e, "Failed to remove %s", cgroup);
+                }
+                placement = new CpuPlacement(cpus, null);
+            }
+            if (locks != null) {
+                release(locks, locks.length);
+                locks = null;
+            }
+        }
+
+        private synchronized boolean tryAcquire() throws IOException {
+            if (locks != null) {
+                return true;
+            }
+            final LockFile[] acquired = new LockFile[cpus.length];
+            for (int i = 0; i < cpus.length; i++) {
+                final LockFile lock;
+                try {
+                    lock = LockFile.tryLock(directory.resolve("cpu-" + cpus[i] + ".lock"));
+                } catch (IOException | RuntimeException e) {
+                    release(acquired, i);
+                    throw e;
+                }
+                if (lock == null) {
+                    release(acquired, i);
+                    return false;
+                }
+                acquired[i] = lock;
+            }
+            locks = acquired;
+            return true;
+        }
+
+        private static void release(final LockFile[] locks, final int count) {
+            for (int i = 0; i < count; i++) {
+                locks[i].release();
+            }
+        }
+
+        private static void enableControllers(final Path parent) {
+            // The controllers must be enabled on the parent for the files to exist in the child group
+            final Path subtreeControl = parent.resolve("cgroup.subtree_control");
+            for (String controller : new String[] {"+cpuset", "+memory"}) {
+                try {
+                    write(subtreeControl, controller);
+                } catch (IOException e) {
+                    LOGGER.debugf(e, "Failed to enable the %s controller in %s", controller.substring(1), parent);
+                }
+            }
+        }
+
+        private static void write(final Path file, final String value) throws IOException {
+            Files.write(file, value.getBytes(StandardCharsets.US_ASCII), StandardOpenOption.WRITE);
+        }
+    }
+
+    /**
+     * A builder for a {@link CpuAllocator}.
+     */
+    public static final class Builder {
+        private Path directory;
+        private int[] cpus;
+        private int servers;
+        private Path cgroup;
+        private long memoryLimit;
+
+        private Builder() {
+            directory = Paths.get(System.getProperty("java.io.tmpdir"), "wildfly-server-cpus");
+            servers = 1;
+            memoryLimit = -1L;
+        }
+
+        /**
+         * Sets the directory used to hold the lock files. Every JVM allocating CPUs must use the same directory. The
+         * default is {@code wildfly-server-cpus} in the {@code java.io.tmpdir} directory.
+         *
+         * @param directory the directory for the lock files
+         *
+         * @return this builder
+         */
+        public Builder setDirectory(final Path directory) {
+            if (directory == null) {
+                throw new IllegalArgumentException("The directory cannot be null");
+            }
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * Sets the CPUs to split between the servers. The default is the CPUs this process is allowed to run on.
+         *
+         * @param cpus the CPUs
+         *
+         * @return this builder
+         */
+        public Builder setCpus(final int... cpus) {
+            if (cpus.length == 0) {
+                throw new IllegalArgumentException("At least one CPU is required");
+            }
+            final int[] sorted = cpus.clone();
+            Arrays.sort(sorted);
+            for (int i = 0; i < sorted.length; i++) {
+                if (sorted[i] < 0 || (i > 0 && sorted[i] == sorted[i - 1])) {
+                    throw new IllegalArgumentException("Invalid CPUs: " + Arrays.toString(cpus));
+                }
+            }
+            this.cpus = sorted;
+            return this;
+        }
+
+        /**
+         * Sets the number of servers the CPUs are split between. Each server is given the same number of adjacent
+         * CPUs, any remaining CPUs are not used. The default is 1.
+         *
+         * @param servers the number of servers
+         *
+         * @return this builder
+         */
+        public Builder setServers(final int servers) {
+            if (servers <= 0) {
+                throw new IllegalArgumentException("The number of servers must be greater than 0: " + servers);
+            }
+            this.servers = servers;
+            return this;
+        }
+
+        /**
+         * Sets the cgroup v2 control group the child group of each server is created in. The current user must be
+         * able to create groups and move processes to them. By default processes are not moved.
+         *
+         * @param cgroup the control group directory, e.g. {@code /sys/fs/cgroup/perf}, or {@code null} to not move
+         *               the processes
+         *
+         * @return this builder
+         */
+        public Builder setCgroup(final Path cgroup) {
+            this.cgroup = cgroup;
+            return this;
+        }
+
+        /**
+         * Sets the {@code memory.max} of the control group of each server. This is only used if a
+         * {@linkplain #setCgroup(Path) control group} is set.
+         *
+         * @param memoryLimit the memory limit in bytes or {@code -1} for no limit
+         *
+         * @return this builder
+         */
+        public Builder setMemoryLimit(final long memoryLimit) {
+            if (memoryLimit == 0L || memoryLimit < -1L) {
+                throw new IllegalArgumentException("Invalid memory limit: " + memoryLimit);
+            }
+            this.memoryLimit = memoryLimit;
+            return this;
+        }
+
+        /**
+         * Creates the CPU allocator.
+         *
+         * @return the CPU allocator
+         */
+        public CpuAllocator build() {
+            return new CpuAllocator(this);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * The CPUs, and optionally the control group, a server was placed on by a {@link CpuAllocator}.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public final class CpuPlacement {
+    private final int[] cpus;
+    private final Path cgroup;
+
+    CpuPlacement(final int[] cpus, final Path cgroup) {
+        this.cpus = cpus;
+        this.cgroup = cgroup;
+    }
+
+    /**
+     * The CPUs the server is bound to.
+     *
+     * @return the CPUs
+     */
+    public int[] getCpus() {
+        return cpus.clone();
+    }
+
+    /**
+     * The CPUs the server is bound to in the list format used by {@code taskset} and {@code cpuset.cpus}, e.g.
+     * {@code 0-3,8}.
+     *
+     * @return the CPU list
+     */
+    public String getCpuList() {
+        return toCpuList(cpus);
+    }
+
+    /**
+     * The control group the server process was moved to.
+     *
+     * @return the control group directory or {@code null} if the process was not moved to a control group
+     */
+    public Path getCgroup() {
+        return cgroup;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof CpuPlacement)) {
+            return false;
+        }
+        final CpuPlacement other = (CpuPlacement) obj;
+        return Arrays.equals(cpus, other.cpus) && (cgroup == null ? other.cgroup == null : cgroup.equals(other.cgroup));
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(cpus) + (cgroup == null ? 0 : cgroup.hashCode());
+    }
+
+    @Override
+    public String toString() {
+        return "CpuPlacement[cpus=" + getCpuList() + (cgroup == null ? "" : ", cgroup=" + cgroup) + ']';
+    }
+
+    static String toCpuList(final int[] cpus) {
+        final StringBuilder result = new StringBuilder();
+        int i = 0;
+        while (i < cpus.length) {
+            int end = i;
+            while (end + 1 < cpus.length && cpus[end + 1] == cpus[end] + 1) {
+                end++;
+            }
+            if (result.length() > 0) {
+                result.append(',');
+            }
+            result.append(cpus[i]);
+            if (end > i) {
+                result.append('-').append(cpus[end]);
+            }
+            i = end + 1;
+        }
+        return result.toString();
+    }
+
+    static int[] parseCpuList(final String list) {
+        final String value = list.trim();
+        if (value.isEmpty()) {
+            return new int[0];
+        }
+        int[] result = new int[16];
+        int size = 0;
+        for (String range : value.split(",")) {
+            final int dash = range.indexOf('-');
+            final int start = Integer.parseInt(range.substring(0, dash < 0 ? range.length() : dash).trim());
+            final int end = (dash < 0 ? start : Integer.parseInt(range.substring(dash + 1).trim()));
+            for (int cpu = start; cpu <= end; cpu++) {
+                if (size == result.length) {
+                    result = Arrays.copyOf(result, size * 2);
+                }
+                result[size++] = cpu;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A report of the state of deployments on each server after waiting for the deployments to become healthy.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public final class DeploymentReport {
+
+    /**
+     * The status of a deployment on a server.
+     */
+    public enum Status {
+        /**
+         * The deployment was successfully deployed.
+         */
+        OK,
+        /**
+         * The deployment failed to deploy.
+         */
+        FAILED,
+        /**
+         * The deployment is not enabled.
+         */
+        STOPPED,
+        /**
+         * The status of the deployment could not be determined yet.
+         */
+        UNDEFINED,
+        /**
+         * The deployment does not exist on the server.
+         */
+        MISSING,
+    }
+
+    private final Map<String, String> serverStates;
+    private final Map<String, Map<String, Status>> statuses;
+
+    DeploymentReport(final Map<String, String> serverStates, final Map<String, Map<String, Status>> statuses) {
+        this.serverStates = serverStates;
+        this.statuses = statuses;
+    }
+
+    /**
+     * Indicates whether every deployment has a status of {@link Status#OK} and every server has finished starting.
+     *
+     * @return {@code true} if the deployments are healthy, otherwise {@code false}
+     */
+    public boolean isSuccessful() {
+        if (serverStates.isEmpty()) {
+            return false;
+        }
+        for (String serverState : serverStates.values()) {
+            if (!ServerHelper.isRunningState(serverState)) {
+                return false;
+            }
+        }
+        for (Map<String, Status> deployments : statuses.values()) {
+            for (Status status : deployments.values()) {
+                if (status != Status.OK) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indicates whether any deployment has a status of {@link Status#FAILED}.
+     *
+     * @return {@code true} if a deployment failed, otherwise {@code false}
+     */
+    public boolean hasFailures() {
+        for (Map<String, Status> deployments : statuses.values()) {
+            if (deployments.containsValue(Status.FAILED)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The names of the servers which were checked. For servers in a domain the name is the host name and server name
+     * separated by a {@code /}.
+     *
+     * @return the server names
+     */
+    public Set<String> getServers() {
+        return Collections.unmodifiableSet(serverStates.keySet());
+    }
+
+    /**
+     * The last server state read from the server, for example {@code running} or {@code reload-required}.
+     *
+     * @param server the name of the server
+     *
+     * @return the server state or {@code null} if the server was not checked
+     */
+    public String getServerState(final String server) {
+        return serverStates.get(server);
+    }
+
+    /**
+     * The status of each deployment on the server.
+     *
+     * @param server the name of the server
+     *
+     * @return the status of each deployment keyed by the deployment name
+     */
+    public Map<String, Status> getStatuses(final String server) {
+        final Map<String, Status> result = statuses.get(server);
+        return result == null ? Collections.emptyMap() : Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    public String toString() {
+        final Map<String, Object> result = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : serverStates.entrySet()) {
+            result.put(entry.getKey(), entry.getValue() + ' ' + getStatuses(entry.getKey()));
+        }
+        return "DeploymentReport" + result;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.ModelType;
+import org.jboss.dmr.Property;
+
+/**
+ * The desired state of a set of management resources used to {@linkplain StandaloneServer#reconcile(DesiredState)
+ * reconcile} a server.
+ * <p>
+ * Each resource is either present, with the given attributes, or absent. Only the attributes given for a present
+ * resource are reconciled, any other attributes of the resource are left as they are. An undefined attribute value
+ * means the attribute should not be set. The parent of each resource must either exist or also be present in the
+ * desired state.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public final class DesiredState {
+    private final Map<ModelNode, ModelNode> resources;
+    private final Set<ModelNode> absent;
+
+    private DesiredState(final Builder builder) {
+        resources = Collections.unmodifiableMap(new LinkedHashMap<>(builder.resources));
+        absent = Collections.unmodifiableSet(new LinkedHashSet<>(builder.absent));
+    }
+
+    /**
+     * Creates a new builder for a desired state.
+     *
+     * @return the new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * The addresses of the resources which should be present mapped to their attributes.
+     *
+     * @return the present resources
+     */
+    Map<ModelNode, ModelNode> getResources() {
+        return resources;
+    }
+
+    /**
+     * The addresses of the resources which should be absent.
+     *
+     * @return the absent resources
+     */
+    Set<ModelNode> getAbsent() {
+        return absent;
+    }
+
+    /**
+     * A builder used to create a {@link DesiredState}.
+     */
+    public static class Builder {
+        private final Map<ModelNode, ModelNode> resources;
+        private final Set<ModelNode> absent;
+
+        private Builder() {
+            resources = new LinkedHashMap<>();
+            absent = new LinkedHashSet<>();
+        }
+
+        /**
+         * Adds a resource which should be present with the attributes. If the resource was already added the
+         * attributes are merged, replacing any attributes already added.
+         *
+         * @param address    the address of the resource
+         * @param attributes the attributes of the resource, an object of the attribute names and values
+         *
+         * @return this builder
+         */
+        public Builder addResource(final ModelNode address, final ModelNode attributes) {
+            final ModelNode key = checkAddress(address);
+            if (attributes.isDefined() && attributes.getType() != ModelType.OBJECT) {
+                throw new IllegalArgumentException("The attributes must be an object: " + attributes);
+            }
+            if (absent.contains(key)) {
+                throw new IllegalArgumentException("The resource was already added as absent: " + address);
+            }
+            final ModelNode current = resources.computeIfAbsent(key, a -> new ModelNode().setEmptyObject());
+            if (attributes.isDefined()) {
+                for (Property attribute : attributes.asPropertyList()) {
+                    current.get(attribute.getName()).set(attribute.getValue());
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Adds a resource which should be absent.
+         *
+         * @param address the address of the resource
+         *
+         * @return this builder
+         */
+        public Builder removeResource(final ModelNode address) {
+            final ModelNode key = checkAddress(address);
+            if (key.asInt() == 0) {
+                throw new IllegalArgumentException("The root resource cannot be removed");
+            }
+            if (resources.containsKey(key)) {
+                throw new IllegalArgumentException("The resource was already added as present: " + address);
+            }
+            absent.add(key);
+            return this;
+        }
+
+        /**
+         * Creates the desired state.
+         *
+         * @return the desired state
+         */
+        public DesiredState build() {
+            return new DesiredState(this);
+        }
+
+        private static ModelNode checkAddress(final ModelNode address) {
+            if (address == null || (address.isDefined() && address.getType() != ModelType.LIST)) {
+                throw new IllegalArgumentException("Invalid address: " + address);
+            }
+            // Normalize the address to a list of properties so addresses are equal regardless of how they were created
+            final ModelNode result = new ModelNode().setEmptyList();
+            if (address.isDefined()) {
+                for (Property segment : address.asPropertyList()) {
+                    result.add(segment.getName(), segment.getValue().asString());
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Captures diagnostic information about a server process before it is destroyed.
+ * <p>
+ * Each capture is written to a new directory within the configured directory and contains a thread dump and class
+ * histogram for the process and each of its descendants along with the last lines written to the console.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class Diagnostics {
+    private static final Logger LOGGER = Logger.getLogger(Diagnostics.class);
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss.SSS");
+
+    private final Path directory;
+    private final int consoleLines;
+
+    Diagnostics(final Path directory, final int consoleLines) {
+        this.directory = directory;
+        this.consoleLines = consoleLines;
+    }
+
+    /**
+     * The number of console lines which should be kept for a capture.
+     *
+     * @return the number of console lines
+     */
+    int getConsoleLines() {
+        return consoleLines;
+    }
+
+    /**
+     * Captures the diagnostics for the process.
+     *
+     * @param reason   the reason for the capture, used in the directory name
+     * @param process  the process to capture the diagnostics for
+     * @param javaHome the Java home the process was launched with
+     * @param tail     the console tail or {@code null} if the console was not captured
+     *
+     * @return the directory the diagnostics were written to or {@code null} if the capture failed
+     */
+    Path capture(final String reason, final Process process, final Path javaHome, final ConsoleTail tail) {
+        final long pid = Processes.pid(process);
+        final Path dir = directory.resolve(LocalDateTime.now().format(FORMATTER) + '-' + reason + (pid < 0 ? "" : "-" + pid));
+        try {
+            Files.createDirectories(dir);
+            if (pid >= 0) {
+                final long[] pids = Processes.snapshot(new byte[4096]).withDescendants(pid);
+                final Path jcmd = Jcmd.find(javaHome);
+                if (jcmd == null) {
+                    LOGGER.debugf("Could not find jcmd, sending SIGQUIT to %d", pid);
+                    for (long p : pids) {
+                        Jcmd.sendQuit(p);
+                    }
+                    // Allow the thread dumps to be written to the console
+                    TimeUnit.MILLISECONDS.sleep(500L);
+                } else {
+                    for (long p : pids) {
+                        Jcmd.execute(jcmd, p, dir.resolve("threads-" + p + ".txt"), "Thread.print", "-l");
+                        Jcmd.execute(jcmd, p, dir.resolve("class-histogram-" + p + ".txt"), "GC.class_histogram");
+                    }
+                }
+            }
+            final List<String> lines = (tail == null ? Collections.<String>emptyList() : tail.getLines());
+            Files.write(dir.resolve("console.log"), lines, StandardCharsets.UTF_8);
+            return dir;
+        } catch (IOException e) {
+            LOGGER.debugf(e, "Failed to capture diagnostics to %s", dir);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+}
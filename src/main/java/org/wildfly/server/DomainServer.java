@@ -19,16 +19,21 @@
 
 package org.wildfly.server;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import org.jboss.as.controller.client.helpers.domain.DomainClient;
+import org.jboss.dmr.ModelNode;
 
 /**
  * Represents a domain server.
  *
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
  */
-public interface DomainServer extends Server, Killable {
+public interface DomainServer extends Server, Killable, Recordable {
 
     /**
      * The hosts associated with the domain server.
@@ -68,4 +73,82 @@ public interface DomainServer extends Server, Killable {
      * @throws RuntimeException if the server group does not exist
      */
     ServerGroup getServerGroup(String name);
+
+    /**
+     * Waits for a line written to the console of the domain which matches the pattern. The console of the domain
+     * includes the console of each server in the domain. Lines written since the domain was last started which are
+     * still held are matched first. New lines are matched as they are written.
+     * <p>
+     * The console is only indexed if a standard out and the {@linkplain DomainServerBuilder#setConsoleIndexLines(int)
+     * number of console lines} to hold were set on the builder.
+     * </p>
+     *
+     * @param pattern the pattern to find in a line
+     * @param timeout the maximum time to wait
+     *
+     * @return the first matching line or {@code null} if no line matched before the timeout
+     *
+     * @throws InterruptedException  if interrupted while waiting
+     * @throws IllegalStateException if the console of the domain is not indexed
+     */
+    String awaitConsole(Pattern pattern, Duration timeout) throws InterruptedException;
+
+    /**
+     * Finds the lines written to the console of the domain, since it was last started, which match the pattern. The
+     * console of the domain includes the console of each server in the domain. Only the most recent lines are held.
+     * <p>
+     * The console is only indexed if a standard out and the {@linkplain DomainServerBuilder#setConsoleIndexLines(int)
+     * number of console lines} to hold were set on the builder.
+     * </p>
+     *
+     * @param pattern the pattern to find in a line
+     *
+     * @return the matching lines, oldest first, or an empty list if no lines matched
+     *
+     * @throws IllegalStateException if the console of the domain is not indexed
+     */
+    List<String> findInConsole(Pattern pattern);
+
+    /**
+     * The offset added to each port of the server. The offset is assigned by the
+     * {@linkplain DomainServerBuilder#setPortAllocator(PortAllocator) port allocator}, if one was set.
+     *
+     * @return the port offset or {@code 0} if no port allocator was used
+     */
+    int getPortOffset();
+
+    /**
+     * The CPUs the server is bound to. The CPUs are assigned by the
+     * {@linkplain DomainServerBuilder#setCpuAllocator(CpuAllocator) CPU allocator}, if one was set.
+     *
+     * @return the placement or {@code null} if no CPU allocator was used
+     */
+    CpuPlacement getCpuPlacement();
+
+    /**
+     * Walks the domain management model starting at the address, passing each resource to the visitor as it is read.
+     * The resources of a running server can be walked with an address starting with {@code host=<host>/server=<server>}.
+     *
+     * @param address the address of the resource to start at
+     * @param visitor the visitor to pass each resource to
+     *
+     * @throws IOException          if an error occurs communicating with the server
+     * @throws InterruptedException if interrupted while waiting for a resource to be read
+     * @see ModelWalker
+     */
+    void walkModel(ModelNode address, ResourceVisitor visitor) throws IOException, InterruptedException;
+
+    /**
+     * Changes the domain to the desired state, e.g. the resources of a profile. Only the resources and attributes
+     * which differ from the desired state are changed, as a single composite operation. The report indicates if any
+     * of the affected servers require a reload or restart.
+     *
+     * @param desired the desired state
+     *
+     * @return the report of the changes
+     *
+     * @throws IOException              if an error occurs communicating with the domain
+     * @throws OperationFailedException if reading the current state or applying the changes failed
+     */
+    ReconcileReport reconcile(DesiredState desired) throws IOException;
 }
@@ -21,23 +21,49 @@ package org.wildfly.server;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.OperationMessageHandler;
 import org.jboss.as.controller.client.helpers.ClientConstants;
 import org.jboss.as.controller.client.helpers.Operations;
 import org.jboss.as.controller.client.helpers.domain.DomainClient;
 import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.Property;
+import org.jboss.logging.Logger;
+import org.jboss.threads.AsyncFuture;
 import org.wildfly.core.launcher.CommandBuilder;
+import org.wildfly.core.launcher.DomainCommandBuilder;
 
 /**
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
  */
 public class DomainServerBuilder {
+    private static final Logger LOGGER = Logger.getLogger(DomainServerBuilder.class);
+    private static final int NATIVE_MANAGEMENT_PORT = 9999;
+    // The port offset between each slave host when no port allocator is used
+    private static final int SLAVE_PORT_OFFSET = 100;
+    // The difference between the port offsets of servers added when scaling a server group
+    private static final int SERVER_PORT_OFFSET = 100;
+    // The time to wait for slave hosts to stop
+    private static final Duration SLAVE_STOP_TIMEOUT = Duration.ofSeconds(30L);
 
     private final CommandBuilder commandBuilder;
 
@@ -46,6 +72,16 @@ public class DomainServerBuilder {
     private String username;
     private String password;
     private OutputStream stdout;
+    private Path diagnosticsDirectory;
+    private int diagnosticsConsoleLines;
+    private int consoleIndexLines;
+    private RecordingSettings recordingSettings;
+    private String name;
+    private PortAllocator portAllocator;
+    private CpuAllocator cpuAllocator;
+    private ClientPolicy clientPolicy;
+    private int slaveHosts;
+    private Path slaveBaseDirectory;
 
     protected DomainServerBuilder(final CommandBuilder commandBuilder) {
         this.commandBuilder = commandBuilder;
@@ -55,6 +91,7 @@ public class DomainServerBuilder {
             throw new RuntimeException(e);
         }
         managementPort = 9990;
+        diagnosticsConsoleLines = 500;
     }
 
     public DomainServerBuilder setManagementAddress(final String address) throws UnknownHostException {
@@ -71,38 +108,458 @@ public class DomainServerBuilder {
         return this;
     }
 
+    /**
+     * Sets the stream the console of the domain is written to. The console of the domain includes the console of each
+     * server in the domain. The console is only captured if a stream is set.
+     * <p>
+     * The consoles of all servers are pumped by a small pool of shared threads, and the stream is written to on one of
+     * those threads. A stream which blocks, or is slow to write to, delays the consoles of the other servers pumped by
+     * the same thread. Once their pipes are full those servers block writing to their console. The stream should
+     * therefore not block, e.g. use a file, a {@link ConsoleBuffer} or a {@link ConsoleArchive} rather than a stream
+     * waiting on a consumer.
+     * </p>
+     *
+     * @param stdout the stream to write the console to or {@code null} to inherit the console of this process
+     *
+     * @return this builder
+     */
     public DomainServerBuilder setStandardOut(final OutputStream stdout) {
         this.stdout = stdout;
         return this;
     }
 
+    /**
+     * Sets the directory diagnostics are written to when the server fails to start or stop within the expected time.
+     * A thread dump and class histogram for each process, along with the last lines written to the console, are
+     * written to a new directory within this directory before the process is destroyed. By default no diagnostics
+     * are captured.
+     *
+     * @param diagnosticsDirectory the directory to write the diagnostics to or {@code null} to disable
+     *
+     * @return this builder
+     */
+    public DomainServerBuilder setDiagnosticsDirectory(final Path diagnosticsDirectory) {
+        this.diagnosticsDirectory = diagnosticsDirectory;
+        return this;
+    }
+
+    /**
+     * Sets the number of console lines kept for the diagnostics. The default is 500. Note that console lines are only
+     * kept if the {@linkplain #setStandardOut(OutputStream) standard out} is set.
+     *
+     * @param lines the number of lines to keep, {@code 0} to keep none
+     *
+     * @return this builder
+     */
+    public DomainServerBuilder setDiagnosticsConsoleLines(final int lines) {
+        if (lines < 0) {
+            throw new IllegalArgumentException("The number of lines cannot be negative: " + lines);
+        }
+        diagnosticsConsoleLines = lines;
+        return this;
+    }
+
+    /**
+     * Sets the number of console lines held to answer {@link DomainServer#awaitConsole(java.util.regex.Pattern,
+     * Duration) awaitConsole} and {@link DomainServer#findInConsole(java.util.regex.Pattern) findInConsole}. Each line
+     * held is decoded and kept on the heap, so by default no lines are held and those methods fail. Note that console
+     * lines are only held if the {@linkplain #setStandardOut(OutputStream) standard out} is set.
+     *
+     * @param lines the number of lines to hold, {@code 0} to hold none
+     *
+     * @return this builder
+     */
+    public DomainServerBuilder setConsoleIndexLines(final int lines) {
+        if (lines < 0) {
+            throw new IllegalArgumentException("The number of lines cannot be negative: " + lines);
+        }
+        consoleIndexLines = lines;
+        return this;
+    }
+
+    /**
+     * Sets the settings for a flight recording of the host controller which is started each time the domain is
+     * launched. The recording is started with the {@code -XX:StartFlightRecording} JVM option which replaces any such
+     * option in the host controller JVM options of the command builder when the server is built. Servers in the domain
+     * are not recorded at launch, their JVM options are defined in the host configuration.
+     *
+     * @param recordingSettings the recording settings or {@code null} to not start a recording when launched
+     *
+     * @return this builder
+     */
+    public DomainServerBuilder setFlightRecording(final RecordingSettings recordingSettings) {
+        this.recordingSettings = recordingSettings;
+        return this;
+    }
+
+    /**
+     * Sets the name identifying the server in {@linkplain ServerLifecycleEvent lifecycle events}. The default is
+     * the management address and port of the server.
+     *
+     * @param name the name of the server or {@code null} to use the default
+     *
+     * @return this builder
+     */
+    public DomainServerBuilder setName(final String name) {
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * Sets the allocator used to reserve a port offset for the server. The offset is applied to the management
+     * interfaces of the host controller with the {@code jboss.management.http.port} and
+     * {@code jboss.management.native.port} system properties. The ports of the servers are defined by the host
+     * configuration and are not changed.
+     * The management client connects to the management port shifted by the offset. The ports are released when the
+     * server is stopped and reserved again when started, failing immediately if they have been taken.
+     *
+     * @param portAllocator the port allocator or {@code null} to use the ports as configured
+     *
+     * @return this builder
+     */
+    public DomainServerBuilder setPortAllocator(final PortAllocator portAllocator) {
+        this.portAllocator = portAllocator;
+        return this;
+    }
+
+    /**
+     * Sets the allocator used to reserve a set of CPUs for the domain. The process controller is launched with
+     * {@code taskset} bound to the reserved CPUs, which the host controller and servers it launches inherit. Each
+     * slave host reserves its own CPUs. The CPUs are released when the domain is stopped and reserved again when
+     * started, failing immediately if they have been taken.
+     *
+     * @param cpuAllocator the CPU allocator or {@code null} to not bind the domain to CPUs
+     *
+     * @return this builder
+     */
+    public DomainServerBuilder setCpuAllocator(final CpuAllocator cpuAllocator) {
+        this.cpuAllocator = cpuAllocator;
+        return this;
+    }
+
+    /**
+     * Sets the policy used to bound and retry the management operations executed with the
+     * {@linkplain Server#getClient() client} of the server. By default no policy is applied. Starting and stopping
+     * the server is not affected by the policy.
+     *
+     * @param clientPolicy the client policy
+     *
+     * @return this builder
+     */
+    public DomainServerBuilder setClientPolicy(final ClientPolicy clientPolicy) {
+        if (clientPolicy == null) {
+            throw new IllegalArgumentException("The client policy cannot be null");
+        }
+        this.clientPolicy = clientPolicy;
+        return this;
+    }
+
+    /**
+     * Sets the number of slave host controllers to launch with the domain. The slave hosts are launched in parallel,
+     * after the master has started, and are stopped with the master. Each slave host is named {@code slave-N}, has
+     * its own base directory and no servers. The {@code host-slave.xml} from the configuration directory of the
+     * master is used as a template for the host configuration of each slave.
+     * <p>
+     * Each slave host uses a different port offset for its native management interface. If a
+     * {@linkplain #setPortAllocator(PortAllocator) port allocator} is set, it's used to reserve the offset.
+     * </p>
+     *
+     * @param slaveHosts the number of slave hosts to launch
+     *
+     * @return this builder
+     */
+    public DomainServerBuilder setSlaveHosts(final int slaveHosts) {
+        if (slaveHosts < 0) {
+            throw new IllegalArgumentException("The number of slave hosts cannot be negative: " + slaveHosts);
+        }
+        this.slaveHosts = slaveHosts;
+        return this;
+    }
+
+    /**
+     * Sets the directory the base directory of each slave host is created in. By default a new temporary directory
+     * is created, which is deleted each time the domain is stopped and created again when the domain is started.
+     *
+     * @param slaveBaseDirectory the directory for the slave hosts
+     *
+     * @return this builder
+     */
+    public DomainServerBuilder setSlaveBaseDirectory(final Path slaveBaseDirectory) {
+        this.slaveBaseDirectory = slaveBaseDirectory;
+        return this;
+    }
+
     public DomainServer build() {
-        final ModelControllerClient client = ModelControllerClient.Factory.create(managementAddress, managementPort);
-        return new DomainServerImpl(commandBuilder, client, stdout);
+        if (recordingSettings != null) {
+            if (!(commandBuilder instanceof DomainCommandBuilder)) {
+                throw new IllegalStateException("A flight recording can only be started at launch with a DomainCommandBuilder");
+            }
+            final DomainCommandBuilder domainCommandBuilder = (DomainCommandBuilder) commandBuilder;
+            // The command builder may be shared between builds, so replace the recording of a previous build
+            domainCommandBuilder.setHostControllerJavaOptions(ServerHelper.setOption(domainCommandBuilder.getHostControllerJavaOptions(),
+                    RecordingSettings.JAVA_OPTION, recordingSettings.toJavaOption()));
+        }
+        final PortAllocator.Reservation portReservation = reservePorts();
+        ModelControllerClient client = null;
+        List<SlaveHostController> slaves = Collections.emptyList();
+        Path temporaryDirectory = null;
+        try {
+            final int offset = (portReservation == null ? 0 : portReservation.getOffset());
+            final String serverName = (name == null ? managementAddress.getHostAddress() + ':' + managementPort : name);
+            client = ResilientModelControllerClient.wrap(serverName,
+                    ModelControllerClient.Factory.create(managementAddress, managementPort + offset), clientPolicy);
+            final Diagnostics diagnostics = (diagnosticsDirectory == null ? null : new Diagnostics(diagnosticsDirectory, diagnosticsConsoleLines));
+            if (slaveHosts > 0 && slaveBaseDirectory == null) {
+                temporaryDirectory = createTemporaryDirectory();
+            }
+            slaves = createSlaveHosts(temporaryDirectory == null ? slaveBaseDirectory : temporaryDirectory, serverName, offset, diagnostics);
+            final DomainServerImpl server = new DomainServerImpl(serverName, commandBuilder, client, stdout, diagnostics, slaves, temporaryDirectory);
+            if (recordingSettings != null) {
+                server.setLaunchRecordingName(recordingSettings.getName());
+            }
+            server.setConsoleIndexLines(consoleIndexLines);
+            server.setPortReservation(portReservation);
+            server.setCpuReservation(reserveCpus());
+            return server;
+        } catch (RuntimeException e) {
+            // No server is returned to release the ports or close the clients
+            discard(slaves);
+            if (portReservation != null) {
+                portReservation.release();
+            }
+            AbstractServer.safeClose(client);
+            deleteTemporaryDirectory(temporaryDirectory);
+            throw e;
+        }
+    }
+
+    private static Path createTemporaryDirectory() {
+        try {
+            return Files.createTempDirectory("wildfly-slaves");
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create a directory for the slave hosts", e);
+        }
+    }
+
+    private static void deleteTemporaryDirectory(final Path dir) {
+        if (dir != null) {
+            try {
+                ServerHelper.deleteRecursively(dir);
+            } catch (IOException e) {
+                LOGGER.debugf(e, "Failed to delete %s", dir);
+            }
+        }
+    }
+
+    /**
+     * Creates the base directory of each slave host in the directory.
+     */
+    private static void createSlaveBaseDirectories(final Path baseDir, final Path masterConfigDir, final int slaveHosts) throws IOException {
+        for (int i = 1; i <= slaveHosts; i++) {
+            final String hostName = "slave-" + i;
+            SlaveHostController.createBaseDirectory(baseDir.resolve(hostName), masterConfigDir, hostName);
+        }
+    }
+
+    private List<SlaveHostController> createSlaveHosts(final Path baseDir, final String domainName, final int masterOffset, final Diagnostics diagnostics) {
+        if (slaveHosts == 0) {
+            return Collections.emptyList();
+        }
+        if (!(commandBuilder instanceof DomainCommandBuilder)) {
+            throw new IllegalStateException("Slave hosts can only be launched with a DomainCommandBuilder");
+        }
+        final DomainCommandBuilder master = (DomainCommandBuilder) commandBuilder;
+        try {
+            createSlaveBaseDirectories(baseDir, master.getConfigurationDirectory(), slaveHosts);
+            final String address = managementAddress.getHostAddress();
+            final List<SlaveHostController> slaves = new ArrayList<>(slaveHosts);
+            try {
+                for (int i = 1; i <= slaveHosts; i++) {
+                    final String hostName = "slave-" + i;
+                    final Path hostDir = baseDir.resolve(hostName);
+                    final PortAllocator.Reservation reservation = (portAllocator == null ? null : portAllocator.reserve(managementAddress));
+                    final SlaveHostController slave;
+                    try {
+                        final int nativePort = NATIVE_MANAGEMENT_PORT + (reservation == null ? masterOffset + (i * SLAVE_PORT_OFFSET) : reservation.getOffset());
+                        final DomainCommandBuilder slaveCommandBuilder = DomainCommandBuilder.of(master.getWildFlyHome(), master.getJavaHome())
+                                .setBaseDirectory(hostDir)
+                                .setHostConfiguration(SlaveHostController.HOST_CONFIG)
+                                .setMasterAddressHint(address)
+                                .setMasterPortHint(NATIVE_MANAGEMENT_PORT + masterOffset)
+                                .addHostControllerJavaOption("-Djboss.management.native.port=" + nativePort);
+                        final String slaveName = domainName + '/' + hostName;
+                        final ModelControllerClient client = ResilientModelControllerClient.wrap(slaveName,
+                                ModelControllerClient.Factory.create("remote", address, nativePort), clientPolicy);
+                        slave = new SlaveHostController(slaveName, slaveCommandBuilder, client, stdout, diagnostics);
+                    } catch (RuntimeException e) {
+                        if (reservation != null) {
+                            reservation.release();
+                        }
+                        throw e;
+                    }
+                    slave.setPortReservation(reservation);
+                    slaves.add(slave);
+                    slave.setCpuReservation(reserveCpus());
+                }
+            } catch (RuntimeException e) {
+                discard(slaves);
+                throw e;
+            }
+            return slaves;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create the slave hosts", e);
+        }
+    }
+
+    private static void discard(final List<SlaveHostController> slaves) {
+        for (SlaveHostController slave : slaves) {
+            slave.discard();
+        }
+    }
+
+    private CpuAllocator.Reservation reserveCpus() {
+        if (cpuAllocator == null) {
+            return null;
+        }
+        try {
+            return cpuAllocator.reserve();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to reserve CPUs", e);
+        }
+    }
+
+    private PortAllocator.Reservation reservePorts() {
+        if (portAllocator == null) {
+            return null;
+        }
+        if (!(commandBuilder instanceof DomainCommandBuilder)) {
+            throw new IllegalStateException("A port allocator can only be used with a DomainCommandBuilder");
+        }
+        try {
+            final PortAllocator.Reservation reservation = portAllocator.reserve(managementAddress, managementPort);
+            final int offset = reservation.getOffset();
+            final DomainCommandBuilder domainCommandBuilder = (DomainCommandBuilder) commandBuilder;
+            // The command builder may be shared between builds, so replace the ports of a previous build
+            List<String> options = domainCommandBuilder.getHostControllerJavaOptions();
+            options = ServerHelper.setSystemProperty(options, "jboss.management.http.port", managementPort + offset);
+            options = ServerHelper.setSystemProperty(options, "jboss.management.native.port", NATIVE_MANAGEMENT_PORT + offset);
+            domainCommandBuilder.setHostControllerJavaOptions(options);
+            return reservation;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to reserve ports", e);
+        }
     }
 
     private static class DomainServerImpl extends AbstractServer implements DomainServer {
         private final DomainClient domainClient;
-
-        protected DomainServerImpl(final CommandBuilder commandBuilder, final ModelControllerClient client, final OutputStream stdout) {
-            super(commandBuilder, client, stdout);
+        private final DomainClient lifecycleClient;
+        private final List<SlaveHostController> slaves;
+        // The directory of the slave hosts if it was created by the builder, otherwise null
+        private final Path temporaryDirectory;
+        private final Path masterConfigDir;
+
+        protected DomainServerImpl(final String name, final CommandBuilder commandBuilder, final ModelControllerClient client, final OutputStream stdout, final Diagnostics diagnostics,
+                                   final List<SlaveHostController> slaves, final Path temporaryDirectory) {
+            super(name, commandBuilder, client, stdout, diagnostics);
             domainClient = DomainClient.Factory.create(client);
+            lifecycleClient = DomainClient.Factory.create(ResilientModelControllerClient.unwrap(client));
+            this.slaves = slaves;
+            this.temporaryDirectory = temporaryDirectory;
+            masterConfigDir = (temporaryDirectory == null ? null : ((DomainCommandBuilder) commandBuilder).getConfigurationDirectory());
         }
 
         @Override
         protected void stopServer() {
-            ServerHelper.shutdownDomain(domainClient);
-            safeClose(domainClient);
+            ServerRegistry.stop(slaves, SLAVE_STOP_TIMEOUT);
+            ServerHelper.shutdownDomain(lifecycleClient);
+            safeClose(lifecycleClient);
+        }
+
+        @Override
+        protected void stopped() {
+            // Ensure no slave host outlives the master
+            final List<SlaveHostController> running = new ArrayList<>();
+            for (SlaveHostController slave : slaves) {
+                if (slave.isProcessAlive()) {
+                    running.add(slave);
+                }
+            }
+            ServerRegistry.stop(running, Duration.ZERO);
+            deleteTemporaryDirectory(temporaryDirectory);
+        }
+
+        @Override
+        protected void suspendServer(final long timeout) throws IOException, InterruptedException {
+            ServerHelper.suspendDomain(lifecycleClient, timeout);
+        }
+
+        @Override
+        protected boolean isSuspended(final long timeout) throws IOException, InterruptedException {
+            return ServerHelper.isDomainSuspended(lifecycleClient, timeout);
+        }
+
+        @Override
+        protected void shutdownServer(final long timeout) throws IOException, InterruptedException {
+            final long deadline = System.nanoTime() + timeout;
+            ServerRegistry.stop(slaves, Duration.ofNanos(timeout / 2L));
+            ServerHelper.shutdownDomain(lifecycleClient, Math.max(0L, deadline - System.nanoTime()));
         }
 
         @Override
         protected boolean waitForStart(final Process process, final long timeout) throws IOException, InterruptedException {
-            return ServerHelper.waitForDomain(process, domainClient, timeout);
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeout);
+            return ServerHelper.waitForDomain(process, lifecycleClient, timeout, this::managementReachable) && startSlaves(deadline);
+        }
+
+        /**
+         * Starts the slave hosts in parallel and waits for each to start. If a slave host fails to start, the slave
+         * hosts which were started are stopped.
+         */
+        private boolean startSlaves(final long deadline) throws IOException, InterruptedException {
+            if (slaves.isEmpty()) {
+                return true;
+            }
+            if (temporaryDirectory != null && Files.notExists(temporaryDirectory)) {
+                // The directory was deleted when the domain was last stopped
+                Files.createDirectories(temporaryDirectory);
+                createSlaveBaseDirectories(temporaryDirectory, masterConfigDir, slaves.size());
+            }
+            final long timeout = Math.max(1L, TimeUnit.NANOSECONDS.toSeconds(deadline - System.nanoTime()));
+            final ExecutorService executor = Executors.newFixedThreadPool(slaves.size(), r -> {
+                final Thread t = new Thread(r);
+                t.setDaemon(true);
+                t.setName("WildFly-Slave-Host-Start");
+                return t;
+            });
+            boolean started = true;
+            try {
+                final List<Future<?>> futures = new ArrayList<>(slaves.size());
+                for (SlaveHostController slave : slaves) {
+                    futures.add(executor.submit(() -> {
+                        slave.start(timeout);
+                        return null;
+                    }));
+                }
+                for (int i = 0; i < futures.size(); i++) {
+                    try {
+                        futures.get(i).get();
+                    } catch (ExecutionException e) {
+                        LOGGER.debugf(e.getCause(), "Failed to start %s", slaves.get(i));
+                        started = false;
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+                if (!started) {
+                    ServerRegistry.stop(slaves, Duration.ZERO);
+                }
+            }
+            return started;
         }
 
         @Override
         public boolean isRunning() {
-            return ServerHelper.isDomainRunning(domainClient);
+            return ServerHelper.isDomainRunning(lifecycleClient);
         }
 
         @Override
@@ -114,7 +571,7 @@ public class DomainServerBuilder {
             op.get(ClientConstants.CHILD_TYPE).set(ClientConstants.HOST);
             final ModelNode result = safeExecuteForSuccess(client, op);
             for (ModelNode host : result.asList()) {
-                hosts.add(new HostImpl(client, host.asString()));
+                hosts.add(new HostImpl(client, getName(), host.asString()));
             }
             return Collections.unmodifiableSet(hosts);
         }
@@ -123,7 +580,7 @@ public class DomainServerBuilder {
         public Host getHost(final String name) {
             // Ensure the host exists
             safeExecuteForSuccess(client, Operations.createReadResourceOperation(Operations.createAddress(ClientConstants.HOST, name)));
-            return new HostImpl(getClient(), name);
+            return new HostImpl(getClient(), getName(), name);
         }
 
         @Override
@@ -140,7 +597,7 @@ public class DomainServerBuilder {
             op.get(ClientConstants.CHILD_TYPE).set(ClientConstants.SERVER_GROUP);
             final ModelNode result = safeExecuteForSuccess(client, op);
             for (ModelNode serverGroup : result.asList()) {
-                serverGroups.add(new ServerGroupImpl(client, serverGroup.asString()));
+                serverGroups.add(new ServerGroupImpl(client, getName(), serverGroup.asString()));
             }
             return Collections.unmodifiableSet(serverGroups);
         }
@@ -149,7 +606,7 @@ public class DomainServerBuilder {
         public ServerGroup getServerGroup(final String name) {
             // Ensure the server-group exists
             safeExecuteForSuccess(client, Operations.createReadResourceOperation(Operations.createAddress(ClientConstants.SERVER_GROUP, name)));
-            return new ServerGroupImpl(getClient(), name);
+            return new ServerGroupImpl(getClient(), getName(), name);
         }
 
         @Override
@@ -160,11 +617,13 @@ public class DomainServerBuilder {
 
     private static class HostImpl implements Host {
         private final DomainClient client;
+        private final String domainName;
         private final String name;
         private final ModelNode address;
 
-        private HostImpl(final DomainClient client, final String name) {
+        private HostImpl(final DomainClient client, final String domainName, final String name) {
             this.client = client;
+            this.domainName = domainName;
             this.name = name;
             address = Operations.createAddress("host", name);
         }
@@ -188,7 +647,7 @@ public class DomainServerBuilder {
             final ModelNode result = safeExecuteForSuccess(client, op);
             for (ModelNode server : result.asList()) {
                 final String serverName = server.asString();
-                servers.add(new HostServer(client, name, serverName));
+                servers.add(new HostServer(client, domainName, name, serverName));
             }
             return Collections.unmodifiableSet(servers);
         }
@@ -197,18 +656,22 @@ public class DomainServerBuilder {
         public Server getServer(final String serverName) {
             // Ensure the server exists
             safeExecuteForSuccess(client, Operations.createReadResourceOperation(Operations.createAddress("host", name, "server", serverName)));
-            return new HostServer(client, name, serverName);
+            return new HostServer(client, domainName, name, serverName);
         }
     }
 
     private static class ServerGroupImpl implements ServerGroup {
         private final DomainClient client;
+        private final String domainName;
         private final String name;
+        private final String eventName;
         private final ModelNode address;
 
-        private ServerGroupImpl(final DomainClient client, final String name) {
+        private ServerGroupImpl(final DomainClient client, final String domainName, final String name) {
             this.client = client;
+            this.domainName = domainName;
             this.name = name;
+            eventName = domainName + '/' + name;
             address = Operations.createAddress(ClientConstants.SERVER_GROUP, name);
         }
 
@@ -216,14 +679,18 @@ public class DomainServerBuilder {
         public void reloadServers() {
             final ModelNode op = Operations.createOperation("reload-servers", address);
             op.get("blocking").set(true);
+            fireEvent(ServerLifecycleEvent.Type.RELOADING);
             safeExecuteForSuccess(client, op);
+            fireEvent(ServerLifecycleEvent.Type.STARTED);
         }
 
         @Override
         public void restartServers() {
             final ModelNode op = Operations.createOperation("restart-servers", address);
             op.get("blocking").set(true);
+            fireEvent(ServerLifecycleEvent.Type.STOPPING);
             safeExecuteForSuccess(client, op);
+            fireEvent(ServerLifecycleEvent.Type.STARTED);
         }
 
         @Override
@@ -235,14 +702,18 @@ public class DomainServerBuilder {
         public void startServers() {
             final ModelNode op = Operations.createOperation("start-servers", address);
             op.get("blocking").set(true);
+            fireEvent(ServerLifecycleEvent.Type.STARTING);
             safeExecuteForSuccess(client, op);
+            fireEvent(ServerLifecycleEvent.Type.STARTED);
         }
 
         @Override
         public void stopServers() {
             final ModelNode op = Operations.createOperation("stop-servers", address);
             op.get("blocking").set(true);
+            fireEvent(ServerLifecycleEvent.Type.STOPPING);
             safeExecuteForSuccess(client, op);
+            fireEvent(ServerLifecycleEvent.Type.STOPPED);
         }
 
         @Override
@@ -252,33 +723,183 @@ public class DomainServerBuilder {
             safeExecuteForSuccess(client, op);
         }
 
+        @Override
+        public Set<Server> scaleTo(final int count, final Host host) {
+            if (count < 0) {
+                throw new IllegalArgumentException("The count cannot be negative: " + count);
+            }
+            final String hostName = host.getName();
+            final ModelNode hostAddress = Operations.createAddress(ClientConstants.HOST, hostName);
+            final ModelNode op = Operations.createOperation("read-children-resources", hostAddress);
+            op.get(ClientConstants.CHILD_TYPE).set("server-config");
+            final ModelNode configs = safeExecuteForSuccess(client, op);
+            final List<String> current = new ArrayList<>();
+            final Set<String> names = new LinkedHashSet<>();
+            int maxOffset = 0;
+            for (Property config : configs.asPropertyList()) {
+                final ModelNode value = config.getValue();
+                names.add(config.getName());
+                if (name.equals(value.get(ClientConstants.GROUP).asString())) {
+                    current.add(config.getName());
+                }
+                maxOffset = Math.max(maxOffset, value.get("socket-binding-port-offset").asInt(0));
+            }
+            // Order the servers added by scaling last, by index, so they are the first to be removed
+            current.sort(Comparator.comparingInt(this::scaledIndex));
+            final Operations.CompositeOperationBuilder builder = Operations.CompositeOperationBuilder.create();
+            final List<HostServer> delta = new ArrayList<>();
+            if (count > current.size()) {
+                int offset = ((maxOffset / SERVER_PORT_OFFSET) + 1) * SERVER_PORT_OFFSET;
+                int index = 1;
+                while (current.size() + delta.size() < count) {
+                    final String serverName = name + '-' + index++;
+                    if (names.contains(serverName)) {
+                        continue;
+                    }
+                    final ModelNode addOp = Operations.createAddOperation(Operations.createAddress(ClientConstants.HOST, hostName, "server-config", serverName));
+                    addOp.get(ClientConstants.GROUP).set(name);
+                    addOp.get("socket-binding-port-offset").set(offset);
+                    builder.addStep(addOp);
+                    delta.add(new HostServer(client, domainName, hostName, serverName));
+                    offset += SERVER_PORT_OFFSET;
+                }
+                safeExecuteForSuccess(client, builder.build().getOperation());
+                HostServer.startAll(client, delta);
+                for (HostServer server : delta) {
+                    current.add(server.serverName);
+                }
+            } else if (count < current.size()) {
+                while (current.size() > count) {
+                    final String serverName = current.remove(current.size() - 1);
+                    builder.addStep(Operations.createRemoveOperation(Operations.createAddress(ClientConstants.HOST, hostName, "server-config", serverName)));
+                    delta.add(new HostServer(client, domainName, hostName, serverName));
+                }
+                HostServer.stopAll(client, delta);
+                safeExecuteForSuccess(client, builder.build().getOperation());
+            }
+            final Set<Server> servers = new LinkedHashSet<>();
+            for (String serverName : current) {
+                servers.add(new HostServer(client, domainName, hostName, serverName));
+            }
+            return Collections.unmodifiableSet(servers);
+        }
+
+        /**
+         * Returns the index of a server added by {@link #scaleTo(int, Host)} or {@code 0} for any other server.
+         */
+        private int scaledIndex(final String serverName) {
+            final String prefix = name + '-';
+            if (serverName.startsWith(prefix)) {
+                try {
+                    return Integer.parseInt(serverName.substring(prefix.length()));
+                } catch (NumberFormatException ignore) {
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public DeploymentReport awaitDeployments(final Collection<String> names, final Duration timeout) throws InterruptedException {
+            return ServerHelper.awaitDomainDeployments(client, name, names, timeout.toNanos());
+        }
+
         @Override
         public String getName() {
             return name;
         }
+
+        private void fireEvent(final ServerLifecycleEvent.Type type) {
+            ServerLifecycleEvents.fire(type, eventName, null);
+        }
     }
 
     private static class HostServer implements Server {
         private final DomainClient client;
+        private final String name;
+        private final String serverName;
         private final ModelNode address;
 
-        private HostServer(final DomainClient client, final String hostName, final String serverName) {
+        private HostServer(final DomainClient client, final String domainName, final String hostName, final String serverName) {
             this.client = client;
+            this.serverName = serverName;
+            name = domainName + '/' + hostName + '/' + serverName;
             address = Operations.createAddress("host", hostName, "server-config", serverName);
         }
 
+        /**
+         * Starts the servers in parallel and waits for each to start.
+         *
+         * @param client  the client used to start the servers
+         * @param servers the servers to start
+         */
+        static void startAll(final DomainClient client, final List<HostServer> servers) {
+            executeAll(client, servers, "start", ServerLifecycleEvent.Type.STARTING, ServerLifecycleEvent.Type.STARTED);
+        }
+
+        /**
+         * Stops the servers in parallel and waits for each to stop.
+         *
+         * @param client  the client used to stop the servers
+         * @param servers the servers to stop
+         */
+        static void stopAll(final DomainClient client, final List<HostServer> servers) {
+            executeAll(client, servers, "stop", ServerLifecycleEvent.Type.STOPPING, ServerLifecycleEvent.Type.STOPPED);
+        }
+
+        private static void executeAll(final DomainClient client, final List<HostServer> servers, final String operationName,
+                                       final ServerLifecycleEvent.Type before, final ServerLifecycleEvent.Type after) {
+            final List<AsyncFuture<ModelNode>> futures = new ArrayList<>(servers.size());
+            for (HostServer server : servers) {
+                server.fireEvent(before);
+                futures.add(client.executeAsync(server.createOperation(operationName), OperationMessageHandler.DISCARD));
+            }
+            final StringBuilder failures = new StringBuilder();
+            try {
+                for (int i = 0; i < futures.size(); i++) {
+                    final HostServer server = servers.get(i);
+                    try {
+                        final ModelNode response = futures.get(i).get();
+                        if (Operations.isSuccessfulOutcome(response)) {
+                            server.fireEvent(after);
+                        } else {
+                            failures.append(System.lineSeparator()).append(server.name).append(": ").append(Operations.getFailureDescription(response).asString());
+                        }
+                    } catch (ExecutionException e) {
+                        failures.append(System.lineSeparator()).append(server.name).append(": ").append(e.getCause());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (AsyncFuture<ModelNode> future : futures) {
+                    future.asyncCancel(true);
+                }
+                throw new RuntimeException("Interrupted waiting for servers to " + operationName, e);
+            }
+            if (failures.length() > 0) {
+                throw new RuntimeException("Failed to " + operationName + " servers:" + failures);
+            }
+        }
+
+        private ModelNode createOperation(final String operationName) {
+            final ModelNode op = Operations.createOperation(operationName, address);
+            op.get("blocking").set(true);
+            return op;
+        }
+
         @Override
         public void start(final long timeout) throws IOException, InterruptedException {
-            final ModelNode op = Operations.createOperation("start", address);
-            op.get("blocking").set(true);
+            final ModelNode op = createOperation("start");
+            fireEvent(ServerLifecycleEvent.Type.STARTING);
             executeForSuccess(client, op);
+            fireEvent(ServerLifecycleEvent.Type.STARTED);
         }
 
         @Override
         public void stop() {
-            final ModelNode op = Operations.createOperation("stop", address);
-            op.get("blocking").set(true);
+            final ModelNode op = createOperation("stop");
+            fireEvent(ServerLifecycleEvent.Type.STOPPING);
             safeExecuteForSuccess(client, op);
+            fireEvent(ServerLifecycleEvent.Type.STOPPED);
         }
 
         @Override
@@ -297,21 +918,24 @@ public class DomainServerBuilder {
             }
             return false;
         }
+
+        private void fireEvent(final ServerLifecycleEvent.Type type) {
+            ServerLifecycleEvents.fire(type, name, this);
+        }
     }
 
     private static ModelNode safeExecuteForSuccess(final ModelControllerClient client, final ModelNode op) {
         try {
             return executeForSuccess(client, op);
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            throw new UncheckedIOException(e);
         }
     }
 
     private static ModelNode executeForSuccess(final ModelControllerClient client, final ModelNode op) throws IOException {
         final ModelNode result = client.execute(op);
         if (!Operations.isSuccessfulOutcome(result)) {
-            // TODO (jrp) use a better exception
-            throw new IOException(Operations.getFailureDescription(result).asString());
+            throw new OperationFailedException(op, result);
         }
         return Operations.readResult(result);
     }
@@ -0,0 +1,207 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.jboss.logging.Logger;
+
+/**
+ * The memory and processors available on the host, taking the limits of the control group the process runs in into
+ * account.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public final class HostResources {
+    private static final Logger LOGGER = Logger.getLogger(HostResources.class);
+    // Control group v1 reports no limit as a very large value rounded down to the page size
+    private static final long UNLIMITED = Long.MAX_VALUE / 2L;
+
+    private final long memory;
+    private final int processors;
+
+    private HostResources(final long memory, final int processors) {
+        this.memory = memory;
+        this.processors = processors;
+    }
+
+    /**
+     * Creates the resources with the given memory and processors.
+     *
+     * @param memory     the memory in bytes
+     * @param processors the number of processors
+     *
+     * @return the resources
+     */
+    public static HostResources of(final long memory, final int processors) {
+        if (memory <= 0L) {
+            throw new IllegalArgumentException("The memory must be greater than 0: " + memory);
+        }
+        if (processors <= 0) {
+            throw new IllegalArgumentException("The number of processors must be greater than 0: " + processors);
+        }
+        return new HostResources(memory, processors);
+    }
+
+    /**
+     * Detects the resources of this host. On Linux the memory is read from {@code /proc/meminfo} and limited by the
+     * control group, v1 or v2, memory limit. The processors are limited by the control group CPU quota. On other
+     * systems the values reported by the JVM are used.
+     *
+     * @return the resources of this host
+     */
+    public static HostResources detect() {
+        return detect(Paths.get("/"), Runtime.getRuntime().availableProcessors());
+    }
+
+    static HostResources detect(final Path root, final int availableProcessors) {
+        long memory = readMemInfo(root.resolve("proc/meminfo"));
+        if (memory <= 0L) {
+            memory = physicalMemory();
+        }
+        final Path cgroup = root.resolve("sys/fs/cgroup");
+        final long memoryLimit;
+        final int cpuLimit;
+        if (Files.exists(cgroup.resolve("cgroup.controllers"))) {
+            memoryLimit = parseLimit(readFirstLine(cgroup.resolve("memory.max")));
+            cpuLimit = parseQuota(readFirstLine(cgroup.resolve("cpu.max")));
+        } else {
+            memoryLimit = parseLimit(readFirstLine(cgroup.resolve("memory/memory.limit_in_bytes")));
+            cpuLimit = parseQuota(readFirstLine(cgroup.resolve("cpu/cpu.cfs_quota_us")) + ' ' +
+                    readFirstLine(cgroup.resolve("cpu/cpu.cfs_period_us")));
+        }
+        if (memoryLimit > 0L && (memory <= 0L || memoryLimit < memory)) {
+            memory = memoryLimit;
+        }
+        final int processors = (cpuLimit > 0 ? Math.min(cpuLimit, availableProcessors) : availableProcessors);
+        LOGGER.debugf("Detected %d bytes of memory and %d processors", memory, processors);
+        return of(memory, processors);
+    }
+
+    /**
+     * The memory available in bytes.
+     *
+     * @return the memory in bytes
+     */
+    public long getMemory() {
+        return memory;
+    }
+
+    /**
+     * The number of processors available.
+     *
+     * @return the number of processors
+     */
+    public int getProcessors() {
+        return processors;
+    }
+
+    @Override
+    public String toString() {
+        return "HostResources[memory=" + memory + ", processors=" + processors + ']';
+    }
+
+    private static long readMemInfo(final Path file) {
+        if (Files.isReadable(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("MemTotal:")) {
+                        // The value is reported in kB
+                        final String value = line.substring(9).trim();
+                        final int end = value.indexOf(' ');
+                        return Long.parseLong(end < 0 ? value : value.substring(0, end)) * 1024L;
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                LOGGER.debugf(e, "Failed to read %s", file);
+            }
+        }
+        return -1L;
+    }
+
+    private static String readFirstLine(final Path file) {
+        if (Files.isReadable(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+                final String line = reader.readLine();
+                return (line == null ? "" : line.trim());
+            } catch (IOException e) {
+                LOGGER.debugf(e, "Failed to read %s", file);
+            }
+        }
+        return "";
+    }
+
+    private static long parseLimit(final String value) {
+        if (value.isEmpty() || "max".equals(value)) {
+            return -1L;
+        }
+        try {
+            final long limit = Long.parseLong(value);
+            return (limit >= UNLIMITED ? -1L : limit);
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    private static int parseQuota(final String value) {
+        // Both cpu.max and the v1 quota and period are in the format of "<quota> <period>"
+        final String[] parts = value.trim().split("\\s+");
+        if (parts.length != 2 || "max".equals(parts[0])) {
+            return -1;
+        }
+        try {
+            final long quota = Long.parseLong(parts[0]);
+            final long period = Long.parseLong(parts[1]);
+            if (quota <= 0L || period <= 0L) {
+                return -1;
+            }
+            return (int) Math.max(1L, (quota + period - 1L) / period);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long physicalMemory() {
+        // The method is looked up reflectively as getTotalPhysicalMemorySize() is deprecated, in favor of
+        // getTotalMemorySize(), on newer JVMs which would otherwise produce a deprecation warning
+        final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        for (String name : new String[] {"getTotalMemorySize", "getTotalPhysicalMemorySize"}) {
+            try {
+                final Method method = Class.forName("com.sun.management.OperatingSystemMXBean").getMethod(name);
+                if (method.getDeclaringClass().isInstance(os)) {
+                    return ((Number) method.invoke(os)).longValue();
+                }
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                LOGGER.debugf(e, "Failed to invoke %s on %s", name, os);
+            }
+        }
+        // The default maximum heap is a quarter of the physical memory
+        return Runtime.getRuntime().maxMemory() * 4L;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.logging.Logger;
+
+/**
+ * A helper for executing {@code jcmd} diagnostic commands against a JVM.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class Jcmd {
+    private static final Logger LOGGER = Logger.getLogger(Jcmd.class);
+    private static final long DEFAULT_TIMEOUT = 30L;
+
+    /**
+     * Locates the {@code jcmd} executable for the Java home. If the executable is not found in the Java home, the
+     * Java home of this JVM is checked.
+     *
+     * @param javaHome the Java home the target JVM was launched with or {@code null} to use this JVM's Java home
+     *
+     * @return the path to the executable or {@code null} if it could not be found
+     */
+    static Path find(final Path javaHome) {
+        final List<Path> candidates = new ArrayList<>();
+        if (javaHome != null) {
+            candidates.add(javaHome);
+        }
+        candidates.add(Paths.get(System.getProperty("java.home")));
+        final String name = System.getProperty("os.name").toLowerCase(Locale.ROOT).contains("win") ? "jcmd.exe" : "jcmd";
+        for (Path home : candidates) {
+            // Java 8 and lower may point to the JRE directory in a JDK
+            for (Path dir : new Path[] {home, home.getParent()}) {
+                if (dir == null) continue;
+                final Path jcmd = dir.resolve("bin").resolve(name);
+                if (Files.isExecutable(jcmd)) {
+                    return jcmd;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Executes the diagnostic command writing the output to the file.
+     *
+     * @param jcmd    the path to the {@code jcmd} executable
+     * @param pid     the pid of the target JVM
+     * @param output  the file to write the output to
+     * @param command the diagnostic command and its arguments
+     *
+     * @return {@code true} if the command completed successfully, otherwise {@code false}
+     */
+    static boolean execute(final Path jcmd, final long pid, final Path output, final String... command) {
+        final List<String> cmd = new ArrayList<>();
+        cmd.add(jcmd.toString());
+        cmd.add(Long.toString(pid));
+        Collections.addAll(cmd, command);
+        try {
+            final Process process = new ProcessBuilder(cmd)
+                    .redirectErrorStream(true)
+                    .redirectOutput(output.toFile())
+                    .start();
+            if (!process.waitFor(DEFAULT_TIMEOUT, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                LOGGER.debugf("Command %s did not complete within %d seconds", cmd, DEFAULT_TIMEOUT);
+                return false;
+            }
+            return process.exitValue() == 0;
+        } catch (IOException e) {
+            LOGGER.debugf(e, "Failed to execute %s", cmd);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    /**
+     * Executes the diagnostic command and returns the output.
+     *
+     * @param jcmd    the path to the {@code jcmd} executable
+     * @param pid     the pid of the target JVM
+     * @param command the diagnostic command and its arguments
+     *
+     * @return the output of the command
+     *
+     * @throws IOException if the command could not be executed or did not complete successfully
+     */
+    static String execute(final Path jcmd, final long pid, final String... command) throws IOException {
+        final List<String> cmd = new ArrayList<>();
+        cmd.add(jcmd.toString());
+        cmd.add(Long.toString(pid));
+        Collections.addAll(cmd, command);
+        // The output is written to a file so a command which does not exit can't block reading the output
+        final Path outputFile = Files.createTempFile("jcmd-", ".out");
+        try {
+            final Process process = new ProcessBuilder(cmd)
+                    .redirectErrorStream(true)
+                    .redirectOutput(outputFile.toFile())
+                    .start();
+            try {
+                if (!process.waitFor(DEFAULT_TIMEOUT, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                    throw new IOException(String.format("Command %s did not complete within %d seconds", cmd, DEFAULT_TIMEOUT));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+                throw new InterruptedIOException("Interrupted waiting for " + cmd);
+            }
+            final String output = new String(Files.readAllBytes(outputFile), Charset.defaultCharset());
+            if (process.exitValue() != 0) {
+                throw new IOException(String.format("Command %s failed with exit code %d: %s", cmd, process.exitValue(), output));
+            }
+            LOGGER.debugf("Command %s: %s", cmd, output);
+            return output;
+        } finally {
+            Files.deleteIfExists(outputFile);
+        }
+    }
+
+    /**
+     * Sends a {@code SIGQUIT} to the process which causes a JVM to write a thread dump to its standard out.
+     *
+     * @param pid the pid of the process
+     *
+     * @return {@code true} if the signal was sent, otherwise {@code false}
+     */
+    static boolean sendQuit(final long pid) {
+        try {
+            final Process process = new ProcessBuilder("kill", "-3", Long.toString(pid)).start();
+            return process.waitFor(DEFAULT_TIMEOUT, TimeUnit.SECONDS) && process.exitValue() == 0;
+        } catch (IOException e) {
+            LOGGER.debugf(e, "Failed to send SIGQUIT to %d", pid);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The heap, processor, garbage collector and metaspace settings for a server sized to share a host with other
+ * servers.
+ * <p>
+ * By default the profile gives each of the {@linkplain Builder#setServers(int) servers} an equal share of the
+ * {@linkplain HostResources#detect() detected} host memory and processors. Any of the computed values can be
+ * overridden, and a profile can be used as the starting point of another for a single server with
+ * {@link #builder(JvmProfile)}.
+ * </p>
+ * <p>
+ * Note that the {@code -XX:ActiveProcessorCount} option requires Java 8u191 or later.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public final class JvmProfile {
+
+    /**
+     * The garbage collector used by the server.
+     */
+    public enum GarbageCollector {
+        SERIAL("-XX:+UseSerialGC"),
+        PARALLEL("-XX:+UseParallelGC"),
+        G1("-XX:+UseG1GC");
+
+        private final String option;
+
+        GarbageCollector(final String option) {
+            this.option = option;
+        }
+
+        /**
+         * The JVM option which selects this collector.
+         *
+         * @return the JVM option
+         */
+        public String getOption() {
+            return option;
+        }
+    }
+
+    private static final long MB = 1024L * 1024L;
+    // The smallest heap a server is given regardless of the share of memory
+    private static final long MIN_HEAP = 64L * MB;
+    // The JVM's own ergonomics only choose a server class collector at or above this heap size
+    private static final long SERVER_CLASS_HEAP = 1792L * MB;
+
+    private final long maxHeap;
+    private final int processors;
+    private final GarbageCollector garbageCollector;
+    private final long maxMetaspace;
+
+    private JvmProfile(final long maxHeap, final int processors, final GarbageCollector garbageCollector, final long maxMetaspace) {
+        this.maxHeap = maxHeap;
+        this.processors = processors;
+        this.garbageCollector = garbageCollector;
+        this.maxMetaspace = maxMetaspace;
+    }
+
+    /**
+     * Creates a new builder for a profile.
+     *
+     * @return the new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Creates a new builder with each value set to the value of the profile.
+     *
+     * @param profile the profile to copy
+     *
+     * @return the new builder
+     */
+    public static Builder builder(final JvmProfile profile) {
+        return new Builder()
+                .setMaxHeap(profile.maxHeap)
+                .setProcessors(profile.processors)
+                .setGarbageCollector(profile.garbageCollector)
+                .setMaxMetaspace(profile.maxMetaspace);
+    }
+
+    /**
+     * The maximum heap size in bytes.
+     *
+     * @return the maximum heap size
+     */
+    public long getMaxHeap() {
+        return maxHeap;
+    }
+
+    /**
+     * The number of processors the JVM uses to size its thread pools and collector.
+     *
+     * @return the number of processors
+     */
+    public int getProcessors() {
+        return processors;
+    }
+
+    /**
+     * The garbage collector.
+     *
+     * @return the garbage collector
+     */
+    public GarbageCollector getGarbageCollector() {
+        return garbageCollector;
+    }
+
+    /**
+     * The maximum metaspace size in bytes.
+     *
+     * @return the maximum metaspace size
+     */
+    public long getMaxMetaspace() {
+        return maxMetaspace;
+    }
+
+    /**
+     * The JVM options for this profile.
+     *
+     * @return the JVM options
+     */
+    public List<String> getJavaOptions() {
+        final List<String> options = new ArrayList<>(4);
+        options.add("-Xmx" + maxHeap / MB + 'm');
+        options.add("-XX:ActiveProcessorCount=" + processors);
+        options.add(garbageCollector.getOption());
+        options.add("-XX:MaxMetaspaceSize=" + maxMetaspace / MB + 'm');
+        return options;
+    }
+
+    /**
+     * Replaces the options in the list which conflict with this profile with the options of this profile. The
+     * initial heap size is removed as it may be larger than the maximum heap size of the profile.
+     *
+     * @param options the current JVM options
+     *
+     * @return the JVM options with this profile applied
+     */
+    List<String> apply(final List<String> options) {
+        final List<String> result = new ArrayList<>(options.size() + 4);
+        for (String option : options) {
+            if (!isProfileOption(option)) {
+                result.add(option);
+            }
+        }
+        result.addAll(getJavaOptions());
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "JvmProfile" + getJavaOptions();
+    }
+
+    private static boolean isProfileOption(final String option) {
+        return option.startsWith("-Xmx") || option.startsWith("-Xms") ||
+                option.startsWith("-XX:ActiveProcessorCount=") || option.startsWith("-XX:MaxMetaspaceSize=") ||
+                (option.startsWith("-XX:+Use") && option.endsWith("GC"));
+    }
+
+    /**
+     * A builder used to create a {@link JvmProfile}.
+     */
+    public static class Builder {
+        private HostResources hostResources;
+        private int servers;
+        private double memoryRatio;
+        private double heapRatio;
+        private long maxHeap;
+        private int processors;
+        private GarbageCollector garbageCollector;
+        private long maxMetaspace;
+
+        private Builder() {
+            servers = 1;
+            memoryRatio = 0.8d;
+            heapRatio = 0.7d;
+            maxMetaspace = 256L * MB;
+        }
+
+        /**
+         * Sets the resources of the host the servers share. By default the resources are
+         * {@linkplain HostResources#detect() detected}.
+         *
+         * @param hostResources the host resources or {@code null} to detect them
+         *
+         * @return this builder
+         */
+        public Builder setHostResources(final HostResources hostResources) {
+            this.hostResources = hostResources;
+            return this;
+        }
+
+        /**
+         * Sets the number of servers sharing the host. The default is 1.
+         *
+         * @param servers the number of servers
+         *
+         * @return this builder
+         */
+        public Builder setServers(final int servers) {
+            if (servers <= 0) {
+                throw new IllegalArgumentException("The number of servers must be greater than 0: " + servers);
+            }
+            this.servers = servers;
+            return this;
+        }
+
+        /**
+         * Sets the ratio of the host memory shared by the servers. The remainder is left for the operating system and
+         * other processes. The default is 0.8.
+         *
+         * @param memoryRatio the ratio, greater than 0 and at most 1
+         *
+         * @return this builder
+         */
+        public Builder setMemoryRatio(final double memoryRatio) {
+            if (memoryRatio <= 0d || memoryRatio > 1d) {
+                throw new IllegalArgumentException("The memory ratio must be greater than 0 and at most 1: " + memoryRatio);
+            }
+            this.memoryRatio = memoryRatio;
+            return this;
+        }
+
+        /**
+         * Sets the ratio of the share of memory of each server used for the heap. The remainder is left for the
+         * metaspace, thread stacks, code cache and direct buffers. The default is 0.7.
+         *
+         * @param heapRatio the ratio, greater than 0 and at most 1
+         *
+         * @return this builder
+         */
+        public Builder setHeapRatio(final double heapRatio) {
+            if (heapRatio <= 0d || heapRatio > 1d) {
+                throw new IllegalArgumentException("The heap ratio must be greater than 0 and at most 1: " + heapRatio);
+            }
+            this.heapRatio = heapRatio;
+            return this;
+        }
+
+        /**
+         * Sets the maximum heap size, overriding the size computed from the host memory.
+         *
+         * @param maxHeap the maximum heap size in bytes or {@code 0} to compute it
+         *
+         * @return this builder
+         */
+        public Builder setMaxHeap(final long maxHeap) {
+            if (maxHeap != 0L && maxHeap < MB) {
+                throw new IllegalArgumentException("The maximum heap size must be at least 1MB: " + maxHeap);
+            }
+            this.maxHeap = maxHeap;
+            return this;
+        }
+
+        /**
+         * Sets the number of processors, overriding the number computed from the host processors.
+         *
+         * @param processors the number of processors or {@code 0} to compute it
+         *
+         * @return this builder
+         */
+        public Builder setProcessors(final int processors) {
+            if (processors < 0) {
+                throw new IllegalArgumentException("The number of processors cannot be negative: " + processors);
+            }
+            this.processors = processors;
+            return this;
+        }
+
+        /**
+         * Sets the garbage collector. By default the serial collector is used when a server has a single processor
+         * or a heap smaller than 1792MB, the same limits the JVM uses, otherwise G1 is used.
+         *
+         * @param garbageCollector the garbage collector or {@code null} to choose one
+         *
+         * @return this builder
+         */
+        public Builder setGarbageCollector(final GarbageCollector garbageCollector) {
+            this.garbageCollector = garbageCollector;
+            return this;
+        }
+
+        /**
+         * Sets the maximum metaspace size. The default is 256MB.
+         *
+         * @param maxMetaspace the maximum metaspace size in bytes
+         *
+         * @return this builder
+         */
+        public Builder setMaxMetaspace(final long maxMetaspace) {
+            if (maxMetaspace < MB) {
+                throw new IllegalArgumentException("The maximum metaspace size must be at least 1MB: " + maxMetaspace);
+            }
+            this.maxMetaspace = maxMetaspace;
+            return this;
+        }
+
+        /**
+         * Creates the profile.
+         *
+         * @return the profile
+         */
+        public JvmProfile build() {
+            long maxHeap = this.maxHeap;
+            int processors = this.processors;
+            if (maxHeap == 0L || processors == 0) {
+                final HostResources hostResources = (this.hostResources == null ? HostResources.detect() : this.hostResources);
+                if (maxHeap == 0L) {
+                    maxHeap = Math.max(MIN_HEAP, (long) (hostResources.getMemory() * memoryRatio / servers * heapRatio));
+                }
+                if (processors == 0) {
+                    processors = Math.max(1, hostResources.getProcessors() / servers);
+                }
+            }
+            GarbageCollector garbageCollector = this.garbageCollector;
+            if (garbageCollector == null) {
+                garbageCollector = (processors < 2 || maxHeap < SERVER_CLASS_HEAP ? GarbageCollector.SERIAL : GarbageCollector.G1);
+            }
+            return new JvmProfile(maxHeap, processors, garbageCollector, maxMetaspace);
+        }
+    }
+}
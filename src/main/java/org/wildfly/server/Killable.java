@@ -19,6 +19,8 @@
 
 package org.wildfly.server;
 
+import java.time.Duration;
+
 /**
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
  */
@@ -26,7 +28,22 @@ package org.wildfly.server;
 public interface Killable {
 
     /**
-     * Kills the process forcibly.
+     * Kills the process forcibly and waits for it to exit. The resources held by the server, e.g. its port and CPU
+     * reservations, are released as if it had been stopped.
      */
     void kill();
+
+    /**
+     * Stops the server escalating until the process has exited.
+     * <p>
+     * The server is first suspended allowing in-flight requests to drain for up to half the timeout. The management
+     * {@code shutdown} operation is then executed and the remaining timeout is used to wait for the process to exit.
+     * If the process is still alive it is asked to terminate and, failing that, it is forcibly killed.
+     * </p>
+     *
+     * @param timeout the time allowed for the server to suspend and shutdown gracefully
+     *
+     * @return the phase in which the process exited
+     */
+    StopPhase stop(Duration timeout);
 }
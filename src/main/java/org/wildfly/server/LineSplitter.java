@@ -0,0 +1,87 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Splits the bytes written to the console of a server into lines. Carriage returns are dropped and each line is
+ * decoded with the default charset. This is not thread safe.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+final class LineSplitter {
+    // Limit the size of a single line to avoid unbounded growth for output without new lines
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    private final Consumer<String> lineConsumer;
+    private byte[] current = new byte[256];
+    private int currentSize;
+
+    /**
+     * Creates a new line splitter.
+     *
+     * @param lineConsumer the consumer each completed line is passed to
+     */
+    LineSplitter(final Consumer<String> lineConsumer) {
+        this.lineConsumer = lineConsumer;
+    }
+
+    /**
+     * Appends the bytes, passing each line completed by a new line to the consumer.
+     *
+     * @param b   the bytes to append
+     * @param off the offset to start at
+     * @param len the number of bytes to append
+     */
+    void write(final byte[] b, final int off, final int len) {
+        for (int i = off; i < off + len; i++) {
+            final byte c = b[i];
+            if (c == '\n') {
+                final String line = new String(current, 0, currentSize, Charset.defaultCharset());
+                currentSize = 0;
+                lineConsumer.accept(line);
+            } else if (c != '\r' && currentSize < MAX_LINE_LENGTH) {
+                if (currentSize == current.length) {
+                    current = Arrays.copyOf(current, Math.min(current.length << 1, MAX_LINE_LENGTH));
+                }
+                current[currentSize++] = c;
+            }
+        }
+    }
+
+    /**
+     * Returns the last line which has not yet been completed by a new line.
+     *
+     * @return the incomplete line or {@code null} if there is none
+     */
+    String getIncompleteLine() {
+        return currentSize == 0 ? null : new String(current, 0, currentSize, Charset.defaultCharset());
+    }
+
+    /**
+     * Discards the incomplete line.
+     */
+    void clear() {
+        currentSize = 0;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jboss.logging.Logger;
+
+/**
+ * An exclusive lock on a file shared between JVMs.
+ * <p>
+ * File locks are held by the JVM rather than by a channel. On some operating systems, e.g. Linux, closing any
+ * channel on a file releases every lock this JVM holds on the file. The files locked in this JVM are therefore
+ * tracked and a second channel is never opened on a file which is already locked.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+final class LockFile {
+    private static final Logger LOGGER = Logger.getLogger(LockFile.class);
+    // Guarded by itself
+    private static final Map<Path, LockFile> HELD = new HashMap<>();
+
+    private final Path path;
+    private final FileChannel channel;
+    private final FileLock lock;
+
+    private LockFile(final Path path, final FileChannel channel, final FileLock lock) {
+        this.path = path;
+        this.channel = channel;
+        this.lock = lock;
+    }
+
+    /**
+     * Attempts to lock the file, creating it if it does not exist.
+     *
+     * @param file the file to lock
+     *
+     * @return the lock or {@code null} if the file is locked by this or another JVM
+     *
+     * @throws IOException if an error occurs opening the file
+     */
+    static LockFile tryLock(final Path file) throws IOException {
+        final Path path = file.toAbsolutePath().normalize();
+        synchronized (HELD) {
+            if (HELD.containsKey(path)) {
+                return null;
+            }
+            final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            final FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                // Locked in this JVM without this class, closing the channel would release that lock
+                LOGGER.debugf("File %s is locked by another channel in this JVM", path);
+                return null;
+            } catch (IOException | RuntimeException e) {
+                close(path, channel);
+                throw e;
+            }
+            if (lock == null) {
+                // Held by another JVM, this JVM holds no lock on the file so the channel can be closed
+                close(path, channel);
+                return null;
+            }
+            final LockFile result = new LockFile(path, channel, lock);
+            HELD.put(path, result);
+            return result;
+        }
+    }
+
+    /**
+     * Releases the lock and closes the file.
+     */
+    void release() {
+        synchronized (HELD) {
+            if (HELD.get(path) != this) {
+                return;
+            }
+            HELD.remove(path);
+            try {
+                lock.release();
+            } catch (IOException e) {
+                LOGGER.debugf(e, "Failed to release lock %s", path);
+            } finally {
+                close(path, channel);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return path.toString();
+    }
+
+    private static void close(final Path path, final FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.debugf(e, "Failed to close %s", path);
+        }
+    }
+}
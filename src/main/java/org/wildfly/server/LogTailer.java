@@ -0,0 +1,381 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.OperationMessageHandler;
+import org.jboss.as.controller.client.helpers.ClientConstants;
+import org.jboss.as.controller.client.helpers.Operations;
+import org.jboss.dmr.ModelNode;
+import org.jboss.logging.Logger;
+import org.jboss.threads.AsyncFuture;
+
+/**
+ * Follows log files of servers over the management interface with the {@code read-log-file} operation of the
+ * logging subsystem. This works for servers whose console output is not captured and for servers in a domain which
+ * may be on another host.
+ * <p>
+ * Each server is polled from the line after the last line read, so each poll only returns new lines. At most the
+ * {@linkplain Builder#setBatchSize(int) batch size} of lines is read per operation, if more lines are available the
+ * server is polled again immediately. A log file is considered rotated when its size is smaller than the size seen
+ * on the previous poll, in which case reading restarts at the first line. Lines written to the previous file after
+ * the last poll are not read.
+ * </p>
+ * <p>
+ * The last line of the file is only passed to the listener once it is terminated. The file is read as UTF-8 and
+ * whether the last line is terminated is determined by comparing the size of the file with the size of the lines
+ * read.
+ * </p>
+ * <p>
+ * The operations are executed asynchronously from a single thread which is also used to notify the
+ * {@linkplain LogListener listeners}. If the previous read for a server has not completed when the next interval
+ * fires, the server is skipped for that interval.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class LogTailer implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(LogTailer.class);
+
+    private final int batchSize;
+    private final Map<String, Target> targets;
+    private final ScheduledExecutorService executor;
+
+    private LogTailer(final Builder builder) {
+        batchSize = builder.batchSize;
+        targets = new ConcurrentHashMap<>();
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread t = new Thread(r);
+            t.setDaemon(true);
+            t.setName("WildFly-Log-Tailer");
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::poll, 0L, builder.period, builder.unit);
+    }
+
+    /**
+     * Creates a new builder for a log tailer.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Registers a server to follow the log file of.
+     *
+     * @param name     the unique name for the server
+     * @param server   the server to read the log file from
+     * @param fileName the name of the log file, e.g. {@code server.log}
+     * @param listener the listener notified of new lines
+     */
+    public void register(final String name, final Server server, final String fileName, final LogListener listener) {
+        register(name, server.getClient(), ServerHelper.EMPTY_ADDRESS, fileName, listener);
+    }
+
+    /**
+     * Registers a client to follow the log file of. The log file address is appended to the address prefix. This
+     * allows the log file of a server in a domain to be followed, e.g. with a prefix of
+     * {@code /host=master/server=server-one}.
+     *
+     * @param name          the unique name for the server
+     * @param client        the client used to read the log file
+     * @param addressPrefix the address to prefix the log file address with
+     * @param fileName      the name of the log file, e.g. {@code server.log}
+     * @param listener      the listener notified of new lines
+     */
+    public void register(final String name, final ModelControllerClient client, final ModelNode addressPrefix, final String fileName,
+                         final LogListener listener) {
+        if (targets.putIfAbsent(name, new Target(name, client, addressPrefix, fileName, listener)) != null) {
+            throw new IllegalArgumentException("A server with the name " + name + " has already been registered");
+        }
+    }
+
+    /**
+     * Stops following the log file of the server.
+     *
+     * @param name the name the server was registered with
+     */
+    public void unregister(final String name) {
+        targets.remove(name);
+    }
+
+    /**
+     * Returns the names of the registered servers.
+     *
+     * @return the names of the registered servers
+     */
+    public Set<String> getServerNames() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(targets.keySet()));
+    }
+
+    /**
+     * Stops following the log files. Any in-flight reads will complete, but the results are discarded.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        targets.clear();
+    }
+
+    private void poll() {
+        for (Target target : targets.values()) {
+            target.safePoll();
+        }
+    }
+
+    private static long utf8Length(final String line) {
+        long result = 0L;
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (c < 0x80) {
+                result++;
+            } else if (c < 0x800) {
+                result += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                result += 4;
+                i++;
+            } else {
+                result += 3;
+            }
+        }
+        return result;
+    }
+
+    private class Target implements AsyncFuture.Listener<ModelNode, Void> {
+        private final String name;
+        private final ModelControllerClient client;
+        private final ModelNode address;
+        private final LogListener listener;
+        private final AtomicBoolean inFlight;
+        // Only accessed while in-flight
+        private long offset;
+        private long size;
+        // The position in bytes of the line at the offset and the size of a line separator in bytes
+        private long position;
+        private int separator;
+
+        private Target(final String name, final ModelControllerClient client, final ModelNode addressPrefix, final String fileName,
+                       final LogListener listener) {
+            this.name = name;
+            this.client = client;
+            this.listener = listener;
+            final ModelNode address = addressPrefix.clone();
+            if (!address.isDefined()) {
+                address.setEmptyList();
+            }
+            address.add(ClientConstants.SUBSYSTEM, "logging");
+            address.add("log-file", fileName);
+            address.protect();
+            this.address = address;
+            inFlight = new AtomicBoolean();
+            separator = 1;
+        }
+
+        void safePoll() {
+            try {
+                poll();
+            } catch (Throwable t) {
+                // Never let an exception cancel the scheduled task
+                LOGGER.debugf(t, "Failed to read the log file for %s", name);
+            }
+        }
+
+        void poll() {
+            if (!inFlight.compareAndSet(false, true)) {
+                return;
+            }
+            final ModelNode readLogFile = Operations.createOperation("read-log-file", address);
+            // Read one more line than the batch size to know whether the last line read is the last line of the file
+            readLogFile.get("lines").set(batchSize + 1);
+            readLogFile.get("skip").set((int) Math.min(offset, Integer.MAX_VALUE));
+            readLogFile.get("tail").set(false);
+            readLogFile.get("encoding").set("UTF-8");
+            final ModelNode op = Operations.CompositeOperationBuilder.create()
+                    .addStep(Operations.createReadAttributeOperation(address, "file-size"))
+                    .addStep(readLogFile)
+                    .build().getOperation();
+            try {
+                client.executeAsync(op, OperationMessageHandler.DISCARD).addListener(this, null);
+            } catch (RuntimeException e) {
+                inFlight.set(false);
+                throw e;
+            }
+        }
+
+        @Override
+        public void handleComplete(final AsyncFuture<? extends ModelNode> future, final Void attachment) {
+            boolean more = false;
+            try {
+                final ModelNode response = future.get();
+                if (!Operations.isSuccessfulOutcome(response)) {
+                    LOGGER.debugf("Failed to read the log file for %s: %s", name, Operations.getFailureDescription(response));
+                    return;
+                }
+                final ModelNode result = Operations.readResult(response);
+                final long currentSize = Operations.readResult(result.get("step-1")).asLong();
+                if (currentSize < size) {
+                    // The file has been rotated, start again from the first line
+                    LOGGER.debugf("The log file for %s has been rotated", name);
+                    offset = 0L;
+                    size = 0L;
+                    position = 0L;
+                    more = true;
+                    return;
+                }
+                size = currentSize;
+                final List<ModelNode> nodes = Operations.readResult(result.get("step-2")).asList();
+                if (nodes.isEmpty()) {
+                    return;
+                }
+                final List<String> lines = new ArrayList<>(Math.min(nodes.size(), batchSize));
+                if (nodes.size() > batchSize) {
+                    // More lines follow, so every line in the batch is complete
+                    for (int i = 0; i < batchSize; i++) {
+                        final String line = nodes.get(i).asString();
+                        lines.add(line);
+                        position += utf8Length(line) + separator;
+                    }
+                    more = true;
+                } else {
+                    long remaining = currentSize - position;
+                    for (ModelNode node : nodes) {
+                        final String line = node.asString();
+                        lines.add(line);
+                        remaining -= utf8Length(line);
+                    }
+                    // What remains are the line separators, the last line is incomplete if it is not followed by one
+                    final String last = lines.get(lines.size() - 1);
+                    if (remaining <= (long) (lines.size() - 1) * separator) {
+                        lines.remove(lines.size() - 1);
+                        position = currentSize - utf8Length(last);
+                    } else {
+                        if (lines.size() == 1 && remaining <= 2L) {
+                            // A single terminated line is followed only by its separator, e.g. \r\n
+                            separator = (int) remaining;
+                        }
+                        position = currentSize;
+                    }
+                    if (lines.isEmpty()) {
+                        return;
+                    }
+                }
+                offset += lines.size();
+                executor.execute(() -> notifyListener(lines));
+            } catch (Exception e) {
+                LOGGER.debugf(e, "Failed to process the log file for %s", name);
+            } finally {
+                inFlight.set(false);
+                if (more && targets.get(name) == this) {
+                    executor.execute(this::safePoll);
+                }
+            }
+        }
+
+        @Override
+        public void handleFailed(final AsyncFuture<? extends ModelNode> future, final Throwable cause, final Void attachment) {
+            inFlight.set(false);
+            LOGGER.debugf(cause, "Failed to read the log file for %s", name);
+        }
+
+        @Override
+        public void handleCancelled(final AsyncFuture<? extends ModelNode> future, final Void attachment) {
+            inFlight.set(false);
+        }
+
+        private void notifyListener(final List<String> lines) {
+            try {
+                listener.lines(name, lines);
+            } catch (Throwable t) {
+                LOGGER.debugf(t, "Listener failed to handle lines for %s", name);
+            }
+        }
+    }
+
+    /**
+     * A builder used to create a {@link LogTailer}.
+     */
+    public static class Builder {
+        private long period;
+        private TimeUnit unit;
+        private int batchSize;
+
+        private Builder() {
+            period = 1L;
+            unit = TimeUnit.SECONDS;
+            batchSize = 500;
+        }
+
+        /**
+         * Sets the interval between reads. The default is 1 second.
+         *
+         * @param period the period between reads
+         * @param unit   the unit for the period
+         *
+         * @return this builder
+         */
+        public Builder setInterval(final long period, final TimeUnit unit) {
+            if (period <= 0L) {
+                throw new IllegalArgumentException("The period must be greater than 0: " + period);
+            }
+            this.period = period;
+            this.unit = unit;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of lines read with a single operation. This bounds the memory used for each
+         * read. The default is 500.
+         *
+         * @param batchSize the maximum number of lines per read
+         *
+         * @return this builder
+         */
+        public Builder setBatchSize(final int batchSize) {
+            if (batchSize <= 0) {
+                throw new IllegalArgumentException("The batch size must be greater than 0: " + batchSize);
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Creates and starts the log tailer.
+         *
+         * @return the started log tailer
+         */
+        public LogTailer build() {
+            return new LogTailer(this);
+        }
+    }
+}
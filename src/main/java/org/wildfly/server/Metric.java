@@ -0,0 +1,170 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.jboss.dmr.ModelNode;
+
+/**
+ * Describes a numeric runtime attribute to be read from a server by a {@link MetricsScraper}.
+ * <p>
+ * The address is relative to the client the metric is read with. For example the heap used by a standalone server
+ * would be described as:
+ * <pre>
+ *     Metric.of("heap_used", Operations.createAddress("core-service", "platform-mbean", "type", "memory"),
+ *          "heap-memory-usage", "used");
+ * </pre>
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public final class Metric {
+
+    /**
+     * The type of the values the metric holds.
+     */
+    public enum Type {
+        LONG,
+        DOUBLE,
+    }
+
+    private final String name;
+    private final ModelNode address;
+    private final String attribute;
+    private final String[] path;
+    private final Type type;
+
+    private Metric(final String name, final ModelNode address, final String attribute, final String[] path, final Type type) {
+        this.name = Objects.requireNonNull(name, "The name cannot be null");
+        this.address = Objects.requireNonNull(address, "The address cannot be null").clone();
+        this.address.protect();
+        this.attribute = Objects.requireNonNull(attribute, "The attribute cannot be null");
+        this.path = path.clone();
+        this.type = type;
+    }
+
+    /**
+     * Creates a metric whose values are {@code long} values.
+     *
+     * @param name      the name of the metric
+     * @param address   the address of the resource
+     * @param attribute the name of the attribute
+     * @param path      the optional path to the value for complex attributes
+     *
+     * @return the metric
+     */
+    public static Metric of(final String name, final ModelNode address, final String attribute, final String... path) {
+        return new Metric(name, address, attribute, path, Type.LONG);
+    }
+
+    /**
+     * Creates a metric whose values are {@code double} values.
+     *
+     * @param name      the name of the metric
+     * @param address   the address of the resource
+     * @param attribute the name of the attribute
+     * @param path      the optional path to the value for complex attributes
+     *
+     * @return the metric
+     */
+    public static Metric ofDouble(final String name, final ModelNode address, final String attribute, final String... path) {
+        return new Metric(name, address, attribute, path, Type.DOUBLE);
+    }
+
+    /**
+     * The name of the metric.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The address of the resource the attribute is read from.
+     *
+     * @return the address
+     */
+    public ModelNode getAddress() {
+        return address;
+    }
+
+    /**
+     * The name of the attribute.
+     *
+     * @return the attribute name
+     */
+    public String getAttribute() {
+        return attribute;
+    }
+
+    /**
+     * The type of the metric values.
+     *
+     * @return the type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Resolves the value from the result of reading the attribute.
+     *
+     * @param result the result of the read-attribute operation
+     *
+     * @return the resolved value which may be undefined
+     */
+    ModelNode resolve(final ModelNode result) {
+        ModelNode value = result;
+        for (String key : path) {
+            if (!value.hasDefined(key)) {
+                return new ModelNode();
+            }
+            value = value.get(key);
+        }
+        return value;
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof Metric)) {
+            return false;
+        }
+        final Metric other = (Metric) obj;
+        return name.equals(other.name) && address.equals(other.address) && attribute.equals(other.attribute)
+                && Arrays.equals(path, other.path) && type == other.type;
+    }
+
+    @Override
+    public String toString() {
+        return "Metric[name=" + name + ", address=" + address.asString() + ", attribute=" + attribute +
+                (path.length == 0 ? "" : ", path=" + Arrays.toString(path)) + ", type=" + type + "]";
+    }
+}
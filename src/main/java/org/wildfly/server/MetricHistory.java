@@ -0,0 +1,200 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A fixed size history of samples for a single metric. The oldest samples are overwritten once the history is full.
+ * <p>
+ * The samples are kept in primitive arrays so reading the history does not allocate. Indexes are relative to the
+ * oldest sample, {@code 0} being the oldest and {@code size() - 1} being the latest.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public final class MetricHistory {
+    private final Metric.Type type;
+    private final long[] timestamps;
+    private final long[] values;
+    private int next;
+    private int size;
+
+    MetricHistory(final Metric.Type type, final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be greater than 0: " + capacity);
+        }
+        this.type = type;
+        timestamps = new long[capacity];
+        values = new long[capacity];
+    }
+
+    /**
+     * The type of values in this history.
+     *
+     * @return the type
+     */
+    public Metric.Type getType() {
+        return type;
+    }
+
+    /**
+     * The maximum number of samples kept.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return values.length;
+    }
+
+    /**
+     * The number of samples currently held.
+     *
+     * @return the number of samples
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * The time, in milliseconds since the epoch, the sample at the index was taken.
+     *
+     * @param index the index of the sample
+     *
+     * @return the timestamp of the sample
+     */
+    public synchronized long getTimestamp(final int index) {
+        return timestamps[toSlot(index)];
+    }
+
+    /**
+     * The value of the sample at the index as a {@code long}.
+     *
+     * @param index the index of the sample
+     *
+     * @return the value of the sample
+     */
+    public synchronized long getLong(final int index) {
+        return asLong(values[toSlot(index)]);
+    }
+
+    /**
+     * The value of the sample at the index as a {@code double}.
+     *
+     * @param index the index of the sample
+     *
+     * @return the value of the sample
+     */
+    public synchronized double getDouble(final int index) {
+        return asDouble(values[toSlot(index)]);
+    }
+
+    /**
+     * The time, in milliseconds since the epoch, of the latest sample.
+     *
+     * @return the timestamp of the latest sample
+     *
+     * @throws NoSuchElementException if there are no samples
+     */
+    public synchronized long getLatestTimestamp() {
+        return timestamps[latestSlot()];
+    }
+
+    /**
+     * The latest value as a {@code long}.
+     *
+     * @return the latest value
+     *
+     * @throws NoSuchElementException if there are no samples
+     */
+    public synchronized long getLatestLong() {
+        return asLong(values[latestSlot()]);
+    }
+
+    /**
+     * The latest value as a {@code double}.
+     *
+     * @return the latest value
+     *
+     * @throws NoSuchElementException if there are no samples
+     */
+    public synchronized double getLatestDouble() {
+        return asDouble(values[latestSlot()]);
+    }
+
+    /**
+     * Copies the samples, oldest first, into the arrays. If the arrays are smaller than the number of samples only the
+     * latest samples which fit are copied.
+     *
+     * @param timestamps the array to copy the timestamps to
+     * @param values     the array to copy the values to
+     *
+     * @return the number of samples copied
+     */
+    public synchronized int copyTo(final long[] timestamps, final double[] values) {
+        final int count = Math.min(size, Math.min(timestamps.length, values.length));
+        final int skip = size - count;
+        for (int i = 0; i < count; i++) {
+            final int slot = toSlot(skip + i);
+            timestamps[i] = this.timestamps[slot];
+            values[i] = asDouble(this.values[slot]);
+        }
+        return count;
+    }
+
+    synchronized void addLong(final long timestamp, final long value) {
+        add(timestamp, type == Metric.Type.DOUBLE ? Double.doubleToRawLongBits(value) : value);
+    }
+
+    synchronized void addDouble(final long timestamp, final double value) {
+        add(timestamp, type == Metric.Type.DOUBLE ? Double.doubleToRawLongBits(value) : (long) value);
+    }
+
+    private void add(final long timestamp, final long bits) {
+        timestamps[next] = timestamp;
+        values[next] = bits;
+        next = (next + 1) % values.length;
+        if (size < values.length) {
+            size++;
+        }
+    }
+
+    private long asLong(final long bits) {
+        return type == Metric.Type.DOUBLE ? (long) Double.longBitsToDouble(bits) : bits;
+    }
+
+    private double asDouble(final long bits) {
+        return type == Metric.Type.DOUBLE ? Double.longBitsToDouble(bits) : bits;
+    }
+
+    private int latestSlot() {
+        if (size == 0) {
+            throw new NoSuchElementException("No samples have been recorded");
+        }
+        return (next - 1 + values.length) % values.length;
+    }
+
+    private int toSlot(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return (next - size + index + values.length) % values.length;
+    }
+}
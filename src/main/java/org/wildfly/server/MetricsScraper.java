@@ -0,0 +1,343 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.OperationMessageHandler;
+import org.jboss.as.controller.client.helpers.ClientConstants;
+import org.jboss.as.controller.client.helpers.Operations;
+import org.jboss.dmr.ModelNode;
+import org.jboss.logging.Logger;
+import org.jboss.threads.AsyncFuture;
+
+/**
+ * Periodically reads a set of {@linkplain Metric metrics} from each registered server and records the values in a
+ * {@link MetricHistory} per server and metric.
+ * <p>
+ * All metrics for a server are read with a single composite operation. The operations are executed asynchronously
+ * from a single scheduling thread so the number of threads used does not grow with the number of servers. If the
+ * previous read for a server has not completed when the next interval fires, the server is skipped for that interval.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class MetricsScraper implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(MetricsScraper.class);
+
+    private final List<Metric> metrics;
+    private final int historySize;
+    private final Map<String, Target> targets;
+    private final ScheduledExecutorService executor;
+
+    private MetricsScraper(final Builder builder) {
+        metrics = Collections.unmodifiableList(new ArrayList<>(builder.metrics));
+        historySize = builder.historySize;
+        targets = new ConcurrentHashMap<>();
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread t = new Thread(r);
+            t.setDaemon(true);
+            t.setName("WildFly-Metrics-Scraper");
+            return t;
+        });
+        executor.scheduleAtFixedRate(this::scrape, builder.period, builder.period, builder.unit);
+    }
+
+    /**
+     * Creates a new builder for a scraper.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * The metrics read from each server.
+     *
+     * @return the metrics
+     */
+    public List<Metric> getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Registers a server to read the metrics from.
+     *
+     * @param name   the unique name for the server
+     * @param server the server to read the metrics from
+     */
+    public void register(final String name, final Server server) {
+        register(name, server.getClient(), ServerHelper.EMPTY_ADDRESS);
+    }
+
+    /**
+     * Registers a client to read the metrics from. Each metric address is appended to the address prefix. This allows
+     * metrics to be read from a server in a domain, e.g. with a prefix of {@code /host=master/server=server-one}.
+     *
+     * @param name          the unique name for the server
+     * @param client        the client used to read the metrics
+     * @param addressPrefix the address to prefix each metric address with
+     */
+    public void register(final String name, final ModelControllerClient client, final ModelNode addressPrefix) {
+        if (targets.putIfAbsent(name, new Target(name, client, addressPrefix)) != null) {
+            throw new IllegalArgumentException("A server with the name " + name + " has already been registered");
+        }
+    }
+
+    /**
+     * Removes the server from being scraped.
+     *
+     * @param name the name the server was registered with
+     */
+    public void unregister(final String name) {
+        targets.remove(name);
+    }
+
+    /**
+     * Returns the names of the registered servers.
+     *
+     * @return the names of the registered servers
+     */
+    public Set<String> getServerNames() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(targets.keySet()));
+    }
+
+    /**
+     * Returns the history for the metric on the server.
+     *
+     * @param serverName the name the server was registered with
+     * @param metricName the name of the metric
+     *
+     * @return the history or {@code null} if the server or metric is not known
+     */
+    public MetricHistory getHistory(final String serverName, final String metricName) {
+        final Target target = targets.get(serverName);
+        return target == null ? null : target.histories.get(metricName);
+    }
+
+    /**
+     * Returns the history of the time, in nanoseconds, taken to execute the composite read operation on the server.
+     *
+     * @param serverName the name the server was registered with
+     *
+     * @return the history or {@code null} if the server is not known
+     */
+    public MetricHistory getLatencyHistory(final String serverName) {
+        final Target target = targets.get(serverName);
+        return target == null ? null : target.latency;
+    }
+
+    /**
+     * Stops scraping metrics. Any in-flight reads will complete, but the results are discarded.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        targets.clear();
+    }
+
+    private void scrape() {
+        for (Target target : targets.values()) {
+            try {
+                target.scrape();
+            } catch (Throwable t) {
+                // Never let an exception cancel the scheduled task
+                LOGGER.debugf(t, "Failed to scrape metrics for %s", target.name);
+            }
+        }
+    }
+
+    private class Target implements AsyncFuture.Listener<ModelNode, Long> {
+        private final String name;
+        private final ModelControllerClient client;
+        private final ModelNode op;
+        private final Map<String, MetricHistory> histories;
+        private final MetricHistory latency;
+        private final AtomicBoolean inFlight;
+
+        private Target(final String name, final ModelControllerClient client, final ModelNode addressPrefix) {
+            this.name = name;
+            this.client = client;
+            final ModelNode op = Operations.createCompositeOperation();
+            final ModelNode steps = op.get(ClientConstants.STEPS);
+            final Map<String, MetricHistory> histories = new LinkedHashMap<>();
+            for (Metric metric : metrics) {
+                final ModelNode address = addressPrefix.clone();
+                if (!address.isDefined()) {
+                    address.setEmptyList();
+                }
+                for (ModelNode element : metric.getAddress().asList()) {
+                    address.add(element);
+                }
+                steps.add(Operations.createReadAttributeOperation(address, metric.getAttribute()));
+                histories.put(metric.getName(), new MetricHistory(metric.getType(), historySize));
+            }
+            op.protect();
+            this.op = op;
+            this.histories = Collections.unmodifiableMap(histories);
+            latency = new MetricHistory(Metric.Type.LONG, historySize);
+            inFlight = new AtomicBoolean();
+        }
+
+        void scrape() {
+            if (metrics.isEmpty() || !inFlight.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                client.executeAsync(op, OperationMessageHandler.DISCARD).addListener(this, System.nanoTime());
+            } catch (RuntimeException e) {
+                inFlight.set(false);
+                throw e;
+            }
+        }
+
+        @Override
+        public void handleComplete(final AsyncFuture<? extends ModelNode> future, final Long start) {
+            try {
+                final long timestamp = System.currentTimeMillis();
+                latency.addLong(timestamp, System.nanoTime() - start);
+                final ModelNode response = future.get();
+                if (!Operations.isSuccessfulOutcome(response)) {
+                    LOGGER.debugf("Failed to read all metrics for %s: %s", name, Operations.getFailureDescription(response));
+                }
+                // Record any steps which were successful even if the composite failed
+                final ModelNode result = response.get(ClientConstants.RESULT);
+                for (int i = 0; i < metrics.size(); i++) {
+                    final ModelNode step = result.get("step-" + (i + 1));
+                    if (!Operations.isSuccessfulOutcome(step)) continue;
+                    final Metric metric = metrics.get(i);
+                    final ModelNode value = metric.resolve(Operations.readResult(step));
+                    if (!value.isDefined()) continue;
+                    final MetricHistory history = histories.get(metric.getName());
+                    if (metric.getType() == Metric.Type.DOUBLE) {
+                        history.addDouble(timestamp, value.asDouble());
+                    } else {
+                        history.addLong(timestamp, value.asLong());
+                    }
+                }
+            } catch (Exception e) {
+                LOGGER.debugf(e, "Failed to process metrics for %s", name);
+            } finally {
+                inFlight.set(false);
+            }
+        }
+
+        @Override
+        public void handleFailed(final AsyncFuture<? extends ModelNode> future, final Throwable cause, final Long start) {
+            inFlight.set(false);
+            LOGGER.debugf(cause, "Failed to read metrics for %s", name);
+        }
+
+        @Override
+        public void handleCancelled(final AsyncFuture<? extends ModelNode> future, final Long start) {
+            inFlight.set(false);
+        }
+    }
+
+    /**
+     * A builder used to create a {@link MetricsScraper}.
+     */
+    public static class Builder {
+        private final Collection<Metric> metrics;
+        private long period;
+        private TimeUnit unit;
+        private int historySize;
+
+        private Builder() {
+            metrics = new LinkedHashSet<>();
+            period = 10L;
+            unit = TimeUnit.SECONDS;
+            historySize = 360;
+        }
+
+        /**
+         * Adds a metric to be read from each server.
+         *
+         * @param metric the metric to add
+         *
+         * @return this builder
+         */
+        public Builder addMetric(final Metric metric) {
+            metrics.add(metric);
+            return this;
+        }
+
+        /**
+         * Sets the interval between reads. The default is 10 seconds.
+         *
+         * @param period the period between reads
+         * @param unit   the unit for the period
+         *
+         * @return this builder
+         */
+        public Builder setInterval(final long period, final TimeUnit unit) {
+            if (period <= 0L) {
+                throw new IllegalArgumentException("The period must be greater than 0: " + period);
+            }
+            this.period = period;
+            this.unit = unit;
+            return this;
+        }
+
+        /**
+         * Sets the number of samples kept for each metric. The default is 360.
+         *
+         * @param historySize the number of samples to keep
+         *
+         * @return this builder
+         */
+        public Builder setHistorySize(final int historySize) {
+            if (historySize <= 0) {
+                throw new IllegalArgumentException("The history size must be greater than 0: " + historySize);
+            }
+            this.historySize = historySize;
+            return this;
+        }
+
+        /**
+         * Creates and starts the scraper.
+         *
+         * @return the started scraper
+         */
+        public MetricsScraper build() {
+            final Set<String> names = new LinkedHashSet<>();
+            for (Metric metric : metrics) {
+                if (!names.add(metric.getName())) {
+                    throw new IllegalArgumentException("Duplicate metric name: " + metric.getName());
+                }
+            }
+            return new MetricsScraper(this);
+        }
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.OperationMessageHandler;
+import org.jboss.as.controller.client.helpers.ClientConstants;
+import org.jboss.as.controller.client.helpers.Operations;
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.Property;
+import org.jboss.threads.AsyncFuture;
+
+/**
+ * Walks a management model resource by resource rather than reading it with a single recursive {@code read-resource}
+ * operation.
+ * <p>
+ * Each resource is read with a non-recursive {@code read-resource} and {@code read-children-types} operation. The
+ * resource is passed to the {@link ResourceVisitor} and released before its children are read, so memory use depends
+ * on the size of a single resource and the number of child names waiting to be read, not the size of the model. Up
+ * to the {@linkplain Builder#setMaxConcurrency(int) maximum concurrency} of resources are read in parallel. Children
+ * are read depth first.
+ * </p>
+ * <p>
+ * The visitor is only invoked from the thread walking the model.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public final class ModelWalker {
+    private final boolean includeRuntime;
+    private final int maxConcurrency;
+    private final int maxDepth;
+
+    private ModelWalker(final Builder builder) {
+        includeRuntime = builder.includeRuntime;
+        maxConcurrency = builder.maxConcurrency;
+        maxDepth = builder.maxDepth;
+    }
+
+    /**
+     * Creates a new builder for a model walker.
+     *
+     * @return the new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Walks the resource at the address and its children.
+     *
+     * @param client  the client used to read the resources
+     * @param address the address of the resource to start at
+     * @param visitor the visitor to pass each resource to
+     *
+     * @throws IOException          if an error occurs communicating with the server
+     * @throws InterruptedException if interrupted while waiting for a resource to be read
+     */
+    public void walk(final ModelControllerClient client, final ModelNode address, final ResourceVisitor visitor) throws IOException, InterruptedException {
+        final Deque<Cursor> cursors = new ArrayDeque<>();
+        cursors.push(new Cursor(address));
+        final BlockingQueue<Read> completed = new LinkedBlockingQueue<>();
+        final Set<Read> inFlight = new HashSet<>();
+        try {
+            while (!cursors.isEmpty() || !inFlight.isEmpty()) {
+                while (inFlight.size() < maxConcurrency && !cursors.isEmpty()) {
+                    final Cursor cursor = cursors.peek();
+                    if (!cursor.hasNext()) {
+                        cursors.pop();
+                        continue;
+                    }
+                    final Read read = new Read(cursor.next(), cursor.depth);
+                    if (!cursor.hasNext()) {
+                        cursors.pop();
+                    }
+                    read.execute(client, completed);
+                    inFlight.add(read);
+                }
+                final Read read = completed.take();
+                inFlight.remove(read);
+                if (read.failure != null) {
+                    if (read.failure instanceof IOException) {
+                        throw (IOException) read.failure;
+                    }
+                    throw new IOException("Failed to read " + read.address, read.failure);
+                }
+                final ModelNode response = read.response;
+                read.response = null;
+                if (!Operations.isSuccessfulOutcome(response)) {
+                    visitor.failed(read.address, Operations.getFailureDescription(response));
+                    continue;
+                }
+                final ModelNode result = Operations.readResult(response);
+                final Set<String> childTypes = new HashSet<>();
+                for (ModelNode type : Operations.readResult(result.get("step-1")).asList()) {
+                    childTypes.add(type.asString());
+                }
+                final ModelNode attributes = new ModelNode().setEmptyObject();
+                final List<Cursor> children = new ArrayList<>();
+                for (Property property : Operations.readResult(result.get("step-2")).asPropertyList()) {
+                    if (childTypes.contains(property.getName())) {
+                        // A type without children may be returned as undefined or as an empty object
+                        if (property.getValue().isDefined() && !property.getValue().keys().isEmpty() && read.depth < maxDepth) {
+                            children.add(new Cursor(read.address, read.depth + 1, property.getName(), property.getValue().keys()));
+                        }
+                    } else {
+                        attributes.get(property.getName()).set(property.getValue());
+                    }
+                }
+                if (visitor.visit(read.address, attributes)) {
+                    // Push in reverse so the children are read in the order they were returned
+                    Collections.reverse(children);
+                    for (Cursor cursor : children) {
+                        cursors.push(cursor);
+                    }
+                }
+            }
+        } finally {
+            for (Read read : inFlight) {
+                read.cancel();
+            }
+        }
+    }
+
+    private ModelNode createOperation(final ModelNode address) {
+        final ModelNode readResource = Operations.createReadResourceOperation(address);
+        readResource.get("include-runtime").set(includeRuntime);
+        return Operations.CompositeOperationBuilder.create()
+                .addStep(Operations.createOperation("read-children-types", address))
+                .addStep(readResource)
+                .build().getOperation();
+    }
+
+    /**
+     * The children of a single type of a resource which have not yet been read.
+     */
+    private static class Cursor {
+        private final ModelNode parent;
+        private final int depth;
+        private final String type;
+        private final List<String> names;
+        private int index;
+
+        private Cursor(final ModelNode address) {
+            parent = address;
+            depth = 0;
+            type = null;
+            names = Collections.singletonList(null);
+        }
+
+        private Cursor(final ModelNode parent, final int depth, final String type, final Set<String> names) {
+            this.parent = parent;
+            this.depth = depth;
+            this.type = type;
+            this.names = new ArrayList<>(names);
+        }
+
+        boolean hasNext() {
+            return index < names.size();
+        }
+
+        ModelNode next() {
+            final String name = names.get(index++);
+            if (type == null) {
+                return parent;
+            }
+            return parent.clone().add(type, name);
+        }
+    }
+
+    private class Read implements AsyncFuture.Listener<ModelNode, BlockingQueue<Read>> {
+        private final ModelNode address;
+        private final int depth;
+        private AsyncFuture<ModelNode> future;
+        private volatile ModelNode response;
+        private volatile Throwable failure;
+
+        private Read(final ModelNode address, final int depth) {
+            this.address = address;
+            this.depth = depth;
+        }
+
+        void execute(final ModelControllerClient client, final BlockingQueue<Read> completed) {
+            try {
+                future = client.executeAsync(createOperation(address), OperationMessageHandler.DISCARD);
+                future.addListener(this, completed);
+            } catch (RuntimeException e) {
+                failure = (e.getCause() instanceof IOException ? e.getCause() : e);
+                completed.add(this);
+            }
+        }
+
+        void cancel() {
+            if (future != null) {
+                future.asyncCancel(true);
+            }
+        }
+
+        @Override
+        public void handleComplete(final AsyncFuture<? extends ModelNode> future, final BlockingQueue<Read> completed) {
+            try {
+                response = future.get();
+            } catch (Exception e) {
+                failure = e;
+            }
+            completed.add(this);
+        }
+
+        @Override
+        public void handleFailed(final AsyncFuture<? extends ModelNode> future, final Throwable cause, final BlockingQueue<Read> completed) {
+            failure = cause;
+            completed.add(this);
+        }
+
+        @Override
+        public void handleCancelled(final AsyncFuture<? extends ModelNode> future, final BlockingQueue<Read> completed) {
+            failure = new IOException("Reading " + address + " was cancelled");
+            completed.add(this);
+        }
+    }
+
+    /**
+     * A builder used to create a {@link ModelWalker}.
+     */
+    public static class Builder {
+        private boolean includeRuntime;
+        private int maxConcurrency;
+        private int maxDepth;
+
+        private Builder() {
+            includeRuntime = true;
+            maxConcurrency = 8;
+            maxDepth = Integer.MAX_VALUE;
+        }
+
+        /**
+         * Sets whether runtime attributes are read. The default is {@code true}.
+         *
+         * @param includeRuntime {@code true} to read runtime attributes
+         *
+         * @return this builder
+         */
+        public Builder setIncludeRuntime(final boolean includeRuntime) {
+            this.includeRuntime = includeRuntime;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of resources read in parallel. The default is 8.
+         *
+         * @param maxConcurrency the maximum number of resources read in parallel
+         *
+         * @return this builder
+         */
+        public Builder setMaxConcurrency(final int maxConcurrency) {
+            if (maxConcurrency <= 0) {
+                throw new IllegalArgumentException("The maximum concurrency must be greater than 0: " + maxConcurrency);
+            }
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        /**
+         * Sets the maximum depth, relative to the starting resource, of the resources visited. A depth of {@code 0}
+         * only visits the starting resource. By default there is no limit.
+         *
+         * @param maxDepth the maximum depth
+         *
+         * @return this builder
+         */
+        public Builder setMaxDepth(final int maxDepth) {
+            if (maxDepth < 0) {
+                throw new IllegalArgumentException("The maximum depth cannot be negative: " + maxDepth);
+            }
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        /**
+         * Creates the model walker.
+         *
+         * @return the model walker
+         */
+        public ModelWalker build() {
+            return new ModelWalker(this);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.IOException;
+
+import org.jboss.as.controller.client.helpers.Operations;
+import org.jboss.dmr.ModelNode;
+
+/**
+ * Thrown when a management operation was executed, but its outcome was not successful.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class OperationFailedException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final ModelNode operation;
+    private final ModelNode failureDescription;
+
+    /**
+     * Creates a new exception for the result of the operation.
+     *
+     * @param operation the operation which failed
+     * @param result    the result of the operation
+     */
+    public OperationFailedException(final ModelNode operation, final ModelNode result) {
+        super(Operations.getFailureDescription(result).asString());
+        this.operation = operation;
+        failureDescription = Operations.getFailureDescription(result);
+    }
+
+    /**
+     * The operation which failed.
+     *
+     * @return the operation
+     */
+    public ModelNode getOperation() {
+        return operation;
+    }
+
+    /**
+     * The failure description returned by the server.
+     *
+     * @return the failure description
+     */
+    public ModelNode getFailureDescription() {
+        return failureDescription;
+    }
+}
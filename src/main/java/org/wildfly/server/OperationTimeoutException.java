@@ -0,0 +1,68 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import org.jboss.dmr.ModelNode;
+
+/**
+ * Thrown when a management operation did not complete before its {@linkplain ClientPolicy deadline}. The operation
+ * is cancelled, but may have been executed on the server.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class OperationTimeoutException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final ModelNode operation;
+    private final Duration deadline;
+
+    /**
+     * Creates a new exception.
+     *
+     * @param operation the operation which timed out
+     * @param deadline  the deadline of the operation
+     */
+    public OperationTimeoutException(final ModelNode operation, final Duration deadline) {
+        super(String.format("Operation %s did not complete within %s", operation.get("operation").asString(), deadline));
+        this.operation = operation;
+        this.deadline = deadline;
+    }
+
+    /**
+     * The operation which timed out.
+     *
+     * @return the operation
+     */
+    public ModelNode getOperation() {
+        return operation;
+    }
+
+    /**
+     * The deadline of the operation.
+     *
+     * @return the deadline
+     */
+    public Duration getDeadline() {
+        return deadline;
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Allocates blocks of ports, represented as a port offset, for servers so that servers started from different JVMs
+ * on the same host do not collide.
+ * <p>
+ * Each block is reserved by holding a lock on a file in a directory shared by all JVMs using the same directory. A
+ * block is only reserved if each of the ports, shifted by the offset of the block, can be bound. The block is
+ * released when the server is stopped and reserved again when the server is started.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public final class PortAllocator {
+    private static final Logger LOGGER = Logger.getLogger(PortAllocator.class);
+    // The default ports of the socket bindings and management interfaces
+    private static final int[] DEFAULT_PORTS = {
+            8080, 8443, 8009, 4712, 4713, 9990, 9993, 9999,
+    };
+    private static final int MAX_PORT = 65535;
+
+    private final Path directory;
+    private final int blockSize;
+    private final int[] ports;
+
+    private PortAllocator(final Builder builder) {
+        directory = builder.directory;
+        blockSize = builder.blockSize;
+        ports = builder.ports;
+    }
+
+    /**
+     * Creates a new builder for a port allocator.
+     *
+     * @return the new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Reserves the first block where all the ports are available.
+     *
+     * @param address         the address the ports are bound to
+     * @param additionalPorts any ports in addition to the ports this allocator was configured with
+     *
+     * @return the reservation
+     *
+     * @throws IOException           if an error occurs creating the lock files
+     * @throws IllegalStateException if there are no blocks available
+     */
+    Reservation reserve(final InetAddress address, final int... additionalPorts) throws IOException {
+        final int[] ports = Arrays.copyOf(this.ports, this.ports.length + additionalPorts.length);
+        System.arraycopy(additionalPorts, 0, ports, this.ports.length, additionalPorts.length);
+        int maxPort = 0;
+        for (int port : ports) {
+            maxPort = Math.max(maxPort, port);
+        }
+        Files.createDirectories(directory);
+        final int blocks = (MAX_PORT - maxPort) / blockSize;
+        // Block 0 is left for servers not using an allocator
+        for (int block = 1; block <= blocks; block++) {
+            final Reservation reservation = new Reservation(directory.resolve("block-" + block + ".lock"), address, ports, block * blockSize);
+            if (reservation.tryAcquire()) {
+                LOGGER.debugf("Reserved port offset %d", reservation.getOffset());
+                return reservation;
+            }
+        }
+        throw new IllegalStateException(String.format("No port offset is available for ports %s in %s", Arrays.toString(ports), directory));
+    }
+
+    /**
+     * A reservation of a block of ports.
+     */
+    static final class Reservation {
+        private final Path lockFile;
+        private final InetAddress address;
+        private final int[] ports;
+        private final int offset;
+        private LockFile lock;
+
+        private Reservation(final Path lockFile, final InetAddress address, final int[] ports, final int offset) {
+            this.lockFile = lockFile;
+            this.address = address;
+            this.ports = ports;
+            this.offset = offset;
+        }
+
+        /**
+         * The offset to add to each port.
+         *
+         * @return the port offset
+         */
+        int getOffset() {
+            return offset;
+        }
+
+        /**
+         * Acquires the reservation if not already held.
+         *
+         * @throws IOException           if an error occurs locking the file
+         * @throws IllegalStateException if the block is held by another JVM or a port is already bound
+         */
+        synchronized void acquire() throws IOException {
+            if (!tryAcquire()) {
+                throw new IllegalStateException(String.format("The ports for port offset %d are in use", offset));
+            }
+        }
+
+        /**
+         * Releases the reservation if held.
+         */
+        synchronized void release() {
+            if (lock != null) {
+                lock.release();
+                lock = null;
+            }
+        }
+
+        private synchronized boolean tryAcquire() throws IOException {
+            if (lock != null) {
+                return true;
+            }
+            lock = LockFile.tryLock(lockFile);
+            if (lock == null) {
+                // Held by another reservation in this or another JVM
+                return false;
+            }
+            if (!isAvailable()) {
+                release();
+                return false;
+            }
+            return true;
+        }
+
+        private boolean isAvailable() {
+            for (int port : ports) {
+                try (ServerSocket socket = new ServerSocket()) {
+                    socket.setReuseAddress(true);
+                    socket.bind(new InetSocketAddress(address, port + offset));
+                } catch (IOException e) {
+                    LOGGER.debugf("Port %d is not available for port offset %d", port + offset, offset);
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A builder for a {@link PortAllocator}.
+     */
+    public static final class Builder {
+        private Path directory;
+        private int blockSize;
+        private int[] ports;
+
+        private Builder() {
+            directory = Paths.get(System.getProperty("java.io.tmpdir"), "wildfly-server-ports");
+            blockSize = 100;
+            ports = DEFAULT_PORTS.clone();
+        }
+
+        /**
+         * Sets the directory used to hold the lock files. Every JVM allocating ports must use the same directory. The
+         * default is {@code wildfly-server-ports} in the {@code java.io.tmpdir} directory.
+         *
+         * @param directory the directory for the lock files
+         *
+         * @return this builder
+         */
+        public Builder setDirectory(final Path directory) {
+            if (directory == null) {
+                throw new IllegalArgumentException("The directory cannot be null");
+            }
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * Sets the size of each block of ports. The port offsets are multiples of the block size. The default is
+         * 100.
+         *
+         * @param blockSize the size of each block
+         *
+         * @return this builder
+         */
+        public Builder setBlockSize(final int blockSize) {
+            if (blockSize < 1) {
+                throw new IllegalArgumentException("The block size must be greater than 0: " + blockSize);
+            }
+            this.blockSize = blockSize;
+            return this;
+        }
+
+        /**
+         * Sets the ports, without an offset, which must be available for a block to be reserved. The default is the
+         * ports of the default socket bindings and management interfaces. The management port of the server is
+         * always checked.
+         *
+         * @param ports the ports to check
+         *
+         * @return this builder
+         */
+        public Builder setPorts(final int... ports) {
+            for (int port : ports) {
+                if (port < 1 || port > MAX_PORT) {
+                    throw new IllegalArgumentException("Invalid port: " + port);
+                }
+            }
+            this.ports = ports.clone();
+            return this;
+        }
+
+        /**
+         * Creates the port allocator.
+         *
+         * @return the port allocator
+         */
+        public PortAllocator build() {
+            return new PortAllocator(this);
+        }
+    }
+}
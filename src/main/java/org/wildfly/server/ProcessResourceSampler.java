@@ -0,0 +1,213 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Periodically samples the CPU time, resident set size, thread count and open file descriptors of managed server
+ * processes, including all descendant processes, from the {@code /proc} file system.
+ * <p>
+ * All registered servers are sampled on a single shared thread. Each sample is published to the
+ * {@linkplain ResourceSampleListener listener}. On systems without a {@code /proc} file system no samples are
+ * published.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class ProcessResourceSampler implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(ProcessResourceSampler.class);
+    private static final byte[] VM_RSS = "VmRSS:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] THREADS = "Threads:".getBytes(StandardCharsets.US_ASCII);
+
+    private final Set<AbstractServer> servers;
+    private final ResourceSampleListener listener;
+    private final ScheduledExecutorService executor;
+    private final long nanosPerTick;
+    // Only accessed from the sampler thread
+    private final byte[] buffer;
+
+    private ProcessResourceSampler(final ResourceSampleListener listener, final long clockTicks) {
+        this.listener = listener;
+        nanosPerTick = TimeUnit.SECONDS.toNanos(1L) / clockTicks;
+        servers = new CopyOnWriteArraySet<>();
+        buffer = new byte[4096];
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread t = new Thread(r);
+            t.setDaemon(true);
+            t.setName("WildFly-Resource-Sampler");
+            return t;
+        });
+    }
+
+    /**
+     * Creates and starts a new sampler.
+     *
+     * @param period   the period between samples
+     * @param unit     the unit for the period
+     * @param listener the listener to publish samples to
+     *
+     * @return the started sampler
+     */
+    public static ProcessResourceSampler create(final long period, final TimeUnit unit, final ResourceSampleListener listener) {
+        if (period <= 0L) {
+            throw new IllegalArgumentException("The period must be greater than 0: " + period);
+        }
+        final ProcessResourceSampler sampler = new ProcessResourceSampler(listener, Processes.clockTicks());
+        if (Processes.isProcSupported()) {
+            sampler.executor.scheduleAtFixedRate(sampler::sample, period, period, unit);
+        } else {
+            LOGGER.debug("The /proc file system is not available, no resource samples will be published");
+        }
+        return sampler;
+    }
+
+    /**
+     * Registers a server to be sampled. The server is sampled only while its process is running.
+     *
+     * @param server the server to sample
+     *
+     * @throws IllegalArgumentException if the server is not a server launched by this library
+     */
+    public void register(final Server server) {
+        if (!(server instanceof AbstractServer)) {
+            throw new IllegalArgumentException("Only servers whose process was launched can be sampled: " + server.getClass().getName());
+        }
+        servers.add((AbstractServer) server);
+    }
+
+    /**
+     * Removes the server from being sampled.
+     *
+     * @param server the server to remove
+     */
+    public void unregister(final Server server) {
+        servers.remove(server);
+    }
+
+    /**
+     * Stops sampling.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        servers.clear();
+    }
+
+    private void sample() {
+        if (servers.isEmpty()) {
+            return;
+        }
+        try {
+            final Processes.ProcessTree tree = Processes.snapshot(buffer);
+            final long timestamp = System.currentTimeMillis();
+            for (AbstractServer server : servers) {
+                final long pid = Processes.pid(server.getProcess());
+                if (pid < 0) continue;
+                final ResourceSample sample = sample(timestamp, pid, tree.withDescendants(pid));
+                if (sample != null) {
+                    try {
+                        listener.sampled(server, sample);
+                    } catch (Throwable t) {
+                        LOGGER.debugf(t, "Listener failed to process sample %s", sample);
+                    }
+                }
+            }
+        } catch (Throwable t) {
+            // Never let an exception cancel the scheduled task
+            LOGGER.debug("Failed to sample processes", t);
+        }
+    }
+
+    private ResourceSample sample(final long timestamp, final long pid, final long[] pids) {
+        final byte[] buffer = this.buffer;
+        int processCount = 0;
+        long cpuTime = 0L;
+        long rss = 0L;
+        int threads = 0;
+        int fds = 0;
+        for (long p : pids) {
+            final String dir = "/proc/" + p;
+            int len = Processes.read(dir + "/stat", buffer);
+            if (len <= 0) continue;
+            final int utime = Processes.statFieldOffset(buffer, len, 14);
+            final int stime = Processes.statFieldOffset(buffer, len, 15);
+            if (utime < 0 || stime < 0) continue;
+            cpuTime += (Processes.parseLong(buffer, utime, len) + Processes.parseLong(buffer, stime, len)) * nanosPerTick;
+
+            len = Processes.read(dir + "/status", buffer);
+            if (len > 0) {
+                // Reported in kB
+                rss += statusValue(buffer, len, VM_RSS) * 1024L;
+                threads += (int) statusValue(buffer, len, THREADS);
+            }
+            final String[] openFds = new File(dir, "fd").list();
+            if (openFds != null) {
+                fds += openFds.length;
+            }
+            processCount++;
+        }
+        if (processCount == 0) {
+            // The process has exited
+            return null;
+        }
+        return new ResourceSample(timestamp, pid, processCount, cpuTime, rss, threads, fds);
+    }
+
+    /**
+     * Finds the numeric value of the key in the contents of a {@code /proc/<pid>/status} file.
+     *
+     * @param buffer the contents of the {@code status} file
+     * @param len    the length of the contents
+     * @param key    the key including the trailing colon, e.g. {@code VmRSS:}
+     *
+     * @return the value or {@code 0} if the key was not found
+     */
+    static long statusValue(final byte[] buffer, final int len, final byte[] key) {
+        int lineStart = 0;
+        while (lineStart < len) {
+            if (startsWith(buffer, lineStart, len, key)) {
+                int pos = lineStart + key.length;
+                while (pos < len && (buffer[pos] == ' ' || buffer[pos] == '\t')) pos++;
+                return Processes.parseLong(buffer, pos, len);
+            }
+            // Move to the next line
+            while (lineStart < len && buffer[lineStart] != '\n') lineStart++;
+            lineStart++;
+        }
+        return 0L;
+    }
+
+    private static boolean startsWith(final byte[] buffer, final int offset, final int len, final byte[] prefix) {
+        if (offset + prefix.length > len) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer[offset + i] != prefix[i]) return false;
+        }
+        return true;
+    }
+}
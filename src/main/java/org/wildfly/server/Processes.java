@@ -0,0 +1,287 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.logging.Logger;
+
+/**
+ * A helper for querying information about operating system processes.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class Processes {
+    private static final Logger LOGGER = Logger.getLogger(Processes.class);
+    private static final File PROC = new File("/proc");
+    private static final boolean PROC_SUPPORTED = new File(PROC, "self/stat").canRead();
+    // USER_HZ is 100 on all the common Linux architectures
+    private static final long DEFAULT_CLOCK_TICKS = 100L;
+
+    /**
+     * Indicates whether or not the {@code /proc} file system is available.
+     *
+     * @return {@code true} if the {@code /proc} file system can be read, otherwise {@code false}
+     */
+    static boolean isProcSupported() {
+        return PROC_SUPPORTED;
+    }
+
+    /**
+     * Attempts to determine the pid of the process.
+     *
+     * @param process the process to get the pid for
+     *
+     * @return the pid or {@code -1} if the pid could not be determined
+     */
+    static long pid(final Process process) {
+        if (process == null) {
+            return -1L;
+        }
+        try {
+            // Java 9+
+            final Method method = Process.class.getMethod("pid");
+            return (Long) method.invoke(process);
+        } catch (NoSuchMethodException ignore) {
+        } catch (Exception e) {
+            LOGGER.debugf(e, "Failed to determine the pid for %s", process);
+            return -1L;
+        }
+        try {
+            // Java 8 UNIXProcess
+            final Field field = process.getClass().getDeclaredField("pid");
+            field.setAccessible(true);
+            return field.getInt(process);
+        } catch (Exception e) {
+            LOGGER.debugf(e, "Failed to determine the pid for %s", process);
+        }
+        return -1L;
+    }
+
+    /**
+     * Determines the number of clock ticks per second, {@code USER_HZ}, the CPU times in {@code /proc/<pid>/stat}
+     * are reported in. The value is read with {@code getconf CLK_TCK}.
+     *
+     * @return the number of clock ticks per second or {@code 100} if the value could not be determined or
+     * {@code /proc} is not supported
+     */
+    static long clockTicks() {
+        if (!PROC_SUPPORTED) {
+            return DEFAULT_CLOCK_TICKS;
+        }
+        try {
+            final Process process = new ProcessBuilder("getconf", "CLK_TCK").redirectErrorStream(true).start();
+            final byte[] buffer = new byte[32];
+            int len = 0;
+            try (InputStream in = process.getInputStream()) {
+                int read;
+                while (len < buffer.length && (read = in.read(buffer, len, buffer.length - len)) > 0) {
+                    len += read;
+                }
+            }
+            if (!process.waitFor(10L, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                LOGGER.debugf("Timed out determining the clock ticks, assuming %d", DEFAULT_CLOCK_TICKS);
+                return DEFAULT_CLOCK_TICKS;
+            }
+            final long ticks = parseLong(buffer, 0, len);
+            if (process.exitValue() == 0 && ticks > 0L) {
+                return ticks;
+            }
+            LOGGER.debugf("Failed to determine the clock ticks, assuming %d: %s", DEFAULT_CLOCK_TICKS, new String(buffer, 0, len).trim());
+        } catch (IOException e) {
+            LOGGER.debugf(e, "Failed to determine the clock ticks, assuming %d", DEFAULT_CLOCK_TICKS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return DEFAULT_CLOCK_TICKS;
+    }
+
+    /**
+     * Takes a snapshot of the process tree read from {@code /proc}. The snapshot is only valid for the time it was
+     * taken.
+     *
+     * @param buffer a buffer used to read the {@code stat} files
+     *
+     * @return the process tree or an empty tree if {@code /proc} is not supported
+     */
+    static ProcessTree snapshot(final byte[] buffer) {
+        if (!PROC_SUPPORTED) {
+            return new ProcessTree(new long[0], new long[0], 0);
+        }
+        final String[] names = PROC.list();
+        if (names == null) {
+            return new ProcessTree(new long[0], new long[0], 0);
+        }
+        final long[] pids = new long[names.length];
+        final long[] ppids = new long[names.length];
+        int size = 0;
+        for (String name : names) {
+            final long pid = parsePid(name);
+            if (pid < 0) continue;
+            final int len = read("/proc/" + name + "/stat", buffer);
+            if (len <= 0) continue;
+            // The ppid is the 2nd field after the command which is wrapped in parentheses
+            final int pos = statFieldOffset(buffer, len, 4);
+            if (pos < 0) continue;
+            pids[size] = pid;
+            ppids[size] = parseLong(buffer, pos, len);
+            size++;
+        }
+        return new ProcessTree(pids, ppids, size);
+    }
+
+    /**
+     * Reads the file into the buffer.
+     *
+     * @param path   the path to the file
+     * @param buffer the buffer to read the file into
+     *
+     * @return the number of bytes read or {@code -1} if the file could not be read
+     */
+    static int read(final String path, final byte[] buffer) {
+        try (FileInputStream in = new FileInputStream(path)) {
+            int total = 0;
+            int len;
+            while (total < buffer.length && (len = in.read(buffer, total, buffer.length - total)) > 0) {
+                total += len;
+            }
+            return total;
+        } catch (IOException ignore) {
+            // The process has likely exited
+            return -1;
+        }
+    }
+
+    /**
+     * Finds the offset of the field in the contents of a {@code /proc/<pid>/stat} file. Fields are 1-based as
+     * documented in {@code proc(5)}.
+     *
+     * @param buffer the contents of the {@code stat} file
+     * @param len    the length of the contents
+     * @param field  the 1-based field number, must be greater than 2
+     *
+     * @return the offset of the field or {@code -1} if the field was not found
+     */
+    static int statFieldOffset(final byte[] buffer, final int len, final int field) {
+        // The command may contain spaces and parentheses, so start after the last ')'
+        int pos = -1;
+        for (int i = len - 1; i >= 0; i--) {
+            if (buffer[i] == ')') {
+                pos = i + 1;
+                break;
+            }
+        }
+        if (pos < 0) {
+            return -1;
+        }
+        // The position is now at the space before field 3
+        int current = 2;
+        while (pos < len) {
+            if (buffer[pos] == ' ') {
+                current++;
+                if (current == field) {
+                    return pos + 1;
+                }
+            }
+            pos++;
+        }
+        return -1;
+    }
+
+    /**
+     * Parses a positive number starting at the offset, stopping at the first non-digit.
+     *
+     * @param buffer the buffer to parse
+     * @param offset the offset to start parsing at
+     * @param len    the length of the valid data in the buffer
+     *
+     * @return the parsed value
+     */
+    static long parseLong(final byte[] buffer, final int offset, final int len) {
+        long result = 0L;
+        for (int i = offset; i < len; i++) {
+            final byte b = buffer[i];
+            if (b < '0' || b > '9') break;
+            result = result * 10L + (b - '0');
+        }
+        return result;
+    }
+
+    private static long parsePid(final String name) {
+        final int len = name.length();
+        if (len == 0) return -1L;
+        long result = 0L;
+        for (int i = 0; i < len; i++) {
+            final char c = name.charAt(i);
+            if (c < '0' || c > '9') return -1L;
+            result = result * 10L + (c - '0');
+        }
+        return result;
+    }
+
+    /**
+     * A snapshot of the parent/child relationships of the processes on the system.
+     */
+    static class ProcessTree {
+        private final long[] pids;
+        private final long[] ppids;
+        private final int size;
+
+        ProcessTree(final long[] pids, final long[] ppids, final int size) {
+            this.pids = pids;
+            this.ppids = ppids;
+            this.size = size;
+        }
+
+        /**
+         * Returns the process and all of its descendants.
+         *
+         * @param pid the root process
+         *
+         * @return an array of the pid followed by all its descendants
+         */
+        long[] withDescendants(final long pid) {
+            long[] result = new long[8];
+            result[0] = pid;
+            int count = 1;
+            // Breadth first walk of the tree, the result array doubles as the queue
+            for (int head = 0; head < count; head++) {
+                final long parent = result[head];
+                for (int i = 0; i < size; i++) {
+                    if (ppids[i] == parent) {
+                        if (count == result.length) {
+                            result = Arrays.copyOf(result, count << 1);
+                        }
+                        result[count++] = pids[i];
+                    }
+                }
+            }
+            return Arrays.copyOf(result, count);
+        }
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jboss.logging.Logger;
+
+/**
+ * Exposes metrics for managed servers in the Prometheus text format over a local HTTP listener.
+ * <p>
+ * The following metrics are exported for each registered server:
+ * <ul>
+ * <li>{@code wildfly_server_up} whether or not the server is running</li>
+ * <li>{@code wildfly_server_starts_total} the number of times the server was started</li>
+ * <li>{@code wildfly_server_boot_seconds} the time the last start took</li>
+ * </ul>
+ * If a {@link MetricsScraper} is set, the latest value of each scraped metric is exported as
+ * {@code wildfly_<metric name>} along with {@code wildfly_management_latency_seconds}, the time the last composite
+ * read took. A scraped metric whose exported name is already used by another metric is rejected.
+ * </p>
+ * <p>
+ * Responses are rendered into a reused buffer on a single thread.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class PrometheusExporter implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(PrometheusExporter.class);
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1L);
+    private static final String SERVER_UP = "wildfly_server_up";
+    private static final String SERVER_STARTS = "wildfly_server_starts_total";
+    private static final String SERVER_BOOT = "wildfly_server_boot_seconds";
+    private static final String MANAGEMENT_LATENCY = "wildfly_management_latency_seconds";
+
+    private final Map<String, Registration> servers;
+    private final Map<String, String> labels;
+    private final MetricsScraper scraper;
+    private final String[] metricNames;
+    private final String[] metricHelp;
+    private final HttpServer httpServer;
+    private final ExecutorService executor;
+    // Only accessed from the single HTTP thread
+    private final PrometheusWriter writer;
+
+    private PrometheusExporter(final InetSocketAddress address, final String path, final MetricsScraper scraper) throws IOException {
+        this.scraper = scraper;
+        servers = new ConcurrentSkipListMap<>();
+        labels = new ConcurrentHashMap<>();
+        if (scraper == null) {
+            metricNames = new String[0];
+            metricHelp = new String[0];
+        } else {
+            metricNames = new String[scraper.getMetrics().size()];
+            metricHelp = new String[metricNames.length];
+            final Set<String> names = new HashSet<>(Arrays.asList(SERVER_UP, SERVER_STARTS, SERVER_BOOT, MANAGEMENT_LATENCY));
+            for (int i = 0; i < metricNames.length; i++) {
+                final Metric metric = scraper.getMetrics().get(i);
+                metricNames[i] = "wildfly_" + PrometheusWriter.sanitizeName(metric.getName());
+                // Two families with the same name would make the whole response invalid
+                if (!names.add(metricNames[i])) {
+                    throw new IllegalArgumentException(String.format("The metric %s would be exported as %s which is already exported",
+                            metric.getName(), metricNames[i]));
+                }
+                metricHelp[i] = metric.getName() + " read from " + metric.getAttribute() + ".";
+            }
+        }
+        writer = new PrometheusWriter(8192);
+        executor = Executors.newSingleThreadExecutor(r -> {
+            final Thread t = new Thread(r);
+            t.setDaemon(true);
+            t.setName("WildFly-Prometheus-Exporter");
+            return t;
+        });
+        httpServer = HttpServer.create(address, 0);
+        httpServer.setExecutor(executor);
+        httpServer.createContext(path, this::handle);
+    }
+
+    /**
+     * Creates a new builder for an exporter.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Registers a server whose lifecycle metrics should be exported.
+     *
+     * @param name   the unique name of the server, this is used as the {@code server} label value
+     * @param server the server
+     */
+    public void register(final String name, final Server server) {
+        if (servers.putIfAbsent(name, new Registration(server, label(name))) != null) {
+            throw new IllegalArgumentException("A server with the name " + name + " has already been registered");
+        }
+    }
+
+    /**
+     * Removes the server from the exported metrics.
+     *
+     * @param name the name the server was registered with
+     */
+    public void unregister(final String name) {
+        servers.remove(name);
+        if (scraper == null || !scraper.getServerNames().contains(name)) {
+            labels.remove(name);
+        }
+    }
+
+    /**
+     * The address the HTTP listener is bound to.
+     *
+     * @return the bound address
+     */
+    public InetSocketAddress getAddress() {
+        return httpServer.getAddress();
+    }
+
+    /**
+     * Stops the HTTP listener.
+     */
+    @Override
+    public void close() {
+        httpServer.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        boolean headersSent = false;
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                headersSent = true;
+                exchange.sendResponseHeaders(405, -1L);
+                return;
+            }
+            render();
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            headersSent = true;
+            exchange.sendResponseHeaders(200, writer.size());
+            try (OutputStream out = exchange.getResponseBody()) {
+                writer.writeTo(out);
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Failed to render metrics", e);
+            // The status can only be changed if the headers have not been sent
+            if (!headersSent) {
+                exchange.sendResponseHeaders(500, -1L);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void render() {
+        final PrometheusWriter writer = this.writer;
+        writer.reset();
+        writer.family(SERVER_UP, "gauge", "Whether or not the server is running.");
+        for (Registration registration : servers.values()) {
+            writer.sample(SERVER_UP, registration.label, registration.isUp() ? 1L : 0L);
+        }
+        writer.family(SERVER_STARTS, "counter", "The number of times the server was started.");
+        for (Registration registration : servers.values()) {
+            if (registration.server instanceof AbstractServer) {
+                writer.sample(SERVER_STARTS, registration.label, ((AbstractServer) registration.server).getStartCount());
+            }
+        }
+        writer.family(SERVER_BOOT, "gauge", "The time the last start of the server took.");
+        for (Registration registration : servers.values()) {
+            if (registration.server instanceof AbstractServer) {
+                final long bootTime = ((AbstractServer) registration.server).getBootTime();
+                if (bootTime >= 0L) {
+                    writer.sample(SERVER_BOOT, registration.label, bootTime / NANOS_PER_SECOND);
+                }
+            }
+        }
+        // The names are copied on each call, so only copy them once per scrape
+        final Set<String> serverNames = scraper == null ? null : scraper.getServerNames();
+        if (scraper != null) {
+            writer.family(MANAGEMENT_LATENCY, "gauge", "The time the last management read of the server took.");
+            for (String name : serverNames) {
+                final MetricHistory history = scraper.getLatencyHistory(name);
+                if (history != null && history.size() > 0) {
+                    writer.sample(MANAGEMENT_LATENCY, label(name), history.getLatestLong() / NANOS_PER_SECOND);
+                }
+            }
+            for (int i = 0; i < metricNames.length; i++) {
+                final Metric metric = scraper.getMetrics().get(i);
+                writer.family(metricNames[i], "gauge", metricHelp[i]);
+                for (String name : serverNames) {
+                    final MetricHistory history = scraper.getHistory(name, metric.getName());
+                    if (history == null || history.size() == 0) continue;
+                    if (metric.getType() == Metric.Type.DOUBLE) {
+                        writer.sample(metricNames[i], label(name), history.getLatestDouble());
+                    } else {
+                        writer.sample(metricNames[i], label(name), history.getLatestLong());
+                    }
+                }
+            }
+        }
+        // Drop the labels of servers which are no longer registered with the exporter or the scraper
+        if (labels.size() > servers.size()) {
+            labels.keySet().removeIf(name -> !servers.containsKey(name) && (serverNames == null || !serverNames.contains(name)));
+        }
+    }
+
+    private String label(final String name) {
+        return labels.computeIfAbsent(name, PrometheusWriter::escapeLabelValue);
+    }
+
+    private static class Registration {
+        private final Server server;
+        private final String label;
+
+        private Registration(final Server server, final String label) {
+            this.server = server;
+            this.label = label;
+        }
+
+        boolean isUp() {
+            if (server instanceof AbstractServer) {
+                return ((AbstractServer) server).isProcessAlive();
+            }
+            return server.isRunning();
+        }
+    }
+
+    /**
+     * A builder used to create a {@link PrometheusExporter}.
+     */
+    public static class Builder {
+        private InetAddress address;
+        private int port;
+        private String path;
+        private MetricsScraper scraper;
+
+        private Builder() {
+            address = InetAddress.getLoopbackAddress();
+            port = 9779;
+            path = "/metrics";
+        }
+
+        /**
+         * Sets the address to bind the HTTP listener to. The default is the loopback address.
+         *
+         * @param address the address to bind to
+         *
+         * @return this builder
+         */
+        public Builder setAddress(final InetAddress address) {
+            this.address = address;
+            return this;
+        }
+
+        /**
+         * Sets the port to bind the HTTP listener to. The default is {@code 9779}. A value of {@code 0} binds to an
+         * ephemeral port.
+         *
+         * @param port the port to bind to
+         *
+         * @return this builder
+         */
+        public Builder setPort(final int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Sets the path metrics are served on. The default is {@code /metrics}.
+         *
+         * @param path the path
+         *
+         * @return this builder
+         */
+        public Builder setPath(final String path) {
+            this.path = path;
+            return this;
+        }
+
+        /**
+         * Sets the scraper whose metrics should be exported.
+         *
+         * @param scraper the scraper
+         *
+         * @return this builder
+         */
+        public Builder setMetricsScraper(final MetricsScraper scraper) {
+            this.scraper = scraper;
+            return this;
+        }
+
+        /**
+         * Creates and starts the exporter.
+         *
+         * @return the started exporter
+         *
+         * @throws IOException              if the HTTP listener could not be bound
+         * @throws IllegalArgumentException if two metrics would be exported with the same name
+         */
+        public PrometheusExporter build() throws IOException {
+            final PrometheusExporter exporter = new PrometheusExporter(new InetSocketAddress(address, port), path, scraper);
+            exporter.httpServer.start();
+            return exporter;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Writes the Prometheus text exposition format into a reusable byte buffer.
+ * <p>
+ * The buffer grows as needed and is reset, not reallocated, between renders.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class PrometheusWriter {
+    private byte[] buffer;
+    private int size;
+
+    PrometheusWriter(final int initialCapacity) {
+        buffer = new byte[initialCapacity];
+    }
+
+    /**
+     * Clears the contents keeping the current buffer.
+     */
+    void reset() {
+        size = 0;
+    }
+
+    /**
+     * The number of bytes written.
+     *
+     * @return the number of bytes written
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Writes the contents to the output stream.
+     *
+     * @param out the output stream to write to
+     *
+     * @throws IOException if an error occurs writing to the stream
+     */
+    void writeTo(final OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+
+    /**
+     * Writes the {@code HELP} and {@code TYPE} lines for a metric family.
+     *
+     * @param name the name of the metric
+     * @param type the type of the metric, e.g. {@code gauge} or {@code counter}
+     * @param help the help text, any backslash or new line characters are escaped
+     *
+     * @return this writer
+     */
+    PrometheusWriter family(final String name, final String type, final String help) {
+        return append("# HELP ").append(name).append(' ').append(escapeHelp(help)).append('\n')
+                .append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * Writes a sample with a single {@code server} label.
+     *
+     * @param name   the name of the metric
+     * @param server the {@linkplain #escapeLabelValue(String) escaped} server label value
+     * @param value  the value
+     *
+     * @return this writer
+     */
+    PrometheusWriter sample(final String name, final String server, final long value) {
+        return startSample(name, server).append(value).append('\n');
+    }
+
+    /**
+     * Writes a sample with a single {@code server} label.
+     *
+     * @param name   the name of the metric
+     * @param server the {@linkplain #escapeLabelValue(String) escaped} server label value
+     * @param value  the value
+     *
+     * @return this writer
+     */
+    PrometheusWriter sample(final String name, final String server, final double value) {
+        return startSample(name, server).append(value).append('\n');
+    }
+
+    PrometheusWriter append(final char c) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) c;
+        return this;
+    }
+
+    PrometheusWriter append(final String s) {
+        final int len = s.length();
+        ensureCapacity(len);
+        for (int i = 0; i < len; i++) {
+            final char c = s.charAt(i);
+            if (c < 0x80) {
+                buffer[size++] = (byte) c;
+            } else {
+                appendUtf8(s, i);
+                if (Character.isHighSurrogate(c)) i++;
+                // Ensure there is still enough room for the remaining characters
+                ensureCapacity(len - i);
+            }
+        }
+        return this;
+    }
+
+    PrometheusWriter append(final long value) {
+        if (value == Long.MIN_VALUE) {
+            return append(Long.toString(value));
+        }
+        long v = value;
+        if (v < 0) {
+            append('-');
+            v = -v;
+        }
+        // Count the digits
+        int digits = 1;
+        for (long t = v; t >= 10L; t /= 10L) digits++;
+        ensureCapacity(digits);
+        for (int i = size + digits - 1; i >= size; i--) {
+            buffer[i] = (byte) ('0' + (v % 10L));
+            v /= 10L;
+        }
+        size += digits;
+        return this;
+    }
+
+    PrometheusWriter append(final double value) {
+        if (Double.isNaN(value)) {
+            return append("NaN");
+        }
+        if (Double.isInfinite(value)) {
+            return append(value > 0 ? "+Inf" : "-Inf");
+        }
+        if (value == (long) value) {
+            return append((long) value);
+        }
+        return append(Double.toString(value));
+    }
+
+    /**
+     * Converts the name to a valid Prometheus metric name replacing any invalid characters with an underscore.
+     *
+     * @param name the name to convert
+     *
+     * @return a valid metric name
+     */
+    static String sanitizeName(final String name) {
+        final StringBuilder result = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            final char c = name.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == ':' || (i > 0 && c >= '0' && c <= '9')) {
+                result.append(c);
+            } else {
+                result.append('_');
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Escapes the backslash, double quote and new line characters in a label value.
+     *
+     * @param value the value to escape
+     *
+     * @return the escaped value
+     */
+    static String escapeLabelValue(final String value) {
+        final StringBuilder result = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                result.append('\\').append(c);
+            } else if (c == '\n') {
+                result.append("\\n");
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Escapes the backslash and new line characters in help text.
+     *
+     * @param help the help text to escape
+     *
+     * @return the escaped help text, or the same instance if nothing needed to be escaped
+     */
+    static String escapeHelp(final String help) {
+        if (help.indexOf('\\') < 0 && help.indexOf('\n') < 0) {
+            return help;
+        }
+        final StringBuilder result = new StringBuilder(help.length() + 8);
+        for (int i = 0; i < help.length(); i++) {
+            final char c = help.charAt(i);
+            if (c == '\\') {
+                result.append("\\\\");
+            } else if (c == '\n') {
+                result.append("\\n");
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    private PrometheusWriter startSample(final String name, final String server) {
+        return append(name).append("{server=\"").append(server).append("\"} ");
+    }
+
+    private void appendUtf8(final String s, final int index) {
+        final int cp = s.codePointAt(index);
+        ensureCapacity(4);
+        if (cp < 0x800) {
+            buffer[size++] = (byte) (0xC0 | (cp >> 6));
+            buffer[size++] = (byte) (0x80 | (cp & 0x3F));
+        } else if (cp < 0x10000) {
+            buffer[size++] = (byte) (0xE0 | (cp >> 12));
+            buffer[size++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+            buffer[size++] = (byte) (0x80 | (cp & 0x3F));
+        } else {
+            buffer[size++] = (byte) (0xF0 | (cp >> 18));
+            buffer[size++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+            buffer[size++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+            buffer[size++] = (byte) (0x80 | (cp & 0x3F));
+        }
+    }
+
+    private void ensureCapacity(final int additional) {
+        final int required = size + additional;
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length << 1));
+        }
+    }
+}
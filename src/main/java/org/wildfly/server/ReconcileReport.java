@@ -0,0 +1,92 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.dmr.ModelNode;
+
+/**
+ * A report of the operations executed to reconcile a server with a {@link DesiredState}.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public final class ReconcileReport {
+    private final List<ModelNode> operations;
+    private final String processState;
+
+    ReconcileReport(final List<ModelNode> operations, final String processState) {
+        this.operations = Collections.unmodifiableList(operations);
+        this.processState = processState;
+    }
+
+    /**
+     * The operations executed, as a single composite operation, to reconcile the server. The operations are the
+     * {@code remove}, {@code add}, {@code write-attribute} and {@code undefine-attribute} operations for only the
+     * resources and attributes which differed from the desired state.
+     *
+     * @return the operations or an empty list if the server was already in the desired state
+     */
+    public List<ModelNode> getOperations() {
+        return operations;
+    }
+
+    /**
+     * Indicates whether any operations were executed.
+     *
+     * @return {@code true} if the server was changed, otherwise {@code false}
+     */
+    public boolean isChanged() {
+        return !operations.isEmpty();
+    }
+
+    /**
+     * The {@code process-state} response header of the composite operation, e.g. {@code reload-required}.
+     *
+     * @return the process state or {@code null} if no operations were executed or the header was not returned
+     */
+    public String getProcessState() {
+        return processState;
+    }
+
+    /**
+     * Indicates whether the server must be reloaded for the changes to take effect.
+     *
+     * @return {@code true} if a reload is required, otherwise {@code false}
+     */
+    public boolean isReloadRequired() {
+        return "reload-required".equals(processState);
+    }
+
+    /**
+     * Indicates whether the server must be restarted for the changes to take effect.
+     *
+     * @return {@code true} if a restart is required, otherwise {@code false}
+     */
+    public boolean isRestartRequired() {
+        return "restart-required".equals(processState);
+    }
+
+    @Override
+    public String toString() {
+        return "ReconcileReport[operations=" + operations.size() + ", processState=" + processState + ']';
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.helpers.ClientConstants;
+import org.jboss.as.controller.client.helpers.Operations;
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.ModelType;
+import org.jboss.dmr.Property;
+import org.jboss.logging.Logger;
+
+/**
+ * Reconciles the management model of a server with a {@link DesiredState}, executing only the operations required
+ * to change the resources which differ.
+ * <p>
+ * The current resources are read with a single composite operation for each depth of the parents of the desired
+ * resources. Each composite has a {@code read-children-resources} step for each parent and child type, so the
+ * resources of the same type are read together. The ancestors of the desired resources are read as well, and parents
+ * deeper in the model are only read if they exist, which is why more than one composite may be needed. The changes
+ * are then executed as a single composite operation.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+final class Reconciler {
+    private static final Logger LOGGER = Logger.getLogger(Reconciler.class);
+
+    private Reconciler() {
+    }
+
+    /**
+     * Reconciles the server with the desired state.
+     *
+     * @param client  the client used to read and change the server
+     * @param desired the desired state
+     *
+     * @return the report of the changes
+     *
+     * @throws IOException if an error occurs communicating with the server or an operation fails
+     */
+    static ReconcileReport reconcile(final ModelControllerClient client, final DesiredState desired) throws IOException {
+        final List<ModelNode> operations = diff(client, desired);
+        if (operations.isEmpty()) {
+            LOGGER.debugf("The %d resources are in the desired state", desired.getResources().size() + desired.getAbsent().size());
+            return new ReconcileReport(operations, null);
+        }
+        final Operations.CompositeOperationBuilder builder = Operations.CompositeOperationBuilder.create();
+        for (ModelNode op : operations) {
+            builder.addStep(op);
+        }
+        final ModelNode composite = builder.build().getOperation();
+        final ModelNode result = client.execute(composite);
+        if (!Operations.isSuccessfulOutcome(result)) {
+            throw new OperationFailedException(composite, result);
+        }
+        final String processState = processState(result);
+        LOGGER.debugf("Executed %d operations to reconcile the server, the process state is %s", operations.size(), processState);
+        return new ReconcileReport(operations, processState);
+    }
+
+    /**
+     * Determines the operations required to change the server to the desired state. Resources are removed, deepest
+     * first, before resources are added, shallowest first, and attributes are written.
+     *
+     * @param client  the client used to read the server
+     * @param desired the desired state
+     *
+     * @return the operations required or an empty list if the server is in the desired state
+     *
+     * @throws IOException if an error occurs communicating with the server or a read fails
+     */
+    static List<ModelNode> diff(final ModelControllerClient client, final DesiredState desired) throws IOException {
+        final Map<ModelNode, ModelNode> current = read(client, desired);
+        final List<ModelNode> removes = new ArrayList<>();
+        final List<ModelNode> adds = new ArrayList<>();
+        final List<ModelNode> writes = new ArrayList<>();
+        for (ModelNode address : desired.getAbsent()) {
+            if (current.containsKey(address)) {
+                removes.add(Operations.createRemoveOperation(address));
+            }
+        }
+        for (Map.Entry<ModelNode, ModelNode> resource : desired.getResources().entrySet()) {
+            final ModelNode address = resource.getKey();
+            final ModelNode attributes = resource.getValue();
+            final ModelNode currentAttributes = current.get(address);
+            if (currentAttributes == null) {
+                final ModelNode add = Operations.createAddOperation(address);
+                for (Property attribute : attributes.asPropertyList()) {
+                    if (attribute.getValue().isDefined()) {
+                        add.get(attribute.getName()).set(attribute.getValue());
+                    }
+                }
+                adds.add(add);
+                continue;
+            }
+            for (Property attribute : attributes.asPropertyList()) {
+                final String name = attribute.getName();
+                final ModelNode value = attribute.getValue();
+                final ModelNode currentValue = (currentAttributes.has(name) ? currentAttributes.get(name) : new ModelNode());
+                if (isEqual(value, currentValue)) {
+                    continue;
+                }
+                if (value.isDefined()) {
+                    writes.add(Operations.createWriteAttributeOperation(address, name, value));
+                } else {
+                    writes.add(Operations.createUndefineAttributeOperation(address, name));
+                }
+            }
+        }
+        removes.sort(Comparator.comparingInt(op -> -depth(Operations.getOperationAddress(op))));
+        adds.sort(Comparator.comparingInt(op -> depth(Operations.getOperationAddress(op))));
+        final List<ModelNode> result = new ArrayList<>(removes.size() + adds.size() + writes.size());
+        result.addAll(removes);
+        result.addAll(adds);
+        result.addAll(writes);
+        return result;
+    }
+
+    /**
+     * Reads the attributes of each resource in the desired state, and of its ancestors, which exists.
+     *
+     * @return the addresses of the resources which exist mapped to the attributes explicitly set on the resource
+     */
+    private static Map<ModelNode, ModelNode> read(final ModelControllerClient client, final DesiredState desired) throws IOException {
+        // Group the addresses by the depth of the parent, then the parent and child type
+        final TreeMap<Integer, Map<ModelNode, Map<String, List<ModelNode>>>> depths = new TreeMap<>();
+        final Set<ModelNode> addresses = new HashSet<>(desired.getResources().keySet());
+        addresses.addAll(desired.getAbsent());
+        // Read the ancestors too, reading the children of a parent which does not exist fails the whole composite
+        for (ModelNode address : new ArrayList<>(addresses)) {
+            for (ModelNode parent = parent(address); depth(parent) > 0; parent = parent(parent)) {
+                addresses.add(parent);
+            }
+        }
+        for (ModelNode address : addresses) {
+            final List<Property> segments = address.asPropertyList();
+            final ModelNode parent = parent(address);
+            final String type = (segments.isEmpty() ? null : segments.get(segments.size() - 1).getName());
+            depths.computeIfAbsent(segments.isEmpty() ? -1 : depth(parent), d -> new LinkedHashMap<>())
+                    .computeIfAbsent(parent, p -> new LinkedHashMap<>())
+                    .computeIfAbsent(type, t -> new ArrayList<>())
+                    .add(address);
+        }
+        final Map<ModelNode, ModelNode> current = new HashMap<>();
+        final Set<ModelNode> missing = new HashSet<>();
+        for (Map<ModelNode, Map<String, List<ModelNode>>> parents : depths.values()) {
+            final Operations.CompositeOperationBuilder builder = Operations.CompositeOperationBuilder.create();
+            final List<List<ModelNode>> steps = new ArrayList<>();
+            for (Map.Entry<ModelNode, Map<String, List<ModelNode>>> parent : parents.entrySet()) {
+                final boolean parentMissing = isMissing(parent.getKey(), missing);
+                for (Map.Entry<String, List<ModelNode>> type : parent.getValue().entrySet()) {
+                    if (parentMissing) {
+                        missing.addAll(type.getValue());
+                    } else if (type.getKey() == null) {
+                        final ModelNode op = Operations.createReadResourceOperation(parent.getKey());
+                        op.get("include-defaults").set(false);
+                        builder.addStep(op);
+                        steps.add(type.getValue());
+                    } else {
+                        final ModelNode op = Operations.createOperation("read-children-resources", parent.getKey());
+                        op.get(ClientConstants.CHILD_TYPE).set(type.getKey());
+                        op.get("include-defaults").set(false);
+                        builder.addStep(op);
+                        steps.add(type.getValue());
+                    }
+                }
+            }
+            if (steps.isEmpty()) {
+                continue;
+            }
+            final ModelNode composite = builder.build().getOperation();
+            final ModelNode result = client.execute(composite);
+            if (!Operations.isSuccessfulOutcome(result)) {
+                throw new OperationFailedException(composite, result);
+            }
+            final ModelNode stepResults = Operations.readResult(result);
+            for (int i = 0; i < steps.size(); i++) {
+                final ModelNode stepResult = Operations.readResult(stepResults.get("step-" + (i + 1)));
+                for (ModelNode address : steps.get(i)) {
+                    final List<Property> segments = address.asPropertyList();
+                    if (segments.isEmpty()) {
+                        current.put(address, stepResult);
+                        continue;
+                    }
+                    final String name = segments.get(segments.size() - 1).getValue().asString();
+                    if (stepResult.hasDefined(name)) {
+                        current.put(address, stepResult.get(name));
+                    } else {
+                        missing.add(address);
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    private static boolean isMissing(final ModelNode address, final Set<ModelNode> missing) {
+        // A resource is missing if it, or any of its parents, are known to be missing
+        ModelNode current = address;
+        while (depth(current) > 0) {
+            if (missing.contains(current)) {
+                return true;
+            }
+            current = parent(current);
+        }
+        return false;
+    }
+
+    private static ModelNode parent(final ModelNode address) {
+        final List<ModelNode> segments = address.asList();
+        final ModelNode parent = new ModelNode().setEmptyList();
+        for (int i = 0; i < segments.size() - 1; i++) {
+            parent.add(segments.get(i));
+        }
+        return parent;
+    }
+
+    private static int depth(final ModelNode address) {
+        return address.isDefined() ? address.asInt() : 0;
+    }
+
+    /**
+     * Compares the values allowing for the values to be of different types, e.g. a desired value of {@code "true"}
+     * and a current value of {@code true}.
+     */
+    static boolean isEqual(final ModelNode desired, final ModelNode current) {
+        if (desired.equals(current)) {
+            return true;
+        }
+        if (!desired.isDefined() || !current.isDefined()) {
+            return false;
+        }
+        final ModelType desiredType = desired.getType();
+        final ModelType currentType = current.getType();
+        if (desiredType == ModelType.OBJECT || desiredType == ModelType.PROPERTY || currentType == ModelType.OBJECT || currentType == ModelType.PROPERTY) {
+            if ((desiredType != ModelType.OBJECT && desiredType != ModelType.PROPERTY) || (currentType != ModelType.OBJECT && currentType != ModelType.PROPERTY)) {
+                return false;
+            }
+            final List<Property> desiredProperties = desired.asPropertyList();
+            final List<Property> currentProperties = current.asPropertyList();
+            if (desiredProperties.size() != currentProperties.size()) {
+                return false;
+            }
+            for (Property property : desiredProperties) {
+                if (!current.has(property.getName()) || !isEqual(property.getValue(), current.get(property.getName()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (desiredType == ModelType.LIST || currentType == ModelType.LIST) {
+            if (desiredType != currentType) {
+                return false;
+            }
+            final List<ModelNode> desiredValues = desired.asList();
+            final List<ModelNode> currentValues = current.asList();
+            if (desiredValues.size() != currentValues.size()) {
+                return false;
+            }
+            for (int i = 0; i < desiredValues.size(); i++) {
+                if (!isEqual(desiredValues.get(i), currentValues.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return desired.asString().equals(current.asString());
+    }
+
+    /**
+     * Finds the most severe {@code process-state} response header in the result. For a domain the headers of the
+     * servers affected are included in the results of the server groups.
+     */
+    static String processState(final ModelNode result) {
+        final List<String> states = new ArrayList<>();
+        collectProcessStates(result, states);
+        if (states.contains("restart-required")) {
+            return "restart-required";
+        }
+        if (states.contains("reload-required")) {
+            return "reload-required";
+        }
+        return states.isEmpty() ? null : states.get(0);
+    }
+
+    private static void collectProcessStates(final ModelNode node, final List<String> states) {
+        if (node.getType() == ModelType.OBJECT) {
+            if (node.hasDefined(ClientConstants.RESPONSE_HEADERS) && node.get(ClientConstants.RESPONSE_HEADERS).hasDefined("process-state")) {
+                states.add(node.get(ClientConstants.RESPONSE_HEADERS, "process-state").asString());
+            }
+            for (Property property : node.asPropertyList()) {
+                collectProcessStates(property.getValue(), states);
+            }
+        } else if (node.getType() == ModelType.LIST) {
+            for (ModelNode value : node.asList()) {
+                collectProcessStates(value, states);
+            }
+        } else if (node.getType() == ModelType.PROPERTY) {
+            collectProcessStates(node.asProperty().getValue(), states);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A server whose JVM can be profiled with Java Flight Recorder.
+ * <p>
+ * Recordings are controlled with the {@code jcmd} executable from the Java home the server was launched with. For a
+ * domain server each process, the process controller, host controller and each running server, is recorded.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public interface Recordable {
+
+    /**
+     * Starts a flight recording in each JVM of the server.
+     *
+     * @param settings the settings for the recording
+     *
+     * @throws IOException           if the recording could not be started
+     * @throws IllegalStateException if the server is not running or a recording is already in progress
+     */
+    void startRecording(RecordingSettings settings) throws IOException;
+
+    /**
+     * Dumps the current recording to the file. If the server consists of more than one process, as with a domain
+     * server, each process is dumped to a file named after the file with the pid of the process appended, e.g.
+     * {@code recording-1234.jfr}.
+     *
+     * @param file the file to dump the recording to
+     *
+     * @return the files the recording was dumped to
+     *
+     * @throws IOException           if the recording could not be dumped
+     * @throws IllegalStateException if no recording is in progress
+     */
+    List<Path> dumpRecording(Path file) throws IOException;
+
+    /**
+     * Stops the current recording. The recording is discarded unless a file name was set in the
+     * {@linkplain RecordingSettings#setFileName(Path) settings}.
+     *
+     * @throws IOException if the recording could not be stopped
+     */
+    void stopRecording() throws IOException;
+}
@@ -0,0 +1,197 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The settings used to start a Java Flight Recorder recording.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class RecordingSettings {
+    // The prefix of the JVM option which starts a recording at launch
+    static final String JAVA_OPTION = "-XX:StartFlightRecording";
+
+    private final String settings;
+    private String name;
+    private Duration maxAge;
+    private long maxSize;
+    private Path fileName;
+
+    private RecordingSettings(final String settings) {
+        this.settings = settings;
+        name = "wildfly-server-manager";
+        maxSize = -1L;
+    }
+
+    /**
+     * Creates settings using the JDK provided {@code default} settings which have a low overhead.
+     *
+     * @return the new settings
+     */
+    public static RecordingSettings defaults() {
+        return new RecordingSettings("default");
+    }
+
+    /**
+     * Creates settings using the JDK provided {@code profile} settings which gather more data with a higher overhead.
+     *
+     * @return the new settings
+     */
+    public static RecordingSettings profile() {
+        return new RecordingSettings("profile");
+    }
+
+    /**
+     * Creates settings using the settings file, a {@code .jfc} file, or the name of a settings file provided by the
+     * JDK.
+     *
+     * @param settings the path to the settings file or the name of a JDK provided settings file
+     *
+     * @return the new settings
+     */
+    public static RecordingSettings of(final String settings) {
+        return new RecordingSettings(settings);
+    }
+
+    /**
+     * Sets the name of the recording. The default is {@code wildfly-server-manager}.
+     *
+     * @param name the name of the recording
+     *
+     * @return these settings
+     */
+    public RecordingSettings setName(final String name) {
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * Sets the maximum age of the data kept in the recording.
+     *
+     * @param maxAge the maximum age or {@code null} for no limit
+     *
+     * @return these settings
+     */
+    public RecordingSettings setMaxAge(final Duration maxAge) {
+        this.maxAge = maxAge;
+        return this;
+    }
+
+    /**
+     * Sets the maximum size, in bytes, of the data kept in the recording.
+     *
+     * @param maxSize the maximum size or {@code -1} for no limit
+     *
+     * @return these settings
+     */
+    public RecordingSettings setMaxSize(final long maxSize) {
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    /**
+     * Sets the file the recording is written to when the recording is stopped or the JVM exits.
+     *
+     * @param fileName the file or {@code null} to discard the recording when stopped
+     *
+     * @return these settings
+     */
+    public RecordingSettings setFileName(final Path fileName) {
+        this.fileName = fileName;
+        return this;
+    }
+
+    /**
+     * The name of the recording.
+     *
+     * @return the name of the recording
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Creates the arguments for the {@code JFR.start} diagnostic command.
+     *
+     * @return the arguments
+     */
+    List<String> toArguments() {
+        return toArguments(fileName);
+    }
+
+    /**
+     * Creates the arguments for the {@code JFR.start} diagnostic command of one of several processes recorded with
+     * these settings. The file name, if set, is suffixed with the pid so each process writes its own file.
+     *
+     * @param pid the pid of the process
+     *
+     * @return the arguments
+     */
+    List<String> toArguments(final long pid) {
+        return toArguments(fileName == null ? null : withPid(fileName.toAbsolutePath(), pid));
+    }
+
+    /**
+     * Suffixes the name of the file, before its extension, with the pid.
+     *
+     * @param file the file
+     * @param pid  the pid to add
+     *
+     * @return the file with the pid added to its name
+     */
+    static Path withPid(final Path file, final long pid) {
+        final String fileName = file.getFileName().toString();
+        final int dot = fileName.lastIndexOf('.');
+        return file.resolveSibling(dot > 0 ? fileName.substring(0, dot) + '-' + pid + fileName.substring(dot) : fileName + '-' + pid);
+    }
+
+    private List<String> toArguments(final Path fileName) {
+        final List<String> result = new ArrayList<>();
+        result.add("name=" + name);
+        result.add("settings=" + settings);
+        if (maxAge != null) {
+            result.add("maxage=" + maxAge.getSeconds() + "s");
+        }
+        if (maxSize > 0L) {
+            result.add("maxsize=" + maxSize);
+        }
+        if (maxAge != null || maxSize > 0L) {
+            result.add("disk=true");
+        }
+        if (fileName != null) {
+            result.add("filename=" + fileName.toAbsolutePath());
+        }
+        return result;
+    }
+
+    /**
+     * Creates the {@code -XX:StartFlightRecording} JVM option used to start a recording when the JVM is launched.
+     *
+     * @return the JVM option
+     */
+    String toJavaOption() {
+        return JAVA_OPTION + '=' + String.join(",", toArguments());
+    }
+}
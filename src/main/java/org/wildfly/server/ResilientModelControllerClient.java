@@ -0,0 +1,292 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.Operation;
+import org.jboss.as.controller.client.OperationBuilder;
+import org.jboss.as.controller.client.OperationMessageHandler;
+import org.jboss.as.controller.client.helpers.ClientConstants;
+import org.jboss.as.controller.client.helpers.DelegatingModelControllerClient;
+import org.jboss.dmr.ModelNode;
+import org.jboss.logging.Logger;
+import org.jboss.threads.AsyncFuture;
+
+/**
+ * A client which applies a {@link ClientPolicy} to the synchronous {@code execute} methods of the delegate.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class ResilientModelControllerClient extends DelegatingModelControllerClient {
+    private static final Logger LOGGER = Logger.getLogger(ResilientModelControllerClient.class);
+
+    private final String name;
+    private final ModelControllerClient delegate;
+    private final ClientPolicy policy;
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * Creates a new client.
+     *
+     * @param name     the name of the server used in error messages
+     * @param delegate the client to execute operations with
+     * @param policy   the policy to apply
+     */
+    ResilientModelControllerClient(final String name, final ModelControllerClient delegate, final ClientPolicy policy) {
+        super(delegate);
+        this.name = name;
+        this.delegate = delegate;
+        this.policy = policy;
+        circuitBreaker = new CircuitBreaker();
+    }
+
+    /**
+     * Applies the policy to the client.
+     *
+     * @param name     the name of the server used in error messages
+     * @param delegate the client to execute operations with
+     * @param policy   the policy to apply or {@code null} if no policy should be applied
+     *
+     * @return the client with the policy applied or the delegate if there is no policy
+     */
+    static ModelControllerClient wrap(final String name, final ModelControllerClient delegate, final ClientPolicy policy) {
+        return policy == null ? delegate : new ResilientModelControllerClient(name, delegate, policy);
+    }
+
+    /**
+     * Returns the client without a policy applied.
+     *
+     * @param client the client which may have a policy applied
+     *
+     * @return the delegate of the client if it has a policy applied, otherwise the client
+     */
+    static ModelControllerClient unwrap(final ModelControllerClient client) {
+        return client instanceof ResilientModelControllerClient ? ((ResilientModelControllerClient) client).delegate : client;
+    }
+
+    @Override
+    public ModelNode execute(final ModelNode operation) throws IOException {
+        return execute(OperationBuilder.create(operation).build(), OperationMessageHandler.DISCARD);
+    }
+
+    @Override
+    public ModelNode execute(final Operation operation) throws IOException {
+        return execute(operation, OperationMessageHandler.DISCARD);
+    }
+
+    @Override
+    public ModelNode execute(final ModelNode operation, final OperationMessageHandler messageHandler) throws IOException {
+        return execute(OperationBuilder.create(operation).build(), messageHandler);
+    }
+
+    @Override
+    public ModelNode execute(final Operation operation, final OperationMessageHandler messageHandler) throws IOException {
+        final ModelNode op = operation.getOperation();
+        final Duration deadline = getDeadline(op);
+        final long end = (deadline == null ? 0L : System.nanoTime() + deadline.toNanos());
+        final boolean retryable = isReadOnly(op);
+        long backoff = policy.getRetryBackoff().toNanos();
+        int attempt = 0;
+        while (true) {
+            final boolean trial = circuitBreaker.acquire();
+            IOException failure = null;
+            AsyncFuture<ModelNode> future = null;
+            try {
+                future = super.executeAsync(operation, messageHandler);
+            } catch (RuntimeException e) {
+                // The connection is opened when the operation is sent and a failure to connect is wrapped
+                if (!(e.getCause() instanceof IOException)) {
+                    circuitBreaker.release(trial);
+                    throw e;
+                }
+                failure = (IOException) e.getCause();
+            }
+            if (future != null) {
+                try {
+                    final ModelNode result = (deadline == null ? future.get() : future.get(end - System.nanoTime(), TimeUnit.NANOSECONDS));
+                    circuitBreaker.success();
+                    return result;
+                } catch (TimeoutException e) {
+                    future.asyncCancel(true);
+                    circuitBreaker.failure(trial);
+                    throw new OperationTimeoutException(op, deadline);
+                } catch (InterruptedException e) {
+                    future.asyncCancel(true);
+                    circuitBreaker.release(trial);
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted executing " + op.get(ClientConstants.OP).asString());
+                } catch (ExecutionException e) {
+                    failure = (e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause()));
+                } catch (CancellationException e) {
+                    // The operation is cancelled if the channel is closed, e.g. while the server is reloading
+                    failure = new IOException(e);
+                }
+            }
+            // The server did not hang, but it did not respond either, so only a response closes the circuit
+            circuitBreaker.release(trial);
+            if (!retryable || attempt >= policy.getMaxRetries()
+                    || (deadline != null && System.nanoTime() + backoff - end >= 0L)) {
+                throw failure;
+            }
+            attempt++;
+            LOGGER.debugf(failure, "Retrying %s on %s in %d ms, attempt %d", op, name, TimeUnit.NANOSECONDS.toMillis(backoff), attempt);
+            try {
+                TimeUnit.NANOSECONDS.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted executing " + op.get(ClientConstants.OP).asString());
+            }
+            backoff <<= 1;
+        }
+    }
+
+    /**
+     * Allows operations again if they were being rejected. This should be invoked when a new server process is
+     * started.
+     */
+    void reset() {
+        circuitBreaker.success();
+    }
+
+
+
+    /**
+     * Returns the deadline of the operation. Operations with a timeout of their own are given their timeout in
+     * addition to the deadline of the policy. Blocking operations and operations which wait indefinitely are not
+     * bounded.
+     *
+     * @return the deadline or {@code null} if the operation is not bounded
+     */
+    private Duration getDeadline(final ModelNode op) {
+        final long timeout = operationTimeout(op);
+        if (timeout < 0L) {
+            return null;
+        }
+        return policy.getDeadline(op.get(ClientConstants.OP).asString()).plusSeconds(timeout);
+    }
+
+    /**
+     * Returns the timeout, in seconds, the operation waits for on the server.
+     *
+     * @return the timeout, {@code 0} if the operation has no timeout or {@code -1} if the operation may wait
+     * indefinitely
+     */
+    private static long operationTimeout(final ModelNode op) {
+        if (ClientConstants.COMPOSITE.equals(op.get(ClientConstants.OP).asString())) {
+            long total = 0L;
+            for (ModelNode step : op.get(ClientConstants.STEPS).asList()) {
+                final long timeout = operationTimeout(step);
+                if (timeout < 0L) {
+                    return -1L;
+                }
+                total += timeout;
+            }
+            return total;
+        }
+        if (op.hasDefined("blocking") && op.get("blocking").asBoolean()) {
+            return -1L;
+        }
+        if (op.hasDefined("timeout")) {
+            final long timeout = op.get("timeout").asLong();
+            return (timeout < 0L ? -1L : timeout);
+        }
+        return 0L;
+    }
+
+    private static boolean isReadOnly(final ModelNode op) {
+        final String operationName = op.get(ClientConstants.OP).asString();
+        if (ClientConstants.COMPOSITE.equals(operationName)) {
+            for (ModelNode step : op.get(ClientConstants.STEPS).asList()) {
+                if (!isReadOnly(step)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return operationName.startsWith("read-") || "query".equals(operationName) || "whoami".equals(operationName)
+                || "list-log-files".equals(operationName) || "resolve-expression".equals(operationName);
+    }
+
+    /**
+     * Rejects operations once the failure threshold of consecutive timeouts has been reached.
+     */
+    private class CircuitBreaker {
+        private int failures;
+        private boolean open;
+        private long openUntil;
+        private boolean trial;
+
+        /**
+         * Allows an operation through or rejects it if the circuit is open.
+         *
+         * @return {@code true} if the operation is the single operation allowed through to test the server
+         */
+        synchronized boolean acquire() throws CircuitOpenException {
+            if (open) {
+                if (trial || System.nanoTime() - openUntil < 0L) {
+                    throw new CircuitOpenException(String.format("Operations to %s are rejected after %d operations timed out", name, failures));
+                }
+                // Allow a single operation through to test the server
+                trial = true;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized void success() {
+            failures = 0;
+            open = false;
+            trial = false;
+        }
+
+        synchronized void failure(final boolean trial) {
+            failures++;
+            if (trial || failures >= policy.getFailureThreshold()) {
+                if (!open) {
+                    LOGGER.debugf("Rejecting operations to %s for %s after %d operations timed out", name, policy.getOpenDuration(), failures);
+                }
+                open = true;
+                if (trial) {
+                    this.trial = false;
+                }
+                openUntil = System.nanoTime() + policy.getOpenDuration().toNanos();
+            }
+        }
+
+        /**
+         * Invoked when an operation ends without a response or a timeout, leaving the state of the circuit as is.
+         *
+         * @param trial {@code true} if the operation was the single operation allowed through to test the server
+         */
+        synchronized void release(final boolean trial) {
+            if (trial) {
+                this.trial = false;
+            }
+        }
+    }
+}
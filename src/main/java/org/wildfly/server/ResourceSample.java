@@ -0,0 +1,117 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+/**
+ * A point in time sample of the resources used by a server process and all of its descendant processes.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public final class ResourceSample {
+    private final long timestamp;
+    private final long pid;
+    private final int processCount;
+    private final long cpuTime;
+    private final long rss;
+    private final int threads;
+    private final int fileDescriptors;
+
+    ResourceSample(final long timestamp, final long pid, final int processCount, final long cpuTime, final long rss,
+                   final int threads, final int fileDescriptors) {
+        this.timestamp = timestamp;
+        this.pid = pid;
+        this.processCount = processCount;
+        this.cpuTime = cpuTime;
+        this.rss = rss;
+        this.threads = threads;
+        this.fileDescriptors = fileDescriptors;
+    }
+
+    /**
+     * The time, in milliseconds since the epoch, the sample was taken.
+     *
+     * @return the time the sample was taken
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * The pid of the process launched for the server.
+     *
+     * @return the pid
+     */
+    public long getPid() {
+        return pid;
+    }
+
+    /**
+     * The number of processes included in the sample. This is the launched process plus all its descendants, e.g.
+     * for a domain the process controller, host controller and each server.
+     *
+     * @return the number of processes included in the sample
+     */
+    public int getProcessCount() {
+        return processCount;
+    }
+
+    /**
+     * The total user and system CPU time, in nanoseconds, consumed by the processes.
+     *
+     * @return the CPU time in nanoseconds
+     */
+    public long getCpuTime() {
+        return cpuTime;
+    }
+
+    /**
+     * The total resident set size, in bytes, of the processes.
+     *
+     * @return the resident set size in bytes
+     */
+    public long getRss() {
+        return rss;
+    }
+
+    /**
+     * The total number of threads of the processes.
+     *
+     * @return the number of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * The total number of open file descriptors of the processes.
+     *
+     * @return the number of open file descriptors
+     */
+    public int getFileDescriptors() {
+        return fileDescriptors;
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceSample[timestamp=" + timestamp + ", pid=" + pid + ", processCount=" + processCount +
+                ", cpuTime=" + cpuTime + ", rss=" + rss + ", threads=" + threads +
+                ", fileDescriptors=" + fileDescriptors + "]";
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+/**
+ * A listener notified each time a {@link ProcessResourceSampler} samples the resources of a server process.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+@FunctionalInterface
+public interface ResourceSampleListener {
+
+    /**
+     * Invoked on the sampler thread for each sample taken. Implementations should return quickly as they delay the
+     * sampling of the remaining servers.
+     *
+     * @param server the server the sample was taken for
+     * @param sample the sample
+     */
+    void sampled(Server server, ResourceSample sample);
+}
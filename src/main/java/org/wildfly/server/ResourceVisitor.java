@@ -0,0 +1,51 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import org.jboss.dmr.ModelNode;
+
+/**
+ * Receives the resources read by a {@link ModelWalker}.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+@FunctionalInterface
+public interface ResourceVisitor {
+
+    /**
+     * Invoked for each resource. The attributes are not retained by the walker once this returns.
+     *
+     * @param address    the address of the resource
+     * @param attributes the attributes of the resource, children are not included
+     *
+     * @return {@code true} if the children of the resource should be visited, otherwise {@code false}
+     */
+    boolean visit(ModelNode address, ModelNode attributes);
+
+    /**
+     * Invoked when a resource could not be read. The children of the resource are not visited. The default
+     * implementation does nothing.
+     *
+     * @param address            the address of the resource
+     * @param failureDescription the description of the failure
+     */
+    default void failed(final ModelNode address, final ModelNode failureDescription) {
+    }
+}
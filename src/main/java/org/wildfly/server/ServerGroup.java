@@ -19,6 +19,10 @@
 
 package org.wildfly.server;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+
 /**
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
  */
@@ -56,6 +60,39 @@ public interface ServerGroup {
      */
     void suspendServers(int timeout);
 
+    /**
+     * Scales the number of servers in this server group on the host to the count.
+     * <p>
+     * When scaling out, new server configurations named {@code <group>-<n>} are added with a single composite
+     * operation. Each new server gets a port offset which is not used by any other server on the host. Only the new
+     * servers are started, in parallel. When scaling in, servers added by scaling are removed first, highest index
+     * first. The servers are stopped in parallel and then removed with a single composite operation. A server must be
+     * stopped before its configuration can be removed.
+     * </p>
+     *
+     * @param count the number of servers this group should have on the host
+     * @param host  the host to scale the servers on
+     *
+     * @return the servers in this group on the host after scaling
+     *
+     * @throws RuntimeException if the servers could not be added, removed, started or stopped
+     */
+    Set<Server> scaleTo(int count, Host host);
+
+    /**
+     * Waits for the deployments to become healthy on each server in this server group which is not stopped. A
+     * deployment is healthy when its status is {@code OK} and the server has finished starting. Waiting stops as soon
+     * as a deployment has failed.
+     *
+     * @param names   the names of the deployments to wait for
+     * @param timeout the maximum time to wait
+     *
+     * @return the report of the status of each deployment on each server when waiting stopped
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    DeploymentReport awaitDeployments(Collection<String> names, Duration timeout) throws InterruptedException;
+
     /**
      * The name of the server group.
      *
@@ -23,19 +23,34 @@ import static org.jboss.as.controller.client.helpers.ClientConstants.CONTROLLER_
 import static org.jboss.as.controller.client.helpers.ClientConstants.CONTROLLER_PROCESS_STATE_STOPPING;
 
 import java.io.IOException;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.OperationMessageHandler;
+import org.jboss.as.controller.client.helpers.ClientConstants;
 import org.jboss.as.controller.client.helpers.Operations;
 import org.jboss.as.controller.client.helpers.domain.DomainClient;
 import org.jboss.as.controller.client.helpers.domain.ServerIdentity;
 import org.jboss.as.controller.client.helpers.domain.ServerStatus;
 import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.Property;
 import org.jboss.logging.Logger;
+import org.jboss.threads.AsyncFuture;
 import org.wildfly.core.launcher.ProcessHelper;
 
 /**
@@ -46,11 +61,36 @@ import org.wildfly.core.launcher.ProcessHelper;
 class ServerHelper {
     public static final ModelNode EMPTY_ADDRESS = new ModelNode().setEmptyList();
     private static final Logger LOGGER = Logger.getLogger(ServerHelper.class);
+    // The time, in milliseconds, between each poll when waiting for a condition
+    private static final long POLL_INTERVAL = 100L;
 
     static {
         EMPTY_ADDRESS.protect();
     }
 
+    /**
+     * Deletes the directory and all of its contents.
+     *
+     * @param dir the directory to delete
+     *
+     * @throws IOException if an error occurs deleting the directory
+     */
+    static void deleteRecursively(final Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(final Path dir, final IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
     /**
      * Validates the path is a valid WildFly directory by checking for a {@code jboss-modules.jar}.
      *
@@ -62,6 +102,47 @@ class ServerHelper {
         return Files.exists(path.resolve("jboss-modules.jar"));
     }
 
+    /**
+     * Sets a system property in the JVM options replacing any option which already sets the system property.
+     *
+     * @param options the JVM options
+     * @param name    the name of the system property
+     * @param value   the value of the system property
+     *
+     * @return a copy of the JVM options with the system property set
+     */
+    static List<String> setSystemProperty(final List<String> options, final String name, final Object value) {
+        final String prefix = "-D" + name + '=';
+        final List<String> result = new ArrayList<>(options.size() + 1);
+        for (String option : options) {
+            if (!option.startsWith(prefix) && !option.equals("-D" + name)) {
+                result.add(option);
+            }
+        }
+        result.add(prefix + value);
+        return result;
+    }
+
+    /**
+     * Adds a JVM option replacing any option which starts with the prefix.
+     *
+     * @param options the JVM options
+     * @param prefix  the prefix of the options to replace
+     * @param option  the option to add
+     *
+     * @return a copy of the JVM options with the option added
+     */
+    static List<String> setOption(final List<String> options, final String prefix, final String option) {
+        final List<String> result = new ArrayList<>(options.size() + 1);
+        for (String current : options) {
+            if (!current.startsWith(prefix)) {
+                result.add(current);
+            }
+        }
+        result.add(option);
+        return result;
+    }
+
     /**
      * Waits for each required server in a domain to be started. If the process has been destroyed or the timeout limit
      * is reached {@code false} is returned.
@@ -69,27 +150,14 @@ class ServerHelper {
      * @param process        the domain process
      * @param client         the domain client used to communicate with the server
      * @param startupTimeout the timeout, in seconds, to wait for all servers to start
+     * @param reachable      invoked the first time the management interface responds
      *
      * @return {@code true} if all severs were started within the timeout limit, otherwise {@code false}
      *
      * @throws InterruptedException if the interrupted while waiting for the servers to start
      */
-    static boolean waitForDomain(final Process process, final DomainClient client, final long startupTimeout) throws InterruptedException {
-        long timeout = startupTimeout * 1000;
-        final long sleep = 100;
-        while (timeout > 0) {
-            long before = System.currentTimeMillis();
-            if (isDomainRunning(client)) {
-                return true;
-            }
-            timeout -= (System.currentTimeMillis() - before);
-            if (ProcessHelper.processHasDied(process)) {
-                return false;
-            }
-            TimeUnit.MILLISECONDS.sleep(sleep);
-            timeout -= sleep;
-        }
-        return false;
+    static boolean waitForDomain(final Process process, final DomainClient client, final long startupTimeout, final Runnable reachable) throws InterruptedException {
+        return waitFor(process, TimeUnit.SECONDS.toNanos(startupTimeout), whenReachable(client, reachable, () -> isDomainRunning(client)));
     }
 
     /**
@@ -168,6 +236,23 @@ class ServerHelper {
         }
     }
 
+    /**
+     * Waits for a host controller to start. If the process has been destroyed or the timeout limit is reached
+     * {@code false} is returned.
+     *
+     * @param process        the process for the host controller
+     * @param client         the client used to communicate with the host controller
+     * @param startupTimeout the startup timeout in seconds
+     * @param reachable      invoked the first time the management interface responds
+     *
+     * @return {@code true} if the host controller was started within the timeout limit otherwise {@code false}
+     *
+     * @throws InterruptedException if the interrupted while waiting for the host controller to start
+     */
+    static boolean waitForHostController(final Process process, final DomainClient client, final long startupTimeout, final Runnable reachable) throws InterruptedException {
+        return waitFor(process, TimeUnit.SECONDS.toNanos(startupTimeout), whenReachable(client, reachable, () -> isHostControllerRunning(client)));
+    }
+
     /**
      * Waits for a standalone server to start. If the process has been destroyed or the timeout limit is reached
      * {@code false} is returned.
@@ -175,24 +260,261 @@ class ServerHelper {
      * @param process        the process for the standalone server
      * @param client         the client used to communicate with the server
      * @param startupTimeout the startup timeout in seconds
+     * @param reachable      invoked the first time the management interface responds
      *
      * @return {@code true} if the server was started within the timeout limit otherwise {@code false}
      *
      * @throws InterruptedException if the interrupted while waiting for the server to start
      */
-    static boolean waitForStandalone(final Process process, final ModelControllerClient client, final long startupTimeout) throws InterruptedException {
-        long timeout = startupTimeout * 1000;
-        final long sleep = 100L;
-        while (timeout > 0) {
-            long before = System.currentTimeMillis();
-            if (isStandaloneRunning(client))
-                return true;
-            timeout -= (System.currentTimeMillis() - before);
-            if (ProcessHelper.processHasDied(process)) {
+    static boolean waitForStandalone(final Process process, final ModelControllerClient client, final long startupTimeout, final Runnable reachable) throws InterruptedException {
+        return waitFor(process, TimeUnit.SECONDS.toNanos(startupTimeout), whenReachable(client, reachable, () -> isStandaloneRunning(client)));
+    }
+
+    /**
+     * Polls the condition until it's met, the process dies or the timeout is reached. An {@link IOException} thrown
+     * from the condition is treated as the condition not being met.
+     *
+     * @param process   the process to check or {@code null} if there is no process to check
+     * @param timeout   the maximum time, in nanoseconds, to wait
+     * @param condition the condition to poll
+     *
+     * @return {@code true} if the condition was met, otherwise {@code false}
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    static boolean waitFor(final Process process, final long timeout, final Condition condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + timeout;
+        while (true) {
+            try {
+                if (condition.test()) {
+                    return true;
+                }
+            } catch (IOException e) {
+                LOGGER.debug("Failed to check condition", e);
+            }
+            if (process != null && ProcessHelper.processHasDied(process)) {
                 return false;
             }
-            TimeUnit.MILLISECONDS.sleep(sleep);
-            timeout -= sleep;
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0L) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(POLL_INTERVAL)));
+        }
+    }
+
+    /**
+     * Creates a condition which, once the management interface is first reachable, invokes the callback and from
+     * then on checks the delegate condition.
+     */
+    private static Condition whenReachable(final ModelControllerClient client, final Runnable reachable, final Condition condition) {
+        return new Condition() {
+            private boolean notified;
+
+            @Override
+            public boolean test() throws IOException, InterruptedException {
+                if (!notified) {
+                    if (!isReachable(client)) {
+                        return false;
+                    }
+                    notified = true;
+                    reachable.run();
+                }
+                return condition.test();
+            }
+        };
+    }
+
+    /**
+     * Waits for the deployments on a standalone server to be healthy. Waiting stops early if a deployment fails.
+     *
+     * @param process    the process of the server
+     * @param client     the client used to communicate with the server
+     * @param serverName the name of the server used in the report
+     * @param names      the names of the deployments to wait for
+     * @param timeout    the maximum time, in nanoseconds, to wait
+     *
+     * @return the report of the last check
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    static DeploymentReport awaitStandaloneDeployments(final Process process, final ModelControllerClient client, final String serverName,
+                                                       final Collection<String> names, final long timeout) throws InterruptedException {
+        final ModelNode op = Operations.CompositeOperationBuilder.create()
+                .addStep(Operations.createReadAttributeOperation(EMPTY_ADDRESS, "server-state"))
+                .addStep(Operations.createReadAttributeOperation(Operations.createAddress(ClientConstants.DEPLOYMENT, "*"), "status"))
+                .build().getOperation();
+        final long deadline = System.nanoTime() + timeout;
+        final AtomicReference<DeploymentReport> report = new AtomicReference<>(emptyReport(serverName, names));
+        waitFor(process, timeout, () -> {
+            final ModelNode response = executeWithTimeout(client, op, Math.max(1L, deadline - System.nanoTime()));
+            if (response == null || !Operations.isSuccessfulOutcome(response)) {
+                return false;
+            }
+            final ModelNode result = Operations.readResult(response);
+            final Map<String, String> serverStates = new LinkedHashMap<>();
+            serverStates.put(serverName, Operations.readResult(result.get("step-1")).asString());
+            final Map<String, Map<String, DeploymentReport.Status>> statuses = new LinkedHashMap<>();
+            statuses.put(serverName, readDeploymentStatuses(Operations.readResult(result.get("step-2")), names, null));
+            return isComplete(report, new DeploymentReport(serverStates, statuses));
+        });
+        return report.get();
+    }
+
+    /**
+     * Waits for the deployments on each started server in a server group to be healthy. Waiting stops early if a
+     * deployment fails.
+     *
+     * @param client    the client used to communicate with the domain
+     * @param groupName the name of the server group
+     * @param names     the names of the deployments to wait for
+     * @param timeout   the maximum time, in nanoseconds, to wait
+     *
+     * @return the report of the last check
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    static DeploymentReport awaitDomainDeployments(final DomainClient client, final String groupName, final Collection<String> names,
+                                                   final long timeout) throws InterruptedException {
+        final ModelNode serverConfigs = Operations.createAddress(ClientConstants.HOST, "*", "server-config", "*");
+        final ModelNode servers = Operations.createAddress(ClientConstants.HOST, "*", "server", "*");
+        final ModelNode deployments = Operations.createAddress(ClientConstants.HOST, "*", "server", "*", ClientConstants.DEPLOYMENT, "*");
+        final ModelNode op = Operations.CompositeOperationBuilder.create()
+                .addStep(Operations.createReadAttributeOperation(serverConfigs, "group"))
+                .addStep(Operations.createReadAttributeOperation(serverConfigs, "status"))
+                .addStep(Operations.createReadAttributeOperation(servers, "server-state"))
+                .addStep(Operations.createReadAttributeOperation(deployments, "status"))
+                .build().getOperation();
+        final long deadline = System.nanoTime() + timeout;
+        final AtomicReference<DeploymentReport> report = new AtomicReference<>(emptyReport(null, names));
+        waitFor(null, timeout, () -> {
+            final ModelNode response = executeWithTimeout(client, op, Math.max(1L, deadline - System.nanoTime()));
+            if (response == null || !Operations.isSuccessfulOutcome(response)) {
+                return false;
+            }
+            final ModelNode result = Operations.readResult(response);
+            // Determine the servers in the group which are not stopped
+            final Map<String, String> serverStates = new LinkedHashMap<>();
+            final Map<String, String> configStatuses = readServerValues(Operations.readResult(result.get("step-2")), "server-config");
+            for (Map.Entry<String, String> entry : readServerValues(Operations.readResult(result.get("step-1")), "server-config").entrySet()) {
+                final String status = configStatuses.get(entry.getKey());
+                if (groupName.equals(entry.getValue()) && !"STOPPED".equals(status) && !"DISABLED".equals(status)) {
+                    serverStates.put(entry.getKey(), status == null ? null : status.toLowerCase(Locale.ROOT));
+                }
+            }
+            // Use the state of the running server if available
+            for (Map.Entry<String, String> entry : readServerValues(Operations.readResult(result.get("step-3")), "server").entrySet()) {
+                if (serverStates.containsKey(entry.getKey())) {
+                    serverStates.put(entry.getKey(), entry.getValue());
+                }
+            }
+            final ModelNode deploymentResults = Operations.readResult(result.get("step-4"));
+            final Map<String, Map<String, DeploymentReport.Status>> statuses = new LinkedHashMap<>();
+            for (String serverName : serverStates.keySet()) {
+                statuses.put(serverName, readDeploymentStatuses(deploymentResults, names, serverName));
+            }
+            return isComplete(report, new DeploymentReport(serverStates, statuses));
+        });
+        return report.get();
+    }
+
+    static boolean isRunningState(final String state) {
+        return ClientConstants.CONTROLLER_PROCESS_STATE_RUNNING.equals(state)
+                || ClientConstants.CONTROLLER_PROCESS_STATE_RELOAD_REQUIRED.equals(state)
+                || ClientConstants.CONTROLLER_PROCESS_STATE_RESTART_REQUIRED.equals(state);
+    }
+
+    private static boolean isComplete(final AtomicReference<DeploymentReport> reference, final DeploymentReport report) {
+        reference.set(report);
+        return report.isSuccessful() || report.hasFailures();
+    }
+
+    private static DeploymentReport emptyReport(final String serverName, final Collection<String> names) {
+        final Map<String, String> serverStates = new LinkedHashMap<>();
+        final Map<String, Map<String, DeploymentReport.Status>> statuses = new LinkedHashMap<>();
+        if (serverName != null) {
+            serverStates.put(serverName, null);
+            statuses.put(serverName, readDeploymentStatuses(new ModelNode().setEmptyList(), names, null));
+        }
+        return new DeploymentReport(serverStates, statuses);
+    }
+
+    /**
+     * Reads the status of each deployment from the result of a wildcard {@code read-attribute} operation. Deployments
+     * not found are {@link DeploymentReport.Status#MISSING missing}.
+     *
+     * @param results    the results of the wildcard operation
+     * @param names      the names of the deployments
+     * @param serverName the {@code host/server} name to filter the results on or {@code null} for a standalone server
+     *
+     * @return the status of each deployment
+     */
+    private static Map<String, DeploymentReport.Status> readDeploymentStatuses(final ModelNode results, final Collection<String> names,
+                                                                                final String serverName) {
+        final Map<String, DeploymentReport.Status> statuses = new LinkedHashMap<>();
+        for (String name : names) {
+            statuses.put(name, DeploymentReport.Status.MISSING);
+        }
+        for (ModelNode entry : results.asList()) {
+            if (!Operations.isSuccessfulOutcome(entry)) {
+                continue;
+            }
+            final Map<String, String> address = toMap(entry.get(ClientConstants.ADDRESS));
+            if (serverName != null && !serverName.equals(address.get(ClientConstants.HOST) + '/' + address.get("server"))) {
+                continue;
+            }
+            final String name = address.get(ClientConstants.DEPLOYMENT);
+            if (statuses.containsKey(name)) {
+                final ModelNode status = Operations.readResult(entry);
+                try {
+                    statuses.put(name, status.isDefined() ? DeploymentReport.Status.valueOf(status.asString()) : DeploymentReport.Status.UNDEFINED);
+                } catch (IllegalArgumentException e) {
+                    statuses.put(name, DeploymentReport.Status.UNDEFINED);
+                }
+            }
+        }
+        return statuses;
+    }
+
+    /**
+     * Reads the values from the result of a wildcard {@code read-attribute} operation on a server resource in a
+     * domain, keyed by the host and server name.
+     */
+    private static Map<String, String> readServerValues(final ModelNode results, final String serverKey) {
+        final Map<String, String> values = new LinkedHashMap<>();
+        for (ModelNode entry : results.asList()) {
+            if (Operations.isSuccessfulOutcome(entry)) {
+                final Map<String, String> address = toMap(entry.get(ClientConstants.ADDRESS));
+                final ModelNode value = Operations.readResult(entry);
+                values.put(address.get(ClientConstants.HOST) + '/' + address.get(serverKey), value.isDefined() ? value.asString() : null);
+            }
+        }
+        return values;
+    }
+
+    private static Map<String, String> toMap(final ModelNode address) {
+        final Map<String, String> result = new LinkedHashMap<>();
+        if (address.isDefined()) {
+            for (Property property : address.asPropertyList()) {
+                result.put(property.getName(), property.getValue().asString());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether the management interface responds to an operation. The outcome of the operation is ignored.
+     *
+     * @param client the client used to communicate with the server
+     *
+     * @return {@code true} if a response was received, otherwise {@code false}
+     */
+    private static boolean isReachable(final ModelControllerClient client) {
+        try {
+            client.execute(Operations.createReadAttributeOperation(EMPTY_ADDRESS, "process-type"));
+            return true;
+        } catch (RuntimeException | IOException e) {
+            LOGGER.tracef(e, "Management interface is not reachable");
         }
         return false;
     }
@@ -247,6 +569,182 @@ class ServerHelper {
         }
     }
 
+    /**
+     * Executes the operation waiting at most the timeout for the response. If the timeout is reached the operation is
+     * cancelled.
+     *
+     * @param client  the client used to execute the operation
+     * @param op      the operation to execute
+     * @param timeout the maximum time, in nanoseconds, to wait for the response
+     *
+     * @return the response or {@code null} if the timeout was reached
+     *
+     * @throws IOException          if an error occurs executing the operation
+     * @throws InterruptedException if interrupted while waiting for the response
+     */
+    static ModelNode executeWithTimeout(final ModelControllerClient client, final ModelNode op, final long timeout) throws IOException, InterruptedException {
+        final AsyncFuture<ModelNode> future = client.executeAsync(op, OperationMessageHandler.DISCARD);
+        try {
+            return future.get(Math.max(timeout, 0L), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.asyncCancel(true);
+            LOGGER.debugf("Operation %s did not complete within %d ms", op, TimeUnit.NANOSECONDS.toMillis(timeout));
+            return null;
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Suspends a standalone server. The server may not be fully suspended when this returns.
+     *
+     * @param client  the client used to execute the operation
+     * @param timeout the maximum time, in nanoseconds, to wait for the server to suspend
+     *
+     * @throws IOException          if an error occurs executing the operation
+     * @throws InterruptedException if interrupted while waiting for the response
+     */
+    static void suspendStandalone(final ModelControllerClient client, final long timeout) throws IOException, InterruptedException {
+        final ModelNode op = Operations.createOperation("suspend");
+        op.get("timeout").set(toSeconds(timeout));
+        final ModelNode response = executeWithTimeout(client, op, timeout);
+        if (response != null && !Operations.isSuccessfulOutcome(response)) {
+            LOGGER.debugf("Failed to execute %s: %s", op, Operations.getFailureDescription(response));
+        }
+    }
+
+    /**
+     * Checks whether a standalone server is suspended.
+     *
+     * @param client  the client used to query the server
+     * @param timeout the maximum time, in nanoseconds, to wait for the response
+     *
+     * @return {@code true} if the server is suspended, otherwise {@code false}
+     *
+     * @throws IOException          if an error occurs executing the operation
+     * @throws InterruptedException if interrupted while waiting for the response
+     */
+    static boolean isStandaloneSuspended(final ModelControllerClient client, final long timeout) throws IOException, InterruptedException {
+        final ModelNode response = executeWithTimeout(client, Operations.createReadAttributeOperation(EMPTY_ADDRESS, "suspend-state"), timeout);
+        return response != null && Operations.isSuccessfulOutcome(response)
+                && "SUSPENDED".equals(Operations.readResult(response).asString());
+    }
+
+    /**
+     * Executes the {@code shutdown} operation on a standalone server. This does not wait for the process to exit.
+     *
+     * @param client  the client used to execute the operation
+     * @param timeout the maximum time, in nanoseconds, the server has to shutdown gracefully and to wait for the
+     *                response
+     *
+     * @throws IOException          if an error occurs executing the operation
+     * @throws InterruptedException if interrupted while waiting for the response
+     */
+    static void shutdownStandalone(final ModelControllerClient client, final long timeout) throws IOException, InterruptedException {
+        final ModelNode op = Operations.createOperation("shutdown");
+        op.get("timeout").set(toSeconds(timeout));
+        final ModelNode response = executeWithTimeout(client, op, timeout);
+        if (response != null && !Operations.isSuccessfulOutcome(response)) {
+            LOGGER.debugf("Failed to execute %s: %s", op, Operations.getFailureDescription(response));
+        }
+    }
+
+    /**
+     * Suspends all the servers in a domain. The servers may not be fully suspended when this returns.
+     *
+     * @param client  the client used to execute the operation
+     * @param timeout the maximum time, in nanoseconds, to wait for the servers to suspend
+     *
+     * @throws IOException          if an error occurs executing the operation
+     * @throws InterruptedException if interrupted while waiting for the response
+     */
+    static void suspendDomain(final DomainClient client, final long timeout) throws IOException, InterruptedException {
+        final ModelNode op = Operations.createOperation("suspend-servers");
+        op.get("timeout").set(toSeconds(timeout));
+        final ModelNode response = executeWithTimeout(client, op, timeout);
+        if (response != null && !Operations.isSuccessfulOutcome(response)) {
+            LOGGER.debugf("Failed to execute %s: %s", op, Operations.getFailureDescription(response));
+        }
+    }
+
+    /**
+     * Checks whether all the running servers in a domain are suspended.
+     *
+     * @param client  the client used to query the servers
+     * @param timeout the maximum time, in nanoseconds, to wait for the response
+     *
+     * @return {@code true} if all running servers are suspended, otherwise {@code false}
+     *
+     * @throws IOException          if an error occurs executing the operation
+     * @throws InterruptedException if interrupted while waiting for the response
+     */
+    static boolean isDomainSuspended(final DomainClient client, final long timeout) throws IOException, InterruptedException {
+        final ModelNode address = Operations.createAddress("host", "*", "server", "*");
+        final ModelNode response = executeWithTimeout(client, Operations.createReadAttributeOperation(address, "suspend-state"), timeout);
+        if (response == null || !Operations.isSuccessfulOutcome(response)) {
+            return false;
+        }
+        for (ModelNode server : Operations.readResult(response).asList()) {
+            if (Operations.isSuccessfulOutcome(server) && !"SUSPENDED".equals(Operations.readResult(server).asString())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Shuts down the host controller the client is connected to, along with the servers on the host.
+     *
+     * @param client  the client connected to the host controller
+     * @param timeout the maximum time, in nanoseconds, to wait for a response
+     *
+     * @throws IOException          if an error occurs communicating with the host controller
+     * @throws InterruptedException if interrupted while waiting for a response
+     */
+    static void shutdownHost(final DomainClient client, final long timeout) throws IOException, InterruptedException {
+        final ModelNode op = Operations.createOperation("shutdown", determineHostAddress(client));
+        final ModelNode response = executeWithTimeout(client, op, timeout);
+        if (response != null && !Operations.isSuccessfulOutcome(response)) {
+            LOGGER.debugf("Failed to execute %s: %s", op, Operations.getFailureDescription(response));
+        }
+    }
+
+    /**
+     * Stops all the servers in a domain then executes the {@code shutdown} operation on the host controller. This
+     * does not wait for the process to exit.
+     *
+     * @param client  the client used to execute the operations
+     * @param timeout the maximum time, in nanoseconds, the servers have to stop gracefully and to wait for the
+     *                responses
+     *
+     * @throws IOException          if an error occurs executing the operations
+     * @throws InterruptedException if interrupted while waiting for the responses
+     */
+    static void shutdownDomain(final DomainClient client, final long timeout) throws IOException, InterruptedException {
+        final long deadline = System.nanoTime() + timeout;
+        final ModelNode hostAddress = determineHostAddress(client);
+        ModelNode op = Operations.createOperation("stop-servers");
+        op.get("blocking").set(true);
+        op.get("timeout").set(toSeconds(timeout));
+        ModelNode response = executeWithTimeout(client, op, timeout);
+        if (response != null && !Operations.isSuccessfulOutcome(response)) {
+            LOGGER.debugf("Failed to execute %s: %s", op, Operations.getFailureDescription(response));
+        }
+        op = Operations.createOperation("shutdown", hostAddress);
+        response = executeWithTimeout(client, op, deadline - System.nanoTime());
+        if (response != null && !Operations.isSuccessfulOutcome(response)) {
+            LOGGER.debugf("Failed to execute %s: %s", op, Operations.getFailureDescription(response));
+        }
+    }
+
+    private static int toSeconds(final long nanos) {
+        return (int) Math.max(0L, TimeUnit.NANOSECONDS.toSeconds(nanos));
+    }
+
     private static boolean isDomainRunning(final DomainClient client, boolean shutdown) {
         final Map<ServerIdentity, ServerStatus> servers = new HashMap<>();
         try {
@@ -286,4 +784,21 @@ class ServerHelper {
         }
         return false;
     }
+
+    /**
+     * A condition polled by {@link #waitFor(Process, long, Condition)}.
+     */
+    @FunctionalInterface
+    interface Condition {
+
+        /**
+         * Tests whether the condition has been met.
+         *
+         * @return {@code true} if the condition has been met, otherwise {@code false}
+         *
+         * @throws IOException          if an error occurs communicating with the server
+         * @throws InterruptedException if interrupted while testing the condition
+         */
+        boolean test() throws IOException, InterruptedException;
+    }
 }
@@ -0,0 +1,125 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+/**
+ * An event fired when a server transitions through its lifecycle.
+ * <p>
+ * The {@linkplain #getTimestamp() timestamp} is taken from {@link System#nanoTime()} when the transition happened,
+ * not when the event was delivered. The difference between the timestamps of two events for the same server, for
+ * example {@link Type#STARTING} and {@link Type#STARTED}, is the time the transition took.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public final class ServerLifecycleEvent {
+
+    /**
+     * The type of the lifecycle event.
+     */
+    public enum Type {
+        /**
+         * The server is about to be started.
+         */
+        STARTING,
+        /**
+         * The process for the server has been launched.
+         */
+        PROCESS_SPAWNED,
+        /**
+         * The management interface of the server responded for the first time.
+         */
+        MANAGEMENT_REACHABLE,
+        /**
+         * The server has been started.
+         */
+        STARTED,
+        /**
+         * The server is being reloaded.
+         */
+        RELOADING,
+        /**
+         * The server is about to be stopped.
+         */
+        STOPPING,
+        /**
+         * The server has been stopped.
+         */
+        STOPPED,
+        /**
+         * The process for the server exited without being stopped.
+         */
+        CRASHED,
+    }
+
+    private final Type type;
+    private final String serverName;
+    private final Server server;
+    private final long timestamp;
+
+    ServerLifecycleEvent(final Type type, final String serverName, final Server server, final long timestamp) {
+        this.type = type;
+        this.serverName = serverName;
+        this.server = server;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * The type of the event.
+     *
+     * @return the event type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * The name identifying the server. For servers in a domain the name is prefixed with the name of the domain and
+     * host, for server groups the name is prefixed with the name of the domain.
+     *
+     * @return the name of the server
+     */
+    public String getServerName() {
+        return serverName;
+    }
+
+    /**
+     * The server the event was fired for.
+     *
+     * @return the server or {@code null} if the event was fired for a {@link ServerGroup}
+     */
+    public Server getServer() {
+        return server;
+    }
+
+    /**
+     * The value of {@link System#nanoTime()} when the event occurred.
+     *
+     * @return the timestamp in nanoseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "ServerLifecycleEvent[type=" + type + ", serverName=" + serverName + ", timestamp=" + timestamp + "]";
+    }
+}
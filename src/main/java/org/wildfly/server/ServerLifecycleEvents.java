@@ -0,0 +1,108 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.util.Queue;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Delivers {@linkplain ServerLifecycleEvent lifecycle events} to the registered
+ * {@linkplain ServerLifecycleListener listeners}.
+ * <p>
+ * Events are added to a lock-free queue by the thread changing the state of the server and delivered by a single
+ * dispatcher thread. Listeners defined as a {@link ServiceLoader service} are registered when this class is
+ * initialized.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public final class ServerLifecycleEvents {
+    private static final Logger LOGGER = Logger.getLogger(ServerLifecycleEvents.class);
+    private static final CopyOnWriteArrayList<ServerLifecycleListener> LISTENERS = new CopyOnWriteArrayList<>();
+    private static final Queue<ServerLifecycleEvent> EVENTS = new ConcurrentLinkedQueue<>();
+    private static final AtomicBoolean STARTED = new AtomicBoolean();
+    private static final Thread DISPATCHER;
+
+    static {
+        for (ServerLifecycleListener listener : ServiceLoader.load(ServerLifecycleListener.class, ServerLifecycleEvents.class.getClassLoader())) {
+            LISTENERS.add(listener);
+        }
+        DISPATCHER = new Thread(ServerLifecycleEvents::dispatch);
+        DISPATCHER.setDaemon(true);
+        DISPATCHER.setName("WildFly-Lifecycle-Dispatcher");
+    }
+
+    private ServerLifecycleEvents() {
+    }
+
+    /**
+     * Adds a listener to be notified of lifecycle events.
+     *
+     * @param listener the listener to add
+     */
+    public static void addListener(final ServerLifecycleListener listener) {
+        LISTENERS.addIfAbsent(listener);
+    }
+
+    /**
+     * Removes a listener. Events already queued may still be delivered to the listener.
+     *
+     * @param listener the listener to remove
+     */
+    public static void removeListener(final ServerLifecycleListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    static void fire(final ServerLifecycleEvent.Type type, final String serverName, final Server server) {
+        final long timestamp = System.nanoTime();
+        if (LISTENERS.isEmpty()) {
+            return;
+        }
+        EVENTS.add(new ServerLifecycleEvent(type, serverName, server, timestamp));
+        if (STARTED.compareAndSet(false, true)) {
+            DISPATCHER.start();
+        } else {
+            LockSupport.unpark(DISPATCHER);
+        }
+    }
+
+    private static void dispatch() {
+        while (true) {
+            final ServerLifecycleEvent event = EVENTS.poll();
+            if (event == null) {
+                LockSupport.park(ServerLifecycleEvents.class);
+                continue;
+            }
+            for (ServerLifecycleListener listener : LISTENERS) {
+                try {
+                    listener.onEvent(event);
+                } catch (Throwable t) {
+                    LOGGER.debugf(t, "Listener %s failed to handle event %s", listener, event);
+                }
+            }
+        }
+    }
+}
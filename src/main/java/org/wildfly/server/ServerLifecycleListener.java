@@ -0,0 +1,41 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+/**
+ * A listener notified of {@linkplain ServerLifecycleEvent lifecycle events} for each server.
+ * <p>
+ * Listeners can be registered with {@link ServerLifecycleEvents#addListener(ServerLifecycleListener)} or as a
+ * service in {@code META-INF/services/org.wildfly.server.ServerLifecycleListener}. Events are delivered in order
+ * on a single dispatcher thread, so a listener should not block for long as it delays delivery to other listeners.
+ * It does not delay the lifecycle of the server.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public interface ServerLifecycleListener {
+
+    /**
+     * Invoked when a lifecycle event occurs.
+     *
+     * @param event the event
+     */
+    void onEvent(ServerLifecycleEvent event);
+}
@@ -0,0 +1,205 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.logging.Logger;
+
+/**
+ * A registry of each server whose process has been launched by this library in this JVM.
+ * <p>
+ * Servers are registered when their process is launched and removed when they are stopped. A JVM shutdown hook is
+ * registered the first time a server is launched which {@linkplain #stopAll(Duration) stops} any servers still
+ * running so no server process outlives this JVM.
+ * </p>
+ * <p>
+ * The processes of the registered servers are also watched so a {@link ServerLifecycleEvent.Type#CRASHED} event
+ * can be fired when a process exits without the server being stopped.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public final class ServerRegistry {
+    private static final Logger LOGGER = Logger.getLogger(ServerRegistry.class);
+    private static final Set<AbstractServer> SERVERS = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private static final AtomicBoolean HOOK_INSTALLED = new AtomicBoolean();
+    // The interval, in milliseconds, between checks that the processes are still alive
+    private static final long WATCH_INTERVAL = 250L;
+    // The time, in nanoseconds, a stop may take beyond its timeout to terminate and kill the process
+    private static final long STOP_GRACE_PERIOD = TimeUnit.SECONDS.toNanos(30L);
+    private static volatile Duration shutdownHookTimeout = Duration.ofSeconds(10L);
+
+    private ServerRegistry() {
+    }
+
+    /**
+     * Returns the servers which are currently running.
+     *
+     * @return the running servers
+     */
+    public static Set<Server> getServers() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(SERVERS));
+    }
+
+    /**
+     * Sets the timeout passed to {@link #stopAll(Duration)} from the JVM shutdown hook. The default is 10 seconds.
+     *
+     * @param timeout the timeout, a zero timeout kills the servers without attempting a graceful shutdown
+     */
+    public static void setShutdownHookTimeout(final Duration timeout) {
+        shutdownHookTimeout = timeout;
+    }
+
+    /**
+     * Stops all the running servers concurrently. Each server is stopped with {@link Killable#stop(Duration)}.
+     *
+     * @param timeout the timeout for each server to stop gracefully, a zero timeout kills the servers without
+     *                attempting a graceful shutdown
+     *
+     * @return the phase each server was stopped in
+     */
+    public static Map<Server, StopPhase> stopAll(final Duration timeout) {
+        return stop(SERVERS, timeout);
+    }
+
+    /**
+     * Stops the servers concurrently with {@link Killable#stop(Duration)}. If the timeout is zero, or negative, the
+     * servers are killed instead. A server which has not stopped 30 seconds after the timeout is killed.
+     *
+     * @param toStop  the servers to stop
+     * @param timeout the timeout for each server to stop gracefully
+     *
+     * @return the phase each server was stopped in
+     */
+    static Map<Server, StopPhase> stop(final Collection<? extends AbstractServer> toStop, final Duration timeout) {
+        final List<AbstractServer> servers = new ArrayList<>(toStop);
+        final Map<Server, StopPhase> result = new LinkedHashMap<>();
+        if (servers.isEmpty()) {
+            return result;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(servers.size(), r -> {
+            final Thread t = new Thread(r);
+            t.setDaemon(true);
+            t.setName("WildFly-Server-Stop");
+            return t;
+        });
+        try {
+            final boolean kill = timeout.isZero() || timeout.isNegative();
+            final Map<AbstractServer, Future<StopPhase>> futures = new LinkedHashMap<>();
+            for (AbstractServer server : servers) {
+                futures.put(server, executor.submit(() -> kill ? server.killProcess() : server.stop(timeout)));
+            }
+            // A stop waits for the monitor of the server, which a stalled stop or start may never release
+            final long deadline = System.nanoTime() + (kill ? 0L : timeout.toNanos()) + STOP_GRACE_PERIOD;
+            boolean interrupted = false;
+            for (Map.Entry<AbstractServer, Future<StopPhase>> entry : futures.entrySet()) {
+                final AbstractServer server = entry.getKey();
+                try {
+                    result.put(server, entry.getValue().get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+                } catch (TimeoutException e) {
+                    LOGGER.debugf("Server %s did not stop in time, killing the process", server);
+                    server.killProcess();
+                    result.put(server, StopPhase.KILL);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    server.killProcess();
+                    result.put(server, StopPhase.KILL);
+                } catch (ExecutionException e) {
+                    LOGGER.debugf(e, "Failed to stop server %s", server);
+                    server.killProcess();
+                    result.put(server, StopPhase.KILL);
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return result;
+    }
+
+    /**
+     * Forcibly kills all the running servers concurrently and waits for the processes to exit. The killed servers
+     * are stopped as if {@linkplain Server#stop() stopped}, releasing their resources and removing them from the
+     * registry.
+     */
+    public static void killAll() {
+        stop(SERVERS, Duration.ZERO);
+    }
+
+    static void register(final AbstractServer server) {
+        if (HOOK_INSTALLED.compareAndSet(false, true)) {
+            final Thread hook = new Thread(ServerRegistry::shutdown);
+            hook.setName("WildFly-Server-Shutdown");
+            Runtime.getRuntime().addShutdownHook(hook);
+            final ScheduledExecutorService watcher = Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread t = new Thread(r);
+                t.setDaemon(true);
+                t.setName("WildFly-Process-Watcher");
+                return t;
+            });
+            watcher.scheduleWithFixedDelay(ServerRegistry::checkProcesses, WATCH_INTERVAL, WATCH_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+        SERVERS.add(server);
+    }
+
+    static void unregister(final AbstractServer server) {
+        SERVERS.remove(server);
+    }
+
+    private static void checkProcesses() {
+        for (AbstractServer server : SERVERS) {
+            server.checkProcess();
+        }
+    }
+
+    private static void shutdown() {
+        if (SERVERS.isEmpty()) {
+            return;
+        }
+        final Duration timeout = shutdownHookTimeout;
+        if (timeout == null || timeout.isZero() || timeout.isNegative()) {
+            killAll();
+        } else {
+            stopAll(timeout);
+            // Ensure nothing was left behind
+            killAll();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.helpers.domain.DomainClient;
+import org.jboss.logging.Logger;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.wildfly.core.launcher.DomainCommandBuilder;
+
+/**
+ * A slave host controller launched as part of a local multi-host domain.
+ * <p>
+ * Each slave host controller has its own base directory. The host configuration is generated from the
+ * {@code host-slave.xml} of the master with the name of the host set, no servers defined and the connection to the
+ * domain controller authenticated as a local user.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class SlaveHostController extends AbstractServer {
+    private static final Logger LOGGER = Logger.getLogger(SlaveHostController.class);
+    static final String HOST_CONFIG = "host-slave.xml";
+    // The time, in seconds, to wait for a response to the shutdown operation
+    private static final long SHUTDOWN_TIMEOUT = 10L;
+
+    private final DomainClient domainClient;
+
+    SlaveHostController(final String name, final DomainCommandBuilder commandBuilder, final ModelControllerClient client, final OutputStream stdout,
+                        final Diagnostics diagnostics) {
+        super(name, commandBuilder, client, stdout, diagnostics);
+        domainClient = DomainClient.Factory.create(this.client);
+    }
+
+    /**
+     * Creates the base directory for a slave host controller. The configuration files, other than the host
+     * configuration files, are copied from the configuration directory of the master.
+     *
+     * @param baseDir         the base directory to create
+     * @param masterConfigDir the configuration directory of the master
+     * @param hostName        the name of the slave host
+     *
+     * @throws IOException if an error occurs creating the directory
+     */
+    static void createBaseDirectory(final Path baseDir, final Path masterConfigDir, final String hostName) throws IOException {
+        final Path configDir = baseDir.resolve("configuration");
+        Files.createDirectories(configDir);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(masterConfigDir)) {
+            for (Path file : files) {
+                final String fileName = file.getFileName().toString();
+                if (Files.isRegularFile(file) && !(fileName.startsWith("host") && fileName.endsWith(".xml"))) {
+                    Files.copy(file, configDir.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+        writeHostConfiguration(masterConfigDir.resolve(HOST_CONFIG), configDir.resolve(HOST_CONFIG), hostName);
+    }
+
+    private static void writeHostConfiguration(final Path template, final Path target, final String hostName) throws IOException {
+        try {
+            final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            final Document document = factory.newDocumentBuilder().parse(template.toFile());
+            final Element root = document.getDocumentElement();
+            root.setAttribute("name", hostName);
+            for (Node child = root.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if ("domain-controller".equals(child.getLocalName())) {
+                    // Authenticate with the domain controller as a local user rather than a user named after the host
+                    final NodeList remotes = ((Element) child).getElementsByTagNameNS("*", "remote");
+                    for (int i = 0; i < remotes.getLength(); i++) {
+                        ((Element) remotes.item(i)).removeAttribute("security-realm");
+                    }
+                } else if ("servers".equals(child.getLocalName())) {
+                    while (child.hasChildNodes()) {
+                        child.removeChild(child.getFirstChild());
+                    }
+                }
+            }
+            final Transformer transformer = TransformerFactory.newInstance().newTransformer();
+            transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+            transformer.transform(new DOMSource(document), new StreamResult(target.toFile()));
+        } catch (Exception e) {
+            throw new IOException("Failed to write the host configuration " + target, e);
+        }
+    }
+
+    @Override
+    protected void stopServer() {
+        try {
+            ServerHelper.shutdownHost(domainClient, TimeUnit.SECONDS.toNanos(SHUTDOWN_TIMEOUT));
+        } catch (IOException e) {
+            LOGGER.debugf(e, "Failed to shutdown host %s", getName());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    protected void suspendServer(final long timeout) {
+        // Slave hosts are launched without servers, there is nothing to suspend
+    }
+
+    @Override
+    protected boolean isSuspended(final long timeout) {
+        return true;
+    }
+
+    @Override
+    protected void shutdownServer(final long timeout) throws IOException, InterruptedException {
+        ServerHelper.shutdownHost(domainClient, timeout);
+    }
+
+    @Override
+    protected boolean waitForStart(final Process process, final long timeout) throws IOException, InterruptedException {
+        return ServerHelper.waitForHostController(process, domainClient, timeout, this::managementReachable);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return ServerHelper.isHostControllerRunning(domainClient);
+    }
+
+    @Override
+    public String toString() {
+        return "Slave host " + getName();
+    }
+}
@@ -19,8 +19,107 @@
 
 package org.wildfly.server;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.jboss.dmr.ModelNode;
+
 /**
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
  */
-public interface StandaloneServer extends Server, Killable {
+public interface StandaloneServer extends Server, Killable, Recordable {
+
+    /**
+     * The offset added to each port of the server. The offset is assigned by the
+     * {@linkplain StandaloneServerBuilder#setPortAllocator(PortAllocator) port allocator}, if one was set.
+     *
+     * @return the port offset or {@code 0} if no port allocator was used
+     */
+    int getPortOffset();
+
+    /**
+     * The CPUs the server is bound to. The CPUs are assigned by the
+     * {@linkplain StandaloneServerBuilder#setCpuAllocator(CpuAllocator) CPU allocator}, if one was set.
+     *
+     * @return the placement or {@code null} if no CPU allocator was used
+     */
+    CpuPlacement getCpuPlacement();
+
+    /**
+     * Waits for a line written to the console of the server which matches the pattern. Lines written since the server
+     * was last started which are still held are matched first. New lines are matched as they are written.
+     * <p>
+     * The console is only indexed if a standard out and the {@linkplain
+     * StandaloneServerBuilder#setConsoleIndexLines(int) number of console lines} to hold were set on the builder.
+     * </p>
+     *
+     * @param pattern the pattern to find in a line
+     * @param timeout the maximum time to wait
+     *
+     * @return the first matching line or {@code null} if no line matched before the timeout
+     *
+     * @throws InterruptedException  if interrupted while waiting
+     * @throws IllegalStateException if the console of the server is not indexed
+     */
+    String awaitConsole(Pattern pattern, Duration timeout) throws InterruptedException;
+
+    /**
+     * Finds the lines written to the console of the server, since it was last started, which match the pattern. Only
+     * the most recent lines are held.
+     * <p>
+     * The console is only indexed if a standard out and the {@linkplain
+     * StandaloneServerBuilder#setConsoleIndexLines(int) number of console lines} to hold were set on the builder.
+     * </p>
+     *
+     * @param pattern the pattern to find in a line
+     *
+     * @return the matching lines, oldest first, or an empty list if no lines matched
+     *
+     * @throws IllegalStateException if the console of the server is not indexed
+     */
+    List<String> findInConsole(Pattern pattern);
+
+    /**
+     * Waits for the deployments to become healthy. A deployment is healthy when its status is
+     * {@code OK} and the server has finished starting. Waiting stops as soon as a deployment has failed.
+     *
+     * @param names   the names of the deployments to wait for
+     * @param timeout the maximum time to wait
+     *
+     * @return the report of the status of each deployment when waiting stopped
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    DeploymentReport awaitDeployments(Collection<String> names, Duration timeout) throws InterruptedException;
+
+    /**
+     * Walks the management model starting at the address, passing each resource to the visitor as it is read. This
+     * should be preferred over a recursive {@code read-resource} for large models as only the resources being read
+     * are held in memory.
+     *
+     * @param address the address of the resource to start at
+     * @param visitor the visitor to pass each resource to
+     *
+     * @throws IOException          if an error occurs communicating with the server
+     * @throws InterruptedException if interrupted while waiting for a resource to be read
+     * @see ModelWalker
+     */
+    void walkModel(ModelNode address, ResourceVisitor visitor) throws IOException, InterruptedException;
+
+    /**
+     * Changes the server to the desired state. Only the resources and attributes which differ from the desired state
+     * are changed and the changes are executed as a single composite operation, so either all or none of the changes
+     * are applied.
+     *
+     * @param desired the desired state
+     *
+     * @return the report of the changes, including whether a reload or restart is required
+     *
+     * @throws IOException              if an error occurs communicating with the server
+     * @throws OperationFailedException if reading the current state or applying the changes failed
+     */
+    ReconcileReport reconcile(DesiredState desired) throws IOException;
 }
@@ -23,9 +23,13 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
 
 import org.jboss.as.controller.client.ModelControllerClient;
 import org.wildfly.core.launcher.CommandBuilder;
+import org.wildfly.core.launcher.StandaloneCommandBuilder;
 
 /**
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
@@ -39,6 +43,15 @@ public class StandaloneServerBuilder {
     private String username;
     private String password;
     private OutputStream stdout;
+    private Path diagnosticsDirectory;
+    private int diagnosticsConsoleLines;
+    private int consoleIndexLines;
+    private RecordingSettings recordingSettings;
+    private String name;
+    private PortAllocator portAllocator;
+    private ClientPolicy clientPolicy;
+    private JvmProfile jvmProfile;
+    private CpuAllocator cpuAllocator;
 
     protected StandaloneServerBuilder(final CommandBuilder commandBuilder) {
         this.commandBuilder = commandBuilder;
@@ -48,6 +61,7 @@ public class StandaloneServerBuilder {
             throw new RuntimeException(e);
         }
         managementPort = 9990;
+        diagnosticsConsoleLines = 500;
     }
 
     public StandaloneServerBuilder setManagementAddress(final String address) throws UnknownHostException {
@@ -64,20 +78,237 @@ public class StandaloneServerBuilder {
         return this;
     }
 
+    /**
+     * Sets the stream the console of the server is written to. The console is only captured if a stream is set.
+     * <p>
+     * The consoles of all servers are pumped by a small pool of shared threads, and the stream is written to on one of
+     * those threads. A stream which blocks, or is slow to write to, delays the consoles of the other servers pumped by
+     * the same thread. Once their pipes are full those servers block writing to their console. The stream should
+     * therefore not block, e.g. use a file, a {@link ConsoleBuffer} or a {@link ConsoleArchive} rather than a stream
+     * waiting on a consumer.
+     * </p>
+     *
+     * @param stdout the stream to write the console to or {@code null} to inherit the console of this process
+     *
+     * @return this builder
+     */
     public StandaloneServerBuilder setStandardOut(final OutputStream stdout) {
         this.stdout = stdout;
         return this;
     }
 
+    /**
+     * Sets the directory diagnostics are written to when the server fails to start or stop within the expected time.
+     * A thread dump and class histogram for each process, along with the last lines written to the console, are
+     * written to a new directory within this directory before the process is destroyed. By default no diagnostics
+     * are captured.
+     *
+     * @param diagnosticsDirectory the directory to write the diagnostics to or {@code null} to disable
+     *
+     * @return this builder
+     */
+    public StandaloneServerBuilder setDiagnosticsDirectory(final Path diagnosticsDirectory) {
+        this.diagnosticsDirectory = diagnosticsDirectory;
+        return this;
+    }
+
+    /**
+     * Sets the number of console lines kept for the diagnostics. The default is 500. Note that console lines are only
+     * kept if the {@linkplain #setStandardOut(OutputStream) standard out} is set.
+     *
+     * @param lines the number of lines to keep, {@code 0} to keep none
+     *
+     * @return this builder
+     */
+    public StandaloneServerBuilder setDiagnosticsConsoleLines(final int lines) {
+        if (lines < 0) {
+            throw new IllegalArgumentException("The number of lines cannot be negative: " + lines);
+        }
+        diagnosticsConsoleLines = lines;
+        return this;
+    }
+
+    /**
+     * Sets the number of console lines held to answer {@link StandaloneServer#awaitConsole(java.util.regex.Pattern,
+     * Duration) awaitConsole} and {@link StandaloneServer#findInConsole(java.util.regex.Pattern) findInConsole}. Each
+     * line held is decoded and kept on the heap, so by default no lines are held and those methods fail. Note that
+     * console lines are only held if the {@linkplain #setStandardOut(OutputStream) standard out} is set.
+     *
+     * @param lines the number of lines to hold, {@code 0} to hold none
+     *
+     * @return this builder
+     */
+    public StandaloneServerBuilder setConsoleIndexLines(final int lines) {
+        if (lines < 0) {
+            throw new IllegalArgumentException("The number of lines cannot be negative: " + lines);
+        }
+        consoleIndexLines = lines;
+        return this;
+    }
+
+    /**
+     * Sets the settings for a flight recording which is started each time the server is launched. The recording is
+     * started with the {@code -XX:StartFlightRecording} JVM option which replaces any such option on the command
+     * builder when the server is built.
+     *
+     * @param recordingSettings the recording settings or {@code null} to not start a recording when launched
+     *
+     * @return this builder
+     */
+    public StandaloneServerBuilder setFlightRecording(final RecordingSettings recordingSettings) {
+        this.recordingSettings = recordingSettings;
+        return this;
+    }
+
+    /**
+     * Sets the name identifying the server in {@linkplain ServerLifecycleEvent lifecycle events}. The default is
+     * the management address and port of the server.
+     *
+     * @param name the name of the server or {@code null} to use the default
+     *
+     * @return this builder
+     */
+    public StandaloneServerBuilder setName(final String name) {
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * Sets the allocator used to reserve a port offset for the server. The offset is passed to the server with the
+     * {@code jboss.socket.binding.port-offset} system property.
+     * The management client connects to the management port shifted by the offset. The ports are released when the
+     * server is stopped and reserved again when started, failing immediately if they have been taken.
+     *
+     * @param portAllocator the port allocator or {@code null} to use the ports as configured
+     *
+     * @return this builder
+     */
+    public StandaloneServerBuilder setPortAllocator(final PortAllocator portAllocator) {
+        this.portAllocator = portAllocator;
+        return this;
+    }
+
+    /**
+     * Sets the policy used to bound and retry the management operations executed with the
+     * {@linkplain Server#getClient() client} of the server. By default no policy is applied. Starting and stopping
+     * the server is not affected by the policy.
+     *
+     * @param clientPolicy the client policy
+     *
+     * @return this builder
+     */
+    public StandaloneServerBuilder setClientPolicy(final ClientPolicy clientPolicy) {
+        if (clientPolicy == null) {
+            throw new IllegalArgumentException("The client policy cannot be null");
+        }
+        this.clientPolicy = clientPolicy;
+        return this;
+    }
+
+    /**
+     * Sets the profile used to size the heap, processors, garbage collector and metaspace of the server. The options
+     * of the profile replace any conflicting options on the command builder when the server is built.
+     *
+     * @param jvmProfile the profile or {@code null} to use the options of the command builder
+     *
+     * @return this builder
+     */
+    public StandaloneServerBuilder setJvmProfile(final JvmProfile jvmProfile) {
+        this.jvmProfile = jvmProfile;
+        return this;
+    }
+
+    /**
+     * Sets the allocator used to reserve a set of CPUs for the server. The server is launched with {@code taskset}
+     * bound to the reserved CPUs. The CPUs are released when the server is stopped and reserved again when
+     * started, failing immediately if they have been taken.
+     *
+     * @param cpuAllocator the CPU allocator or {@code null} to not bind the server to CPUs
+     *
+     * @return this builder
+     */
+    public StandaloneServerBuilder setCpuAllocator(final CpuAllocator cpuAllocator) {
+        this.cpuAllocator = cpuAllocator;
+        return this;
+    }
+
     public StandaloneServer build() {
-        final ModelControllerClient client = ModelControllerClient.Factory.create(managementAddress, managementPort);
-        return new StandaloneServerImpl(commandBuilder, client, stdout);
+        if (jvmProfile != null) {
+            if (!(commandBuilder instanceof StandaloneCommandBuilder)) {
+                throw new IllegalStateException("A JVM profile can only be applied to a StandaloneCommandBuilder");
+            }
+            final StandaloneCommandBuilder standaloneCommandBuilder = (StandaloneCommandBuilder) commandBuilder;
+            standaloneCommandBuilder.setJavaOptions(jvmProfile.apply(standaloneCommandBuilder.getJavaOptions()));
+        }
+        if (recordingSettings != null) {
+            if (!(commandBuilder instanceof StandaloneCommandBuilder)) {
+                throw new IllegalStateException("A flight recording can only be started at launch with a StandaloneCommandBuilder");
+            }
+            final StandaloneCommandBuilder standaloneCommandBuilder = (StandaloneCommandBuilder) commandBuilder;
+            // The command builder may be shared between builds, so replace the recording of a previous build
+            standaloneCommandBuilder.setJavaOptions(ServerHelper.setOption(standaloneCommandBuilder.getJavaOptions(),
+                    RecordingSettings.JAVA_OPTION, recordingSettings.toJavaOption()));
+        }
+        final PortAllocator.Reservation portReservation = reservePorts();
+        ModelControllerClient client = null;
+        try {
+            final int offset = (portReservation == null ? 0 : portReservation.getOffset());
+            final String serverName = (name == null ? managementAddress.getHostAddress() + ':' + managementPort : name);
+            client = ResilientModelControllerClient.wrap(serverName,
+                    ModelControllerClient.Factory.create(managementAddress, managementPort + offset), clientPolicy);
+            final Diagnostics diagnostics = (diagnosticsDirectory == null ? null : new Diagnostics(diagnosticsDirectory, diagnosticsConsoleLines));
+            final StandaloneServerImpl server = new StandaloneServerImpl(serverName, commandBuilder, client, stdout, diagnostics);
+            if (recordingSettings != null) {
+                server.setLaunchRecordingName(recordingSettings.getName());
+            }
+            server.setConsoleIndexLines(consoleIndexLines);
+            server.setPortReservation(portReservation);
+            server.setCpuReservation(reserveCpus());
+            return server;
+        } catch (RuntimeException e) {
+            // No server is returned to release the ports or close the client
+            if (portReservation != null) {
+                portReservation.release();
+            }
+            AbstractServer.safeClose(client);
+            throw e;
+        }
+    }
+
+    private CpuAllocator.Reservation reserveCpus() {
+        if (cpuAllocator == null) {
+            return null;
+        }
+        try {
+            return cpuAllocator.reserve();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to reserve CPUs", e);
+        }
+    }
+
+    private PortAllocator.Reservation reservePorts() {
+        if (portAllocator == null) {
+            return null;
+        }
+        if (!(commandBuilder instanceof StandaloneCommandBuilder)) {
+            throw new IllegalStateException("A port allocator can only be used with a StandaloneCommandBuilder");
+        }
+        try {
+            final PortAllocator.Reservation reservation = portAllocator.reserve(managementAddress, managementPort);
+            final StandaloneCommandBuilder standaloneCommandBuilder = (StandaloneCommandBuilder) commandBuilder;
+            // The command builder may be shared between builds, so replace the offset of a previous build
+            standaloneCommandBuilder.setJavaOptions(ServerHelper.setSystemProperty(standaloneCommandBuilder.getJavaOptions(),
+                    "jboss.socket.binding.port-offset", reservation.getOffset()));
+            return reservation;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to reserve ports", e);
+        }
     }
 
     private static class StandaloneServerImpl extends AbstractServer implements StandaloneServer {
 
-        private StandaloneServerImpl(final CommandBuilder commandBuilder, final ModelControllerClient client, final OutputStream stdout) {
-            super(commandBuilder, client, stdout);
+        private StandaloneServerImpl(final String name, final CommandBuilder commandBuilder, final ModelControllerClient client, final OutputStream stdout, final Diagnostics diagnostics) {
+            super(name, commandBuilder, client, stdout, diagnostics);
         }
 
         @Override
@@ -86,9 +317,24 @@ public class StandaloneServerBuilder {
             safeClose(client);
         }
 
+        @Override
+        protected void suspendServer(final long timeout) throws IOException, InterruptedException {
+            ServerHelper.suspendStandalone(client, timeout);
+        }
+
+        @Override
+        protected boolean isSuspended(final long timeout) throws IOException, InterruptedException {
+            return ServerHelper.isStandaloneSuspended(client, timeout);
+        }
+
+        @Override
+        protected void shutdownServer(final long timeout) throws IOException, InterruptedException {
+            ServerHelper.shutdownStandalone(client, timeout);
+        }
+
         @Override
         protected boolean waitForStart(final Process process, final long timeout) throws IOException, InterruptedException {
-            return ServerHelper.waitForStandalone(process, client, timeout);
+            return ServerHelper.waitForStandalone(process, client, timeout, this::managementReachable);
         }
 
         @Override
@@ -96,6 +342,11 @@ public class StandaloneServerBuilder {
             return ServerHelper.isStandaloneRunning(client);
         }
 
+        @Override
+        public DeploymentReport awaitDeployments(final Collection<String> names, final Duration timeout) throws InterruptedException {
+            return ServerHelper.awaitStandaloneDeployments(getProcess(), client, getName(), names, timeout.toNanos());
+        }
+
         @Override
         public String toString() {
             return "Standalone : " + getRunningVersion();
@@ -0,0 +1,48 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+/**
+ * The phase of a {@linkplain Killable#stop(java.time.Duration) stop} in which the server process exited.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public enum StopPhase {
+    /**
+     * The server process was not running.
+     */
+    NOT_RUNNING,
+    /**
+     * The process exited while the server was being suspended.
+     */
+    SUSPEND,
+    /**
+     * The process exited after the management {@code shutdown} operation.
+     */
+    SHUTDOWN,
+    /**
+     * The process exited after being asked to terminate, e.g. with a {@code SIGTERM}.
+     */
+    TERMINATE,
+    /**
+     * The process was forcibly killed.
+     */
+    KILL,
+}
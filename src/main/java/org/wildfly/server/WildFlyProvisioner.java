@@ -0,0 +1,363 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Provisions WildFly home directories from a distribution zip.
+ * <p>
+ * The zip is unpacked once into a cache directory named after the SHA-256 checksum of the zip, so the same zip is
+ * only unpacked once even across JVMs using the same cache directory. The entries are extracted in parallel.
+ * </p>
+ * <p>
+ * Each {@linkplain #provision(Path) provisioned} home hard links the {@code modules} directory tree and
+ * {@code jboss-modules.jar} to the cached files, everything else is copied. Files which cannot be hard linked, for
+ * example because the target is on another file store, are copied. Note that the hard linked files are shared by all
+ * provisioned homes and must not be modified.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public final class WildFlyProvisioner {
+    private static final Logger LOGGER = Logger.getLogger(WildFlyProvisioner.class);
+    private static final Path MODULES = Paths.get("modules");
+    private static final Path JBOSS_MODULES = Paths.get("jboss-modules.jar");
+    private static final Set<PosixFilePermission> EXECUTABLE = PosixFilePermissions.fromString("rwxr-xr-x");
+
+    private final Path zip;
+    private final Path cacheDirectory;
+    private final int threads;
+    private Path home;
+
+    private WildFlyProvisioner(final Builder builder) {
+        zip = builder.zip;
+        cacheDirectory = builder.cacheDirectory;
+        threads = builder.threads;
+    }
+
+    /**
+     * Creates a new builder for a provisioner of the distribution zip.
+     *
+     * @param zip the path to the WildFly distribution zip
+     *
+     * @return the new builder
+     */
+    public static Builder builder(final Path zip) {
+        return new Builder(zip);
+    }
+
+    /**
+     * Returns the cached WildFly home directory unpacking the distribution zip if it has not already been unpacked.
+     *
+     * @return the cached WildFly home directory
+     *
+     * @throws IOException if an error occurs reading the zip or unpacking it
+     */
+    public synchronized Path getHome() throws IOException {
+        if (home == null) {
+            final Path dir = cacheDirectory.resolve(checksum());
+            if (Files.notExists(dir)) {
+                unpack(dir);
+            }
+            home = findHome(dir);
+        }
+        return home;
+    }
+
+    /**
+     * Creates a new WildFly home directory from the cached home.
+     *
+     * @param target the directory to create the WildFly home in, the directory must not exist or must be empty
+     *
+     * @return the target directory
+     *
+     * @throws IOException if an error occurs creating the home directory
+     */
+    public Path provision(final Path target) throws IOException {
+        final Path source = getHome();
+        final long start = System.nanoTime();
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
+                final Path targetDir = target.resolve(source.relativize(dir).toString());
+                if (Files.notExists(targetDir)) {
+                    Files.createDirectories(targetDir);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                final Path relative = source.relativize(file);
+                final Path targetFile = target.resolve(relative.toString());
+                if (relative.startsWith(MODULES) || relative.equals(JBOSS_MODULES)) {
+                    try {
+                        Files.createLink(targetFile, file);
+                        return FileVisitResult.CONTINUE;
+                    } catch (FileAlreadyExistsException e) {
+                        throw e;
+                    } catch (UnsupportedOperationException | FileSystemException e) {
+                        LOGGER.debugf(e, "Failed to link %s, copying the file", file);
+                    }
+                }
+                Files.copy(file, targetFile, StandardCopyOption.COPY_ATTRIBUTES);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        LOGGER.debugf("Provisioned %s in %d ms", target, (System.nanoTime() - start) / 1_000_000L);
+        return target;
+    }
+
+    private String checksum() throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+        try (FileChannel channel = FileChannel.open(zip, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        final StringBuilder result = new StringBuilder();
+        for (byte b : digest.digest()) {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return result.toString();
+    }
+
+    private void unpack(final Path dir) throws IOException {
+        final long start = System.nanoTime();
+        Files.createDirectories(cacheDirectory);
+        // Unpack into a temporary directory and move it into place so a partially unpacked zip is never used
+        final Path tmp = cacheDirectory.resolve(dir.getFileName() + ".tmp-" + UUID.randomUUID());
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            final Thread t = new Thread(r);
+            t.setDaemon(true);
+            t.setName("WildFly-Provisioner");
+            return t;
+        });
+        boolean moved = false;
+        try {
+            try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+                final List<Future<?>> futures = new ArrayList<>();
+                final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    final ZipEntry entry = entries.nextElement();
+                    final Path target = tmp.resolve(entry.getName()).normalize();
+                    if (!target.startsWith(tmp)) {
+                        throw new IOException(String.format("Entry %s of %s is outside of the target directory", entry.getName(), zip));
+                    }
+                    if (entry.isDirectory()) {
+                        Files.createDirectories(target);
+                    } else {
+                        Files.createDirectories(target.getParent());
+                        futures.add(executor.submit(() -> {
+                            extract(zipFile, entry, target);
+                            return null;
+                        }));
+                    }
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted unpacking " + zip, e);
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException("Failed to unpack " + zip, cause);
+            } finally {
+                executor.shutdownNow();
+            }
+            try {
+                Files.move(tmp, dir, StandardCopyOption.ATOMIC_MOVE);
+                moved = true;
+            } catch (FileSystemException e) {
+                // Another process may have unpacked the same zip
+                if (Files.notExists(dir)) {
+                    throw e;
+                }
+            }
+        } finally {
+            if (!moved) {
+                // Unpacking failed, was interrupted or another process won the race to move its directory into place
+                deleteTemporaryDirectory(tmp, executor);
+            }
+        }
+        LOGGER.debugf("Unpacked %s to %s in %d ms", zip, dir, (System.nanoTime() - start) / 1_000_000L);
+    }
+
+    private static void deleteTemporaryDirectory(final Path tmp, final ExecutorService executor) {
+        // Wait for the extractions to stop so no file is written after the directory is deleted
+        boolean interrupted = Thread.interrupted();
+        try {
+            if (!executor.awaitTermination(10L, TimeUnit.SECONDS)) {
+                LOGGER.debugf("Extractions into %s did not stop within 10 seconds", tmp);
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (Files.exists(tmp)) {
+            try {
+                ServerHelper.deleteRecursively(tmp);
+            } catch (IOException e) {
+                LOGGER.debugf(e, "Failed to delete %s", tmp);
+            }
+        }
+    }
+
+    private static void extract(final ZipFile zipFile, final ZipEntry entry, final Path target) throws IOException {
+        final byte[] buffer = new byte[64 * 1024];
+        final ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+        try (
+                InputStream in = zipFile.getInputStream(entry);
+                FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)
+        ) {
+            int len;
+            while ((len = in.read(buffer)) != -1) {
+                wrapped.limit(len).position(0);
+                while (wrapped.hasRemaining()) {
+                    channel.write(wrapped);
+                }
+            }
+        }
+        // Zip entries do not carry the permissions, scripts need to be executable
+        if (entry.getName().endsWith(".sh") && Files.getFileStore(target).supportsFileAttributeView("posix")) {
+            Files.setPosixFilePermissions(target, EXECUTABLE);
+        }
+        if (entry.getTime() != -1L) {
+            Files.setLastModifiedTime(target, FileTime.fromMillis(entry.getTime()));
+        }
+    }
+
+    private static Path findHome(final Path dir) throws IOException {
+        if (ServerHelper.isValidWildFlyHome(dir)) {
+            return dir;
+        }
+        // Distributions contain a single root directory, e.g. wildfly-10.0.0.Final
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path path : stream) {
+                if (ServerHelper.isValidWildFlyHome(path)) {
+                    return path;
+                }
+            }
+        }
+        throw new IOException(String.format("No WildFly home directory found in %s", dir));
+    }
+
+    /**
+     * A builder used to create a {@link WildFlyProvisioner}.
+     */
+    public static class Builder {
+        private final Path zip;
+        private Path cacheDirectory;
+        private int threads;
+
+        private Builder(final Path zip) {
+            this.zip = zip;
+            cacheDirectory = Paths.get(System.getProperty("java.io.tmpdir"), "wildfly-server-homes");
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+
+        /**
+         * Sets the directory the distribution zip is unpacked to. The default is {@code wildfly-server-homes} in the
+         * {@code java.io.tmpdir} directory.
+         *
+         * @param cacheDirectory the cache directory
+         *
+         * @return this builder
+         */
+        public Builder setCacheDirectory(final Path cacheDirectory) {
+            this.cacheDirectory = cacheDirectory;
+            return this;
+        }
+
+        /**
+         * Sets the number of threads used to unpack the distribution zip. The default is the number of available
+         * processors.
+         *
+         * @param threads the number of threads
+         *
+         * @return this builder
+         */
+        public Builder setThreads(final int threads) {
+            if (threads <= 0) {
+                throw new IllegalArgumentException("The number of threads must be greater than 0: " + threads);
+            }
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Creates the provisioner. The distribution zip is not unpacked until it's first needed.
+         *
+         * @return the provisioner
+         */
+        public WildFlyProvisioner build() {
+            return new WildFlyProvisioner(this);
+        }
+    }
+}
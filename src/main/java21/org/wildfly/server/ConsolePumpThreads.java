@@ -0,0 +1,56 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.server;
+
+/**
+ * Creates the threads which pump the console streams.
+ * <p>
+ * This is the Java 21 version of this class. The threads are virtual threads, so each stream is given its own
+ * thread which blocks reading the stream.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+final class ConsolePumpThreads {
+
+    private ConsolePumpThreads() {
+    }
+
+    /**
+     * Indicates whether the threads are virtual threads. Virtual threads are cheap enough to block reading a single
+     * stream.
+     *
+     * @return {@code true} if the threads are virtual threads
+     */
+    static boolean isVirtual() {
+        return true;
+    }
+
+    /**
+     * Starts a thread running the task.
+     *
+     * @param name the name of the thread
+     * @param task the task to run
+     *
+     * @return the started thread
+     */
+    static Thread start(final String name, final Runnable task) {
+        return Thread.ofVirtual().name(name).start(task);
+    }
+}
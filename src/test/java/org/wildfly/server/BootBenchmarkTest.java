@@ -0,0 +1,108 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jboss.dmr.ModelNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class BootBenchmarkTest {
+
+    @Test
+    public void testStatistics() {
+        final BootBenchmark.Result result = new BootBenchmark.Result("/wildfly", 10);
+        result.add(BootBenchmark.Mode.STANDALONE, BootBenchmark.Metric.STARTED, new double[] {10, 1, 9, 2, 8, 3, 7, 4, 6, 5});
+        final ModelNode statistics = result.getStatistics(BootBenchmark.Mode.STANDALONE, BootBenchmark.Metric.STARTED);
+        Assert.assertEquals(1d, statistics.get("min").asDouble(), 0d);
+        Assert.assertEquals(10d, statistics.get("max").asDouble(), 0d);
+        Assert.assertEquals(5.5d, statistics.get("mean").asDouble(), 0d);
+        Assert.assertEquals(5d, statistics.get("p50").asDouble(), 0d);
+        Assert.assertEquals(9d, statistics.get("p90").asDouble(), 0d);
+        Assert.assertEquals(10d, statistics.get("p99").asDouble(), 0d);
+        // The samples are kept in the order they were taken
+        Assert.assertEquals(10d, statistics.get("samples").get(0).asDouble(), 0d);
+        Assert.assertEquals(0, statistics.get("missing").asInt());
+        Assert.assertFalse(result.getStatistics(BootBenchmark.Mode.DOMAIN, BootBenchmark.Metric.STARTED).isDefined());
+    }
+
+    @Test
+    public void testMissingSamples() {
+        final BootBenchmark.Result result = new BootBenchmark.Result("/wildfly", 4);
+        result.add(BootBenchmark.Mode.STANDALONE, BootBenchmark.Metric.STARTED, new double[] {-1, 200, 100, -1});
+        final ModelNode statistics = result.getStatistics(BootBenchmark.Mode.STANDALONE, BootBenchmark.Metric.STARTED);
+        Assert.assertEquals(2, statistics.get("missing").asInt());
+        Assert.assertEquals(100d, statistics.get("min").asDouble(), 0d);
+        Assert.assertEquals(150d, statistics.get("mean").asDouble(), 0d);
+        Assert.assertEquals(100d, statistics.get("p50").asDouble(), 0d);
+        Assert.assertEquals(4, statistics.get("samples").asList().size());
+
+        result.add(BootBenchmark.Mode.STANDALONE, BootBenchmark.Metric.REPORTED, new double[] {-1, -1});
+        final ModelNode reported = result.getStatistics(BootBenchmark.Mode.STANDALONE, BootBenchmark.Metric.REPORTED);
+        Assert.assertEquals(2, reported.get("missing").asInt());
+        Assert.assertFalse(reported.hasDefined("p50"));
+    }
+
+    @Test
+    public void testCompareWithBaseline() throws Exception {
+        final BootBenchmark.Result baseline = new BootBenchmark.Result("/wildfly", 3);
+        baseline.add(BootBenchmark.Mode.STANDALONE, BootBenchmark.Metric.STARTED, new double[] {1000, 1100, 1200});
+        baseline.add(BootBenchmark.Mode.STANDALONE, BootBenchmark.Metric.REPORTED, new double[] {-1, -1, -1});
+        final Path file = Files.createTempFile("boot-benchmark", ".json");
+        try {
+            baseline.write(file);
+            final BootBenchmark.Result read = BootBenchmark.Result.read(file);
+            Assert.assertEquals(baseline.toModelNode().toJSONString(true), read.toModelNode().toJSONString(true));
+
+            final BootBenchmark.Result result = new BootBenchmark.Result("/wildfly", 3);
+            result.add(BootBenchmark.Mode.STANDALONE, BootBenchmark.Metric.STARTED, new double[] {1050, 1100, 1400});
+            result.add(BootBenchmark.Mode.STANDALONE, BootBenchmark.Metric.REPORTED, new double[] {900, 900, 900});
+            result.add(BootBenchmark.Mode.DOMAIN, BootBenchmark.Metric.STARTED, new double[] {5000, 5000, 5000});
+            final List<BootBenchmark.Regression> regressions = result.compareTo(read, 0.1d);
+            Assert.assertEquals(2, regressions.size());
+            for (BootBenchmark.Regression regression : regressions) {
+                Assert.assertEquals(BootBenchmark.Mode.STANDALONE, regression.getMode());
+                Assert.assertEquals(BootBenchmark.Metric.STARTED, regression.getMetric());
+                Assert.assertEquals(1200d, regression.getBaseline(), 0d);
+                Assert.assertEquals(1400d, regression.getActual(), 0d);
+            }
+            Assert.assertEquals("p90", regressions.get(0).getPercentile());
+            Assert.assertEquals("p99", regressions.get(1).getPercentile());
+            Assert.assertTrue(result.compareTo(read, 0.2d).isEmpty());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testReportedBootTime() {
+        Assert.assertEquals(4321d, BootBenchmark.reportedBootTime(Arrays.asList(
+                "12:00:01,000 INFO  [org.jboss.as] (Controller Boot Thread) WFLYSRV0025: WildFly Full 10.0.0.Final (WildFly Core 2.0.10.Final) (Host Controller) started in 2345ms - Started 50 of 52 services",
+                "[Server:server-one] 12:00:03,000 INFO  [org.jboss.as] (Controller Boot Thread) WFLYSRV0025: WildFly Full 10.0.0.Final (WildFly Core 2.0.10.Final) started in 4321ms - Started 267 of 553 services")), 0d);
+        Assert.assertEquals(-1d, BootBenchmark.reportedBootTime(Arrays.asList("WFLYSRV0049: WildFly Full 10.0.0.Final starting")), 0d);
+    }
+}
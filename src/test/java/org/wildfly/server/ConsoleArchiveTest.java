@@ -0,0 +1,137 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class ConsoleArchiveTest {
+    private Path dir;
+
+    @Before
+    public void createDirectory() throws IOException {
+        dir = Files.createTempDirectory("console-archive");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testArchive() throws Exception {
+        final StringBuilder expected = new StringBuilder();
+        try (ConsoleArchive archive = ConsoleArchive.builder(dir).setBlockSize(64).setMaxFileSize(256L).build()) {
+            for (int i = 0; i < 200; i++) {
+                final String line = "line " + i + '\n';
+                expected.append(line);
+                archive.write(line.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        final ConsoleArchive archive = ConsoleArchive.builder(dir).build();
+        final List<Path> files = archive.getFiles();
+        Assert.assertTrue("Expected the archive to roll: " + files, files.size() > 1);
+        // Each file is a valid gzip file
+        final StringBuilder actual = new StringBuilder();
+        for (Path file : files) {
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+                actual.append(read(in));
+            }
+        }
+        Assert.assertEquals(expected.toString(), actual.toString());
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Assert.assertEquals(expected.length(), archive.copyTo(Instant.EPOCH, Instant.now(), out));
+        Assert.assertEquals(expected.toString(), out.toString("UTF-8"));
+        archive.close();
+    }
+
+    @Test
+    public void testTimeRange() throws Exception {
+        final Instant middle;
+        try (ConsoleArchive archive = ConsoleArchive.builder(dir).build()) {
+            archive.write("before\n".getBytes(StandardCharsets.UTF_8));
+            archive.flush();
+            Thread.sleep(20L);
+            middle = Instant.now();
+            Thread.sleep(20L);
+            archive.write("after\n".getBytes(StandardCharsets.UTF_8));
+        }
+        final ConsoleArchive archive = ConsoleArchive.builder(dir).build();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        archive.copyTo(middle, Instant.now(), out);
+        Assert.assertEquals("after\n", out.toString("UTF-8"));
+        out.reset();
+        archive.copyTo(Instant.EPOCH, middle, out);
+        Assert.assertEquals("before\n", out.toString("UTF-8"));
+        archive.close();
+        Assert.assertEquals(1, archive.getFiles().size());
+    }
+
+    @Test(timeout = 60000L)
+    public void testExpiredBlocksWhileWriting() throws Exception {
+        // Blocks expire while writers wait for the pending queue, they must neither deadlock nor be reordered
+        final StringBuilder expected = new StringBuilder();
+        try (ConsoleArchive archive = ConsoleArchive.builder(dir).setBlockSize(16).setBlockInterval(Duration.ofNanos(1L)).build()) {
+            for (int i = 0; i < 20000; i++) {
+                final String line = "line " + i + '\n';
+                expected.append(line);
+                archive.write(line.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        final ConsoleArchive archive = ConsoleArchive.builder(dir).build();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        archive.copyTo(Instant.EPOCH, Instant.now(), out);
+        Assert.assertEquals(expected.toString(), out.toString("UTF-8"));
+        archive.close();
+    }
+
+    private static String read(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1024];
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            out.write(buffer, 0, len);
+        }
+        return out.toString("UTF-8");
+    }
+}
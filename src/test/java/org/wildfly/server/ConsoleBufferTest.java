@@ -0,0 +1,84 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class ConsoleBufferTest {
+
+    @Test
+    public void testTail() throws IOException {
+        final ConsoleBuffer buffer = new ConsoleBuffer(1024);
+        Assert.assertEquals(0, buffer.lineCount());
+        Assert.assertEquals(Collections.emptyList(), buffer.tail(5));
+        write(buffer, "one\ntwo\r\nthree\nfou");
+        Assert.assertEquals(4, buffer.lineCount());
+        Assert.assertEquals(Arrays.asList("two", "three", "fou"), buffer.tail(3));
+        write(buffer, "r\n");
+        Assert.assertEquals(Arrays.asList("one", "two", "three", "four"), buffer.tail(10));
+    }
+
+    @Test
+    public void testWrap() throws IOException {
+        // Each line is 6 bytes, only the last 2 complete lines fit
+        final ConsoleBuffer buffer = new ConsoleBuffer(14);
+        write(buffer, "line1\nline2\nline3\nline4\n");
+        Assert.assertEquals(14, buffer.size());
+        Assert.assertEquals(Arrays.asList("line3", "line4"), buffer.tail(10));
+        Assert.assertEquals(Collections.singletonList("line4"), buffer.search("4"));
+        Assert.assertEquals(Collections.emptyList(), buffer.search("line2"));
+
+        // Writes larger than the capacity only keep the last bytes
+        write(buffer, "aaaaaaaaaaaaaaaaaaaa\nbbbbbb\ncc");
+        Assert.assertEquals(Arrays.asList("bbbbbb", "cc"), buffer.tail(10));
+
+        final Path file = Files.createTempFile("console", ".log");
+        try {
+            buffer.snapshotTo(file);
+            Assert.assertEquals("bbbbbb\ncc", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testLineIndexLimit() throws IOException {
+        final ConsoleBuffer buffer = new ConsoleBuffer(1024, 2);
+        write(buffer, "a\nb\nc\nd\n");
+        Assert.assertEquals(Collections.singletonList("d"), buffer.tail(10));
+        buffer.write('e');
+        Assert.assertEquals(Arrays.asList("d", "e"), buffer.tail(10));
+    }
+
+    private static void write(final ConsoleBuffer buffer, final String value) throws IOException {
+        buffer.write(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class ConsoleIndexTest {
+    private static final String STARTED = "INFO  [org.jboss.as] (Controller Boot Thread) WFLYSRV0025: WildFly Full 10.0.0.Final started in 2000ms";
+    private static final String DEPLOYED = "INFO  [org.jboss.as.server] (ServerService Thread Pool -- 34) WFLYSRV0010: Deployed \"test.war\"";
+
+    @Test
+    public void testFind() {
+        final ConsoleIndex index = new ConsoleIndex(100);
+        write(index, "starting\r\n" + DEPLOYED + "\n" + STARTED + "\nready: WFLYSRV0025 was seen\nincomplete");
+        Assert.assertEquals(Collections.singletonList(STARTED), index.find(Pattern.compile("WFLYSRV0025: .* started")));
+        Assert.assertEquals(Arrays.asList(STARTED, "ready: WFLYSRV0025 was seen"), index.find(Pattern.compile("WFLYSRV0025")));
+        Assert.assertEquals(Collections.singletonList(DEPLOYED), index.find(Pattern.compile("Deployed \"test\\.war\"")));
+        Assert.assertEquals(Collections.singletonList("starting"), index.find(Pattern.compile("^start")));
+        Assert.assertEquals(Arrays.asList(DEPLOYED, STARTED, "ready: WFLYSRV0025 was seen"), index.find(Pattern.compile("WFLYSRV001?")));
+        Assert.assertEquals(Collections.emptyList(), index.find(Pattern.compile("incomplete")));
+        Assert.assertEquals(Collections.emptyList(), index.find(Pattern.compile("WFLYSRV0026")));
+
+        // A message id which may match in the middle of a word can't use the index
+        Assert.assertEquals(Collections.singletonList(STARTED), index.find(Pattern.compile("SRV0025: ")));
+        Assert.assertEquals(Collections.emptyList(), index.find(Pattern.compile("\\bSRV0025: ")));
+        Assert.assertEquals(Collections.singletonList(STARTED), index.find(Pattern.compile("\\bWFLYSRV0025: ")));
+        Assert.assertEquals(Collections.singletonList(STARTED), index.find(Pattern.compile("\\) WFLYSRV0025")));
+
+        index.clear();
+        Assert.assertEquals(Collections.emptyList(), index.find(Pattern.compile("WFLYSRV0025")));
+    }
+
+    @Test
+    public void testAwait() throws Exception {
+        final ConsoleIndex index = new ConsoleIndex(100);
+        write(index, DEPLOYED + "\n");
+        Assert.assertEquals(DEPLOYED, index.await(Pattern.compile("WFLYSRV0010"), 0L));
+        Assert.assertNull(index.await(Pattern.compile("WFLYSRV0025"), TimeUnit.MILLISECONDS.toNanos(50L)));
+        Assert.assertEquals(DEPLOYED, index.await(Pattern.compile("SRV0010: "), 0L));
+
+        final Thread writer = new Thread(() -> {
+            try {
+                Thread.sleep(100L);
+            } catch (InterruptedException ignore) {
+            }
+            write(index, "WildFly Full 10.0.0.Final ");
+            write(index, "(WildFly Core 2.0.10.Final) started\n" + STARTED + "\n");
+        });
+        writer.start();
+        Assert.assertEquals(STARTED, index.await(Pattern.compile("WFLYSRV0025: .* started"), TimeUnit.SECONDS.toNanos(10L)));
+        writer.join();
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        final ConsoleIndex index = new ConsoleIndex(2);
+        write(index, DEPLOYED + "\n" + STARTED + "\nWFLYSRV0025 WFLYSRV0025 again\n");
+        Assert.assertEquals(Collections.emptyList(), index.find(Pattern.compile("WFLYSRV0010")));
+        Assert.assertNull(index.await(Pattern.compile("WFLYSRV0010"), 0L));
+        Assert.assertEquals(Arrays.asList(STARTED, "WFLYSRV0025 WFLYSRV0025 again"), index.find(Pattern.compile("WFLYSRV0025")));
+
+        // The ids of a line containing an id more than once are only removed once the line is evicted
+        write(index, "line\n");
+        Assert.assertEquals(Collections.singletonList("WFLYSRV0025 WFLYSRV0025 again"), index.find(Pattern.compile("WFLYSRV0025")));
+        write(index, DEPLOYED + "\n");
+        Assert.assertEquals(Collections.emptyList(), index.find(Pattern.compile("WFLYSRV0025")));
+        Assert.assertEquals(Collections.singletonList(DEPLOYED), index.find(Pattern.compile("WFLYSRV0010")));
+
+        // Evicting and adding ids many times does not lose the lines held
+        for (int i = 0; i < 1000; i++) {
+            write(index, STARTED + "\n" + DEPLOYED + "\n");
+        }
+        Assert.assertEquals(Collections.singletonList(STARTED), index.find(Pattern.compile("WFLYSRV0025")));
+        Assert.assertEquals(Collections.singletonList(DEPLOYED), index.find(Pattern.compile("WFLYSRV0010")));
+    }
+
+    private static void write(final ConsoleIndex index, final String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        index.write(bytes, 0, bytes.length);
+    }
+}
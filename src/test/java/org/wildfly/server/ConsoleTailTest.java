@@ -0,0 +1,54 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class ConsoleTailTest {
+
+    @Test
+    public void testLastLines() {
+        final ConsoleTail tail = new ConsoleTail(2);
+        write(tail, "one\r\ntwo\nthree\nfour");
+        Assert.assertEquals(Arrays.asList("two", "three", "four"), tail.getLines());
+        write(tail, "\n");
+        Assert.assertEquals(Arrays.asList("three", "four"), tail.getLines());
+    }
+
+    @Test
+    public void testNoLines() {
+        final ConsoleTail tail = new ConsoleTail(0);
+        write(tail, "one\ntwo\nincomplete");
+        Assert.assertEquals(Collections.emptyList(), tail.getLines());
+    }
+
+    private static void write(final ConsoleTail tail, final String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        tail.write(bytes, 0, bytes.length);
+    }
+}
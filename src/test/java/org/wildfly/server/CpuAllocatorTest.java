@@ -0,0 +1,172 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.wildfly.core.launcher.CommandBuilder;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class CpuAllocatorTest {
+    private Path dir;
+
+    @Before
+    public void createDirectory() throws IOException {
+        dir = Files.createTempDirectory("wildfly-server-cpus");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(final Path dir, final IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void testCpuList() {
+        Assert.assertEquals("0-3,8,10-11", CpuPlacement.toCpuList(new int[] {0, 1, 2, 3, 8, 10, 11}));
+        Assert.assertArrayEquals(new int[] {0, 1, 2, 3, 8, 10, 11}, CpuPlacement.parseCpuList(" 0-3,8,10-11\n"));
+        Assert.assertArrayEquals(new int[0], CpuPlacement.parseCpuList(""));
+    }
+
+    @Test
+    public void testReserve() throws Exception {
+        final CpuAllocator allocator = CpuAllocator.builder()
+                .setDirectory(dir)
+                .setCpus(7, 6, 5, 4, 3, 2, 1, 0, 8)
+                .setServers(4)
+                .build();
+        final CpuAllocator.Reservation first = allocator.reserve();
+        final CpuAllocator.Reservation second = allocator.reserve();
+        final CpuAllocator.Reservation third = allocator.reserve();
+        final CpuAllocator.Reservation fourth = allocator.reserve();
+        Assert.assertEquals("0-1", first.getPlacement().getCpuList());
+        Assert.assertEquals("2-3", second.getPlacement().getCpuList());
+        Assert.assertEquals("4-5", third.getPlacement().getCpuList());
+        Assert.assertEquals("6-7", fourth.getPlacement().getCpuList());
+        try {
+            allocator.reserve();
+            Assert.fail("Expected no CPUs to be available");
+        } catch (IllegalStateException ignore) {
+        }
+
+        // A released slot is reused and may not be acquired again while held
+        second.release();
+        final CpuAllocator.Reservation reused = allocator.reserve();
+        Assert.assertEquals("2-3", reused.getPlacement().getCpuList());
+        try {
+            second.acquire();
+            Assert.fail("Expected the CPUs to be in use");
+        } catch (IllegalStateException ignore) {
+        }
+        for (CpuAllocator.Reservation reservation : Arrays.asList(first, reused, third, fourth)) {
+            reservation.release();
+        }
+    }
+
+    @Test
+    public void testDifferentSplits() throws Exception {
+        final CpuAllocator halves = CpuAllocator.builder().setDirectory(dir).setCpus(0, 1, 2, 3).setServers(2).build();
+        final CpuAllocator quarters = CpuAllocator.builder().setDirectory(dir).setCpus(0, 1, 2, 3).setServers(4).build();
+        final CpuAllocator.Reservation half = halves.reserve();
+        Assert.assertEquals("0-1", half.getPlacement().getCpuList());
+        // The CPUs of a slot are locked individually so the CPUs of the other split are skipped
+        final CpuAllocator.Reservation second = quarters.reserve();
+        final CpuAllocator.Reservation third = quarters.reserve();
+        Assert.assertEquals("2", second.getPlacement().getCpuList());
+        Assert.assertEquals("3", third.getPlacement().getCpuList());
+        try {
+            halves.reserve();
+            Assert.fail("Expected no CPUs to be available");
+        } catch (IllegalStateException ignore) {
+        }
+        // A slot which could only be partly locked holds none of its CPUs
+        third.release();
+        try {
+            halves.reserve();
+            Assert.fail("Expected no CPUs to be available");
+        } catch (IllegalStateException ignore) {
+        }
+        final CpuAllocator.Reservation reused = quarters.reserve();
+        Assert.assertEquals("3", reused.getPlacement().getCpuList());
+        for (CpuAllocator.Reservation reservation : Arrays.asList(half, second, reused)) {
+            reservation.release();
+        }
+    }
+
+    @Test
+    public void testWrap() throws Exception {
+        final CpuAllocator allocator = CpuAllocator.builder()
+                .setDirectory(dir)
+                .setCpus(0, 1, 2, 3)
+                .setServers(2)
+                .build();
+        final CpuAllocator.Reservation reservation = allocator.reserve();
+        try {
+            final CommandBuilder commandBuilder = new CommandBuilder() {
+                @Override
+                public List<String> buildArguments() {
+                    return Collections.singletonList("-c=standalone.xml");
+                }
+
+                @Override
+                public List<String> build() {
+                    return Arrays.asList("java", "-jar", "jboss-modules.jar", "-c=standalone.xml");
+                }
+            };
+            final List<String> command;
+            try {
+                command = reservation.wrap(commandBuilder).build();
+            } catch (IllegalStateException e) {
+                // taskset is not installed
+                return;
+            }
+            Assert.assertTrue(command.get(0).endsWith("taskset"));
+            Assert.assertEquals(Arrays.asList("-c", "0-1", "java", "-jar", "jboss-modules.jar", "-c=standalone.xml"),
+                    command.subList(1, command.size()));
+        } finally {
+            reservation.release();
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.as.controller.client.helpers.ClientConstants;
+import org.jboss.as.controller.client.helpers.Operations;
+import org.jboss.as.controller.client.helpers.domain.DomainClient;
+import org.jboss.dmr.ModelNode;
+import org.jboss.threads.AsyncFuture;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class DeploymentReportTest {
+    private static final List<String> NAMES = Arrays.asList("a.war", "b.war");
+    private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(10L);
+
+    @Test
+    public void testStandaloneSuccessful() throws Exception {
+        final Responses responses = new Responses();
+        // The first check sees the server still starting
+        responses.add(standalone("starting", deployment("a.war", "OK"), deployment("b.war", null)));
+        responses.add(standalone("running", deployment("a.war", "OK"), deployment("b.war", "OK"), deployment("c.war", "FAILED")));
+        final DeploymentReport report = ServerHelper.awaitStandaloneDeployments(null, new StubClient(responses),
+                "standalone", NAMES, TIMEOUT);
+        Assert.assertTrue(report.toString(), report.isSuccessful());
+        Assert.assertFalse(report.hasFailures());
+        Assert.assertEquals(Collections.singleton("standalone"), report.getServers());
+        Assert.assertEquals("running", report.getServerState("standalone"));
+        Assert.assertEquals(statuses(DeploymentReport.Status.OK, DeploymentReport.Status.OK), report.getStatuses("standalone"));
+        Assert.assertEquals(2, responses.executions);
+    }
+
+    @Test
+    public void testStandaloneFailed() throws Exception {
+        final Responses responses = new Responses();
+        responses.add(standalone("running", deployment("a.war", "FAILED"), deployment("b.war", "OK")));
+        final long start = System.nanoTime();
+        final DeploymentReport report = ServerHelper.awaitStandaloneDeployments(null, new StubClient(responses),
+                "standalone", NAMES, TIMEOUT);
+        // A failure ends the wait without waiting for the timeout
+        Assert.assertTrue(System.nanoTime() - start < TIMEOUT);
+        Assert.assertEquals(1, responses.executions);
+        Assert.assertFalse(report.isSuccessful());
+        Assert.assertTrue(report.hasFailures());
+        Assert.assertEquals(statuses(DeploymentReport.Status.FAILED, DeploymentReport.Status.OK), report.getStatuses("standalone"));
+    }
+
+    @Test
+    public void testStandaloneMissing() throws Exception {
+        final Responses responses = new Responses();
+        responses.add(standalone("running", deployment("a.war", "STOPPED"), deployment("b.war", "UNKNOWN")));
+        responses.add(standalone("running", deployment("a.war", "OK")));
+        final DeploymentReport report = ServerHelper.awaitStandaloneDeployments(null, new StubClient(responses),
+                "standalone", NAMES, TimeUnit.MILLISECONDS.toNanos(300L));
+        Assert.assertTrue(responses.executions > 1);
+        Assert.assertFalse(report.isSuccessful());
+        Assert.assertFalse(report.hasFailures());
+        Assert.assertEquals(statuses(DeploymentReport.Status.OK, DeploymentReport.Status.MISSING), report.getStatuses("standalone"));
+        Assert.assertNull(report.getServerState("unknown"));
+        Assert.assertTrue(report.getStatuses("unknown").isEmpty());
+    }
+
+    @Test
+    public void testStandaloneUnreachable() throws Exception {
+        final Responses responses = new Responses();
+        final ModelNode failed = new ModelNode();
+        failed.get(ClientConstants.OUTCOME).set("failed");
+        failed.get(ClientConstants.FAILURE_DESCRIPTION).set("Failed");
+        responses.add(failed);
+        final DeploymentReport report = ServerHelper.awaitStandaloneDeployments(null, new StubClient(responses),
+                "standalone", NAMES, TimeUnit.MILLISECONDS.toNanos(150L));
+        // The report lists the deployments even if the server could never be checked
+        Assert.assertFalse(report.isSuccessful());
+        Assert.assertNull(report.getServerState("standalone"));
+        Assert.assertEquals(statuses(DeploymentReport.Status.MISSING, DeploymentReport.Status.MISSING), report.getStatuses("standalone"));
+    }
+
+    @Test
+    public void testDomain() throws Exception {
+        final Responses responses = new Responses();
+        responses.add(domain(
+                serverValues("server-config", "main-server-group", "main-server-group", "other-server-group"),
+                serverValues("server-config", "STARTED", "STOPPED", "STARTED"),
+                serverValues("server", "running", null, "running"),
+                list(serverDeployment("server-one", "a.war", "OK"), serverDeployment("server-one", "b.war", "OK"),
+                        serverDeployment("server-three", "a.war", "FAILED"))));
+        final DeploymentReport report = ServerHelper.awaitDomainDeployments(DomainClient.Factory.create(new StubClient(responses)), "main-server-group",
+                NAMES, TIMEOUT);
+        // Stopped servers and servers in other groups are not checked
+        Assert.assertTrue(report.toString(), report.isSuccessful());
+        Assert.assertFalse(report.hasFailures());
+        Assert.assertEquals(Collections.singleton("master/server-one"), report.getServers());
+        Assert.assertEquals("running", report.getServerState("master/server-one"));
+        Assert.assertEquals(statuses(DeploymentReport.Status.OK, DeploymentReport.Status.OK), report.getStatuses("master/server-one"));
+    }
+
+    @Test
+    public void testDomainFailed() throws Exception {
+        final Responses responses = new Responses();
+        // The second server has not started yet so it has no server resource
+        responses.add(domain(
+                serverValues("server-config", "main-server-group", "main-server-group"),
+                serverValues("server-config", "STARTED", "STARTING"),
+                serverValues("server", "running"),
+                list(serverDeployment("server-one", "a.war", "OK"), serverDeployment("server-one", "b.war", "FAILED"))));
+        final DeploymentReport report = ServerHelper.awaitDomainDeployments(DomainClient.Factory.create(new StubClient(responses)), "main-server-group",
+                NAMES, TIMEOUT);
+        Assert.assertEquals(1, responses.executions);
+        Assert.assertFalse(report.isSuccessful());
+        Assert.assertTrue(report.hasFailures());
+        Assert.assertEquals(Arrays.asList("master/server-one", "master/server-two"), Arrays.asList(report.getServers().toArray()));
+        Assert.assertEquals(statuses(DeploymentReport.Status.OK, DeploymentReport.Status.FAILED), report.getStatuses("master/server-one"));
+        Assert.assertEquals("starting", report.getServerState("master/server-two"));
+        Assert.assertEquals(statuses(DeploymentReport.Status.MISSING, DeploymentReport.Status.MISSING), report.getStatuses("master/server-two"));
+    }
+
+    @Test
+    public void testDomainNoServers() throws Exception {
+        final Responses responses = new Responses();
+        responses.add(domain(
+                serverValues("server-config", "other-server-group"),
+                serverValues("server-config", "STARTED"),
+                serverValues("server", "running"),
+                list()));
+        final DeploymentReport report = ServerHelper.awaitDomainDeployments(DomainClient.Factory.create(new StubClient(responses)), "main-server-group",
+                NAMES, TimeUnit.MILLISECONDS.toNanos(150L));
+        // A group without any started servers is never successful
+        Assert.assertFalse(report.isSuccessful());
+        Assert.assertFalse(report.hasFailures());
+        Assert.assertTrue(report.getServers().isEmpty());
+    }
+
+    @Test
+    public void testReport() {
+        final Map<String, String> serverStates = new LinkedHashMap<>();
+        serverStates.put("one", "reload-required");
+        serverStates.put("two", "restart-required");
+        final Map<String, Map<String, DeploymentReport.Status>> statuses = new LinkedHashMap<>();
+        statuses.put("one", statuses(DeploymentReport.Status.OK, DeploymentReport.Status.OK));
+        statuses.put("two", statuses(DeploymentReport.Status.OK, DeploymentReport.Status.OK));
+        DeploymentReport report = new DeploymentReport(serverStates, statuses);
+        Assert.assertTrue(report.isSuccessful());
+        Assert.assertEquals("DeploymentReport{one=reload-required {a.war=OK, b.war=OK}, two=restart-required {a.war=OK, b.war=OK}}",
+                report.toString());
+
+        serverStates.put("two", "stopping");
+        Assert.assertFalse(report.isSuccessful());
+        serverStates.put("two", "running");
+        statuses.put("two", statuses(DeploymentReport.Status.OK, DeploymentReport.Status.UNDEFINED));
+        Assert.assertFalse(report.isSuccessful());
+        Assert.assertFalse(report.hasFailures());
+
+        report = new DeploymentReport(Collections.emptyMap(), Collections.emptyMap());
+        Assert.assertFalse(report.isSuccessful());
+        Assert.assertFalse(report.hasFailures());
+    }
+
+    private static Map<String, DeploymentReport.Status> statuses(final DeploymentReport.Status a, final DeploymentReport.Status b) {
+        final Map<String, DeploymentReport.Status> result = new LinkedHashMap<>();
+        result.put("a.war", a);
+        result.put("b.war", b);
+        return result;
+    }
+
+    private static ModelNode standalone(final String serverState, final ModelNode... deployments) {
+        return composite(success(new ModelNode(serverState)), success(list(deployments)));
+    }
+
+    private static ModelNode domain(final ModelNode groups, final ModelNode configStatuses, final ModelNode serverStates, final ModelNode deployments) {
+        return composite(success(groups), success(configStatuses), success(serverStates), success(deployments));
+    }
+
+    private static ModelNode composite(final ModelNode... steps) {
+        final ModelNode result = new ModelNode();
+        for (int i = 0; i < steps.length; i++) {
+            result.get("step-" + (i + 1)).set(steps[i]);
+        }
+        return success(result);
+    }
+
+    private static ModelNode deployment(final String name, final String status) {
+        return success(Operations.createAddress(ClientConstants.DEPLOYMENT, name), status);
+    }
+
+    private static ModelNode serverDeployment(final String server, final String name, final String status) {
+        return success(Operations.createAddress(ClientConstants.HOST, "master", "server", server, ClientConstants.DEPLOYMENT, name), status);
+    }
+
+    /**
+     * Creates the results of a wildcard read-attribute for server-one, server-two, etc. on the master host. A
+     * {@code null} value skips the server.
+     */
+    private static ModelNode serverValues(final String serverKey, final String... values) {
+        final String[] names = {"server-one", "server-two", "server-three"};
+        final ModelNode result = new ModelNode().setEmptyList();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                result.add(success(Operations.createAddress(ClientConstants.HOST, "master", serverKey, names[i]), values[i]));
+            }
+        }
+        return result;
+    }
+
+    private static ModelNode list(final ModelNode... entries) {
+        final ModelNode result = new ModelNode().setEmptyList();
+        for (ModelNode entry : entries) {
+            result.add(entry);
+        }
+        return result;
+    }
+
+    private static ModelNode success(final ModelNode address, final String value) {
+        final ModelNode result = success(value == null ? new ModelNode() : new ModelNode(value));
+        result.get(ClientConstants.ADDRESS).set(address);
+        return result;
+    }
+
+    private static ModelNode success(final ModelNode result) {
+        final ModelNode response = new ModelNode();
+        response.get(ClientConstants.OUTCOME).set(ClientConstants.SUCCESS);
+        response.get(ClientConstants.RESULT).set(result);
+        return response;
+    }
+
+    /**
+     * Answers each operation with the next response, the last response is repeated.
+     */
+    private static class Responses implements StubClient.Handler {
+        private final Deque<ModelNode> responses = new ArrayDeque<>();
+        private volatile int executions;
+
+        void add(final ModelNode response) {
+            responses.add(response);
+        }
+
+        @Override
+        public AsyncFuture<ModelNode> execute(final ModelNode operation) {
+            executions++;
+            return StubFuture.completed(responses.size() > 1 ? responses.poll() : responses.peek());
+        }
+    }
+}
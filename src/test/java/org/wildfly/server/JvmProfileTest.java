@@ -0,0 +1,149 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class JvmProfileTest {
+    private static final long GB = 1024L * 1024L * 1024L;
+
+    private Path root;
+
+    @Before
+    public void createRoot() throws IOException {
+        root = Files.createTempDirectory("jvm-profile");
+        write("proc/meminfo", "MemTotal:       16777216 kB\nMemFree:         1024 kB\n");
+    }
+
+    @After
+    public void deleteRoot() throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(final Path dir, final IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void testDetectWithoutLimits() throws Exception {
+        final HostResources resources = HostResources.detect(root, 8);
+        Assert.assertEquals(16L * GB, resources.getMemory());
+        Assert.assertEquals(8, resources.getProcessors());
+    }
+
+    @Test
+    public void testDetectCgroupV1() throws Exception {
+        write("sys/fs/cgroup/memory/memory.limit_in_bytes", Long.toString(4L * GB));
+        write("sys/fs/cgroup/cpu/cpu.cfs_quota_us", "150000");
+        write("sys/fs/cgroup/cpu/cpu.cfs_period_us", "100000");
+        final HostResources resources = HostResources.detect(root, 8);
+        Assert.assertEquals(4L * GB, resources.getMemory());
+        Assert.assertEquals(2, resources.getProcessors());
+    }
+
+    @Test
+    public void testDetectCgroupV1Unlimited() throws Exception {
+        write("sys/fs/cgroup/memory/memory.limit_in_bytes", "9223372036854771712");
+        write("sys/fs/cgroup/cpu/cpu.cfs_quota_us", "-1");
+        write("sys/fs/cgroup/cpu/cpu.cfs_period_us", "100000");
+        final HostResources resources = HostResources.detect(root, 8);
+        Assert.assertEquals(16L * GB, resources.getMemory());
+        Assert.assertEquals(8, resources.getProcessors());
+    }
+
+    @Test
+    public void testDetectCgroupV2() throws Exception {
+        write("sys/fs/cgroup/cgroup.controllers", "cpu memory");
+        write("sys/fs/cgroup/memory.max", Long.toString(2L * GB));
+        write("sys/fs/cgroup/cpu.max", "max 100000");
+        final HostResources resources = HostResources.detect(root, 4);
+        Assert.assertEquals(2L * GB, resources.getMemory());
+        Assert.assertEquals(4, resources.getProcessors());
+    }
+
+    @Test
+    public void testProfile() throws Exception {
+        final JvmProfile.Builder builder = JvmProfile.builder()
+                .setHostResources(HostResources.of(32L * GB, 16))
+                .setServers(4)
+                .setMemoryRatio(0.5d)
+                .setHeapRatio(0.5d);
+        JvmProfile profile = builder.build();
+        Assert.assertEquals(2L * GB, profile.getMaxHeap());
+        Assert.assertEquals(4, profile.getProcessors());
+        Assert.assertEquals(JvmProfile.GarbageCollector.G1, profile.getGarbageCollector());
+        Assert.assertEquals(Arrays.asList("-Xmx2048m", "-XX:ActiveProcessorCount=4", "-XX:+UseG1GC", "-XX:MaxMetaspaceSize=256m"),
+                profile.getJavaOptions());
+
+        // Small shares use the serial collector
+        profile = builder.setServers(16).build();
+        Assert.assertEquals(512L * 1024L * 1024L, profile.getMaxHeap());
+        Assert.assertEquals(1, profile.getProcessors());
+        Assert.assertEquals(JvmProfile.GarbageCollector.SERIAL, profile.getGarbageCollector());
+
+        // Override a single value for one server
+        profile = JvmProfile.builder(profile).setGarbageCollector(JvmProfile.GarbageCollector.PARALLEL).build();
+        Assert.assertEquals(512L * 1024L * 1024L, profile.getMaxHeap());
+        Assert.assertEquals(JvmProfile.GarbageCollector.PARALLEL, profile.getGarbageCollector());
+    }
+
+    @Test
+    public void testApply() throws Exception {
+        final JvmProfile profile = JvmProfile.builder()
+                .setMaxHeap(GB)
+                .setProcessors(2)
+                .setGarbageCollector(JvmProfile.GarbageCollector.G1)
+                .build();
+        final List<String> options = profile.apply(Arrays.asList("-Xms64m", "-Xmx512m", "-Djava.awt.headless=true",
+                "-XX:+UseParallelGC", "-XX:MaxMetaspaceSize=512m"));
+        Assert.assertEquals(Arrays.asList("-Djava.awt.headless=true", "-Xmx1024m", "-XX:ActiveProcessorCount=2",
+                "-XX:+UseG1GC", "-XX:MaxMetaspaceSize=256m"), options);
+    }
+
+    private void write(final String name, final String value) throws IOException {
+        final Path file = root.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, value.getBytes(StandardCharsets.US_ASCII));
+    }
+}
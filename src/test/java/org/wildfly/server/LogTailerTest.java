@@ -0,0 +1,162 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.as.controller.client.helpers.ClientConstants;
+import org.jboss.dmr.ModelNode;
+import org.jboss.threads.AsyncFuture;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class LogTailerTest {
+
+    @Test
+    public void testPaging() throws Exception {
+        final LogFile logFile = new LogFile();
+        logFile.write("one\ntwo\nthree\nfour\nfive\n");
+        final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        try (LogTailer tailer = createTailer()) {
+            register(tailer, logFile, received);
+            assertLines(received, "one", "two", "three", "four", "five");
+            assertNoLines(received);
+        }
+        // One more line than the batch size is read to know if more lines are available
+        final ModelNode first = logFile.reads.get(0);
+        Assert.assertEquals(0, first.get("skip").asInt());
+        Assert.assertEquals(3, first.get("lines").asInt());
+        Assert.assertEquals(2, logFile.reads.get(1).get("skip").asInt());
+        Assert.assertEquals(4, logFile.reads.get(2).get("skip").asInt());
+    }
+
+    @Test
+    public void testPartialLine() throws Exception {
+        final LogFile logFile = new LogFile();
+        logFile.write("one\ntwo\nthree\nfo");
+        final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        try (LogTailer tailer = createTailer()) {
+            register(tailer, logFile, received);
+            assertLines(received, "one", "two", "three");
+            assertNoLines(received);
+
+            logFile.write("ur\nfi");
+            assertLines(received, "four");
+            assertNoLines(received);
+            logFile.write("ve\n");
+            assertLines(received, "five");
+
+            // Multi-byte characters and two byte line separators
+            logFile.write("caf\u00e9 \u20ac \ud83d\ude00");
+            assertNoLines(received);
+            logFile.write("\r\n");
+            assertLines(received, "caf\u00e9 \u20ac \ud83d\ude00");
+            logFile.write("six\r\nsev");
+            assertLines(received, "six");
+            assertNoLines(received);
+            logFile.write("en\r\n");
+            assertLines(received, "seven");
+        }
+    }
+
+    @Test
+    public void testRotation() throws Exception {
+        final LogFile logFile = new LogFile();
+        logFile.write("one\ntwo\nthree\n");
+        final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        try (LogTailer tailer = createTailer()) {
+            register(tailer, logFile, received);
+            assertLines(received, "one", "two", "three");
+            logFile.rotate("new\npart");
+            assertLines(received, "new");
+            assertNoLines(received);
+            logFile.write("ial\n");
+            assertLines(received, "partial");
+        }
+    }
+
+    private static LogTailer createTailer() {
+        return LogTailer.builder()
+                .setInterval(10L, TimeUnit.MILLISECONDS)
+                .setBatchSize(2)
+                .build();
+    }
+
+    private static void register(final LogTailer tailer, final LogFile logFile, final BlockingQueue<String> received) {
+        tailer.register("test", new StubClient(logFile), new ModelNode().setEmptyList(), "server.log", (name, lines) -> received.addAll(lines));
+    }
+
+    private static void assertLines(final BlockingQueue<String> received, final String... expected) throws InterruptedException {
+        for (String line : expected) {
+            Assert.assertEquals(line, received.poll(5L, TimeUnit.SECONDS));
+        }
+    }
+
+    private static void assertNoLines(final BlockingQueue<String> received) throws InterruptedException {
+        final String line = received.poll(100L, TimeUnit.MILLISECONDS);
+        Assert.assertNull("Unexpected line " + line, line);
+    }
+
+    private static class LogFile implements StubClient.Handler {
+        private final StringBuilder content = new StringBuilder();
+        private final List<ModelNode> reads = new CopyOnWriteArrayList<>();
+
+        synchronized void write(final String text) {
+            content.append(text);
+        }
+
+        synchronized void rotate(final String text) {
+            content.setLength(0);
+            content.append(text);
+        }
+
+        @Override
+        public synchronized AsyncFuture<ModelNode> execute(final ModelNode operation) {
+            final List<ModelNode> steps = operation.get(ClientConstants.STEPS).asList();
+            final ModelNode readLogFile = steps.get(1);
+            reads.add(readLogFile);
+            Assert.assertEquals("UTF-8", readLogFile.get("encoding").asString());
+            final int skip = readLogFile.get("skip").asInt();
+            final int count = readLogFile.get("lines").asInt();
+            // Lines are read as BufferedReader.readLine() would, so a final line without a separator is included
+            final ModelNode lines = new ModelNode().setEmptyList();
+            final String[] all = content.toString().split("\r?\n", -1);
+            final int total = all[all.length - 1].isEmpty() ? all.length - 1 : all.length;
+            for (int i = skip; i < total && i < skip + count; i++) {
+                lines.add(all[i]);
+            }
+            final ModelNode result = new ModelNode();
+            result.get(ClientConstants.OUTCOME).set(ClientConstants.SUCCESS);
+            result.get(ClientConstants.RESULT, "step-1", ClientConstants.OUTCOME).set(ClientConstants.SUCCESS);
+            result.get(ClientConstants.RESULT, "step-1", ClientConstants.RESULT).set(content.toString().getBytes(StandardCharsets.UTF_8).length);
+            result.get(ClientConstants.RESULT, "step-2", ClientConstants.OUTCOME).set(ClientConstants.SUCCESS);
+            result.get(ClientConstants.RESULT, "step-2", ClientConstants.RESULT).set(lines);
+            return StubFuture.completed(result);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class MetricHistoryTest {
+
+    @Test
+    public void testWrap() {
+        final MetricHistory history = new MetricHistory(Metric.Type.LONG, 3);
+        Assert.assertEquals(0, history.size());
+        for (int i = 1; i <= 5; i++) {
+            history.addLong(i * 10L, i);
+        }
+        Assert.assertEquals(3, history.size());
+        Assert.assertEquals(3L, history.getLong(0));
+        Assert.assertEquals(30L, history.getTimestamp(0));
+        Assert.assertEquals(5L, history.getLong(2));
+        Assert.assertEquals(5L, history.getLatestLong());
+        Assert.assertEquals(50L, history.getLatestTimestamp());
+
+        final long[] timestamps = new long[2];
+        final double[] values = new double[2];
+        Assert.assertEquals(2, history.copyTo(timestamps, values));
+        Assert.assertArrayEquals(new long[] {40L, 50L}, timestamps);
+        Assert.assertArrayEquals(new double[] {4D, 5D}, values, 0D);
+    }
+
+    @Test
+    public void testDoubleValues() {
+        final MetricHistory history = new MetricHistory(Metric.Type.DOUBLE, 2);
+        history.addDouble(1L, 0.25D);
+        history.addLong(2L, 3L);
+        Assert.assertEquals(0.25D, history.getDouble(0), 0D);
+        Assert.assertEquals(3D, history.getLatestDouble(), 0D);
+        Assert.assertEquals(3L, history.getLatestLong());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testInvalidIndex() {
+        final MetricHistory history = new MetricHistory(Metric.Type.LONG, 2);
+        history.addLong(1L, 1L);
+        history.getLong(1);
+    }
+}
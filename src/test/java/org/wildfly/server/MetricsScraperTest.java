@@ -0,0 +1,153 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.as.controller.client.helpers.ClientConstants;
+import org.jboss.as.controller.client.helpers.Operations;
+import org.jboss.dmr.ModelNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class MetricsScraperTest {
+    private static final Metric HEAP = Metric.of("heap-used", Operations.createAddress("core-service", "platform-mbean", "type", "memory"),
+            "heap-memory-usage", "used");
+    private static final Metric THREADS = Metric.of("thread-count", Operations.createAddress("core-service", "platform-mbean", "type", "threading"),
+            "thread-count");
+    private static final Metric LOAD = Metric.ofDouble("load", Operations.createAddress("core-service", "platform-mbean", "type", "operating-system"),
+            "system-load-average");
+
+    @Test
+    public void testCompositeOperation() throws Exception {
+        final BlockingQueue<ModelNode> operations = new LinkedBlockingQueue<>();
+        try (MetricsScraper scraper = createScraper()) {
+            scraper.register("server-one", new StubClient(operation -> {
+                operations.add(operation);
+                return StubFuture.completed(success(new ModelNode()));
+            }), Operations.createAddress("host", "master", "server", "server-one"));
+            final ModelNode op = operations.poll(5L, TimeUnit.SECONDS);
+            Assert.assertNotNull("Expected the metrics to be read", op);
+            Assert.assertEquals(ClientConstants.COMPOSITE, Operations.getOperationName(op));
+            final List<ModelNode> steps = op.get(ClientConstants.STEPS).asList();
+            Assert.assertEquals(3, steps.size());
+            int i = 0;
+            for (Metric metric : scraper.getMetrics()) {
+                final ModelNode step = steps.get(i++);
+                Assert.assertEquals(ClientConstants.READ_ATTRIBUTE_OPERATION, Operations.getOperationName(step));
+                Assert.assertEquals(metric.getAttribute(), step.get(ClientConstants.NAME).asString());
+                // The address of the metric is appended to the address prefix
+                final ModelNode expected = Operations.createAddress("host", "master", "server", "server-one");
+                for (ModelNode element : metric.getAddress().asList()) {
+                    expected.add(element);
+                }
+                Assert.assertEquals(expected, Operations.getOperationAddress(step));
+            }
+        }
+    }
+
+    @Test
+    public void testResults() throws Exception {
+        // The composite fails as the thread count could not be read, the other steps are still recorded
+        final ModelNode result = new ModelNode();
+        final ModelNode heap = new ModelNode();
+        heap.get("used").set(1024L);
+        heap.get("max").set(4096L);
+        result.get("step-1").set(success(heap));
+        result.get("step-2", ClientConstants.OUTCOME).set("failed");
+        result.get("step-2", ClientConstants.FAILURE_DESCRIPTION).set("WFLYCTL0216: Management resource not found");
+        result.get("step-3").set(success(new ModelNode(1.5d)));
+        final ModelNode response = new ModelNode();
+        response.get(ClientConstants.OUTCOME).set("failed");
+        response.get(ClientConstants.FAILURE_DESCRIPTION).set("WFLYCTL0062: Composite operation failed and was rolled back.");
+        response.get(ClientConstants.RESULT).set(result);
+        try (MetricsScraper scraper = createScraper()) {
+            scraper.register("server-one", new StubClient(operation -> StubFuture.completed(response)), ServerHelper.EMPTY_ADDRESS);
+            final MetricHistory heapHistory = awaitHistory(scraper, "server-one", HEAP.getName());
+            Assert.assertEquals(1024L, heapHistory.getLatestLong());
+            final MetricHistory loadHistory = awaitHistory(scraper, "server-one", LOAD.getName());
+            Assert.assertEquals(1.5d, loadHistory.getLatestDouble(), 0d);
+            Assert.assertEquals(0, scraper.getHistory("server-one", THREADS.getName()).size());
+            Assert.assertTrue(scraper.getLatencyHistory("server-one").size() > 0);
+            Assert.assertNull(scraper.getHistory("server-two", HEAP.getName()));
+        }
+    }
+
+    @Test
+    public void testFailedRead() throws Exception {
+        final AtomicInteger executions = new AtomicInteger();
+        final ModelNode result = new ModelNode();
+        result.get("step-1").set(success(new ModelNode().set("used", 2048L)));
+        result.get("step-2").set(success(new ModelNode(25)));
+        result.get("step-3").set(success(new ModelNode(0.5d)));
+        try (MetricsScraper scraper = createScraper()) {
+            scraper.register("server-one", new StubClient(operation -> {
+                final StubFuture future = new StubFuture();
+                if (executions.incrementAndGet() == 1) {
+                    future.fail(new IOException("Channel closed"));
+                } else {
+                    future.complete(success(result));
+                }
+                return future;
+            }), ServerHelper.EMPTY_ADDRESS);
+            // A failed read records nothing and does not stop the next read
+            Assert.assertEquals(2048L, awaitHistory(scraper, "server-one", HEAP.getName()).getLatestLong());
+            Assert.assertEquals(25L, scraper.getHistory("server-one", THREADS.getName()).getLatestLong());
+            Assert.assertTrue(executions.get() > 1);
+        }
+    }
+
+    private static MetricsScraper createScraper() {
+        return MetricsScraper.builder()
+                .addMetric(HEAP)
+                .addMetric(THREADS)
+                .addMetric(LOAD)
+                .setInterval(10L, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    private static MetricHistory awaitHistory(final MetricsScraper scraper, final String serverName, final String metricName) throws InterruptedException {
+        final MetricHistory history = scraper.getHistory(serverName, metricName);
+        Assert.assertNotNull(history);
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5L);
+        while (history.size() == 0) {
+            if (System.nanoTime() > deadline) {
+                Assert.fail("No values were recorded for " + metricName);
+            }
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+        return history;
+    }
+
+    private static ModelNode success(final ModelNode result) {
+        final ModelNode response = new ModelNode();
+        response.get(ClientConstants.OUTCOME).set(ClientConstants.SUCCESS);
+        response.get(ClientConstants.RESULT).set(result);
+        return response;
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.as.controller.client.helpers.Operations;
+import org.jboss.dmr.ModelNode;
+import org.jboss.threads.AsyncFuture;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class ModelWalkerTest {
+    private static final ModelNode ROOT = new ModelNode().setEmptyList();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testWalk() throws Exception {
+        final TestServer server = new TestServer(createModel());
+        final List<ModelNode> visited = new ArrayList<>();
+        final List<ModelNode> failed = new ArrayList<>();
+        // Reading one resource at a time visits the resources in depth first order
+        ModelWalker.builder().setMaxConcurrency(1).build().walk(new StubClient(server), ROOT, new ResourceVisitor() {
+            @Override
+            public boolean visit(final ModelNode address, final ModelNode attributes) {
+                visited.add(address);
+                // Child types are not included in the attributes
+                Assert.assertEquals(Collections.singleton(address.asList().isEmpty() ? "name" : "value"), attributes.keys());
+                // Skip the children of subsystem=b
+                return !Operations.createAddress("subsystem", "b").equals(address);
+            }
+
+            @Override
+            public void failed(final ModelNode address, final ModelNode failureDescription) {
+                failed.add(address);
+            }
+        });
+        Assert.assertEquals(Arrays.asList(ROOT,
+                Operations.createAddress("subsystem", "a"),
+                Operations.createAddress("subsystem", "a", "x", "1"),
+                Operations.createAddress("subsystem", "a", "x", "2"),
+                Operations.createAddress("subsystem", "b")), visited);
+        Assert.assertTrue(failed.isEmpty());
+    }
+
+    @Test
+    public void testMaxDepth() throws Exception {
+        final TestServer server = new TestServer(createModel());
+        final List<ModelNode> visited = new ArrayList<>();
+        ModelWalker.builder().setMaxDepth(1).build().walk(new StubClient(server), ROOT, (address, attributes) -> visited.add(address));
+        Assert.assertEquals(3, visited.size());
+        for (ModelNode address : visited) {
+            Assert.assertTrue(address.toString(), address.asList().size() <= 1);
+        }
+        Assert.assertEquals(3, server.executions.get());
+    }
+
+    @Test
+    public void testMaxConcurrency() throws Exception {
+        final Map<ModelNode, ModelNode> model = new LinkedHashMap<>();
+        model.put(ROOT, new ModelNode().setEmptyObject());
+        for (int i = 0; i < 20; i++) {
+            model.put(Operations.createAddress("system-property", "p" + i), attributes("value", Integer.toString(i)));
+        }
+        final TestServer server = new TestServer(model);
+        server.delay = 10L;
+        final AtomicInteger visited = new AtomicInteger();
+        ModelWalker.builder().setMaxConcurrency(3).build().walk(new StubClient(server), ROOT, (address, attributes) -> visited.incrementAndGet() > 0);
+        Assert.assertEquals(21, visited.get());
+        Assert.assertEquals(3, server.maxInFlight.get());
+    }
+
+    @Test
+    public void testFailures() throws Exception {
+        final TestServer server = new TestServer(createModel());
+        // The resource was removed after its parent was read
+        server.removed.add(Operations.createAddress("subsystem", "a", "x", "2"));
+        final List<ModelNode> failed = new ArrayList<>();
+        final AtomicInteger visited = new AtomicInteger();
+        ModelWalker.builder().build().walk(new StubClient(server), ROOT, new ResourceVisitor() {
+            @Override
+            public boolean visit(final ModelNode address, final ModelNode attributes) {
+                visited.incrementAndGet();
+                return true;
+            }
+
+            @Override
+            public void failed(final ModelNode address, final ModelNode failureDescription) {
+                failed.add(address);
+            }
+        });
+        Assert.assertEquals(5, visited.get());
+        Assert.assertEquals(1, failed.size());
+        Assert.assertEquals(Operations.createAddress("subsystem", "a", "x", "2"), failed.get(0));
+
+        // A failure communicating with the server stops the walk and cancels the reads in progress
+        final TestServer failing = new TestServer(createModel());
+        failing.delay = 50L;
+        failing.failAfter = 2;
+        try {
+            ModelWalker.builder().build().walk(new StubClient(failing), ROOT, (address, attributes) -> true);
+            Assert.fail("Expected the walk to fail");
+        } catch (IOException expected) {
+            Assert.assertEquals("Channel closed", expected.getMessage());
+        }
+        Assert.assertTrue("Expected the reads in progress to be cancelled", failing.cancelled.get() > 0);
+    }
+
+    private static Map<ModelNode, ModelNode> createModel() {
+        final Map<ModelNode, ModelNode> model = new LinkedHashMap<>();
+        model.put(ROOT, attributes("name", "server"));
+        model.put(Operations.createAddress("subsystem", "a"), attributes("value", "a"));
+        model.put(Operations.createAddress("subsystem", "a", "x", "1"), attributes("value", "1"));
+        model.put(Operations.createAddress("subsystem", "a", "x", "2"), attributes("value", "2"));
+        model.put(Operations.createAddress("subsystem", "b"), attributes("value", "b"));
+        model.put(Operations.createAddress("subsystem", "b", "y", "1"), attributes("value", "1"));
+        return model;
+    }
+
+    private static ModelNode attributes(final String name, final String value) {
+        final ModelNode result = new ModelNode();
+        result.get(name).set(value);
+        return result;
+    }
+
+    private class TestServer implements StubClient.Handler {
+        private final Map<ModelNode, ModelNode> model;
+        private final AtomicInteger executions = new AtomicInteger();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+        private final AtomicInteger cancelled = new AtomicInteger();
+        private final Set<ModelNode> removed = new HashSet<>();
+        private volatile long delay;
+        private volatile int failAfter = -1;
+
+        private TestServer(final Map<ModelNode, ModelNode> model) {
+            this.model = model;
+        }
+
+        @Override
+        public AsyncFuture<ModelNode> execute(final ModelNode operation) {
+            final int execution = executions.incrementAndGet();
+            final int current = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(current, Math::max);
+            final StubFuture future = new StubFuture() {
+                @Override
+                public void asyncCancel(final boolean interruptionDesired) {
+                    if (cancelled()) {
+                        cancelled.incrementAndGet();
+                    }
+                }
+            };
+            final ModelNode result = read(operation);
+            if (delay > 0L) {
+                // The first failure completes immediately while the other reads are still in progress
+                final long delay = (execution == failAfter ? 0L : this.delay);
+                executor.execute(() -> {
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(delay);
+                    } catch (InterruptedException ignore) {
+                    }
+                    complete(future, execution, result);
+                });
+            } else {
+                complete(future, execution, result);
+            }
+            return future;
+        }
+
+        private void complete(final StubFuture future, final int execution, final ModelNode result) {
+            inFlight.decrementAndGet();
+            if (execution == failAfter) {
+                future.fail(new IOException("Channel closed"));
+            } else {
+                future.complete(result);
+            }
+        }
+
+        private ModelNode read(final ModelNode operation) {
+            final ModelNode address = Operations.getOperationAddress(operation.get("steps").get(0));
+            final ModelNode result = new ModelNode();
+            if (removed.contains(address)) {
+                result.get("outcome").set("failed");
+                result.get("failure-description").set("Resource not found " + address);
+                return result;
+            }
+            result.get("outcome").set("success");
+            final ModelNode types = result.get("result", "step-1", "result").setEmptyList();
+            final ModelNode resource = result.get("result", "step-2", "result").set(model.get(address));
+            final int depth = address.asList().size();
+            for (ModelNode child : model.keySet()) {
+                final List<ModelNode> segments = child.asList();
+                if (segments.size() == depth + 1 && segments.subList(0, depth).equals(address.asList())) {
+                    final String type = segments.get(depth).asProperty().getName();
+                    if (!resource.has(type)) {
+                        types.add(type);
+                    }
+                    resource.get(type, segments.get(depth).asProperty().getValue().asString());
+                }
+            }
+            // Types without children are returned either undefined or as an empty object
+            types.add("interface");
+            resource.get("interface");
+            types.add("deployment");
+            resource.get("deployment").setEmptyObject();
+            result.get("result", "step-1", "outcome").set("success");
+            result.get("result", "step-2", "outcome").set("success");
+            return result;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class PortAllocatorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testReserveAndRelease() throws Exception {
+        final InetAddress address = InetAddress.getLoopbackAddress();
+        final PortAllocator allocator = PortAllocator.builder()
+                .setDirectory(temporaryFolder.getRoot().toPath())
+                .setBlockSize(10)
+                .setPorts(21000)
+                .build();
+        final PortAllocator.Reservation first = allocator.reserve(address);
+        final PortAllocator.Reservation second = allocator.reserve(address);
+        Assert.assertNotEquals(first.getOffset(), second.getOffset());
+
+        // Once released the block should be available again
+        first.release();
+        final PortAllocator.Reservation third = allocator.reserve(address);
+        Assert.assertEquals(first.getOffset(), third.getOffset());
+
+        // A released block can't be acquired again if another reservation holds it
+        try {
+            first.acquire();
+            Assert.fail("Expected the block to be held by another reservation");
+        } catch (IllegalStateException expected) {
+        }
+        second.release();
+        third.release();
+    }
+
+    @Test
+    public void testSkipBoundPorts() throws Exception {
+        final InetAddress address = InetAddress.getLoopbackAddress();
+        final PortAllocator allocator = PortAllocator.builder()
+                .setDirectory(temporaryFolder.getRoot().toPath())
+                .setBlockSize(10)
+                .setPorts(21000)
+                .build();
+        try (ServerSocket socket = new ServerSocket()) {
+            // Bind the port of the first block
+            socket.bind(new InetSocketAddress(address, 21010));
+            final PortAllocator.Reservation reservation = allocator.reserve(address);
+            Assert.assertNotEquals(10, reservation.getOffset());
+            reservation.release();
+        }
+    }
+
+    @Test
+    public void testProbeHeldBlockInSameJvm() throws Exception {
+        final InetAddress address = InetAddress.getLoopbackAddress();
+        final Path directory = temporaryFolder.getRoot().toPath();
+        final PortAllocator first = PortAllocator.builder()
+                .setDirectory(directory)
+                .setBlockSize(10)
+                .setPorts(21000)
+                .build();
+        final PortAllocator second = PortAllocator.builder()
+                .setDirectory(directory)
+                .setBlockSize(10)
+                .setPorts(21000)
+                .build();
+        final PortAllocator.Reservation held = first.reserve(address);
+        Assert.assertEquals(10, held.getOffset());
+
+        // The second allocator probes the held block before reserving the next one
+        final PortAllocator.Reservation probed = second.reserve(address);
+        Assert.assertEquals(20, probed.getOffset());
+        probed.release();
+
+        // The probe must not have released the lock this JVM holds
+        Assert.assertFalse("The block was released by the probe", lockFromAnotherJvm(directory.resolve("block-1.lock")));
+        held.release();
+        Assert.assertTrue(lockFromAnotherJvm(directory.resolve("block-1.lock")));
+    }
+
+    private static boolean lockFromAnotherJvm(final Path lockFile) throws Exception {
+        final String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        final Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                LockProbe.class.getName(), lockFile.toString())
+                .redirectErrorStream(true)
+                .redirectOutput(new File(lockFile + ".out"))
+                .start();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            Assert.fail("The lock probe did not complete");
+        }
+        return process.exitValue() == 0;
+    }
+
+    /**
+     * Exits with 0 if the lock on the file could be acquired from this JVM, otherwise 1.
+     */
+    public static class LockProbe {
+        public static void main(final String[] args) throws Exception {
+            try (
+                    FileChannel channel = FileChannel.open(Paths.get(args[0]), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                    FileLock lock = channel.tryLock()
+            ) {
+                System.exit(lock == null ? 1 : 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class ProcessesTest {
+
+    @Test
+    public void testStatFields() {
+        final byte[] stat = bytes("4242 (java) S 1 4242 4242 0 -1 4194304 1500 0 3 0 250 75 0 0 20 0 42 0 100\n");
+        Assert.assertEquals(1L, field(stat, 4));
+        Assert.assertEquals(4242L, field(stat, 5));
+        Assert.assertEquals(250L, field(stat, 14));
+        Assert.assertEquals(75L, field(stat, 15));
+        Assert.assertEquals(42L, field(stat, 20));
+        Assert.assertEquals(-1, Processes.statFieldOffset(stat, stat.length, 30));
+        Assert.assertEquals('S', stat[Processes.statFieldOffset(stat, stat.length, 3)]);
+    }
+
+    @Test
+    public void testStatCommandWithSpacesAndParentheses() {
+        byte[] stat = bytes("4243 (my app) R 4242 4243 4242 0 -1 0 0 0 0 0 12 3 0 0 20 0 1 0 100\n");
+        Assert.assertEquals(4242L, field(stat, 4));
+        Assert.assertEquals(12L, field(stat, 14));
+        Assert.assertEquals(3L, field(stat, 15));
+
+        // Only the last ')' ends the command
+        stat = bytes("4244 (a) S 1 (b)) Z 4243 4244 4242 0 -1 0 0 0 0 0 7 8 0 0 20 0 1 0 100\n");
+        Assert.assertEquals('Z', stat[Processes.statFieldOffset(stat, stat.length, 3)]);
+        Assert.assertEquals(4243L, field(stat, 4));
+        Assert.assertEquals(7L, field(stat, 14));
+        Assert.assertEquals(8L, field(stat, 15));
+
+        // Only the valid length of the buffer is searched
+        final byte[] buffer = new byte[64];
+        final byte[] truncated = bytes("4245 (sh) S 1 4245");
+        System.arraycopy(truncated, 0, buffer, 0, truncated.length);
+        buffer[truncated.length + 1] = ')';
+        Assert.assertEquals(1L, Processes.parseLong(buffer, Processes.statFieldOffset(buffer, truncated.length, 4), truncated.length));
+        Assert.assertEquals(-1, Processes.statFieldOffset(buffer, truncated.length, 6));
+        Assert.assertEquals(-1, Processes.statFieldOffset(bytes("4246 (sh S 1"), 12, 4));
+    }
+
+    @Test
+    public void testStatusValue() {
+        final byte[] status = bytes("Name:\tjava\nUmask:\t0022\nState:\tS (sleeping)\nVmRSSMax:\t99 kB\nVmRSS:\t  123456 kB\nThreads:\t42");
+        Assert.assertEquals(123456L, ProcessResourceSampler.statusValue(status, status.length, bytes("VmRSS:")));
+        Assert.assertEquals(42L, ProcessResourceSampler.statusValue(status, status.length, bytes("Threads:")));
+        Assert.assertEquals(0L, ProcessResourceSampler.statusValue(status, status.length, bytes("VmSwap:")));
+        // The key must be at the start of a line
+        Assert.assertEquals(0L, ProcessResourceSampler.statusValue(status, status.length, bytes("RSS:")));
+    }
+
+    @Test
+    public void testWithDescendants() {
+        final Processes.ProcessTree tree = new Processes.ProcessTree(
+                new long[] {1L, 20L, 10L, 11L, 12L, 30L, 0L},
+                new long[] {0L, 11L, 1L, 10L, 10L, 1L, 0L},
+                6);
+        Assert.assertArrayEquals(new long[] {10L, 11L, 12L, 20L}, tree.withDescendants(10L));
+        Assert.assertArrayEquals(new long[] {1L, 10L, 30L, 11L, 12L, 20L}, tree.withDescendants(1L));
+        Assert.assertArrayEquals(new long[] {99L}, tree.withDescendants(99L));
+
+        // More descendants than the initial capacity of the result
+        final long[] pids = new long[20];
+        final long[] ppids = new long[20];
+        for (int i = 0; i < pids.length; i++) {
+            pids[i] = 100L + i;
+            ppids[i] = i == 0 ? 1L : 100L + i - 1;
+        }
+        final long[] result = new Processes.ProcessTree(pids, ppids, pids.length).withDescendants(100L);
+        Assert.assertArrayEquals(pids, result);
+    }
+
+    @Test
+    public void testClockTicks() {
+        Assert.assertTrue(Processes.clockTicks() > 0L);
+    }
+
+    private static long field(final byte[] stat, final int field) {
+        final int offset = Processes.statFieldOffset(stat, stat.length, field);
+        Assert.assertTrue("Field " + field + " not found", offset >= 0);
+        return Processes.parseLong(stat, offset, stat.length);
+    }
+
+    private static byte[] bytes(final String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.jboss.dmr.ModelNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class PrometheusWriterTest {
+
+    @Test
+    public void testTextFormat() {
+        // Start small to ensure the buffer grows
+        final PrometheusWriter writer = new PrometheusWriter(4);
+        writer.family("wildfly_server_up", "gauge", "Whether or not the server is running.")
+                .sample("wildfly_server_up", "one", 1L)
+                .sample("wildfly_server_up", "two", 0L);
+        writer.family("wildfly_server_boot_seconds", "gauge", "The time the last start of the server took.")
+                .sample("wildfly_server_boot_seconds", "one", 1.5D)
+                .sample("wildfly_server_boot_seconds", "two", 2.0D);
+        final String expected = "# HELP wildfly_server_up Whether or not the server is running.\n" +
+                "# TYPE wildfly_server_up gauge\n" +
+                "wildfly_server_up{server=\"one\"} 1\n" +
+                "wildfly_server_up{server=\"two\"} 0\n" +
+                "# HELP wildfly_server_boot_seconds The time the last start of the server took.\n" +
+                "# TYPE wildfly_server_boot_seconds gauge\n" +
+                "wildfly_server_boot_seconds{server=\"one\"} 1.5\n" +
+                "wildfly_server_boot_seconds{server=\"two\"} 2\n";
+        Assert.assertEquals(expected, toString(writer));
+        Assert.assertEquals(expected.length(), writer.size());
+
+        writer.reset();
+        Assert.assertEquals(0, writer.size());
+        writer.sample("test", "three", 3L);
+        Assert.assertEquals("test{server=\"three\"} 3\n", toString(writer));
+    }
+
+    @Test
+    public void testValues() {
+        final PrometheusWriter writer = new PrometheusWriter(16);
+        writer.append(0L).append(' ')
+                .append(-42L).append(' ')
+                .append(Long.MAX_VALUE).append(' ')
+                .append(Long.MIN_VALUE).append(' ')
+                .append(-0.25D).append(' ')
+                .append(Double.NaN).append(' ')
+                .append(Double.POSITIVE_INFINITY).append(' ')
+                .append(Double.NEGATIVE_INFINITY);
+        Assert.assertEquals("0 -42 9223372036854775807 -9223372036854775808 -0.25 NaN +Inf -Inf", toString(writer));
+    }
+
+    @Test
+    public void testUtf8() {
+        final String value = "caf\u00e9 \u20ac \ud83d\ude00 end";
+        final PrometheusWriter writer = new PrometheusWriter(2);
+        writer.append(value);
+        Assert.assertEquals(value, toString(writer));
+        Assert.assertEquals(value.getBytes(StandardCharsets.UTF_8).length, writer.size());
+    }
+
+    @Test
+    public void testEscapeLabelValue() {
+        Assert.assertEquals("server-one", PrometheusWriter.escapeLabelValue("server-one"));
+        Assert.assertEquals("C:\\\\wildfly", PrometheusWriter.escapeLabelValue("C:\\wildfly"));
+        Assert.assertEquals("a \\\"quoted\\\" name", PrometheusWriter.escapeLabelValue("a \"quoted\" name"));
+        Assert.assertEquals("line1\\nline2", PrometheusWriter.escapeLabelValue("line1\nline2"));
+
+        final PrometheusWriter writer = new PrometheusWriter(16);
+        writer.sample("test", PrometheusWriter.escapeLabelValue("a\\\"\n"), 1L);
+        Assert.assertEquals("test{server=\"a\\\\\\\"\\n\"} 1\n", toString(writer));
+    }
+
+    @Test
+    public void testEscapeHelp() {
+        final String help = "Read from /subsystem=datasources";
+        Assert.assertSame(help, PrometheusWriter.escapeHelp(help));
+        Assert.assertEquals("C:\\\\wildfly", PrometheusWriter.escapeHelp("C:\\wildfly"));
+        // Quotes are only escaped in label values
+        Assert.assertEquals("a \"quoted\" line1\\nline2", PrometheusWriter.escapeHelp("a \"quoted\" line1\nline2"));
+
+        final PrometheusWriter writer = new PrometheusWriter(16);
+        writer.family("test", "gauge", "line1\nline2\\");
+        Assert.assertEquals("# HELP test line1\\nline2\\\\\n# TYPE test gauge\n", toString(writer));
+    }
+
+    @Test
+    public void testExportedNamesUnique() throws Exception {
+        final ModelNode address = new ModelNode().setEmptyList();
+        assertRejected(MetricsScraper.builder().addMetric(Metric.of("server_up", address, "value")));
+        assertRejected(MetricsScraper.builder().addMetric(Metric.of("management_latency_seconds", address, "value")));
+        assertRejected(MetricsScraper.builder()
+                .addMetric(Metric.of("heap-used", address, "value"))
+                .addMetric(Metric.of("heap.used", address, "value")));
+    }
+
+    @Test
+    public void testSanitizeName() {
+        Assert.assertEquals("heap_used", PrometheusWriter.sanitizeName("heap_used"));
+        Assert.assertEquals("jvm:heap_used", PrometheusWriter.sanitizeName("jvm:heap_used"));
+        Assert.assertEquals("heap_used_bytes", PrometheusWriter.sanitizeName("heap-used.bytes"));
+        // A name cannot start with a digit
+        Assert.assertEquals("_0_threads", PrometheusWriter.sanitizeName("10 threads"));
+        Assert.assertEquals("g1_old_gen", PrometheusWriter.sanitizeName("g1 old gen"));
+        Assert.assertEquals("caf_", PrometheusWriter.sanitizeName("caf\u00e9"));
+    }
+
+    private static void assertRejected(final MetricsScraper.Builder builder) throws IOException {
+        try (MetricsScraper scraper = builder.build()) {
+            final PrometheusExporter exporter;
+            try {
+                exporter = PrometheusExporter.builder().setPort(0).setMetricsScraper(scraper).build();
+            } catch (IllegalArgumentException expected) {
+                return;
+            }
+            exporter.close();
+            Assert.fail("Expected the metric names to be rejected: " + scraper.getMetrics());
+        }
+    }
+
+    private static String toString(final PrometheusWriter writer) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            writer.writeTo(out);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
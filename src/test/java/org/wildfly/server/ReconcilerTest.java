@@ -0,0 +1,245 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.as.controller.client.helpers.Operations;
+import org.jboss.dmr.ModelNode;
+import org.jboss.threads.AsyncFuture;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class ReconcilerTest {
+
+    @Test
+    public void testOnlyDifferencesApplied() throws Exception {
+        final TestServer server = new TestServer();
+        final StubClient client = new StubClient(server);
+        server.add(new ModelNode().setEmptyList(), attributes("name", "server"));
+        server.add(address("system-property", "a"), attributes("value", "1"));
+        server.add(address("system-property", "b"), attributes("value", "2"));
+        server.add(address("system-property", "c"), attributes("value", "3"));
+        server.add(address("subsystem", "logging"), new ModelNode().setEmptyObject());
+        server.add(address("subsystem", "logging", "logger", "org.jboss"), attributes("level", "INFO"));
+        server.add(address("subsystem", "logging", "logger", "org.jboss", "filter", "f"), new ModelNode().setEmptyObject());
+        server.boolAttribute(address("subsystem", "logging"), "add-logging-api-dependencies", true);
+
+        final DesiredState desired = DesiredState.builder()
+                .addResource(new ModelNode().setEmptyList(), attributes("name", "server"))
+                .addResource(address("system-property", "a"), attributes("value", "1"))
+                .addResource(address("system-property", "b"), attributes("value", "changed"))
+                .addResource(address("system-property", "d"), attributes("value", "4"))
+                .removeResource(address("system-property", "c"))
+                .removeResource(address("system-property", "missing"))
+                .addResource(address("subsystem", "logging"), attributes("add-logging-api-dependencies", "true"))
+                .addResource(address("subsystem", "logging", "logger", "org.jboss"), attributes("level", null))
+                .removeResource(address("subsystem", "logging", "logger", "org.jboss", "filter", "f"))
+                .addResource(address("subsystem", "other"), new ModelNode().setEmptyObject())
+                .addResource(address("subsystem", "other", "child", "one"), attributes("value", "x"))
+                .build();
+
+        final List<ModelNode> operations = Reconciler.diff(client, desired);
+        final List<String> summary = new ArrayList<>();
+        for (ModelNode op : operations) {
+            summary.add(Operations.getOperationName(op) + ' ' + Operations.getOperationAddress(op).asList());
+        }
+        Assert.assertEquals("[remove [(\"subsystem\" => \"logging\"), (\"logger\" => \"org.jboss\"), (\"filter\" => \"f\")], " +
+                "remove [(\"system-property\" => \"c\")], " +
+                "add [(\"system-property\" => \"d\")], " +
+                "add [(\"subsystem\" => \"other\")], " +
+                "add [(\"subsystem\" => \"other\"), (\"child\" => \"one\")], " +
+                "write-attribute [(\"system-property\" => \"b\")], " +
+                "undefine-attribute [(\"subsystem\" => \"logging\"), (\"logger\" => \"org.jboss\")]]", summary.toString());
+        Assert.assertEquals("x", operations.get(4).get("value").asString());
+
+        // The root resource, then one composite for each depth of the parents, the parent of the missing
+        // subsystem=other/child=one was not read
+        Assert.assertEquals(4, server.reads);
+
+        final ReconcileReport report = Reconciler.reconcile(client, desired);
+        Assert.assertTrue(report.isChanged());
+        Assert.assertTrue(report.isReloadRequired());
+        Assert.assertFalse(report.isRestartRequired());
+        Assert.assertEquals(7, report.getOperations().size());
+        Assert.assertEquals(1, server.applied.size());
+
+        // The second time nothing has changed so nothing is executed
+        server.applied.clear();
+        final ReconcileReport unchanged = Reconciler.reconcile(client, desired);
+        Assert.assertFalse(unchanged.isChanged());
+        Assert.assertFalse(unchanged.isReloadRequired());
+        Assert.assertTrue(server.applied.isEmpty());
+    }
+
+    @Test
+    public void testMissingAncestors() throws Exception {
+        final TestServer server = new TestServer();
+        final StubClient client = new StubClient(server);
+        server.add(new ModelNode().setEmptyList(), attributes("name", "server"));
+        server.add(address("subsystem", "logging"), new ModelNode().setEmptyObject());
+
+        // Neither the parents nor the resources exist, and the parents are not part of the desired state
+        final DesiredState desired = DesiredState.builder()
+                .removeResource(address("subsystem", "logging", "logger", "missing", "filter", "f"))
+                .removeResource(address("subsystem", "missing", "child", "one", "child", "two"))
+                .addResource(address("subsystem", "logging", "logger", "org.jboss"), attributes("level", "INFO"))
+                .build();
+        final List<ModelNode> operations = Reconciler.diff(client, desired);
+        Assert.assertEquals(1, operations.size());
+        Assert.assertEquals("add", Operations.getOperationName(operations.get(0)));
+        Assert.assertEquals(address("subsystem", "logging", "logger", "org.jboss"), Operations.getOperationAddress(operations.get(0)));
+
+        // Only the parents known to exist are read
+        Assert.assertEquals(2, server.reads);
+    }
+
+    @Test
+    public void testEquality() {
+        Assert.assertTrue(Reconciler.isEqual(new ModelNode("true"), new ModelNode(true)));
+        Assert.assertTrue(Reconciler.isEqual(new ModelNode("10"), new ModelNode(10)));
+        Assert.assertFalse(Reconciler.isEqual(new ModelNode("10"), new ModelNode(11)));
+        Assert.assertFalse(Reconciler.isEqual(new ModelNode("10"), new ModelNode()));
+        Assert.assertTrue(Reconciler.isEqual(new ModelNode().add("a").add(1), new ModelNode().add("a").add("1")));
+        final ModelNode desired = new ModelNode();
+        desired.get("a").set("1");
+        final ModelNode current = new ModelNode();
+        current.get("a").set(1);
+        Assert.assertTrue(Reconciler.isEqual(desired, current));
+        current.get("b").set(2);
+        Assert.assertFalse(Reconciler.isEqual(desired, current));
+    }
+
+    @Test
+    public void testProcessState() {
+        final ModelNode result = new ModelNode();
+        result.get("outcome").set("success");
+        result.get("server-groups", "main-server-group", "host", "master", "server-one", "response", "response-headers", "process-state")
+                .set("restart-required");
+        result.get("response-headers", "process-state").set("reload-required");
+        Assert.assertEquals("restart-required", Reconciler.processState(result));
+        Assert.assertNull(Reconciler.processState(new ModelNode().setEmptyObject()));
+    }
+
+    private static ModelNode address(final String... segments) {
+        return Operations.createAddress(segments);
+    }
+
+    private static ModelNode attributes(final String name, final String value) {
+        final ModelNode result = new ModelNode();
+        if (value == null) {
+            result.get(name);
+        } else {
+            result.get(name).set(value);
+        }
+        return result;
+    }
+
+    private static class TestServer implements StubClient.Handler {
+        private final Map<ModelNode, ModelNode> model = new LinkedHashMap<>();
+        private final List<ModelNode> applied = new ArrayList<>();
+        private int reads;
+
+        void add(final ModelNode address, final ModelNode attributes) {
+            model.put(address, attributes);
+        }
+
+        void boolAttribute(final ModelNode address, final String name, final boolean value) {
+            model.get(address).get(name).set(value);
+        }
+
+        @Override
+        public AsyncFuture<ModelNode> execute(final ModelNode operation) {
+            return StubFuture.completed(respond(operation));
+        }
+
+        private ModelNode respond(final ModelNode operation) {
+            final List<ModelNode> steps = operation.get("steps").asList();
+            final ModelNode result = new ModelNode();
+            result.get("outcome").set("success");
+            if (Operations.getOperationName(steps.get(0)).startsWith("read-")) {
+                reads++;
+                for (int i = 0; i < steps.size(); i++) {
+                    final ModelNode step = steps.get(i);
+                    final ModelNode address = Operations.getOperationAddress(step);
+                    if (!model.containsKey(address)) {
+                        return failed("Resource not found " + address);
+                    }
+                    final ModelNode stepResult = result.get("result", "step-" + (i + 1));
+                    stepResult.get("outcome").set("success");
+                    if ("read-resource".equals(Operations.getOperationName(step))) {
+                        stepResult.get("result").set(model.get(address));
+                    } else {
+                        final String type = step.get("child-type").asString();
+                        final int depth = address.asList().size();
+                        stepResult.get("result").setEmptyObject();
+                        for (Map.Entry<ModelNode, ModelNode> entry : model.entrySet()) {
+                            final List<ModelNode> segments = entry.getKey().asList();
+                            if (segments.size() == depth + 1 && segments.subList(0, depth).equals(address.asList()) &&
+                                    segments.get(depth).asProperty().getName().equals(type)) {
+                                stepResult.get("result", segments.get(depth).asProperty().getValue().asString()).set(entry.getValue());
+                            }
+                        }
+                    }
+                }
+                return result;
+            }
+            applied.add(operation);
+            for (ModelNode step : steps) {
+                final ModelNode address = Operations.getOperationAddress(step);
+                switch (Operations.getOperationName(step)) {
+                    case "add":
+                        final ModelNode attributes = step.clone();
+                        attributes.remove("operation");
+                        attributes.remove("address");
+                        model.put(address, attributes);
+                        break;
+                    case "remove":
+                        model.remove(address);
+                        break;
+                    case "write-attribute":
+                        model.get(address).get(step.get("name").asString()).set(step.get("value"));
+                        break;
+                    case "undefine-attribute":
+                        model.get(address).get(step.get("name").asString()).clear();
+                        break;
+                    default:
+                        return failed("Unknown operation " + step);
+                }
+            }
+            result.get("response-headers", "operation-requires-reload").set(true);
+            result.get("response-headers", "process-state").set("reload-required");
+            return result;
+        }
+
+        private static ModelNode failed(final String description) {
+            final ModelNode result = new ModelNode();
+            result.get("outcome").set("failed");
+            result.get("failure-description").set(description);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.as.controller.client.helpers.Operations;
+import org.jboss.dmr.ModelNode;
+import org.jboss.threads.AsyncFuture;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class ResilientModelControllerClientTest {
+    private static final ModelNode READ = Operations.createReadAttributeOperation(new ModelNode().setEmptyList(), "server-state");
+    private static final ModelNode WRITE = Operations.createOperation("reload");
+
+    @Test
+    public void testReadsRetried() throws Exception {
+        final TestServer server = new TestServer();
+        final ResilientModelControllerClient client = createClient(server, ClientPolicy.builder().setRetryBackoff(Duration.ofMillis(1L)).build());
+        server.fail(new IOException("Channel closed"));
+        server.fail(new IOException("Channel closed"));
+        Assert.assertTrue(Operations.isSuccessfulOutcome(client.execute(READ)));
+        Assert.assertEquals(3, server.executions.get());
+
+        // Operations are cancelled when the channel is closed, e.g. during a reload
+        server.executions.set(0);
+        server.fail(new CancellationException());
+        Assert.assertTrue(Operations.isSuccessfulOutcome(client.execute(READ)));
+        Assert.assertEquals(2, server.executions.get());
+
+        // The server may not be listening yet, e.g. during a restart
+        server.executions.set(0);
+        server.fail(new IOException("Could not connect", new ConnectException("Connection refused")));
+        Assert.assertTrue(Operations.isSuccessfulOutcome(client.execute(READ)));
+        Assert.assertEquals(2, server.executions.get());
+
+        server.executions.set(0);
+        for (int i = 0; i < 4; i++) {
+            server.fail(new IOException("Could not connect", new ConnectException("Connection refused")));
+        }
+        try {
+            client.execute(READ);
+            Assert.fail("Expected the connection failure to be thrown");
+        } catch (IOException expected) {
+            Assert.assertEquals(4, server.executions.get());
+        }
+    }
+
+    @Test
+    public void testWritesNotRetried() throws Exception {
+        final TestServer server = new TestServer();
+        final ResilientModelControllerClient client = createClient(server, ClientPolicy.builder().setRetryBackoff(Duration.ofMillis(1L)).build());
+        server.fail(new IOException("Channel closed"));
+        try {
+            client.execute(WRITE);
+            Assert.fail("Expected the failure to be thrown");
+        } catch (IOException expected) {
+            Assert.assertEquals("Channel closed", expected.getMessage());
+            Assert.assertEquals(1, server.executions.get());
+        }
+    }
+
+    @Test
+    public void testCircuitBreaker() throws Exception {
+        final TestServer server = new TestServer();
+        final ResilientModelControllerClient client = createClient(server, ClientPolicy.builder()
+                .setDeadline(Duration.ofMillis(20L))
+                .setFailureThreshold(2)
+                .setOpenDuration(Duration.ofMillis(200L))
+                .build());
+        for (int i = 0; i < 2; i++) {
+            server.hang();
+            try {
+                client.execute(READ);
+                Assert.fail("Expected the operation to time out");
+            } catch (OperationTimeoutException expected) {
+                Assert.assertEquals(Duration.ofMillis(20L), expected.getDeadline());
+            }
+        }
+        try {
+            client.execute(READ);
+            Assert.fail("Expected the operation to be rejected");
+        } catch (CircuitOpenException expected) {
+            Assert.assertEquals(2, server.executions.get());
+        }
+        Thread.sleep(250L);
+        Assert.assertTrue(Operations.isSuccessfulOutcome(client.execute(READ)));
+
+        // Starting a new process allows operations immediately
+        server.hang();
+        server.hang();
+        for (int i = 0; i < 2; i++) {
+            try {
+                client.execute(READ);
+            } catch (OperationTimeoutException ignore) {
+            }
+        }
+        client.reset();
+        Assert.assertTrue(Operations.isSuccessfulOutcome(client.execute(READ)));
+    }
+
+    @Test
+    public void testFailuresDoNotCloseCircuit() throws Exception {
+        final TestServer server = new TestServer();
+        final ResilientModelControllerClient client = createClient(server, ClientPolicy.builder()
+                .setDeadline(Duration.ofMillis(20L))
+                .setFailureThreshold(2)
+                .setOpenDuration(Duration.ofMillis(200L))
+                .build());
+        // A failure which is not a timeout between two timeouts does not reset the count
+        server.hang();
+        server.fail(new IOException("Channel closed"));
+        server.hang();
+        try {
+            client.execute(READ);
+            Assert.fail("Expected the operation to time out");
+        } catch (OperationTimeoutException ignore) {
+        }
+        try {
+            client.execute(WRITE);
+            Assert.fail("Expected the failure to be thrown");
+        } catch (IOException expected) {
+            Assert.assertEquals("Channel closed", expected.getMessage());
+        }
+        try {
+            client.execute(READ);
+            Assert.fail("Expected the operation to time out");
+        } catch (OperationTimeoutException ignore) {
+        }
+        try {
+            client.execute(READ);
+            Assert.fail("Expected the operation to be rejected");
+        } catch (CircuitOpenException expected) {
+            Assert.assertEquals(3, server.executions.get());
+        }
+
+        // A trial which fails without a response leaves the circuit open for the next trial
+        Thread.sleep(250L);
+        server.fail(new IOException("Channel closed"));
+        try {
+            client.execute(WRITE);
+            Assert.fail("Expected the failure to be thrown");
+        } catch (IOException expected) {
+            Assert.assertEquals("Channel closed", expected.getMessage());
+        }
+        server.hang();
+        try {
+            client.execute(READ);
+            Assert.fail("Expected the operation to time out");
+        } catch (OperationTimeoutException ignore) {
+        }
+        try {
+            client.execute(READ);
+            Assert.fail("Expected the operation to be rejected");
+        } catch (CircuitOpenException expected) {
+            Assert.assertEquals(5, server.executions.get());
+        }
+    }
+
+    @Test
+    public void testOperationTimeoutExtendsDeadline() throws Exception {
+        final TestServer server = new TestServer();
+        final ResilientModelControllerClient client = createClient(server, ClientPolicy.builder()
+                .setDeadline(Duration.ofMillis(20L))
+                .setFailureThreshold(1)
+                .build());
+        server.delay = 200L;
+        final ModelNode suspend = Operations.createOperation("suspend-servers", Operations.createAddress("server-group", "main-server-group"));
+        suspend.get("timeout").set(1);
+        Assert.assertTrue(Operations.isSuccessfulOutcome(client.execute(suspend)));
+
+        // The timeout applies to each step of a composite
+        final ModelNode composite = Operations.CompositeOperationBuilder.create()
+                .addStep(suspend)
+                .addStep(READ)
+                .build().getOperation();
+        Assert.assertTrue(Operations.isSuccessfulOutcome(client.execute(composite)));
+
+        // The deadline of the policy is still applied to operations without a timeout
+        server.delay = 0L;
+        server.hang();
+        try {
+            client.execute(READ);
+            Assert.fail("Expected the operation to time out");
+        } catch (OperationTimeoutException expected) {
+            Assert.assertEquals(Duration.ofMillis(20L), expected.getDeadline());
+        }
+    }
+
+    @Test
+    public void testUnboundedOperations() throws Exception {
+        final TestServer server = new TestServer();
+        final ResilientModelControllerClient client = createClient(server, ClientPolicy.builder()
+                .setDeadline(Duration.ofMillis(20L))
+                .setFailureThreshold(1)
+                .build());
+        server.delay = 200L;
+        final ModelNode address = Operations.createAddress("server-group", "main-server-group");
+        final ModelNode suspend = Operations.createOperation("suspend-servers", address);
+        suspend.get("timeout").set(-1);
+        Assert.assertTrue(Operations.isSuccessfulOutcome(client.execute(suspend)));
+
+        final ModelNode stop = Operations.createOperation("stop-servers", address);
+        stop.get("blocking").set(true);
+        Assert.assertTrue(Operations.isSuccessfulOutcome(client.execute(stop)));
+        Assert.assertTrue(Operations.isSuccessfulOutcome(client.execute(Operations.CompositeOperationBuilder.create()
+                .addStep(READ)
+                .addStep(stop)
+                .build())));
+
+        // None of the operations counted as a failure for the circuit breaker
+        server.delay = 0L;
+        Assert.assertTrue(Operations.isSuccessfulOutcome(client.execute(READ)));
+        Assert.assertEquals(4, server.executions.get());
+    }
+
+    private static ResilientModelControllerClient createClient(final TestServer server, final ClientPolicy policy) {
+        return new ResilientModelControllerClient("test", new StubClient(server), policy);
+    }
+
+    private static class TestServer implements StubClient.Handler {
+        private final Deque<Throwable> outcomes = new ArrayDeque<>();
+        private final AtomicInteger executions = new AtomicInteger();
+        private volatile long delay;
+
+        void fail(final Throwable cause) {
+            outcomes.add(cause);
+        }
+
+        void hang() {
+            outcomes.add(new Throwable());
+        }
+
+        @Override
+        public AsyncFuture<ModelNode> execute(final ModelNode operation) {
+            executions.incrementAndGet();
+            final StubFuture future = new StubFuture();
+            final Throwable outcome = outcomes.poll();
+            if (outcome == null) {
+                final ModelNode result = new ModelNode();
+                result.get("outcome").set("success");
+                result.get("result").set("running");
+                if (delay > 0L) {
+                    final long delay = this.delay;
+                    final Thread thread = new Thread(() -> {
+                        try {
+                            Thread.sleep(delay);
+                        } catch (InterruptedException ignore) {
+                        }
+                        future.complete(result);
+                    });
+                    thread.setDaemon(true);
+                    thread.start();
+                } else {
+                    future.complete(result);
+                }
+            } else if (outcome instanceof CancellationException) {
+                future.cancelled();
+            } else if (outcome.getClass() != Throwable.class) {
+                future.fail(outcome);
+            }
+            return future;
+        }
+    }
+}
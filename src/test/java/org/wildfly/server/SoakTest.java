@@ -0,0 +1,231 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.helpers.Operations;
+import org.jboss.dmr.ModelNode;
+import org.jboss.logging.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.core.launcher.DomainCommandBuilder;
+import org.wildfly.core.launcher.StandaloneCommandBuilder;
+
+/**
+ * Repeatedly starts, reloads and stops servers checking that resources of this JVM, the threads, open file
+ * descriptors, heap and child processes, do not grow with each cycle.
+ * <p>
+ * This test is not run by default. Use the {@code soak} profile to run it, e.g.
+ * {@code mvn test -Psoak -Dwildfly.soak.cycles=5000}. A sample is recorded after each cycle in a CSV file in the
+ * {@code wildfly.soak.output} directory, {@code target/soak} by default.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class SoakTest {
+    private static final Logger LOGGER = Logger.getLogger(SoakTest.class);
+
+    private static final int CYCLES = Integer.getInteger("wildfly.soak.cycles", 1000);
+    private static final int DOMAIN_CYCLES = Integer.getInteger("wildfly.soak.domain.cycles", 50);
+    // The cycles run before the baseline is taken so class loading and pools which grow to a fixed size are excluded
+    private static final int WARMUP_CYCLES = Integer.getInteger("wildfly.soak.warmup", 10);
+    private static final int MAX_THREAD_GROWTH = Integer.getInteger("wildfly.soak.max.thread.growth", 10);
+    private static final int MAX_FD_GROWTH = Integer.getInteger("wildfly.soak.max.fd.growth", 32);
+    private static final long MAX_HEAP_GROWTH = Long.getLong("wildfly.soak.max.heap.growth", 64L) * 1024L * 1024L;
+    // How long to wait for resources released asynchronously, e.g. threads of a closed client, before failing
+    private static final long SETTLE_TIMEOUT = TimeUnit.SECONDS.toNanos(10L);
+    private static final Path OUTPUT = Paths.get(System.getProperty("wildfly.soak.output", "target/soak"));
+
+    @Test
+    public void testStandaloneStartStop() throws Exception {
+        soak("standalone-start-stop", CYCLES, () -> {
+            final StandaloneServer server = Server.builder(StandaloneCommandBuilder.of(Environment.WILDFLY_HOME))
+                    .setStandardOut(new ConsoleBuffer(64 * 1024))
+                    .build();
+            server.start(Environment.TIMEOUT);
+            try {
+                Assert.assertTrue("The server does not appear to be running", server.isRunning());
+            } finally {
+                server.stop();
+            }
+        });
+    }
+
+    @Test
+    public void testStandaloneReload() throws Exception {
+        final StandaloneServer server = Server.builder(StandaloneCommandBuilder.of(Environment.WILDFLY_HOME))
+                .setStandardOut(new ConsoleBuffer(64 * 1024))
+                .build();
+        server.start(Environment.TIMEOUT);
+        try {
+            soak("standalone-reload", CYCLES, () -> reload(server));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testDomainStartStop() throws Exception {
+        soak("domain-start-stop", DOMAIN_CYCLES, () -> {
+            final DomainServer server = Server.builder(DomainCommandBuilder.of(Environment.WILDFLY_HOME))
+                    .setStandardOut(new ConsoleBuffer(64 * 1024))
+                    .build();
+            server.start(Environment.TIMEOUT);
+            try {
+                Assert.assertTrue("The domain does not appear to be running", server.isRunning());
+            } finally {
+                server.stop();
+            }
+        });
+    }
+
+    private static void soak(final String name, final int cycles, final Cycle cycle) throws Exception {
+        Files.createDirectories(OUTPUT);
+        final Path file = OUTPUT.resolve(name + ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("cycle,millis,threads,fds,heap,children");
+            writer.newLine();
+            Sample baseline = null;
+            for (int i = 1; i <= cycles; i++) {
+                final long start = System.nanoTime();
+                cycle.run();
+                final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                Sample sample = Sample.take();
+                if (baseline != null && !sample.isWithinLimits(baseline)) {
+                    sample = settle(baseline);
+                }
+                writer.write(i + "," + millis + "," + sample.toCsv());
+                writer.newLine();
+                if (i == WARMUP_CYCLES || (baseline == null && i == cycles)) {
+                    baseline = sample;
+                    LOGGER.debugf("Baseline for %s after %d cycles: %s", name, i, baseline);
+                } else if (baseline != null) {
+                    writer.flush();
+                    assertWithinLimits(name, i, baseline, sample);
+                }
+            }
+            LOGGER.debugf("Completed %d cycles of %s, samples written to %s", cycles, name, file);
+        }
+    }
+
+    private static Sample settle(final Sample baseline) throws InterruptedException {
+        final long deadline = System.nanoTime() + SETTLE_TIMEOUT;
+        Sample sample = Sample.take();
+        while (!sample.isWithinLimits(baseline) && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(250L);
+            sample = Sample.take();
+        }
+        return sample;
+    }
+
+    private static void assertWithinLimits(final String name, final int cycle, final Sample baseline, final Sample sample) {
+        final String message = String.format("%s cycle %d: baseline %s, current %s", name, cycle, baseline, sample);
+        Assert.assertTrue("Threads grew beyond " + MAX_THREAD_GROWTH + ". " + message, sample.threads - baseline.threads <= MAX_THREAD_GROWTH);
+        Assert.assertTrue("Open file descriptors grew beyond " + MAX_FD_GROWTH + ". " + message,
+                sample.fds < 0L || sample.fds - baseline.fds <= MAX_FD_GROWTH);
+        Assert.assertTrue("Heap grew beyond " + MAX_HEAP_GROWTH + " bytes. " + message, sample.heap - baseline.heap <= MAX_HEAP_GROWTH);
+        Assert.assertEquals("Child processes were left running. " + message, baseline.children, sample.children);
+    }
+
+    private static void reload(final StandaloneServer server) throws IOException, InterruptedException {
+        final ModelControllerClient client = server.getClient();
+        final ModelNode result = client.execute(Operations.createOperation("reload"));
+        if (!Operations.isSuccessfulOutcome(result)) {
+            Assert.fail(Operations.getFailureDescription(result).asString());
+        }
+        final ModelNode op = Operations.createReadAttributeOperation(ServerHelper.EMPTY_ADDRESS, "server-state");
+        // Wait for the reload to begin, then for the server to be running again
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Environment.TIMEOUT);
+        boolean reloading = false;
+        while (System.nanoTime() < deadline) {
+            try {
+                final ModelNode state = client.execute(op);
+                final boolean running = Operations.isSuccessfulOutcome(state) && "running".equals(Operations.readResult(state).asString());
+                if (reloading && running) {
+                    return;
+                }
+                reloading = reloading || !running;
+            } catch (IOException e) {
+                reloading = true;
+            }
+            TimeUnit.MILLISECONDS.sleep(20L);
+        }
+        Assert.fail("The server was not reloaded within " + Environment.TIMEOUT + " seconds");
+    }
+
+    @FunctionalInterface
+    private interface Cycle {
+        void run() throws Exception;
+    }
+
+    private static class Sample {
+        private static final long PID = Long.parseLong(ManagementFactory.getRuntimeMXBean().getName().split("@")[0]);
+        private static final byte[] BUFFER = new byte[1024];
+
+        final int threads;
+        final long fds;
+        final long heap;
+        final int children;
+
+        private Sample(final int threads, final long fds, final long heap, final int children) {
+            this.threads = threads;
+            this.fds = fds;
+            this.heap = heap;
+            this.children = children;
+        }
+
+        static Sample take() {
+            System.gc();
+            System.gc();
+            final int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+            final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+            final long fds = (os instanceof com.sun.management.UnixOperatingSystemMXBean ?
+                    ((com.sun.management.UnixOperatingSystemMXBean) os).getOpenFileDescriptorCount() : -1L);
+            final long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            // Only count the processes on systems with /proc, elsewhere the count is always 0
+            final int children = Processes.snapshot(BUFFER).withDescendants(PID).length - 1;
+            return new Sample(threads, fds, heap, children);
+        }
+
+        boolean isWithinLimits(final Sample baseline) {
+            return threads - baseline.threads <= MAX_THREAD_GROWTH && (fds < 0L || fds - baseline.fds <= MAX_FD_GROWTH) &&
+                    heap - baseline.heap <= MAX_HEAP_GROWTH && children == baseline.children;
+        }
+
+        String toCsv() {
+            return threads + "," + fds + "," + heap + "," + children;
+        }
+
+        @Override
+        public String toString() {
+            return "[threads=" + threads + ", fds=" + fds + ", heap=" + heap + ", children=" + children + ']';
+        }
+    }
+}
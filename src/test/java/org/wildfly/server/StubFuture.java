@@ -0,0 +1,60 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import org.jboss.dmr.ModelNode;
+import org.jboss.threads.AsyncFutureTask;
+
+/**
+ * The future result of an operation executed with a {@link StubClient} which is completed by the test.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class StubFuture extends AsyncFutureTask<ModelNode> {
+
+    StubFuture() {
+        super(Runnable::run);
+    }
+
+    /**
+     * Creates a future which has already completed.
+     *
+     * @param result the result of the operation
+     *
+     * @return the completed future
+     */
+    static StubFuture completed(final ModelNode result) {
+        final StubFuture future = new StubFuture();
+        future.complete(result);
+        return future;
+    }
+
+    boolean complete(final ModelNode result) {
+        return setResult(result);
+    }
+
+    boolean fail(final Throwable cause) {
+        return setFailed(cause);
+    }
+
+    boolean cancelled() {
+        return setCancelled();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2016 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.server;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class WildFlyProvisionerTest {
+    private Path dir;
+    private Path zip;
+
+    @Before
+    public void createZip() throws IOException {
+        dir = Files.createTempDirectory("wildfly-provisioner");
+        zip = dir.resolve("wildfly-dist.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            addEntry(out, "wildfly/", null);
+            addEntry(out, "wildfly/jboss-modules.jar", "jboss-modules");
+            addEntry(out, "wildfly/bin/standalone.sh", "#!/bin/sh");
+            addEntry(out, "wildfly/modules/system/layers/base/org/jboss/as/main/module.xml", "<module/>");
+            addEntry(out, "wildfly/standalone/configuration/standalone.xml", "<server/>");
+        }
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(final Path dir, final IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void testProvision() throws Exception {
+        final Path cache = dir.resolve("cache");
+        final WildFlyProvisioner provisioner = WildFlyProvisioner.builder(zip).setCacheDirectory(cache).setThreads(2).build();
+        final Path home = provisioner.getHome();
+        Assert.assertEquals("wildfly", home.getFileName().toString());
+        Assert.assertTrue(Files.isExecutable(home.resolve("bin/standalone.sh")));
+
+        // The same zip is only unpacked once
+        Assert.assertEquals(home, WildFlyProvisioner.builder(zip).setCacheDirectory(cache).build().getHome());
+
+        final Path first = provisioner.provision(dir.resolve("first"));
+        final Path second = provisioner.provision(dir.resolve("second"));
+        Assert.assertTrue(ServerHelper.isValidWildFlyHome(first));
+        final String module = "modules/system/layers/base/org/jboss/as/main/module.xml";
+        Assert.assertTrue(Files.isSameFile(first.resolve(module), second.resolve(module)));
+        Assert.assertTrue(Files.isSameFile(first.resolve("jboss-modules.jar"), home.resolve("jboss-modules.jar")));
+        final String config = "standalone/configuration/standalone.xml";
+        Assert.assertFalse(Files.isSameFile(first.resolve(config), second.resolve(config)));
+        Assert.assertEquals("<server/>", new String(Files.readAllBytes(second.resolve(config)), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testFailedUnpackDeleted() throws Exception {
+        final Path invalid = dir.resolve("invalid.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(invalid))) {
+            addEntry(out, "wildfly/", null);
+            addEntry(out, "wildfly/jboss-modules.jar", "jboss-modules");
+            addEntry(out, "wildfly/bin/standalone.sh", "#!/bin/sh");
+            addEntry(out, "../outside.txt", "outside");
+        }
+        final Path cache = dir.resolve("cache");
+        try {
+            WildFlyProvisioner.builder(invalid).setCacheDirectory(cache).setThreads(2).build().getHome();
+            Assert.fail("Expected an entry outside of the target directory to be rejected");
+        } catch (IOException expected) {
+        }
+        // The partially unpacked directory is deleted
+        try (Stream<Path> files = Files.list(cache)) {
+            Assert.assertEquals(0L, files.count());
+        }
+        Assert.assertTrue(Files.notExists(cache.resolve("outside.txt")));
+    }
+
+    private static void addEntry(final ZipOutputStream out, final String name, final String content) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        if (content != null) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        out.closeEntry();
+    }
+}